@@ -23,6 +23,7 @@
  *
  *      Copyright 2010 Sun Microsystems, Inc.
  *      Portions Copyright 2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 package com.forgerock.opendj.util;
 
@@ -32,6 +33,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 
 import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.forgerock.util.Reject;
 
 /**
@@ -497,6 +499,70 @@ public final class StringPrepProfile {
         }
     }
 
+    /**
+     * Prepares an attribute or assertion value as per stringprep algorithm
+     * defined in RFC 4518, appending the UTF-8 encoding of the prepared form
+     * to the provided builder. This produces the same bytes as
+     * {@link #prepareUnicode(StringBuilder, ByteSequence, boolean, boolean)},
+     * but values which only contain ASCII characters are prepared without
+     * creating any intermediate string.
+     *
+     * @param builder
+     *            The builder to which the prepared form of the string should be
+     *            appended.
+     * @param sequence
+     *            The {@link org.forgerock.opendj.ldap.ByteSequence} that needs
+     *            preparation.
+     * @param trim
+     *            Indicates whether leading and trailing spaces should be
+     *            omitted from the string representation.
+     * @param foldCase
+     *            Indicates whether the case will be folded during mapping.
+     * @see <a href="http://www.rfc-editor.org/rfc/rfc4518.txt">
+     *      Internationalized String Preparation</a>
+     */
+    public static void prepareUnicode(final ByteStringBuilder builder, final ByteSequence sequence,
+            final boolean trim, final boolean foldCase) {
+        Reject.ifNull(builder, sequence);
+
+        final int start = builder.length();
+        final int length = sequence.length();
+        for (int i = 0; i < length; i++) {
+            final byte b = sequence.byteAt(i);
+            if ((b & 0x7F) != b) {
+                // Non ASCII characters need to be mapped and normalized.
+                builder.setLength(start);
+                final StringBuilder buffer = new StringBuilder(length);
+                prepareUnicode(buffer, sequence, trim, foldCase);
+                builder.appendUtf8(buffer.toString());
+                return;
+            }
+
+            if (b == ' ' || (b >= '\u0009' && b < '\u000E')) {
+                // These characters are mapped to a SPACE.
+                if (canMapToSpace(builder, start, trim)) {
+                    builder.appendByte(SPACE_CHAR);
+                }
+            } else if ((b >= '\u0000' && b <= '\u0008') || (b >= '\u000E' && b <= '\u001F') || b == '\u007F') {
+                // These characters are mapped to nothing and hence not copied over.
+                continue;
+            } else if (foldCase && b >= 'A' && b <= 'Z') {
+                // If case-folding is allowed then map to the lower case.
+                builder.appendByte(b + 32);
+            } else {
+                builder.appendByte(b);
+            }
+        }
+        if (trim) {
+            // Strip off any trailing spaces.
+            int newLength = builder.length();
+            while (newLength > start + 1 && builder.byteAt(newLength - 1) == SPACE_CHAR) {
+                newLength--;
+            }
+            builder.setLength(newLength);
+        }
+    }
+
     /**
      * Do not map this character into a space if:
      * <ol>
@@ -511,6 +577,14 @@ public final class StringPrepProfile {
         return !doNotMap;
     }
 
+    /** Same as {@link #canMapToSpace(StringBuilder, boolean)} for the bytes appended after {@code start}. */
+    private static boolean canMapToSpace(final ByteStringBuilder builder, final int start, final boolean trim) {
+        final int buffLen = builder.length() - start;
+        final boolean doNotMap = (trim && buffLen == 0)
+                || (buffLen > 0 && builder.byteAt(builder.length() - 1) == SPACE_CHAR);
+        return !doNotMap;
+    }
+
     /** Prevent instantiation. */
     private StringPrepProfile() {
         // Nothing to do.
@@ -22,6 +22,7 @@
  *
  *
  *      Copyright 2013-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.io;
@@ -624,6 +625,9 @@ public final class LDAP {
             final String dnString = reader.readOctetStringAsString();
             final Schema schema = options.getSchemaResolver().resolveSchema(dnString);
             final DN dn = readDN(dnString, schema);
+            if (options.isLazyEntryDecoding() && tagType == OP_TYPE_SEARCH_RESULT_ENTRY) {
+                return LazyEntry.readEntry(reader, dn, schema, options);
+            }
             entry = options.getEntryFactory().newEntry(dn);
             reader.readStartSequence();
             try {
@@ -0,0 +1,264 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.forgerock.i18n.LocalizedIllegalArgumentException;
+import org.forgerock.opendj.ldap.AbstractEntry;
+import org.forgerock.opendj.ldap.Attribute;
+import org.forgerock.opendj.ldap.AttributeDescription;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.DecodeException;
+import org.forgerock.opendj.ldap.DecodeOptions;
+import org.forgerock.opendj.ldap.Entry;
+import org.forgerock.opendj.ldap.schema.Schema;
+import org.forgerock.util.Reject;
+
+/**
+ * An entry whose attributes are kept in their encoded form until they are
+ * accessed. The encoded attributes are checked for well-formedness when the
+ * entry is decoded, but attribute descriptions are only parsed, and attribute
+ * values are only extracted, when an attribute is first requested. Attribute
+ * values are slices of the encoded attribute list and are therefore not
+ * copied. Looking up an attribute stops at its first occurrence in the
+ * encoded attribute list, and only the descriptions having the requested
+ * attribute type name or OID are parsed along the way.
+ * <p>
+ * The entry is fully decoded, into an entry created using the entry factory of
+ * the decode options, as soon as all of its attributes are requested or it is
+ * modified.
+ *
+ * @see DecodeOptions#setLazyEntryDecoding(boolean)
+ */
+final class LazyEntry extends AbstractEntry {
+    /** An attribute whose description and values are decoded on first access. */
+    private static final class LazyAttribute {
+        private final String attributeDescriptionString;
+        private final ByteString encodedValues;
+        private AttributeDescription attributeDescription;
+        private Attribute attribute;
+
+        private LazyAttribute(final String attributeDescriptionString, final ByteString encodedValues) {
+            this.attributeDescriptionString = attributeDescriptionString;
+            this.encodedValues = encodedValues;
+        }
+    }
+
+    /**
+     * Decodes the attribute list of an entry, without decoding the attribute
+     * descriptions or copying the values.
+     *
+     * @param reader
+     *            The reader positioned at the start of the attribute list.
+     * @param name
+     *            The already decoded name of the entry.
+     * @param schema
+     *            The schema which should be used for decoding attribute
+     *            descriptions.
+     * @param options
+     *            The decode options.
+     * @return The lazily decoded entry.
+     * @throws DecodeException
+     *             If the attribute list is malformed.
+     * @throws IOException
+     *             If an error occurs while reading.
+     */
+    static LazyEntry readEntry(final ASN1Reader reader, final DN name, final Schema schema,
+            final DecodeOptions options) throws DecodeException, IOException {
+        // Copy the whole attribute list at once: values will be slices of it.
+        final ByteString encodedAttributes = reader.readOctetString(ASN1.UNIVERSAL_SEQUENCE_TYPE);
+        final List<LazyAttribute> attributes = new ArrayList<>();
+        final ASN1Reader attributesReader = ASN1.getReader(encodedAttributes);
+        while (attributesReader.hasNextElement()) {
+            attributesReader.readStartSequence();
+            try {
+                final String ads = attributesReader.readOctetStringAsString();
+                final ByteString encodedValues = attributesReader.readOctetString(ASN1.UNIVERSAL_SET_TYPE);
+                final ASN1Reader valuesReader = ASN1.getReader(encodedValues);
+                while (valuesReader.hasNextElement()) {
+                    valuesReader.skipElement();
+                }
+                attributes.add(new LazyAttribute(ads, encodedValues));
+            } finally {
+                attributesReader.readEndSequence();
+            }
+        }
+        return new LazyEntry(name, schema, options, attributes);
+    }
+
+    /** The attributes, or {@code null} once the entry has been fully decoded. */
+    private List<LazyAttribute> attributes;
+
+    /** The fully decoded entry, or {@code null} until the entry is modified or fully read. */
+    private Entry decodedEntry;
+    private DN name;
+    private final DecodeOptions options;
+    private final Schema schema;
+
+    private LazyEntry(final DN name, final Schema schema, final DecodeOptions options,
+            final List<LazyAttribute> attributes) {
+        this.name = name;
+        this.schema = schema;
+        this.options = options;
+        this.attributes = attributes;
+    }
+
+    @Override
+    public boolean addAttribute(final Attribute attribute, final Collection<? super ByteString> duplicateValues) {
+        return decodeEntry().addAttribute(attribute, duplicateValues);
+    }
+
+    @Override
+    public Entry clearAttributes() {
+        decodeEntry().clearAttributes();
+        return this;
+    }
+
+    @Override
+    public Iterable<Attribute> getAllAttributes() {
+        return decodeEntry().getAllAttributes();
+    }
+
+    @Override
+    public Attribute getAttribute(final AttributeDescription attributeDescription) {
+        if (decodedEntry != null) {
+            return decodedEntry.getAttribute(attributeDescription);
+        }
+
+        for (final LazyAttribute attribute : attributes) {
+            if (hasAttributeType(attribute, attributeDescription)
+                    && isAssignable(attributeDescription, getAttributeDescription(attribute))) {
+                return getAttribute(attribute);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int getAttributeCount() {
+        return decodedEntry != null ? decodedEntry.getAttributeCount() : attributes.size();
+    }
+
+    @Override
+    public DN getName() {
+        return decodedEntry != null ? decodedEntry.getName() : name;
+    }
+
+    @Override
+    public boolean removeAttribute(final Attribute attribute, final Collection<? super ByteString> missingValues) {
+        return decodeEntry().removeAttribute(attribute, missingValues);
+    }
+
+    @Override
+    public boolean removeAttribute(final AttributeDescription attributeDescription) {
+        return decodeEntry().removeAttribute(attributeDescription);
+    }
+
+    @Override
+    public boolean replaceAttribute(final Attribute attribute) {
+        return decodeEntry().replaceAttribute(attribute);
+    }
+
+    @Override
+    public Entry setName(final DN dn) {
+        Reject.ifNull(dn);
+        if (decodedEntry != null) {
+            decodedEntry.setName(dn);
+        } else {
+            name = dn;
+        }
+        return this;
+    }
+
+    private Entry decodeEntry() {
+        if (decodedEntry == null) {
+            final Entry entry = options.getEntryFactory().newEntry(name);
+            for (final LazyAttribute attribute : attributes) {
+                entry.addAttribute(getAttribute(attribute));
+            }
+            decodedEntry = entry;
+            attributes = null;
+        }
+        return decodedEntry;
+    }
+
+    private Attribute getAttribute(final LazyAttribute lazyAttribute) {
+        if (lazyAttribute.attribute == null) {
+            final Attribute attribute =
+                    options.getAttributeFactory().newAttribute(getAttributeDescription(lazyAttribute));
+            try {
+                final ASN1Reader reader = ASN1.getReader(lazyAttribute.encodedValues);
+                while (reader.hasNextElement()) {
+                    attribute.add(reader.readOctetString());
+                }
+            } catch (final IOException e) {
+                // Cannot happen since the values have been checked when the entry was decoded.
+                throw new IllegalStateException(e);
+            }
+            lazyAttribute.attribute = attribute;
+        }
+        return lazyAttribute.attribute;
+    }
+
+    /**
+     * Returns the attribute description of the provided attribute, parsing it
+     * if needed.
+     *
+     * @throws LocalizedIllegalArgumentException
+     *             If the attribute description is invalid.
+     */
+    private AttributeDescription getAttributeDescription(final LazyAttribute attribute) {
+        if (attribute.attributeDescription == null) {
+            attribute.attributeDescription = AttributeDescription.valueOf(attribute.attributeDescriptionString, schema);
+        }
+        return attribute.attributeDescription;
+    }
+
+    /**
+     * Returns {@code true} if the provided attribute may have the attribute
+     * type of the provided attribute description. The attribute description
+     * string is only compared with the names and OID of the attribute type so
+     * that attributes which cannot match are skipped without being parsed.
+     */
+    private boolean hasAttributeType(final LazyAttribute attribute,
+            final AttributeDescription attributeDescription) {
+        if (attribute.attributeDescription != null) {
+            return true;
+        }
+        final String ads = attribute.attributeDescriptionString;
+        final int semiColonPos = ads.indexOf(';');
+        final String oid = (semiColonPos < 0 ? ads : ads.substring(0, semiColonPos)).trim();
+        return attributeDescription.getAttributeType().hasNameOrOID(oid);
+    }
+
+    private boolean isAssignable(final AttributeDescription from, final AttributeDescription to) {
+        return from.isPlaceHolder() ? from.matches(to) : from.equals(to);
+    }
+}
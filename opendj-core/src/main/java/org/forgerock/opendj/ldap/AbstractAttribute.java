@@ -23,6 +23,7 @@
  *
  *      Copyright 2009 Sun Microsystems, Inc.
  *      Portions copyright 2012-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldap;
@@ -196,6 +197,18 @@ public abstract class AbstractAttribute extends AbstractSet<ByteString> implemen
         return true;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsNormalizedValue(final ByteString normalizedValue) {
+        Reject.ifNull(normalizedValue);
+        for (final ByteString value : this) {
+            if (normalizeValue(this, value).equals(normalizedValue)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean equals(final Object object) {
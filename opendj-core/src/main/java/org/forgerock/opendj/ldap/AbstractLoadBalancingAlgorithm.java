@@ -23,6 +23,7 @@
  *
  *      Copyright 2010 Sun Microsystems, Inc.
  *      Portions Copyright 2011-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.opendj.ldap;
 
@@ -33,9 +34,25 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.requests.AbandonRequest;
+import org.forgerock.opendj.ldap.requests.AddRequest;
+import org.forgerock.opendj.ldap.requests.BindRequest;
+import org.forgerock.opendj.ldap.requests.CompareRequest;
+import org.forgerock.opendj.ldap.requests.DeleteRequest;
+import org.forgerock.opendj.ldap.requests.ExtendedRequest;
+import org.forgerock.opendj.ldap.requests.ModifyDNRequest;
+import org.forgerock.opendj.ldap.requests.ModifyRequest;
+import org.forgerock.opendj.ldap.requests.SearchRequest;
+import org.forgerock.opendj.ldap.requests.UnbindRequest;
+import org.forgerock.opendj.ldap.responses.BindResult;
+import org.forgerock.opendj.ldap.responses.CompareResult;
+import org.forgerock.opendj.ldap.responses.ExtendedResult;
+import org.forgerock.opendj.ldap.responses.Result;
 import org.forgerock.util.Options;
 import org.forgerock.util.Reject;
 import org.forgerock.util.AsyncFunction;
@@ -55,8 +72,131 @@ import static com.forgerock.opendj.util.StaticUtils.*;
  * Implementations should override the method
  * {@code getInitialConnectionFactoryIndex()} in order to provide the policy for
  * selecting the first connection factory to use for each connection request.
+ * Implementations which select connection factories according to their load
+ * should also override {@code isMonitoringRequests()}, so that the
+ * connections obtained from each factory report the number of requests in
+ * progress and their response times.
  */
 abstract class AbstractLoadBalancingAlgorithm implements LoadBalancingAlgorithm {
+    /**
+     * A connection which reports the number of active requests and their
+     * response times to the connection factory which created it.
+     */
+    private static final class MonitoredConnection extends AbstractAsynchronousConnection {
+        private final Connection connection;
+        private final MonitoredConnectionFactory factory;
+
+        private MonitoredConnection(final Connection connection, final MonitoredConnectionFactory factory) {
+            this.connection = connection;
+            this.factory = factory;
+        }
+
+        @Override
+        public LdapPromise<Void> abandonAsync(final AbandonRequest request) {
+            return connection.abandonAsync(request);
+        }
+
+        @Override
+        public LdapPromise<Result> addAsync(final AddRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            final long startTime = factory.requestStarted();
+            return monitor(connection.addAsync(request, intermediateResponseHandler), startTime);
+        }
+
+        @Override
+        public void addConnectionEventListener(final ConnectionEventListener listener) {
+            connection.addConnectionEventListener(listener);
+        }
+
+        @Override
+        public LdapPromise<BindResult> bindAsync(final BindRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            final long startTime = factory.requestStarted();
+            return monitor(connection.bindAsync(request, intermediateResponseHandler), startTime);
+        }
+
+        @Override
+        public void close() {
+            connection.close();
+        }
+
+        @Override
+        public void close(final UnbindRequest request, final String reason) {
+            connection.close(request, reason);
+        }
+
+        @Override
+        public LdapPromise<CompareResult> compareAsync(final CompareRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            final long startTime = factory.requestStarted();
+            return monitor(connection.compareAsync(request, intermediateResponseHandler), startTime);
+        }
+
+        @Override
+        public LdapPromise<Result> deleteAsync(final DeleteRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            final long startTime = factory.requestStarted();
+            return monitor(connection.deleteAsync(request, intermediateResponseHandler), startTime);
+        }
+
+        @Override
+        public <R extends ExtendedResult> LdapPromise<R> extendedRequestAsync(final ExtendedRequest<R> request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            final long startTime = factory.requestStarted();
+            return monitor(connection.extendedRequestAsync(request, intermediateResponseHandler), startTime);
+        }
+
+        @Override
+        public boolean isClosed() {
+            return connection.isClosed();
+        }
+
+        @Override
+        public boolean isValid() {
+            return connection.isValid();
+        }
+
+        @Override
+        public LdapPromise<Result> modifyAsync(final ModifyRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            final long startTime = factory.requestStarted();
+            return monitor(connection.modifyAsync(request, intermediateResponseHandler), startTime);
+        }
+
+        @Override
+        public LdapPromise<Result> modifyDNAsync(final ModifyDNRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            final long startTime = factory.requestStarted();
+            return monitor(connection.modifyDNAsync(request, intermediateResponseHandler), startTime);
+        }
+
+        @Override
+        public void removeConnectionEventListener(final ConnectionEventListener listener) {
+            connection.removeConnectionEventListener(listener);
+        }
+
+        @Override
+        public LdapPromise<Result> searchAsync(final SearchRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler, final SearchResultHandler entryHandler) {
+            final long startTime = factory.requestStarted();
+            return monitor(connection.searchAsync(request, intermediateResponseHandler, entryHandler), startTime);
+        }
+
+        @Override
+        public String toString() {
+            return connection.toString();
+        }
+
+        private <R> LdapPromise<R> monitor(final LdapPromise<R> promise, final long startTime) {
+            return promise.thenAlways(new Runnable() {
+                @Override
+                public void run() {
+                    factory.requestCompleted(startTime);
+                }
+            });
+        }
+    }
+
     private final class MonitoredConnectionFactory implements ConnectionFactory,
             LdapResultHandler<Connection> {
 
@@ -65,6 +205,18 @@ abstract class AbstractLoadBalancingAlgorithm implements LoadBalancingAlgorithm
         private volatile Promise<?, LdapException> pendingConnectPromise;
         private final int index;
 
+        /** The number of requests sent through this factory's connections which have not yet completed. */
+        private final AtomicInteger activeRequests = new AtomicInteger();
+
+        /**
+         * The exponentially weighted moving average of the response times, in nanoseconds, or zero if no response
+         * has been received yet.
+         */
+        private final AtomicLong averageResponseTimeNanos = new AtomicLong();
+
+        /** The time at which the last response was received. */
+        private volatile long lastResponseTimeNanos;
+
         private MonitoredConnectionFactory(final ConnectionFactory factory, final int index) {
             this.factory = factory;
             this.index = index;
@@ -90,7 +242,7 @@ abstract class AbstractLoadBalancingAlgorithm implements LoadBalancingAlgorithm
                 return nextFactory.getConnection();
             }
             notifyOnline();
-            return connection;
+            return monitor(connection);
         }
 
         @Override
@@ -100,7 +252,7 @@ abstract class AbstractLoadBalancingAlgorithm implements LoadBalancingAlgorithm
                     @Override
                     public Promise<Connection, LdapException> apply(Connection value) throws LdapException {
                         notifyOnline();
-                        return newResultPromise(value);
+                        return newResultPromise(monitor(value));
                     }
                 },
                 new AsyncFunction<LdapException, Connection, LdapException>() {
@@ -114,8 +266,6 @@ abstract class AbstractLoadBalancingAlgorithm implements LoadBalancingAlgorithm
                 });
         }
 
-
-
         /**
          * Handle monitoring connection request failure.
          */
@@ -139,6 +289,40 @@ abstract class AbstractLoadBalancingAlgorithm implements LoadBalancingAlgorithm
             return factory.toString();
         }
 
+        /**
+         * Returns the average response time of this factory's connections. The
+         * average decays while no responses are received, halving every
+         * {@link #RESPONSE_TIME_DECAY_NANOS}, so that a factory which was
+         * slow is eventually tried again.
+         */
+        private long getAverageResponseTimeNanos(final long now) {
+            final long average = averageResponseTimeNanos.get();
+            final long periods = (now - lastResponseTimeNanos) / RESPONSE_TIME_DECAY_NANOS;
+            return periods <= 0 ? average : periods >= Long.SIZE ? 0 : average >>> periods;
+        }
+
+        private Connection monitor(final Connection connection) {
+            return isMonitoringRequests() ? new MonitoredConnection(connection, this) : connection;
+        }
+
+        private void requestCompleted(final long startTime) {
+            final long now = System.nanoTime();
+            final long responseTime = Math.max(now - startTime, 1);
+            long oldAverage;
+            long newAverage;
+            do {
+                oldAverage = averageResponseTimeNanos.get();
+                newAverage = oldAverage == 0 ? responseTime : oldAverage + (responseTime - oldAverage) / 8;
+            } while (!averageResponseTimeNanos.compareAndSet(oldAverage, newAverage));
+            lastResponseTimeNanos = now;
+            activeRequests.decrementAndGet();
+        }
+
+        private long requestStarted() {
+            activeRequests.incrementAndGet();
+            return System.nanoTime();
+        }
+
         /**
          * Attempt to connect to the factory if it is offline and there is no
          * pending monitoring request.
@@ -220,6 +404,9 @@ abstract class AbstractLoadBalancingAlgorithm implements LoadBalancingAlgorithm
 
     private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
+    /** The period after which the average response time of an idle connection factory is halved. */
+    private static final long RESPONSE_TIME_DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
     private final List<MonitoredConnectionFactory> monitoredFactories;
     private final ReferenceCountedObject<ScheduledExecutorService>.Reference scheduler;
     private final Object stateLock = new Object();
@@ -289,6 +476,22 @@ abstract class AbstractLoadBalancingAlgorithm implements LoadBalancingAlgorithm
         return getMonitoredConnectionFactory(index);
     }
 
+    /**
+     * Returns a connection factory which should be used in order to process a
+     * request targeting the named entry. This is used by load balancers which
+     * select a connection factory for each request.
+     *
+     * @param name
+     *            The name of the entry targeted by the request.
+     * @return The connection factory.
+     * @throws LdapException
+     *             If no connection factories are available for use.
+     */
+    final ConnectionFactory getConnectionFactory(final DN name) throws LdapException {
+        final int index = getInitialConnectionFactoryIndex(name);
+        return getMonitoredConnectionFactory(index);
+    }
+
     @Override
     public String toString() {
         final StringBuilder builder = new StringBuilder();
@@ -323,6 +526,100 @@ abstract class AbstractLoadBalancingAlgorithm implements LoadBalancingAlgorithm
      */
     abstract int getInitialConnectionFactoryIndex();
 
+    /**
+     * Returns the index of the first connection factory which should be used in
+     * order to process a request targeting the named entry. The default
+     * implementation ignores the name and delegates to
+     * {@link #getInitialConnectionFactoryIndex()}.
+     *
+     * @param name
+     *            The name of the entry targeted by the request.
+     * @return The index of the first connection factory which should be used in
+     *         order to process the request.
+     */
+    int getInitialConnectionFactoryIndex(final DN name) {
+        return getInitialConnectionFactoryIndex();
+    }
+
+    /**
+     * Returns {@code true} if the connections obtained from the connection
+     * factories should report the number of active requests and their response
+     * times. The default implementation returns {@code false}.
+     *
+     * @return {@code true} if request activity should be monitored.
+     */
+    boolean isMonitoringRequests() {
+        return false;
+    }
+
+    /**
+     * Returns the number of connection factories being load-balanced.
+     *
+     * @return The number of connection factories being load-balanced.
+     */
+    final int getConnectionFactoryCount() {
+        return monitoredFactories.size();
+    }
+
+    /**
+     * Returns {@code true} if the connection factory at the provided index is
+     * believed to be operational.
+     *
+     * @param index
+     *            The index of the connection factory.
+     * @return {@code true} if the connection factory is operational.
+     */
+    final boolean isOperational(final int index) {
+        return monitoredFactories.get(index).isOperational.get();
+    }
+
+    /**
+     * Returns the number of requests which have been sent through the
+     * connections of the connection factory at the provided index and which have
+     * not yet completed.
+     *
+     * @param index
+     *            The index of the connection factory.
+     * @return The number of active requests.
+     */
+    final int getActiveRequests(final int index) {
+        return monitoredFactories.get(index).activeRequests.get();
+    }
+
+    /**
+     * Returns the exponentially weighted moving average of the response times
+     * of the connection factory at the provided index, or zero if it is not
+     * known.
+     *
+     * @param index
+     *            The index of the connection factory.
+     * @param now
+     *            The current {@link System#nanoTime() time}.
+     * @return The average response time in nanoseconds.
+     */
+    final long getAverageResponseTimeNanos(final int index, final long now) {
+        return monitoredFactories.get(index).getAverageResponseTimeNanos(now);
+    }
+
+    /**
+     * Returns the estimated time which a new request sent to the connection
+     * factory at the provided index would take to complete: its average
+     * response time multiplied by the number of requests ahead of it. Factories
+     * whose response time is not yet known are assumed to respond within a
+     * nanosecond so that they are tried first.
+     *
+     * @param index
+     *            The index of the connection factory.
+     * @param now
+     *            The current {@link System#nanoTime() time}.
+     * @return The estimated cost of sending a request to the factory.
+     */
+    final long getEstimatedCost(final int index, final long now) {
+        final long average = Math.max(getAverageResponseTimeNanos(index, now), 1);
+        final long requests = getActiveRequests(index) + 1L;
+        return average > Long.MAX_VALUE / requests ? Long.MAX_VALUE : average * requests;
+    }
+
     /** Return the first factory after index which is operational. */
     private MonitoredConnectionFactory getMonitoredConnectionFactory(final int initialIndex) throws LdapException {
         int index = initialIndex;
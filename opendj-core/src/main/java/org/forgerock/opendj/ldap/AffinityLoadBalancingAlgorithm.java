@@ -0,0 +1,162 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.ldap;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.forgerock.util.Options;
+
+/**
+ * An affinity load balancing algorithm routes requests targeting the same entry, or the same subtree, to the same
+ * connection factory using consistent hashing of the entry's name. Each connection factory owns many points on a hash
+ * ring and a request is routed to the owner of the first point following the hash of its target entry's name. When a
+ * connection factory is offline its requests are shared between the owners of the next points on the ring, while
+ * requests routed to other connection factories are unaffected.
+ * <p>
+ * Requests which do not target an entry, as well as connection requests, are distributed in a round robin fashion.
+ */
+final class AffinityLoadBalancingAlgorithm extends AbstractLoadBalancingAlgorithm {
+    /** The number of points owned by each connection factory on the ring, ensuring an even distribution. */
+    private static final int POINTS_PER_FACTORY = 160;
+
+    private final int maxIndex;
+    private final AtomicInteger nextIndex = new AtomicInteger(-1);
+    private final AttributeType affinityAttribute;
+
+    /** The sorted hashes of the points of the ring. */
+    private final long[] pointHashes;
+    /** The index of the connection factory owning each point of the ring. */
+    private final int[] pointOwners;
+
+    AffinityLoadBalancingAlgorithm(final Collection<? extends ConnectionFactory> factories, final Options options) {
+        super(factories, options);
+        this.maxIndex = factories.size();
+        this.affinityAttribute = options.get(LOAD_BALANCER_AFFINITY_ATTRIBUTE);
+
+        // Sort the points by hash while keeping track of their owners.
+        final long[][] ring = new long[maxIndex * POINTS_PER_FACTORY][];
+        for (int i = 0; i < ring.length; i++) {
+            final long owner = i / POINTS_PER_FACTORY;
+            ring[i] = new long[] { mix((owner << 32) | (i % POINTS_PER_FACTORY)), owner };
+        }
+        Arrays.sort(ring, new Comparator<long[]>() {
+            @Override
+            public int compare(final long[] point1, final long[] point2) {
+                return Long.compare(point1[0], point2[0]);
+            }
+        });
+        this.pointHashes = new long[ring.length];
+        this.pointOwners = new int[ring.length];
+        for (int i = 0; i < ring.length; i++) {
+            pointHashes[i] = ring[i][0];
+            pointOwners[i] = (int) ring[i][1];
+        }
+    }
+
+    @Override
+    String getAlgorithmName() {
+        return "Affinity";
+    }
+
+    @Override
+    int getInitialConnectionFactoryIndex() {
+        // Same as the round robin algorithm.
+        if (maxIndex == 1) {
+            return 0;
+        }
+        int oldNextIndex;
+        int newNextIndex;
+        do {
+            oldNextIndex = nextIndex.get();
+            newNextIndex = oldNextIndex + 1;
+            if (newNextIndex == maxIndex) {
+                newNextIndex = 0;
+            }
+        } while (!nextIndex.compareAndSet(oldNextIndex, newNextIndex));
+        return newNextIndex;
+    }
+
+    @Override
+    int getInitialConnectionFactoryIndex(final DN name) {
+        if (maxIndex == 1) {
+            return 0;
+        }
+        final long hash = hash(getRoutingKey(name));
+        int point = Arrays.binarySearch(pointHashes, hash);
+        if (point < 0) {
+            point = -(point + 1);
+        }
+        // Walk the ring until an operational connection factory is found.
+        for (int i = 0; i < pointHashes.length; i++) {
+            final int owner = pointOwners[(point + i) % pointHashes.length];
+            if (isOperational(owner)) {
+                return owner;
+            }
+        }
+        // All connection factories are offline.
+        return pointOwners[point % pointHashes.length];
+    }
+
+    /**
+     * Returns the name of the closest entry, starting with the named entry and moving towards the root, whose RDN
+     * contains the affinity attribute, or the name itself if there is none.
+     */
+    private DN getRoutingKey(final DN name) {
+        if (affinityAttribute != null) {
+            for (DN dn = name; !dn.isRootDN(); dn = dn.parent()) {
+                if (dn.rdn().getAttributeValue(affinityAttribute) != null) {
+                    return dn;
+                }
+            }
+        }
+        return name;
+    }
+
+    /** Hashes the normalized form of a DN so that equivalent DNs are routed to the same connection factory. */
+    private static long hash(final DN name) {
+        // FNV-1a followed by a final mix in order to spread the short normalized values over the ring.
+        final ByteString normalizedName = name.toNormalizedByteString();
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalizedName.length(); i++) {
+            hash ^= normalizedName.byteAt(i) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /** The finalization step of MurmurHash3 which ensures that every input bit affects every output bit. */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
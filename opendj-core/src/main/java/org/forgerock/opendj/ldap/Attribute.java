@@ -23,6 +23,7 @@
  *
  *      Copyright 2009 Sun Microsystems, Inc.
  *      Portions copyright 2012-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldap;
@@ -169,6 +170,28 @@ public interface Attribute extends Set<ByteString> {
      */
     boolean containsAll(Collection<?> values);
 
+    /**
+     * Returns {@code true} if this attribute contains a value whose normalized
+     * form, according to the equality matching rule of this attribute's type,
+     * is equal to {@code normalizedValue}.
+     * <p>
+     * This method allows callers which have already normalized an assertion
+     * value, such as filter matchers, to test for its presence without having
+     * to normalize it again. Implementations which index their values by their
+     * normalized form should answer in constant time. Values which cannot be
+     * normalized are compared using their unnormalized form, in the same way
+     * as {@link #contains(Object)}.
+     *
+     * @param normalizedValue
+     *            The normalized attribute value whose presence in this
+     *            attribute is to be tested.
+     * @return {@code true} if this attribute contains a value whose normalized
+     *         form is {@code normalizedValue}, or {@code false} if not.
+     * @throws NullPointerException
+     *             If {@code normalizedValue} was {@code null}.
+     */
+    boolean containsNormalizedValue(ByteString normalizedValue);
+
     /**
      * Returns {@code true} if {@code object} is an attribute which is equal to
      * this attribute. Two attributes are considered equal if their attribute
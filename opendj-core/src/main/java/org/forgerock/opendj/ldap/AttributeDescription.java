@@ -23,18 +23,16 @@
  *
  *      Copyright 2009-2010 Sun Microsystems, Inc.
  *      Portions copyright 2011-2015 ForgeRock AS
+ *      Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.opendj.ldap;
 
 import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.WeakHashMap;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.LocalizedIllegalArgumentException;
@@ -344,15 +342,16 @@ public final class AttributeDescription implements Comparable<AttributeDescripti
 
     }
 
-    private static final ThreadLocal<WeakHashMap<Schema, Map<String, AttributeDescription>>> CACHE =
-            new ThreadLocal<WeakHashMap<Schema, Map<String, AttributeDescription>>>() {
-
-                /** {@inheritDoc} */
-                @Override
-                protected WeakHashMap<Schema, Map<String, AttributeDescription>> initialValue() {
-                    return new WeakHashMap<>();
-                }
-            };
+    /**
+     * The per-schema attribute description cache, which is shared by all
+     * threads unless the {@code org.forgerock.opendj.attributeDescriptionCache.mode}
+     * property is set to {@code threadLocal}. Per-thread caches should be
+     * conservative in case there are many threads.
+     *
+     * @see DecodeCache
+     */
+    private static final DecodeCache<AttributeDescription> CACHE =
+            DecodeCache.newCache("attributeDescriptionCache", 4096, 512);
 
     /** Object class attribute description. */
     private static final ZeroOptionImpl ZERO_OPTION_IMPL = new ZeroOptionImpl();
@@ -365,13 +364,6 @@ public final class AttributeDescription implements Comparable<AttributeDescripti
                         ZERO_OPTION_IMPL);
     }
 
-    /**
-     * This is the size of the per-thread per-schema attribute description
-     * cache. We should be conservative here in case there are many
-     * threads.
-     */
-    private static final int ATTRIBUTE_DESCRIPTION_CACHE_SIZE = 512;
-
     /**
      * Returns an attribute description having the same attribute type and
      * options as this attribute description as well as the provided option.
@@ -635,6 +627,16 @@ public final class AttributeDescription implements Comparable<AttributeDescripti
 
     }
 
+    /**
+     * Returns the statistics of the cache used for avoiding decoding the same
+     * attribute descriptions repeatedly.
+     *
+     * @return The statistics of the attribute description cache.
+     */
+    public static CacheStatistics getCacheStatistics() {
+        return CACHE.getStatistics();
+    }
+
     /**
      * Returns an attribute description representing the object class attribute
      * type with no options.
@@ -686,35 +688,17 @@ public final class AttributeDescription implements Comparable<AttributeDescripti
      *             If {@code attributeDescription} or {@code schema} was
      *             {@code null}.
      */
-    @SuppressWarnings("serial")
     public static AttributeDescription valueOf(final String attributeDescription,
             final Schema schema) {
         Reject.ifNull(attributeDescription, schema);
 
         // First look up the attribute description in the cache.
-        final WeakHashMap<Schema, Map<String, AttributeDescription>> threadLocalMap = CACHE.get();
-        Map<String, AttributeDescription> schemaLocalMap = threadLocalMap.get(schema);
-
-        AttributeDescription ad = null;
-        if (schemaLocalMap == null) {
-            schemaLocalMap =
-                    new LinkedHashMap<String, AttributeDescription>(
-                            ATTRIBUTE_DESCRIPTION_CACHE_SIZE, 0.75f, true) {
-                        @Override
-                        protected boolean removeEldestEntry(
-                                final Map.Entry<String, AttributeDescription> eldest) {
-                            return size() > ATTRIBUTE_DESCRIPTION_CACHE_SIZE;
-                        }
-                    };
-            threadLocalMap.put(schema, schemaLocalMap);
-        } else {
-            ad = schemaLocalMap.get(attributeDescription);
-        }
+        AttributeDescription ad = CACHE.get(schema, attributeDescription);
 
         // Cache miss: decode and cache.
         if (ad == null) {
             ad = valueOf0(attributeDescription, schema);
-            schemaLocalMap.put(attributeDescription, ad);
+            CACHE.put(schema, attributeDescription, ad);
         }
 
         return ad;
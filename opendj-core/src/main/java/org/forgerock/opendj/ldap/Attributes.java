@@ -23,6 +23,7 @@
  *
  *      Copyright 2010 Sun Microsystems, Inc.
  *      Portions copyright 2011-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldap;
@@ -66,6 +67,11 @@ public final class Attributes {
             return false;
         }
 
+        @Override
+        public boolean containsNormalizedValue(final ByteString normalizedValue) {
+            return false;
+        }
+
         @Override
         public AttributeDescription getAttributeDescription() {
             return attributeDescription;
@@ -138,6 +144,11 @@ public final class Attributes {
             return attribute.contains(value);
         }
 
+        @Override
+        public boolean containsNormalizedValue(final ByteString normalizedValue) {
+            return attribute.containsNormalizedValue(normalizedValue);
+        }
+
         @Override
         public boolean containsAll(final Collection<?> values) {
             return attribute.containsAll(values);
@@ -268,6 +279,11 @@ public final class Attributes {
             return normalizedSingleValue().equals(normalizedValue);
         }
 
+        @Override
+        public boolean containsNormalizedValue(final ByteString normalizedValue) {
+            return normalizedSingleValue().equals(normalizedValue);
+        }
+
         @Override
         public AttributeDescription getAttributeDescription() {
             return attributeDescription;
@@ -345,6 +361,11 @@ public final class Attributes {
             return attribute.contains(value);
         }
 
+        @Override
+        public boolean containsNormalizedValue(final ByteString normalizedValue) {
+            return attribute.containsNormalizedValue(normalizedValue);
+        }
+
         @Override
         public boolean containsAll(final Collection<?> values) {
             return attribute.containsAll(values);
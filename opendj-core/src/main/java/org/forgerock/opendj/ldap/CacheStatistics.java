@@ -0,0 +1,102 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.ldap;
+
+/**
+ * A snapshot of the statistics of one of the caches used by the SDK in order
+ * to avoid decoding the same strings repeatedly, such as the DN cache.
+ * Statistics are only maintained by caches which are shared by all threads.
+ *
+ * @see DN#getCacheStatistics()
+ * @see AttributeDescription#getCacheStatistics()
+ */
+public final class CacheStatistics {
+    private final long evictions;
+    private final long hits;
+    private final long misses;
+    private final long size;
+
+    CacheStatistics(final long hits, final long misses, final long evictions, final long size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+    }
+
+    /**
+     * Returns the number of values which have been evicted from the cache in
+     * order to make room for new values.
+     *
+     * @return The number of evicted values.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the proportion of lookups which found a cached value.
+     *
+     * @return The proportion of lookups which found a cached value, between
+     *         {@code 0} and {@code 1}, or {@code 0} if the cache has not been
+     *         used.
+     */
+    public double getHitRatio() {
+        final long lookups = hits + misses;
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    /**
+     * Returns the number of lookups which found a cached value.
+     *
+     * @return The number of cache hits.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups which did not find a cached value.
+     *
+     * @return The number of cache misses.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of values currently cached.
+     *
+     * @return The number of values currently cached.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStatistics(hits=%d, misses=%d, evictions=%d, size=%d)", hits, misses,
+                evictions, size);
+    }
+}
@@ -23,6 +23,7 @@
  *
  *      Copyright 2009-2010 Sun Microsystems, Inc.
  *      Portions Copyright 2011-2015 ForgeRock AS
+ *      Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.opendj.ldap;
 
@@ -35,6 +36,8 @@ import static com.forgerock.opendj.util.StaticUtils.*;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -42,9 +45,11 @@ import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ConnectionPoolStatistics.Histogram;
 import org.forgerock.opendj.ldap.requests.AbandonRequest;
 import org.forgerock.opendj.ldap.requests.AddRequest;
 import org.forgerock.opendj.ldap.requests.BindRequest;
@@ -85,12 +90,24 @@ final class CachedConnectionPool implements ConnectionPool {
      * to the pool completes.
      */
     private final class ConnectionResultHandler implements ResultHandler<Connection> {
+        private final long startTimeNanos;
+
+        private ConnectionResultHandler(final long startTimeNanos) {
+            this.startTimeNanos = startTimeNanos;
+        }
+
         @Override
         public void handleResult(final Connection connection) {
             logger.debug(LocalizableMessage.raw(
                     "Connection attempt succeeded:  availableConnections=%d, maxPoolSize=%d",
                      currentPoolSize(), maxPoolSize));
             pendingConnectionAttempts.decrementAndGet();
+
+            final long creationTimeNanos = System.nanoTime() - startTimeNanos;
+            connectionsCreated.incrementAndGet();
+            connectionCreationTime.record(creationTimeNanos);
+            fireConnectionCreated(creationTimeNanos);
+
             publishConnection(connection);
         }
     }
@@ -100,6 +117,12 @@ final class CachedConnectionPool implements ConnectionPool {
      * to the pool ended in error.
      */
     private final class ConnectionFailureHandler implements ExceptionHandler<LdapException> {
+        private final long startTimeNanos;
+
+        private ConnectionFailureHandler(final long startTimeNanos) {
+            this.startTimeNanos = startTimeNanos;
+        }
+
         @Override
         public void handleException(final LdapException exception) {
             // Connection attempt failed, so decrease the pool size.
@@ -110,6 +133,11 @@ final class CachedConnectionPool implements ConnectionPool {
                     "Connection attempt failed: availableConnections=%d, maxPoolSize=%d",
                     currentPoolSize(), maxPoolSize, exception));
 
+            final long creationTimeNanos = System.nanoTime() - startTimeNanos;
+            connectionCreationFailures.incrementAndGet();
+            connectionCreationTime.record(creationTimeNanos);
+            fireConnectionCreationFailed(creationTimeNanos, exception);
+
             /*
              * There may be many pending promises waiting for a connection
              * attempt to succeed. In some situations the number of pending
@@ -121,13 +149,8 @@ final class CachedConnectionPool implements ConnectionPool {
              * attempts succeed, which is unlikely (if one fails, then they are
              * all likely to fail).
              */
-            final List<QueueElement> waitingPromises = new LinkedList<>();
-            synchronized (queue) {
-                while (hasWaitingPromises()) {
-                    waitingPromises.add(queue.removeFirst());
-                }
-            }
-            for (QueueElement waitingPromise : waitingPromises) {
+            QueueElement waitingPromise;
+            while ((waitingPromise = waitingPromises.poll()) != null) {
                 waitingPromise.getWaitingPromise().handleException(exception);
             }
         }
@@ -140,6 +163,7 @@ final class CachedConnectionPool implements ConnectionPool {
      * connections are not actually stored in the internal queue.
      */
     class PooledConnection implements Connection, ConnectionEventListener {
+        private final long borrowTimeNanos = System.nanoTime();
         private final Connection connection;
         private LdapException error;
         private final AtomicBoolean isClosed = new AtomicBoolean(false);
@@ -270,6 +294,11 @@ final class CachedConnectionPool implements ConnectionPool {
                 connection.removeConnectionEventListener(this);
             }
 
+            final long leaseTimeNanos = System.nanoTime() - borrowTimeNanos;
+            activeConnections.decrementAndGet();
+            leaseTime.record(leaseTimeNanos);
+            fireConnectionReleased(leaseTimeNanos);
+
             // Don't put invalid connections back in the pool.
             if (connection.isValid()) {
                 publishConnection(connection);
@@ -282,9 +311,7 @@ final class CachedConnectionPool implements ConnectionPool {
                  * availableConnections.
                  */
                 connection.close();
-                pendingConnectionAttempts.incrementAndGet();
-                factory.getConnectionAsync().thenOnResult(connectionResultHandler)
-                                            .thenOnException(connectionFailureHandler);
+                connect();
 
                 logger.debug(LocalizableMessage.raw(
                         "Connection no longer valid: availableConnections=%d, maxPoolSize=%d",
@@ -580,41 +607,42 @@ final class CachedConnectionPool implements ConnectionPool {
     private final class PurgeIdleConnectionsTask implements Runnable {
         @Override
         public void run() {
-            final List<Connection> idleConnections;
-            synchronized (queue) {
-                if (isClosed) {
-                    return;
-                }
+            if (isClosed.get()) {
+                return;
+            }
 
-                /*
-                 * Obtain a list of expired connections but don't close them yet
-                 * since we don't want to hold the lock too long.
-                 */
-                idleConnections = new LinkedList<>();
-                final long timeoutMillis = timeService.now() - idleTimeoutMillis;
-                int nonCoreConnectionCount = currentPoolSize() - corePoolSize;
-                for (QueueElement holder = queue.peek(); nonCoreConnectionCount > 0
-                        && isTimedOutQueuedConnection(holder, timeoutMillis); holder = queue.peek()) {
-                    idleConnections.add(holder.getWaitingConnection());
-                    queue.poll();
+            /*
+             * The least recently released connections are at the head of the
+             * queue. A connection is only purged if it can be removed before it
+             * is borrowed by a concurrent request.
+             */
+            final List<Connection> expiredConnections = new LinkedList<>();
+            final long timeoutMillis = timeService.now() - idleTimeoutMillis;
+            int nonCoreConnectionCount = currentPoolSize() - corePoolSize;
+            for (QueueElement holder = idleConnections.peekFirst(); nonCoreConnectionCount > 0
+                    && isTimedOutQueuedConnection(holder, timeoutMillis); holder = idleConnections.peekFirst()) {
+                if (idleConnections.removeFirstOccurrence(holder)) {
+                    expiredConnections.add(holder.getWaitingConnection());
                     availableConnections.release();
                     nonCoreConnectionCount--;
                 }
             }
 
             // Close the idle connections.
-            if (!idleConnections.isEmpty()) {
+            if (!expiredConnections.isEmpty()) {
                 logger.debug(LocalizableMessage.raw(
                         "Closing %d idle pooled connections: availableConnections=%d, maxPoolSize=%d",
-                        idleConnections.size(), currentPoolSize(), maxPoolSize));
-                for (final Connection connection : idleConnections) {
+                        expiredConnections.size(), currentPoolSize(), maxPoolSize));
+                for (final Connection connection : expiredConnections) {
                     connection.close();
                 }
+                idleConnectionsPurged.addAndGet(expiredConnections.size());
+                fireIdleConnectionsPurged(expiredConnections.size());
             }
         }
 
         private boolean isTimedOutQueuedConnection(final QueueElement holder, final long timeoutMillis) {
-            return holder != null && !holder.isWaitingPromise() && holder.hasTimedOut(timeoutMillis);
+            return holder != null && holder.hasTimedOut(timeoutMillis);
         }
     }
 
@@ -637,26 +665,34 @@ final class CachedConnectionPool implements ConnectionPool {
 
     /**
      * A queue element is either a pending connection request promise awaiting an
-     * {@code Connection} or it is an unused {@code Connection} awaiting a
-     * connection request.
+     * {@code Connection}, in which case it belongs to the waiting promises queue,
+     * or it is an unused {@code Connection} awaiting a connection request, in
+     * which case it belongs to the idle connections queue.
      */
     private static final class QueueElement {
         private final long timestampMillis;
+        private final long requestTimeNanos;
         private final Object value;
         private final StackTraceElement[] stack;
 
         QueueElement(final Connection connection, final long timestampMillis) {
             this.value = connection;
             this.timestampMillis = timestampMillis;
+            this.requestTimeNanos = 0;
             this.stack = null;
         }
 
-        QueueElement(final long timestampMillis, final StackTraceElement[] stack) {
+        QueueElement(final long timestampMillis, final long requestTimeNanos, final StackTraceElement[] stack) {
             this.value = PromiseImpl.create();
             this.timestampMillis = timestampMillis;
+            this.requestTimeNanos = requestTimeNanos;
             this.stack = stack;
         }
 
+        long getRequestTimeNanos() {
+            return requestTimeNanos;
+        }
+
         @Override
         public String toString() {
             return String.valueOf(value);
@@ -697,15 +733,30 @@ final class CachedConnectionPool implements ConnectionPool {
     TimeService timeService = TimeService.SYSTEM;
 
     private final Semaphore availableConnections;
-    private final ResultHandler<Connection> connectionResultHandler = new ConnectionResultHandler();
-    private final ExceptionHandler<LdapException> connectionFailureHandler = new ConnectionFailureHandler();
     private final int corePoolSize;
     private final ConnectionFactory factory;
-    private boolean isClosed;
+    private final AtomicBoolean isClosed = new AtomicBoolean();
     private final ScheduledFuture<?> idleTimeoutFuture;
     private final long idleTimeoutMillis;
     private final int maxPoolSize;
-    private final LinkedList<QueueElement> queue = new LinkedList<>();
+
+    /**
+     * The unused connections, the least recently released first. Connections
+     * are borrowed from the head of the queue and released to its tail.
+     */
+    private final ConcurrentLinkedDeque<QueueElement> idleConnections = new ConcurrentLinkedDeque<>();
+
+    /**
+     * The pending connection requests, the oldest first, which are waiting for
+     * a connection to be released or established.
+     * <p>
+     * An idle connection and a waiting promise may be queued concurrently, in
+     * which case neither thread will see the other's element when first
+     * checking the other queue. In order to avoid leaving a request waiting
+     * while a connection is idle, each thread re-checks the other queue after
+     * adding its own element, see {@link #matchIdleConnectionsWithWaitingPromises()}.
+     */
+    private final ConcurrentLinkedQueue<QueueElement> waitingPromises = new ConcurrentLinkedQueue<>();
     private final ReferenceCountedObject<ScheduledExecutorService>.Reference scheduler;
 
     /**
@@ -714,6 +765,18 @@ final class CachedConnectionPool implements ConnectionPool {
      */
     private final AtomicInteger pendingConnectionAttempts = new AtomicInteger();
 
+    /** The event listeners notified of the activity of this pool. */
+    private final List<ConnectionPoolEventListener> eventListeners = new CopyOnWriteArrayList<>();
+
+    /** The number of pooled connections which have been handed out and not yet released. */
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicLong connectionsCreated = new AtomicLong();
+    private final AtomicLong connectionCreationFailures = new AtomicLong();
+    private final AtomicLong idleConnectionsPurged = new AtomicLong();
+    private final Histogram.Recorder borrowWaitTime = new Histogram.Recorder();
+    private final Histogram.Recorder connectionCreationTime = new Histogram.Recorder();
+    private final Histogram.Recorder leaseTime = new Histogram.Recorder();
+
     CachedConnectionPool(final ConnectionFactory factory, final int corePoolSize,
             final int maximumPoolSize, final long idleTimeout, final TimeUnit unit,
             final ScheduledExecutorService scheduler) {
@@ -745,24 +808,15 @@ final class CachedConnectionPool implements ConnectionPool {
     }
 
     @Override
-    public void close() {
-        final LinkedList<Connection> idleConnections;
-        synchronized (queue) {
-            if (isClosed) {
-                return;
-            }
-            isClosed = true;
+    public void addEventListener(final ConnectionPoolEventListener listener) {
+        Reject.ifNull(listener);
+        eventListeners.add(listener);
+    }
 
-            /*
-             * Remove any connections which are waiting in the queue as these
-             * can be closed immediately.
-             */
-            idleConnections = new LinkedList<>();
-            while (hasWaitingConnections()) {
-                final QueueElement holder = queue.removeFirst();
-                idleConnections.add(holder.getWaitingConnection());
-                availableConnections.release();
-            }
+    @Override
+    public void close() {
+        if (!isClosed.compareAndSet(false, true)) {
+            return;
         }
 
         logger.debug(LocalizableMessage.raw(
@@ -775,9 +829,7 @@ final class CachedConnectionPool implements ConnectionPool {
         }
 
         // Close all idle connections.
-        for (final Connection connection : idleConnections) {
-            connection.close();
-        }
+        closeIdleConnections();
 
         // Close the underlying factory.
         factory.close();
@@ -794,36 +846,61 @@ final class CachedConnectionPool implements ConnectionPool {
 
     @Override
     public Promise<Connection, LdapException> getConnectionAsync() {
+        return getConnectionAsync(System.nanoTime());
+    }
+
+    /**
+     * Obtains a connection from this pool on behalf of a request which was
+     * made at the provided time, waiting for a connection to be released or
+     * established if none are idle.
+     */
+    Promise<Connection, LdapException> getConnectionAsync(final long requestTimeNanos) {
+        final Connection pooledConnection = pollIdleConnection(requestTimeNanos);
+        if (pooledConnection != null) {
+            return newResultPromise(pooledConnection);
+        }
+
+        final QueueElement waitingPromise =
+                new QueueElement(timeService.now(), requestTimeNanos, getStackTraceIfDebugEnabled());
+        waitingPromises.offer(waitingPromise);
+
+        // Grow the pool if needed.
+        final Promise<Connection, LdapException> promise = waitingPromise.getWaitingPromise();
+        if (!promise.isDone() && availableConnections.tryAcquire()) {
+            connect();
+        }
+
+        // A connection may have been released while the request was being queued.
+        matchIdleConnectionsWithWaitingPromises();
+        return promise;
+    }
+
+    /**
+     * Borrows an idle connection from this pool without waiting and without
+     * growing the pool.
+     *
+     * @param requestTimeNanos
+     *            The time at which the connection was requested.
+     * @return A pooled connection, or {@code null} if no connections are idle.
+     * @throws IllegalStateException
+     *             If this connection pool has already been closed.
+     */
+    Connection pollIdleConnection(final long requestTimeNanos) {
         // Loop while iterating through stale connections (see OPENDJ-590).
         for (;;) {
-            final QueueElement holder;
-            synchronized (queue) {
-                if (isClosed) {
-                    throw new IllegalStateException("CachedConnectionPool is already closed");
-                } else if (hasWaitingConnections()) {
-                    holder = queue.removeFirst();
-                } else {
-                    holder = new QueueElement(timeService.now(), getStackTraceIfDebugEnabled());
-                    queue.add(holder);
-                }
+            if (isClosed.get()) {
+                throw new IllegalStateException("CachedConnectionPool is already closed");
             }
 
-            if (holder.isWaitingPromise()) {
-                // Grow the pool if needed.
-                final Promise<Connection, LdapException> promise = holder.getWaitingPromise();
-                if (!promise.isDone() && availableConnections.tryAcquire()) {
-                    pendingConnectionAttempts.incrementAndGet();
-                    factory.getConnectionAsync().thenOnResult(connectionResultHandler)
-                                                .thenOnException(connectionFailureHandler);
-                }
-                return promise;
+            final QueueElement holder = idleConnections.pollFirst();
+            if (holder == null) {
+                return null;
             }
 
             // There was a completed connection attempt.
             final Connection connection = holder.getWaitingConnection();
             if (connection.isValid()) {
-                final Connection pooledConnection = newPooledConnection(connection, getStackTraceIfDebugEnabled());
-                return newResultPromise(pooledConnection);
+                return newPooledConnection(connection, getStackTraceIfDebugEnabled(), requestTimeNanos);
             } else {
                 // Close the stale connection and try again.
                 connection.close();
@@ -835,21 +912,26 @@ final class CachedConnectionPool implements ConnectionPool {
         }
     }
 
+    @Override
+    public ConnectionPoolStatistics getStatistics() {
+        return new ConnectionPoolStatistics(maxPoolSize, activeConnections.get(), idleConnections.size(),
+                pendingConnectionAttempts.get(), waitingPromises.size(), connectionsCreated.get(),
+                connectionCreationFailures.get(), idleConnectionsPurged.get(), borrowWaitTime.snapshot(),
+                connectionCreationTime.snapshot(), leaseTime.snapshot());
+    }
+
+    @Override
+    public void removeEventListener(final ConnectionPoolEventListener listener) {
+        Reject.ifNull(listener);
+        eventListeners.remove(listener);
+    }
+
     @Override
     public String toString() {
         final int size = currentPoolSize();
         final int pending = pendingConnectionAttempts.get();
-        int in = 0;
-        int blocked = 0;
-        synchronized (queue) {
-            for (QueueElement qe : queue) {
-                if (qe.isWaitingPromise()) {
-                    blocked++;
-                } else {
-                    in++;
-                }
-            }
-        }
+        final int in = idleConnections.size();
+        final int blocked = waitingPromises.size();
         final int out = size - in - pending;
         return String.format("CachedConnectionPool(size=%d[in:%d + out:%d + "
                 + "pending:%d], maxSize=%d, blocked=%d, factory=%s)", size, in, out, pending,
@@ -866,39 +948,71 @@ final class CachedConnectionPool implements ConnectionPool {
         close();
     }
 
+    /** Returns {@code true} if this pool may grow in order to serve a request. */
+    boolean hasSpareCapacity() {
+        return availableConnections.availablePermits() > 0;
+    }
+
     /** Package private for unit testing. */
     int currentPoolSize() {
         return maxPoolSize - availableConnections.availablePermits();
     }
 
-    private boolean hasWaitingConnections() {
-        return !queue.isEmpty() && !queue.getFirst().isWaitingPromise();
+    private void closeIdleConnections() {
+        QueueElement holder;
+        while ((holder = idleConnections.pollFirst()) != null) {
+            availableConnections.release();
+            holder.getWaitingConnection().close();
+        }
     }
 
-    private boolean hasWaitingPromises() {
-        return !queue.isEmpty() && queue.getFirst().isWaitingPromise();
+    private void connect() {
+        final long startTimeNanos = System.nanoTime();
+        pendingConnectionAttempts.incrementAndGet();
+        factory.getConnectionAsync().thenOnResult(new ConnectionResultHandler(startTimeNanos))
+                                    .thenOnException(new ConnectionFailureHandler(startTimeNanos));
     }
 
-    private void publishConnection(final Connection connection) {
-        final QueueElement holder;
-        boolean connectionPoolIsClosing = false;
-
-        synchronized (queue) {
-            if (hasWaitingPromises()) {
-                connectionPoolIsClosing = isClosed;
-                holder = queue.removeFirst();
-            } else if (isClosed) {
-                connectionPoolIsClosing = true;
-                holder = null;
-            } else {
-                holder = new QueueElement(connection, timeService.now());
-                queue.add(holder);
-                return;
+    /**
+     * Hands idle connections over to waiting promises until one of the queues
+     * is empty. This must be called after adding an element to either queue.
+     */
+    private void matchIdleConnectionsWithWaitingPromises() {
+        while (!waitingPromises.isEmpty()) {
+            final QueueElement connectionHolder = idleConnections.pollFirst();
+            if (connectionHolder == null) {
+                break;
+            }
+            final Connection connection = connectionHolder.getWaitingConnection();
+            if (!connection.isValid()) {
+                // Close the stale connection and replace it.
+                connection.close();
+                availableConnections.release();
+                if (availableConnections.tryAcquire()) {
+                    connect();
+                }
+                continue;
+            }
+            final QueueElement promiseHolder = waitingPromises.poll();
+            if (promiseHolder == null) {
+                // Another thread completed the waiting promise, so put the connection back.
+                idleConnections.offerFirst(connectionHolder);
+                continue;
             }
+            promiseHolder.getWaitingPromise().handleResult(
+                    newPooledConnection(connection, promiseHolder.getStackTrace(),
+                            promiseHolder.getRequestTimeNanos()));
         }
 
-        // There was waiting promise, so complete it.
-        if (connectionPoolIsClosing) {
+        // The pool may have been closed while a connection was being put back.
+        if (isClosed.get()) {
+            closeIdleConnections();
+        }
+    }
+
+    private void publishConnection(final Connection connection) {
+        final QueueElement holder = waitingPromises.poll();
+        if (isClosed.get()) {
             // The connection will be closed, so decrease the pool size.
             availableConnections.release();
             connection.close();
@@ -917,14 +1031,84 @@ final class CachedConnectionPool implements ConnectionPool {
                         "Connection attempt failed: availableConnections=%d, maxPoolSize=%d",
                         currentPoolSize(), maxPoolSize, e));
             }
-        } else {
+        } else if (holder != null) {
+            // There was waiting promise, so complete it.
             holder.getWaitingPromise().handleResult(
-                    newPooledConnection(connection, holder.getStackTrace()));
+                    newPooledConnection(connection, holder.getStackTrace(), holder.getRequestTimeNanos()));
+        } else {
+            idleConnections.offerLast(new QueueElement(connection, timeService.now()));
+
+            // A request may have been queued, or the pool closed, while the connection was being released.
+            matchIdleConnectionsWithWaitingPromises();
+        }
+    }
+
+    private void fireConnectionBorrowed(final long waitTimeNanos) {
+        for (final ConnectionPoolEventListener listener : eventListeners) {
+            try {
+                listener.handleConnectionBorrowed(this, waitTimeNanos);
+            } catch (final RuntimeException e) {
+                logListenerFailure(listener, e);
+            }
         }
     }
 
+    private void fireConnectionCreated(final long creationTimeNanos) {
+        for (final ConnectionPoolEventListener listener : eventListeners) {
+            try {
+                listener.handleConnectionCreated(this, creationTimeNanos);
+            } catch (final RuntimeException e) {
+                logListenerFailure(listener, e);
+            }
+        }
+    }
+
+    private void fireConnectionCreationFailed(final long creationTimeNanos, final LdapException error) {
+        for (final ConnectionPoolEventListener listener : eventListeners) {
+            try {
+                listener.handleConnectionCreationFailed(this, creationTimeNanos, error);
+            } catch (final RuntimeException e) {
+                logListenerFailure(listener, e);
+            }
+        }
+    }
+
+    private void fireConnectionReleased(final long leaseTimeNanos) {
+        for (final ConnectionPoolEventListener listener : eventListeners) {
+            try {
+                listener.handleConnectionReleased(this, leaseTimeNanos);
+            } catch (final RuntimeException e) {
+                logListenerFailure(listener, e);
+            }
+        }
+    }
+
+    private void fireIdleConnectionsPurged(final int count) {
+        for (final ConnectionPoolEventListener listener : eventListeners) {
+            try {
+                listener.handleIdleConnectionsPurged(this, count);
+            } catch (final RuntimeException e) {
+                logListenerFailure(listener, e);
+            }
+        }
+    }
+
+    private void logListenerFailure(final ConnectionPoolEventListener listener, final RuntimeException e) {
+        /*
+         * Events are fired while the pool is changing state, so listener
+         * failures must not propagate otherwise permits could leak or pending
+         * promises could be left unresolved.
+         */
+        logger.warn(LocalizableMessage.raw("Connection pool event listener %s failed", listener, e));
+    }
+
     private PooledConnection newPooledConnection(final Connection connection,
-            final StackTraceElement[] stack) {
+            final StackTraceElement[] stack, final long requestTimeNanos) {
+        final long waitTimeNanos = System.nanoTime() - requestTimeNanos;
+        activeConnections.incrementAndGet();
+        borrowWaitTime.record(waitTimeNanos);
+        fireConnectionBorrowed(waitTimeNanos);
+
         if (!DEBUG_ENABLED) {
             return new PooledConnection(connection);
         } else {
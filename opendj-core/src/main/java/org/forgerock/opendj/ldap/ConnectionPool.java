@@ -22,6 +22,7 @@
  *
  *
  *      Copyright 2011-2014 ForgeRock AS
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldap;
@@ -42,6 +43,19 @@ import org.forgerock.util.promise.Promise;
  * as binds and StartTLS with extreme caution.
  */
 public interface ConnectionPool extends ConnectionFactory {
+    /**
+     * Registers an event listener which will be notified of the activity of
+     * this connection pool, such as connections being borrowed, released or
+     * established.
+     *
+     * @param listener
+     *            The event listener.
+     * @throws NullPointerException
+     *             If the {@code listener} was {@code null}.
+     * @see #getStatistics()
+     */
+    void addEventListener(ConnectionPoolEventListener listener);
+
     /**
      * Releases any resources associated with this connection pool. Pooled
      * connections will be permanently closed and this connection pool will no
@@ -88,4 +102,23 @@ public interface ConnectionPool extends ConnectionFactory {
      */
     @Override
     Connection getConnection() throws LdapException;
+
+    /**
+     * Returns a snapshot of the current state of this connection pool along
+     * with the statistics accumulated since it was created.
+     *
+     * @return A snapshot of the statistics of this connection pool.
+     */
+    ConnectionPoolStatistics getStatistics();
+
+    /**
+     * Removes an event listener previously registered with this connection
+     * pool.
+     *
+     * @param listener
+     *            The event listener to be removed.
+     * @throws NullPointerException
+     *             If the {@code listener} was {@code null}.
+     */
+    void removeEventListener(ConnectionPoolEventListener listener);
 }
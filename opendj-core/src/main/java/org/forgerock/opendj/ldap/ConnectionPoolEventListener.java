@@ -0,0 +1,127 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.opendj.ldap;
+
+import java.util.EventListener;
+
+/**
+ * An object that registers to be notified of the activity of a connection
+ * pool, typically in order to publish it to a monitoring system. Durations are
+ * expressed in nanoseconds.
+ * <p>
+ * <b>NOTE:</b> events are sent by the threads which borrow, release and create
+ * pooled connections, so event listener implementations must be thread safe
+ * and should return quickly. Runtime exceptions thrown by event listeners are
+ * logged and otherwise ignored by the connection pool.
+ *
+ * @see ConnectionPool#addEventListener(ConnectionPoolEventListener)
+ * @see ConnectionPool#getStatistics()
+ */
+public interface ConnectionPoolEventListener extends EventListener {
+    /** An event listener implementation which ignores all events. */
+    ConnectionPoolEventListener NO_OP = new ConnectionPoolEventListener() {
+        @Override
+        public void handleConnectionBorrowed(final ConnectionPool pool, final long waitTimeNanos) {
+            // Do nothing.
+        }
+
+        @Override
+        public void handleConnectionCreated(final ConnectionPool pool, final long creationTimeNanos) {
+            // Do nothing.
+        }
+
+        @Override
+        public void handleConnectionCreationFailed(final ConnectionPool pool, final long creationTimeNanos,
+                final LdapException error) {
+            // Do nothing.
+        }
+
+        @Override
+        public void handleConnectionReleased(final ConnectionPool pool, final long leaseTimeNanos) {
+            // Do nothing.
+        }
+
+        @Override
+        public void handleIdleConnectionsPurged(final ConnectionPool pool, final int count) {
+            // Do nothing.
+        }
+    };
+
+    /**
+     * Invoked when a connection has been handed out by the connection pool.
+     *
+     * @param pool
+     *            The connection pool.
+     * @param waitTimeNanos
+     *            The time elapsed between the connection request and the
+     *            connection becoming available.
+     */
+    void handleConnectionBorrowed(ConnectionPool pool, long waitTimeNanos);
+
+    /**
+     * Invoked when the connection pool has established a new connection.
+     *
+     * @param pool
+     *            The connection pool.
+     * @param creationTimeNanos
+     *            The time taken to establish the connection.
+     */
+    void handleConnectionCreated(ConnectionPool pool, long creationTimeNanos);
+
+    /**
+     * Invoked when the connection pool failed to establish a new connection.
+     *
+     * @param pool
+     *            The connection pool.
+     * @param creationTimeNanos
+     *            The time elapsed before the connection attempt failed.
+     * @param error
+     *            The error which caused the connection attempt to fail.
+     */
+    void handleConnectionCreationFailed(ConnectionPool pool, long creationTimeNanos, LdapException error);
+
+    /**
+     * Invoked when a pooled connection has been closed by the application.
+     *
+     * @param pool
+     *            The connection pool.
+     * @param leaseTimeNanos
+     *            The time elapsed between the connection being borrowed and
+     *            it being released.
+     */
+    void handleConnectionReleased(ConnectionPool pool, long leaseTimeNanos);
+
+    /**
+     * Invoked when the connection pool has closed connections which remained
+     * idle for longer than the idle timeout.
+     *
+     * @param pool
+     *            The connection pool.
+     * @param count
+     *            The number of connections which have been closed.
+     */
+    void handleIdleConnectionsPurged(ConnectionPool pool, int count);
+}
@@ -0,0 +1,399 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.opendj.ldap;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A snapshot of the state and activity of a connection pool. Counters are
+ * cumulative since the connection pool was created, and durations are
+ * expressed in nanoseconds.
+ *
+ * @see ConnectionPool#getStatistics()
+ */
+public final class ConnectionPoolStatistics {
+    /**
+     * A distribution of durations using exponentially sized buckets. The first
+     * bucket contains durations of less than one microsecond, and each
+     * subsequent bucket contains durations up to twice as long as the previous
+     * one. The last bucket contains all remaining durations.
+     */
+    public static final class Histogram {
+        /** Accumulates durations into a histogram without locking. */
+        static final class Recorder {
+            private final AtomicLongArray counts = new AtomicLongArray(NUMBER_OF_BUCKETS);
+            private final AtomicLong maxNanos = new AtomicLong();
+            private final AtomicLong totalNanos = new AtomicLong();
+
+            void record(final long durationNanos) {
+                final long nanos = Math.max(durationNanos, 0);
+                counts.incrementAndGet(bucketOf(nanos));
+                totalNanos.addAndGet(nanos);
+                long max = maxNanos.get();
+                while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                    max = maxNanos.get();
+                }
+            }
+
+            Histogram snapshot() {
+                final long[] snapshot = new long[NUMBER_OF_BUCKETS];
+                for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+                    snapshot[i] = counts.get(i);
+                }
+                return new Histogram(snapshot, totalNanos.get(), maxNanos.get());
+            }
+        }
+
+        /** Combines histograms of durations recorded independently, e.g. by the shards of a pool. */
+        static Histogram sum(final Histogram... histograms) {
+            final long[] counts = new long[NUMBER_OF_BUCKETS];
+            long totalNanos = 0;
+            long maxNanos = 0;
+            for (final Histogram histogram : histograms) {
+                for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+                    counts[i] += histogram.counts[i];
+                }
+                totalNanos += histogram.totalNanos;
+                maxNanos = Math.max(maxNanos, histogram.maxNanos);
+            }
+            return new Histogram(counts, totalNanos, maxNanos);
+        }
+
+        /** The last bucket contains durations of 2^32 microseconds (over an hour) and more. */
+        private static final int NUMBER_OF_BUCKETS = 34;
+
+        private static int bucketOf(final long nanos) {
+            final long micros = nanos / 1000;
+            return Math.min(Long.SIZE - Long.numberOfLeadingZeros(micros), NUMBER_OF_BUCKETS - 1);
+        }
+
+        private final long count;
+        private final long[] counts;
+        private final long maxNanos;
+        private final long totalNanos;
+
+        private Histogram(final long[] counts, final long totalNanos, final long maxNanos) {
+            long count = 0;
+            for (final long bucketCount : counts) {
+                count += bucketCount;
+            }
+            this.count = count;
+            this.counts = counts;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * Returns the number of durations in the specified bucket.
+         *
+         * @param bucket
+         *            The bucket index, between {@code 0} and
+         *            {@link #getNumberOfBuckets()} excluded.
+         * @return The number of durations in the specified bucket.
+         */
+        public long getBucketCount(final int bucket) {
+            return counts[bucket];
+        }
+
+        /**
+         * Returns the exclusive upper bound of the durations contained in the
+         * specified bucket, or {@code Long.MAX_VALUE} for the last bucket.
+         *
+         * @param bucket
+         *            The bucket index, between {@code 0} and
+         *            {@link #getNumberOfBuckets()} excluded.
+         * @return The exclusive upper bound of the specified bucket in
+         *         nanoseconds.
+         */
+        public long getBucketUpperBoundNanos(final int bucket) {
+            if (bucket < 0 || bucket >= NUMBER_OF_BUCKETS) {
+                throw new IndexOutOfBoundsException(String.valueOf(bucket));
+            }
+            return bucket == NUMBER_OF_BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) * 1000;
+        }
+
+        /**
+         * Returns the number of recorded durations.
+         *
+         * @return The number of recorded durations.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the longest recorded duration.
+         *
+         * @return The longest recorded duration, or {@code 0} if no duration
+         *         has been recorded.
+         */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * Returns the mean of the recorded durations.
+         *
+         * @return The mean of the recorded durations, or {@code 0} if no
+         *         duration has been recorded.
+         */
+        public long getMeanNanos() {
+            return count > 0 ? totalNanos / count : 0;
+        }
+
+        /**
+         * Returns the number of buckets in this histogram.
+         *
+         * @return The number of buckets in this histogram.
+         */
+        public int getNumberOfBuckets() {
+            return NUMBER_OF_BUCKETS;
+        }
+
+        /**
+         * Returns an upper bound of the specified percentile of the recorded
+         * durations. The returned value is the upper bound of the bucket
+         * containing the percentile, capped to the longest recorded duration.
+         *
+         * @param percentile
+         *            The percentile, between {@code 0} and {@code 100}.
+         * @return An upper bound of the specified percentile, or {@code 0} if
+         *         no duration has been recorded.
+         */
+        public long getPercentileNanos(final double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100");
+            }
+            final long threshold = (long) Math.ceil(count * percentile / 100);
+            long cumulativeCount = 0;
+            for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+                cumulativeCount += counts[i];
+                if (cumulativeCount > 0 && cumulativeCount >= threshold) {
+                    return Math.min(getBucketUpperBoundNanos(i), maxNanos);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Returns the sum of the recorded durations.
+         *
+         * @return The sum of the recorded durations.
+         */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Histogram(count=%d, mean=%dns, p99=%dns, max=%dns)", count,
+                    getMeanNanos(), getPercentileNanos(99), maxNanos);
+        }
+    }
+
+    private final int activeConnections;
+    private final Histogram borrowWaitTime;
+    private final long connectionCreationFailures;
+    private final Histogram connectionCreationTime;
+    private final long connectionsCreated;
+    private final int idleConnections;
+    private final long idleConnectionsPurged;
+    private final Histogram leaseTime;
+    private final int maxPoolSize;
+    private final int pendingConnectionAttempts;
+    private final int pendingRequests;
+
+    /** Combines the statistics of independent pools, e.g. the shards of a sharded pool. */
+    static ConnectionPoolStatistics sum(final ConnectionPoolStatistics... statistics) {
+        int maxPoolSize = 0;
+        int activeConnections = 0;
+        int idleConnections = 0;
+        int pendingConnectionAttempts = 0;
+        int pendingRequests = 0;
+        long connectionsCreated = 0;
+        long connectionCreationFailures = 0;
+        long idleConnectionsPurged = 0;
+        final Histogram[] borrowWaitTimes = new Histogram[statistics.length];
+        final Histogram[] connectionCreationTimes = new Histogram[statistics.length];
+        final Histogram[] leaseTimes = new Histogram[statistics.length];
+        for (int i = 0; i < statistics.length; i++) {
+            final ConnectionPoolStatistics s = statistics[i];
+            // Saturate since cached pools may be unbounded.
+            maxPoolSize = (int) Math.min((long) maxPoolSize + s.maxPoolSize, Integer.MAX_VALUE);
+            activeConnections += s.activeConnections;
+            idleConnections += s.idleConnections;
+            pendingConnectionAttempts += s.pendingConnectionAttempts;
+            pendingRequests += s.pendingRequests;
+            connectionsCreated += s.connectionsCreated;
+            connectionCreationFailures += s.connectionCreationFailures;
+            idleConnectionsPurged += s.idleConnectionsPurged;
+            borrowWaitTimes[i] = s.borrowWaitTime;
+            connectionCreationTimes[i] = s.connectionCreationTime;
+            leaseTimes[i] = s.leaseTime;
+        }
+        return new ConnectionPoolStatistics(maxPoolSize, activeConnections, idleConnections,
+                pendingConnectionAttempts, pendingRequests, connectionsCreated, connectionCreationFailures,
+                idleConnectionsPurged, Histogram.sum(borrowWaitTimes), Histogram.sum(connectionCreationTimes),
+                Histogram.sum(leaseTimes));
+    }
+
+    ConnectionPoolStatistics(final int maxPoolSize, final int activeConnections, final int idleConnections,
+            final int pendingConnectionAttempts, final int pendingRequests, final long connectionsCreated,
+            final long connectionCreationFailures, final long idleConnectionsPurged,
+            final Histogram borrowWaitTime, final Histogram connectionCreationTime, final Histogram leaseTime) {
+        this.maxPoolSize = maxPoolSize;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.pendingConnectionAttempts = pendingConnectionAttempts;
+        this.pendingRequests = pendingRequests;
+        this.connectionsCreated = connectionsCreated;
+        this.connectionCreationFailures = connectionCreationFailures;
+        this.idleConnectionsPurged = idleConnectionsPurged;
+        this.borrowWaitTime = borrowWaitTime;
+        this.connectionCreationTime = connectionCreationTime;
+        this.leaseTime = leaseTime;
+    }
+
+    /**
+     * Returns the number of connections which are currently in use by the
+     * application.
+     *
+     * @return The number of connections which are currently in use.
+     */
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    /**
+     * Returns the distribution of the time spent by connection requests
+     * waiting for a connection to become available.
+     *
+     * @return The distribution of the time spent waiting for a connection.
+     */
+    public Histogram getBorrowWaitTime() {
+        return borrowWaitTime;
+    }
+
+    /**
+     * Returns the number of failed attempts to establish a new connection.
+     *
+     * @return The number of failed attempts to establish a new connection.
+     */
+    public long getConnectionCreationFailures() {
+        return connectionCreationFailures;
+    }
+
+    /**
+     * Returns the distribution of the time taken to establish new
+     * connections, including failed attempts.
+     *
+     * @return The distribution of the time taken to establish new connections.
+     */
+    public Histogram getConnectionCreationTime() {
+        return connectionCreationTime;
+    }
+
+    /**
+     * Returns the number of connections which have been established by the
+     * connection pool.
+     *
+     * @return The number of connections which have been established.
+     */
+    public long getConnectionsCreated() {
+        return connectionsCreated;
+    }
+
+    /**
+     * Returns the number of connections which are currently available in the
+     * connection pool.
+     *
+     * @return The number of idle connections.
+     */
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    /**
+     * Returns the number of idle connections which have been closed because
+     * they exceeded the idle timeout.
+     *
+     * @return The number of idle connections which have been purged.
+     */
+    public long getIdleConnectionsPurged() {
+        return idleConnectionsPurged;
+    }
+
+    /**
+     * Returns the distribution of the time during which connections were
+     * used by the application before being released.
+     *
+     * @return The distribution of the connection lease durations.
+     */
+    public Histogram getLeaseTime() {
+        return leaseTime;
+    }
+
+    /**
+     * Returns the maximum number of connections managed by the connection
+     * pool.
+     *
+     * @return The maximum number of connections.
+     */
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    /**
+     * Returns the number of new connections which are currently being
+     * established.
+     *
+     * @return The number of pending connection attempts.
+     */
+    public int getPendingConnectionAttempts() {
+        return pendingConnectionAttempts;
+    }
+
+    /**
+     * Returns the number of connection requests which are currently waiting
+     * for a connection to become available.
+     *
+     * @return The number of waiting connection requests.
+     */
+    public int getPendingRequests() {
+        return pendingRequests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPoolStatistics(active=%d, idle=%d, pendingRequests=%d, "
+                + "pendingConnectionAttempts=%d, maxPoolSize=%d, created=%d, failed=%d, purged=%d, "
+                + "borrowWaitTime=%s, connectionCreationTime=%s, leaseTime=%s)", activeConnections,
+                idleConnections, pendingRequests, pendingConnectionAttempts, maxPoolSize, connectionsCreated,
+                connectionCreationFailures, idleConnectionsPurged, borrowWaitTime, connectionCreationTime,
+                leaseTime);
+    }
+}
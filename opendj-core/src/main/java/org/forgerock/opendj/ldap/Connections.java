@@ -23,7 +23,7 @@
  *
  *      Copyright 2009-2010 Sun Microsystems, Inc.
  *      Portions Copyright 2011-2015 ForgeRock AS.
- *      Portions Copyright 2017 Wren Security.
+ *      Portions Copyright 2017-2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldap;
@@ -214,6 +214,84 @@ public final class Connections {
         return new CachedConnectionPool(factory, poolSize, poolSize, 0L, null, null);
     }
 
+    /**
+     * Creates a new connection pool which behaves like a
+     * {@link #newCachedConnectionPool(ConnectionFactory, int, int, long, TimeUnit, ScheduledExecutorService)
+     * cached connection pool}, but which splits its connections between
+     * {@code numberOfShards} independent sub-pools in order to reduce
+     * contention between threads at high request rates.
+     * <p>
+     * Each thread borrows connections from the shard associated with it. When
+     * its shard has no idle connections, an idle connection is taken from
+     * another shard if possible. Otherwise a new connection is created by a
+     * shard which has not reached its share of {@code maximumPoolSize}, or the
+     * request waits for a connection of its own shard to be released.
+     *
+     * @param factory
+     *            The connection factory to use for creating new connections.
+     * @param corePoolSize
+     *            The minimum number of connections to keep in the pool, even if
+     *            they are idle.
+     * @param maximumPoolSize
+     *            The maximum number of connections to allow in the pool.
+     * @param idleTimeout
+     *            The time out period, after which unused non-core connections
+     *            will be closed.
+     * @param unit
+     *            The time unit for the {@code keepAliveTime} argument.
+     * @param scheduler
+     *            The scheduler which should be used for periodically checking
+     *            for idle connections, or {@code null} if the default scheduler
+     *            should be used.
+     * @param numberOfShards
+     *            The number of shards, which is reduced to
+     *            {@code maximumPoolSize} if greater. The number of available
+     *            processors is a good starting point.
+     * @return The new connection pool.
+     * @throws IllegalArgumentException
+     *             If {@code corePoolSize} is negative, or if
+     *             {@code maximumPoolSize} or {@code numberOfShards} are less
+     *             than or equal to zero, or if {@code idleTimeout} is negative,
+     *             or if {@code corePoolSize} is greater than
+     *             {@code maximumPoolSize}, or if {@code idleTimeout} is
+     *             non-zero and {@code unit} is {@code null}.
+     * @throws NullPointerException
+     *             If {@code factory} was {@code null}.
+     */
+    public static ConnectionPool newShardedConnectionPool(final ConnectionFactory factory,
+            final int corePoolSize, final int maximumPoolSize, final long idleTimeout,
+            final TimeUnit unit, final ScheduledExecutorService scheduler, final int numberOfShards) {
+        return new ShardedConnectionPool(factory, corePoolSize, maximumPoolSize, idleTimeout, unit,
+                scheduler, numberOfShards);
+    }
+
+    /**
+     * Creates a new connection pool which behaves like a
+     * {@link #newFixedConnectionPool(ConnectionFactory, int) fixed connection
+     * pool}, but which splits its {@code poolSize} connections between
+     * {@code numberOfShards} independent sub-pools in order to reduce
+     * contention between threads at high request rates.
+     *
+     * @param factory
+     *            The connection factory to use for creating new connections.
+     * @param poolSize
+     *            The maximum size of the connection pool.
+     * @param numberOfShards
+     *            The number of shards, which is reduced to {@code poolSize} if
+     *            greater.
+     * @return The new connection pool.
+     * @throws IllegalArgumentException
+     *             If {@code poolSize} or {@code numberOfShards} are less than
+     *             or equal to zero.
+     * @throws NullPointerException
+     *             If {@code factory} was {@code null}.
+     * @see #newShardedConnectionPool(ConnectionFactory, int, int, long, TimeUnit, ScheduledExecutorService, int)
+     */
+    public static ConnectionPool newShardedConnectionPool(final ConnectionFactory factory,
+            final int poolSize, final int numberOfShards) {
+        return new ShardedConnectionPool(factory, poolSize, poolSize, 0L, null, null, numberOfShards);
+    }
+
     /**
      * Creates a new internal client connection which will route requests to the
      * provided {@code RequestHandler}.
@@ -431,6 +509,103 @@ public final class Connections {
         return new LoadBalancer(new FailoverLoadBalancingAlgorithm(factories, options));
     }
 
+    /**
+     * Creates a new "least requests" load-balancer which will load-balance connections across the provided set of
+     * connection factories. A least requests load balancing algorithm distributes connection requests to the
+     * connection factory whose connections currently have the fewest requests in progress. Connection factories
+     * having the same number of requests in progress are selected in a round robin fashion.
+     * <p>
+     * Like the {@link RoundRobinLoadBalancingAlgorithm}, this algorithm is typically used for load-balancing
+     * <i>within</i> data centers. However, a server which slows down accumulates requests in progress and therefore
+     * receives fewer new connections. The number of requests in progress is measured using the connections obtained
+     * from the load-balancer, so this algorithm works best when connections are short-lived or pooled.
+     * <p>
+     * If a problem occurs that temporarily prevents connections from being obtained for one of the connection
+     * factories, then this algorithm automatically "fails over" to the next operational connection factory in the list.
+     * If none of the connection factories are operational then a {@code ConnectionException} is returned to the
+     * client.
+     * <p>
+     * The implementation periodically attempts to connect to failed connection factories in order to determine if they
+     * have become available again.
+     *
+     * @param factories
+     *         The connection factories.
+     * @param options
+     *         This configuration options for the load-balancer. See {@link LoadBalancingAlgorithm} for common options.
+     * @return The new least requests load balancer.
+     * @see #newLatencyAwareLoadBalancer(Collection, Options)
+     * @see #newPowerOfTwoChoicesLoadBalancer(Collection, Options)
+     * @see LoadBalancingAlgorithm
+     */
+    public static ConnectionFactory newLeastRequestsLoadBalancer(
+            final Collection<? extends ConnectionFactory> factories, final Options options) {
+        return new LoadBalancer(new LeastRequestsLoadBalancingAlgorithm(factories, options));
+    }
+
+    /**
+     * Creates a new "latency aware" load-balancer which will load-balance connections across the provided set of
+     * connection factories. A latency aware load balancing algorithm distributes connection requests to the connection
+     * factory which is expected to complete a new request the soonest, based on the exponentially weighted moving
+     * average of the response times of its connections multiplied by the number of requests they have in progress.
+     * Connection factories whose response time is not yet known are selected first.
+     * <p>
+     * The average response time of a connection factory which does not receive any responses decays over time, so
+     * that a server which was slow is eventually tried again once it has recovered.
+     * <p>
+     * If a problem occurs that temporarily prevents connections from being obtained for one of the connection
+     * factories, then this algorithm automatically "fails over" to the next operational connection factory in the list.
+     * If none of the connection factories are operational then a {@code ConnectionException} is returned to the
+     * client.
+     * <p>
+     * The implementation periodically attempts to connect to failed connection factories in order to determine if they
+     * have become available again.
+     *
+     * @param factories
+     *         The connection factories.
+     * @param options
+     *         This configuration options for the load-balancer. See {@link LoadBalancingAlgorithm} for common options.
+     * @return The new latency aware load balancer.
+     * @see #newLeastRequestsLoadBalancer(Collection, Options)
+     * @see #newPowerOfTwoChoicesLoadBalancer(Collection, Options)
+     * @see LoadBalancingAlgorithm
+     */
+    public static ConnectionFactory newLatencyAwareLoadBalancer(
+            final Collection<? extends ConnectionFactory> factories, final Options options) {
+        return new LoadBalancer(new LatencyAwareLoadBalancingAlgorithm(factories, options));
+    }
+
+    /**
+     * Creates a new "power of two choices" load-balancer which will load-balance connections across the provided set
+     * of connection factories. A power of two choices load balancing algorithm selects two connection factories at
+     * random and distributes the connection request to the one which is expected to complete a new request the
+     * soonest, using the same estimate as the {@link #newLatencyAwareLoadBalancer(Collection, Options) latency aware}
+     * load-balancer.
+     * <p>
+     * Sampling two connection factories is cheaper than examining all of them when there are many, and avoids sending
+     * every connection to the same factory whenever their load statistics are stale.
+     * <p>
+     * If a problem occurs that temporarily prevents connections from being obtained for one of the connection
+     * factories, then this algorithm automatically "fails over" to the next operational connection factory in the list.
+     * If none of the connection factories are operational then a {@code ConnectionException} is returned to the
+     * client.
+     * <p>
+     * The implementation periodically attempts to connect to failed connection factories in order to determine if they
+     * have become available again.
+     *
+     * @param factories
+     *         The connection factories.
+     * @param options
+     *         This configuration options for the load-balancer. See {@link LoadBalancingAlgorithm} for common options.
+     * @return The new power of two choices load balancer.
+     * @see #newLeastRequestsLoadBalancer(Collection, Options)
+     * @see #newLatencyAwareLoadBalancer(Collection, Options)
+     * @see LoadBalancingAlgorithm
+     */
+    public static ConnectionFactory newPowerOfTwoChoicesLoadBalancer(
+            final Collection<? extends ConnectionFactory> factories, final Options options) {
+        return new LoadBalancer(new PowerOfTwoChoicesLoadBalancingAlgorithm(factories, options));
+    }
+
     /**
      * Creates a new load balancer which will obtain connections using the provided load balancing algorithm.
      *
@@ -444,6 +619,62 @@ public final class Connections {
         return new LoadBalancer(algorithm);
     }
 
+    /**
+     * Creates a new load balancer whose connections use the provided load balancing algorithm in order to select a
+     * connection factory for <i>each request</i>, rather than once when the connection is obtained. This allows
+     * long-lived connections to follow changes in the load of the servers, for example when a server comes back
+     * online after a failure.
+     * <p>
+     * Each request borrows a connection from the selected connection factory and releases it as soon as the request
+     * completes, so the load balanced connection factories should normally be connection pools. Obtaining a connection
+     * from the returned connection factory does not perform any network activity.
+     * <p>
+     * A successful bind request pins the connection to the underlying connection which processed it, and all
+     * subsequent requests are sent to that connection. It is reset using an anonymous bind before being released once
+     * the connection is closed. StartTLS extended requests are not supported and fail with the result code
+     * {@link ResultCode#CLIENT_SIDE_NOT_SUPPORTED}: the underlying connection factories should use SSL instead.
+     *
+     * @param algorithm
+     *         The load balancing algorithm which will be used to select the connection factory for each request.
+     * @return The new request load balancer.
+     * @throws NullPointerException
+     *         If {@code algorithm} was {@code null}.
+     * @see #newLoadBalancer(LoadBalancingAlgorithm)
+     */
+    public static ConnectionFactory newRequestLoadBalancer(final LoadBalancingAlgorithm algorithm) {
+        return new RequestLoadBalancer(algorithm);
+    }
+
+    /**
+     * Creates a new "affinity" load-balancer which will load-balance requests across the provided set of connection
+     * factories according to the entry which they target. Like the
+     * {@link #newRequestLoadBalancer(LoadBalancingAlgorithm) request load-balancer}, the returned connection factory
+     * selects a connection factory for each request rather than for each connection. Requests targeting the same entry, or the same subtree when the
+     * {@link LoadBalancingAlgorithm#LOAD_BALANCER_AFFINITY_ATTRIBUTE affinity attribute} is configured, are always sent
+     * to the same connection factory using consistent hashing of the entry's name. Requests which do not target an
+     * entry, such as bind and extended requests, are distributed in a round robin fashion.
+     * <p>
+     * This algorithm is typically used for load-balancing between replicas, where sending reads and writes for the same
+     * entry to the same server improves the efficiency of its entry cache and avoids reading stale data which has not
+     * yet been replicated.
+     * <p>
+     * If a connection factory is offline, then the requests which would have been sent to it are shared between the
+     * remaining operational connection factories, while other requests are unaffected. The implementation periodically
+     * attempts to connect to failed connection factories in order to determine if they have become available again.
+     *
+     * @param factories
+     *         The connection factories, which should normally be connection pools.
+     * @param options
+     *         This configuration options for the load-balancer. See {@link LoadBalancingAlgorithm} for common options.
+     * @return The new affinity load balancer.
+     * @see #newRequestLoadBalancer(LoadBalancingAlgorithm)
+     * @see LoadBalancingAlgorithm
+     */
+    public static ConnectionFactory newAffinityRequestLoadBalancer(
+            final Collection<? extends ConnectionFactory> factories, final Options options) {
+        return new RequestLoadBalancer(new AffinityLoadBalancingAlgorithm(factories, options));
+    }
+
     /**
      * Creates a new connection factory which forwards connection requests to
      * the provided factory, but whose {@code toString} method will always
@@ -23,16 +23,13 @@
  *
  *      Copyright 2009-2010 Sun Microsystems, Inc.
  *      Portions Copyright 2011-2015 ForgeRock AS.
- *      Portions Copyright 2017 Wren Security.
+ *      Portions Copyright 2017-2026 Wren Security.
  */
 package org.forgerock.opendj.ldap;
 
 import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.WeakHashMap;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.LocalizedIllegalArgumentException;
@@ -71,21 +68,15 @@ public final class DN implements Iterable<RDN>, Comparable<DN> {
     private static final DN ROOT_DN = new DN(CoreSchema.getInstance(), null, null, "");
 
     /**
-     * This is the size of the per-thread per-schema DN cache. We should
-     * be conservative here in case there are many threads. We will only
-     * cache parent DNs, so there's no need for it to be big.
+     * The per-schema DN cache, which is shared by all threads unless the
+     * {@code org.forgerock.opendj.dnCache.mode} property is set to
+     * {@code threadLocal}. We will only cache parent DNs, so there's no need
+     * for it to be big. Per-thread caches should be conservative in case
+     * there are many threads.
+     *
+     * @see DecodeCache
      */
-    private static final int DN_CACHE_SIZE = 32;
-
-    private static final ThreadLocal<WeakHashMap<Schema, Map<String, DN>>> CACHE =
-            new ThreadLocal<WeakHashMap<Schema, Map<String, DN>>>() {
-
-                /** {@inheritDoc} */
-                @Override
-                protected WeakHashMap<Schema, Map<String, DN>> initialValue() {
-                    return new WeakHashMap<>();
-                }
-            };
+    private static final DecodeCache<DN> CACHE = DecodeCache.newCache("dnCache", 4096, 32);
 
     /**
      * Returns the LDAP string representation of the provided DN attribute value
@@ -194,6 +185,16 @@ public final class DN implements Iterable<RDN>, Comparable<DN> {
         return valueOf(dnString, schema);
     }
 
+    /**
+     * Returns the statistics of the cache used for avoiding decoding the same
+     * parent DNs repeatedly.
+     *
+     * @return The statistics of the DN cache.
+     */
+    public static CacheStatistics getCacheStatistics() {
+        return CACHE.getStatistics();
+    }
+
     /**
      * Returns the Root DN. The Root DN does not contain and RDN components and
      * is superior to all other DNs.
@@ -245,15 +246,14 @@ public final class DN implements Iterable<RDN>, Comparable<DN> {
         }
 
         // First check if DN is already cached.
-        final Map<String, DN> cache = getCache(schema);
-        final DN cachedDN = cache.get(dn);
+        final DN cachedDN = CACHE.get(schema, dn);
         if (cachedDN != null) {
             return cachedDN;
         }
 
         // Not in cache so decode.
         final SubstringReader reader = new SubstringReader(dn);
-        return decode(dn, reader, schema, cache);
+        return decode(dn, reader, schema);
     }
 
     /**
@@ -276,7 +276,7 @@ public final class DN implements Iterable<RDN>, Comparable<DN> {
 
     /** Decodes a DN using the provided reader and schema. */
     private static DN decode(final String dnString, final SubstringReader reader,
-            final Schema schema, final Map<String, DN> cache) {
+            final Schema schema) {
         reader.skipWhitespaces();
         if (reader.remaining() == 0) {
             return ROOT_DN;
@@ -296,14 +296,14 @@ public final class DN implements Iterable<RDN>, Comparable<DN> {
             reader.mark();
             final String parentString = reader.read(reader.remaining());
 
-            parent = cache.get(parentString);
+            parent = CACHE.get(schema, parentString);
             if (parent == null) {
                 reader.reset();
-                parent = decode(parentString, reader, schema, cache);
+                parent = decode(parentString, reader, schema);
 
                 // Only cache parent DNs since leaf DNs are likely to make the
                 // cache to volatile.
-                cache.put(parentString, parent);
+                CACHE.put(schema, parentString, parent);
             }
         } else {
             parent = ROOT_DN;
@@ -312,23 +312,6 @@ public final class DN implements Iterable<RDN>, Comparable<DN> {
         return new DN(schema, parent, rdn, dnString);
     }
 
-    @SuppressWarnings("serial")
-    private static Map<String, DN> getCache(final Schema schema) {
-        final WeakHashMap<Schema, Map<String, DN>> threadLocalMap = CACHE.get();
-        Map<String, DN> schemaLocalMap = threadLocalMap.get(schema);
-
-        if (schemaLocalMap == null) {
-            schemaLocalMap = new LinkedHashMap<String, DN>(DN_CACHE_SIZE, 0.75f, true) {
-                @Override
-                protected boolean removeEldestEntry(final Map.Entry<String, DN> e) {
-                    return size() > DN_CACHE_SIZE;
-                }
-            };
-            threadLocalMap.put(schema, schemaLocalMap);
-        }
-        return schemaLocalMap;
-    }
-
     private final RDN rdn;
 
     private DN parent;
@@ -0,0 +1,348 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.ldap;
+
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.forgerock.opendj.ldap.schema.Schema;
+
+/**
+ * A bounded cache of decoded values, such as DNs or attribute descriptions,
+ * indexed by their string representation. Each schema has its own set of
+ * cached values since decoding depends on the schema.
+ * <p>
+ * By default the cache is shared by all threads and is split into stripes,
+ * each protected by its own lock, in order to limit contention. The cache may
+ * also be configured to use one small cache per thread, which is what the SDK
+ * used to do. The cache is configured using the following system properties,
+ * where {@code <name>} is the name of the cache:
+ * <ul>
+ * <li>{@code org.forgerock.opendj.<name>.mode}: either {@code shared} or
+ * {@code threadLocal}
+ * <li>{@code org.forgerock.opendj.<name>.size}: the maximum number of values
+ * cached for each schema, or {@code 0} in order to disable the cache
+ * <li>{@code org.forgerock.opendj.<name>.evictionPolicy}: either {@code lru}
+ * in order to evict the least recently used values first, or {@code fifo} in
+ * order to evict the least recently cached values first. FIFO eviction is
+ * cheaper since reads do not need to update the cache.
+ * </ul>
+ *
+ * @param <V>
+ *            The type of cached values.
+ */
+abstract class DecodeCache<V> {
+    /** The eviction policies applied when a cache is full. */
+    enum EvictionPolicy {
+        /** Evicts the least recently cached values first. */
+        FIFO,
+        /** Evicts the least recently used values first. */
+        LRU
+    }
+
+    /** A cache shared by all threads, split into independently locked stripes. */
+    private static final class SharedCache<V> extends DecodeCache<V> {
+        /** The caches of the schemas which have been used recently, keyed by schema. */
+        private final Map<Schema, Stripe<V>[]> caches = new WeakHashMap<>();
+        private final EvictionPolicy evictionPolicy;
+
+        /** The last used schema cache, which avoids locking when a single schema is used. */
+        private volatile SchemaStripes<V> lastUsed;
+        private final int stripeSize;
+
+        private SharedCache(final int size, final EvictionPolicy evictionPolicy) {
+            this.stripeSize = Math.max(1, (size + NUMBER_OF_STRIPES - 1) / NUMBER_OF_STRIPES);
+            this.evictionPolicy = evictionPolicy;
+        }
+
+        @Override
+        V get(final Schema schema, final String key) {
+            final Stripe<V> stripe = getStripe(schema, key);
+            synchronized (stripe) {
+                final V value = stripe.get(key);
+                if (value != null) {
+                    stripe.hits++;
+                } else {
+                    stripe.misses++;
+                }
+                return value;
+            }
+        }
+
+        @Override
+        CacheStatistics getStatistics() {
+            long hits = 0;
+            long misses = 0;
+            long evictions = 0;
+            long size = 0;
+            synchronized (caches) {
+                for (final Stripe<V>[] stripes : caches.values()) {
+                    for (final Stripe<V> stripe : stripes) {
+                        synchronized (stripe) {
+                            hits += stripe.hits;
+                            misses += stripe.misses;
+                            evictions += stripe.evictions;
+                            size += stripe.size();
+                        }
+                    }
+                }
+            }
+            return new CacheStatistics(hits, misses, evictions, size);
+        }
+
+        @Override
+        void put(final Schema schema, final String key, final V value) {
+            final Stripe<V> stripe = getStripe(schema, key);
+            synchronized (stripe) {
+                stripe.put(key, value);
+            }
+        }
+
+        private Stripe<V> getStripe(final Schema schema, final String key) {
+            final Stripe<V>[] stripes = getStripes(schema);
+            // Spread the hash bits in order to use all stripes even for similar strings.
+            int h = key.hashCode();
+            h ^= (h >>> 20) ^ (h >>> 12);
+            h ^= (h >>> 7) ^ (h >>> 4);
+            return stripes[h & (NUMBER_OF_STRIPES - 1)];
+        }
+
+        private Stripe<V>[] getStripes(final Schema schema) {
+            final SchemaStripes<V> last = lastUsed;
+            if (last != null && last.schema.get() == schema) {
+                return last.stripes;
+            }
+
+            Stripe<V>[] stripes;
+            synchronized (caches) {
+                stripes = caches.get(schema);
+                if (stripes == null) {
+                    stripes = newStripes();
+                    caches.put(schema, stripes);
+                }
+            }
+            lastUsed = new SchemaStripes<>(schema, stripes);
+            return stripes;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Stripe<V>[] newStripes() {
+            final Stripe<V>[] stripes = new Stripe[NUMBER_OF_STRIPES];
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = new Stripe<>(stripeSize, evictionPolicy);
+            }
+            return stripes;
+        }
+    }
+
+    /**
+     * The stripes of a schema cache. The schema is weakly referenced so that
+     * caching the last used schema does not prevent it from being garbage
+     * collected.
+     */
+    private static final class SchemaStripes<V> {
+        private final WeakReference<Schema> schema;
+        private final Stripe<V>[] stripes;
+
+        private SchemaStripes(final Schema schema, final Stripe<V>[] stripes) {
+            this.schema = new WeakReference<>(schema);
+            this.stripes = stripes;
+        }
+    }
+
+    /** A bounded map and its statistics, which must be accessed while holding its lock. */
+    @SuppressWarnings("serial")
+    private static final class Stripe<V> extends LinkedHashMap<String, V> {
+        private final int capacity;
+        private long evictions;
+        private long hits;
+        private long misses;
+
+        private Stripe(final int capacity, final EvictionPolicy evictionPolicy) {
+            super(capacity, 0.75f, evictionPolicy == EvictionPolicy.LRU);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, V> eldest) {
+            if (size() > capacity) {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * One small cache per thread. Statistics are not maintained since they
+     * would have to be shared by all threads.
+     */
+    private static final class ThreadLocalCache<V> extends DecodeCache<V> {
+        private final ThreadLocal<WeakHashMap<Schema, Map<String, V>>> cache =
+                new ThreadLocal<WeakHashMap<Schema, Map<String, V>>>() {
+                    @Override
+                    protected WeakHashMap<Schema, Map<String, V>> initialValue() {
+                        return new WeakHashMap<>();
+                    }
+                };
+        private final int capacity;
+        private final EvictionPolicy evictionPolicy;
+
+        private ThreadLocalCache(final int capacity, final EvictionPolicy evictionPolicy) {
+            this.capacity = capacity;
+            this.evictionPolicy = evictionPolicy;
+        }
+
+        @Override
+        V get(final Schema schema, final String key) {
+            return getCache(schema).get(key);
+        }
+
+        @Override
+        CacheStatistics getStatistics() {
+            return new CacheStatistics(0, 0, 0, 0);
+        }
+
+        @Override
+        void put(final Schema schema, final String key, final V value) {
+            getCache(schema).put(key, value);
+        }
+
+        @SuppressWarnings("serial")
+        private Map<String, V> getCache(final Schema schema) {
+            final WeakHashMap<Schema, Map<String, V>> threadLocalMap = cache.get();
+            Map<String, V> schemaLocalMap = threadLocalMap.get(schema);
+            if (schemaLocalMap == null) {
+                schemaLocalMap = new LinkedHashMap<String, V>(capacity, 0.75f, evictionPolicy == EvictionPolicy.LRU) {
+                    @Override
+                    protected boolean removeEldestEntry(final Map.Entry<String, V> eldest) {
+                        return size() > capacity;
+                    }
+                };
+                threadLocalMap.put(schema, schemaLocalMap);
+            }
+            return schemaLocalMap;
+        }
+    }
+
+    /** A cache which does not cache anything. */
+    private static final class NoCache<V> extends DecodeCache<V> {
+        @Override
+        V get(final Schema schema, final String key) {
+            return null;
+        }
+
+        @Override
+        CacheStatistics getStatistics() {
+            return new CacheStatistics(0, 0, 0, 0);
+        }
+
+        @Override
+        void put(final Schema schema, final String key, final V value) {
+            // Do nothing.
+        }
+    }
+
+    /** The number of stripes of shared caches, which must be a power of two. */
+    private static final int NUMBER_OF_STRIPES = 16;
+
+    /**
+     * Returns a new cache configured using the system properties of the named
+     * cache.
+     *
+     * @param name
+     *            The name of the cache, used for naming its system properties.
+     * @param defaultSharedSize
+     *            The default size of the cache when it is shared by all
+     *            threads.
+     * @param defaultThreadLocalSize
+     *            The default size of the cache of each thread.
+     * @return The new cache.
+     */
+    static <V> DecodeCache<V> newCache(final String name, final int defaultSharedSize,
+            final int defaultThreadLocalSize) {
+        final String prefix = "org.forgerock.opendj." + name + ".";
+        final boolean isThreadLocal = "threadLocal".equalsIgnoreCase(System.getProperty(prefix + "mode"));
+        int size = isThreadLocal ? defaultThreadLocalSize : defaultSharedSize;
+        final String sizeProperty = System.getProperty(prefix + "size");
+        if (sizeProperty != null) {
+            try {
+                size = Integer.parseInt(sizeProperty);
+            } catch (final NumberFormatException e) {
+                // Use the default size.
+            }
+        }
+        final EvictionPolicy evictionPolicy =
+                "fifo".equalsIgnoreCase(System.getProperty(prefix + "evictionPolicy"))
+                        ? EvictionPolicy.FIFO : EvictionPolicy.LRU;
+        return newCache(isThreadLocal, size, evictionPolicy);
+    }
+
+    /** Returns a new cache. Package private for unit testing. */
+    static <V> DecodeCache<V> newCache(final boolean isThreadLocal, final int size,
+            final EvictionPolicy evictionPolicy) {
+        if (size <= 0) {
+            return new NoCache<>();
+        } else if (isThreadLocal) {
+            return new ThreadLocalCache<>(size, evictionPolicy);
+        } else {
+            return new SharedCache<>(size, evictionPolicy);
+        }
+    }
+
+    /**
+     * Returns the cached value associated with the provided string for the
+     * provided schema.
+     *
+     * @param schema
+     *            The schema used for decoding the value.
+     * @param key
+     *            The string representation of the value.
+     * @return The cached value, or {@code null} if it is not cached.
+     */
+    abstract V get(Schema schema, String key);
+
+    /**
+     * Returns the statistics of this cache.
+     *
+     * @return The statistics of this cache.
+     */
+    abstract CacheStatistics getStatistics();
+
+    /**
+     * Caches the value associated with the provided string for the provided
+     * schema, possibly evicting another value.
+     *
+     * @param schema
+     *            The schema used for decoding the value.
+     * @param key
+     *            The string representation of the value.
+     * @param value
+     *            The decoded value.
+     */
+    abstract void put(Schema schema, String key, V value);
+}
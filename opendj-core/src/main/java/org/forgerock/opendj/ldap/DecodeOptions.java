@@ -23,6 +23,7 @@
  *
  *      Copyright 2009 Sun Microsystems, Inc.
  *      Portions copyright 2011-2012 ForgeRock AS
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldap;
@@ -42,6 +43,7 @@ import org.forgerock.util.Reject;
  * attributes.
  * <li>The {@code Entry} implementation which should be used when decoding
  * entries or entry like objects.
+ * <li>Whether search result entries should be decoded lazily.
  * </ul>
  */
 public final class DecodeOptions {
@@ -65,6 +67,8 @@ public final class DecodeOptions {
 
     private AttributeFactory attributeFactory;
 
+    private boolean lazyEntryDecoding;
+
     /**
      * Creates a new set of decode options which will always use the default
      * schema returned by {@link Schema#getDefaultSchema()},
@@ -87,6 +91,7 @@ public final class DecodeOptions {
         this.attributeFactory = options.attributeFactory;
         this.entryFactory = options.entryFactory;
         this.schemaResolver = options.schemaResolver;
+        this.lazyEntryDecoding = options.lazyEntryDecoding;
     }
 
     /**
@@ -122,6 +127,16 @@ public final class DecodeOptions {
         return schemaResolver;
     }
 
+    /**
+     * Indicates whether search result entries are decoded lazily.
+     *
+     * @return {@code true} if search result entries are decoded lazily.
+     * @see #setLazyEntryDecoding(boolean)
+     */
+    public final boolean isLazyEntryDecoding() {
+        return lazyEntryDecoding;
+    }
+
     /**
      * Sets the {@code AttributeFactory} which will be used for creating new
      * {@code Attribute} instances when decoding attributes.
@@ -156,6 +171,32 @@ public final class DecodeOptions {
         return this;
     }
 
+    /**
+     * Specifies whether search result entries should be decoded lazily. The
+     * default setting is {@code false}.
+     * <p>
+     * The attributes of lazily decoded entries are kept in their encoded form
+     * until they are accessed, which is much cheaper when applications only
+     * read a few attributes of large entries. Attribute descriptions are only
+     * parsed when an attribute is first requested, at which point an invalid
+     * attribute description results in a {@code LocalizedIllegalArgumentException}
+     * rather than a decoding error. Attribute values are slices of the encoded
+     * entry, so retaining a single value retains the whole encoded entry.
+     * <p>
+     * Lazily decoded entries are fully decoded, using the configured entry and
+     * attribute factories, as soon as all of their attributes are requested or
+     * they are modified.
+     *
+     * @param lazyEntryDecoding
+     *            {@code true} if search result entries should be decoded
+     *            lazily.
+     * @return A reference to this set of decode options.
+     */
+    public final DecodeOptions setLazyEntryDecoding(final boolean lazyEntryDecoding) {
+        this.lazyEntryDecoding = lazyEntryDecoding;
+        return this;
+    }
+
     /**
      * Sets the {@code Schema} which will be used for decoding distinguished
      * names, attribute descriptions, and other objects which require a schema
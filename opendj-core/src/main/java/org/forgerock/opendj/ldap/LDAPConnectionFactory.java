@@ -23,7 +23,7 @@
  *
  *      Copyright 2009-2010 Sun Microsystems, Inc.
  *      Portions Copyright 2011-2015 ForgeRock AS.
- *      Portions Copyright 2017 Wren Security.
+ *      Portions Copyright 2017-2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldap;
@@ -208,6 +208,28 @@ public final class LDAPConnectionFactory extends CommonLDAPOptions implements Co
      */
     public static final Option<Duration> HEARTBEAT_TIMEOUT = Option.withDefault(new Duration(3L, SECONDS));
 
+    /**
+     * Specifies the maximum number of pipelined requests which will be written to the Directory Server in a single
+     * batch (default is 64 requests). This option only applies if {@link #REQUEST_PIPELINING_ENABLED} is set to
+     * {@code true}.
+     *
+     * @see #REQUEST_PIPELINING_ENABLED
+     */
+    public static final Option<Integer> REQUEST_PIPELINING_BATCH_SIZE = Option.withDefault(64);
+
+    /**
+     * Configures connections to pipeline the requests sent to the Directory Server. When enabled, requests issued
+     * concurrently by different threads are not written individually, but are instead queued and written in batches of
+     * up to {@link #REQUEST_PIPELINING_BATCH_SIZE} requests using a single write. This significantly reduces the
+     * per-request write overhead for applications issuing many asynchronous requests over the same connection.
+     * <p>
+     * Requests are always written in the order in which they were issued. Bind, StartTLS and unbind requests are
+     * written immediately, along with any requests queued before them, before the method sending them returns.
+     * <p>
+     * Request pipelining is disabled by default.
+     */
+    public static final Option<Boolean> REQUEST_PIPELINING_ENABLED = Option.withDefault(false);
+
     /**
      * Specifies the operation timeout. If a response is not received from the Directory Server within the timeout
      * period, then the operation will be abandoned and a {@link TimeoutResultException} error result returned. A
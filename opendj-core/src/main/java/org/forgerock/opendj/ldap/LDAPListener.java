@@ -23,6 +23,7 @@
  *
  *      Copyright 2009-2010 Sun Microsystems, Inc.
  *      Portions copyright 2012-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldap;
@@ -109,6 +110,27 @@ public final class LDAPListener extends CommonLDAPOptions implements Closeable {
      */
     public static final Option<Integer> REQUEST_MAX_SIZE_IN_BYTES = Option.withDefault(5 * 1024 * 1024);
 
+    /**
+     * Specifies the number of bytes of responses which may be queued for writing to a client before threads returning
+     * search result entries and references to that client are suspended. Suspended threads are resumed once the
+     * queue has drained to {@link #WRITE_QUEUE_LOW_WATER_MARK_IN_BYTES}. This prevents request handlers streaming
+     * large search results to slow clients from exhausting the heap.
+     * <p>
+     * Responses are written to clients using non-blocking writes when this option is set, and clients whose queued
+     * responses exceed four times the high-water mark are disconnected. The default value is 0, meaning that
+     * responses are written using blocking writes, which throttle the writing thread instead.
+     */
+    public static final Option<Integer> WRITE_QUEUE_HIGH_WATER_MARK_IN_BYTES = Option.withDefault(0);
+
+    /**
+     * Specifies the number of bytes of queued responses below which threads suspended by the
+     * {@link #WRITE_QUEUE_HIGH_WATER_MARK_IN_BYTES high-water mark} are resumed. The default value is 0, meaning half of
+     * the high-water mark.
+     *
+     * @see #WRITE_QUEUE_HIGH_WATER_MARK_IN_BYTES
+     */
+    public static final Option<Integer> WRITE_QUEUE_LOW_WATER_MARK_IN_BYTES = Option.withDefault(0);
+
     /**
      * We implement the factory using the pimpl idiom in order have
      * cleaner Javadoc which does not expose implementation methods.
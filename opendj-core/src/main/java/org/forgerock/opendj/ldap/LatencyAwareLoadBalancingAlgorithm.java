@@ -0,0 +1,76 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.ldap;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.util.Options;
+
+/**
+ * A latency aware load balancing algorithm distributes connection requests to the operational connection factory
+ * which is expected to complete a new request the soonest, based on the exponentially weighted moving average of its
+ * response times and on the number of requests it is already processing.
+ */
+final class LatencyAwareLoadBalancingAlgorithm extends AbstractLoadBalancingAlgorithm {
+    private final int maxIndex;
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    LatencyAwareLoadBalancingAlgorithm(final Collection<? extends ConnectionFactory> factories,
+            final Options options) {
+        super(factories, options);
+        this.maxIndex = factories.size();
+    }
+
+    @Override
+    String getAlgorithmName() {
+        return "LatencyAware";
+    }
+
+    @Override
+    int getInitialConnectionFactoryIndex() {
+        // Rotate the starting point so that ties are broken fairly.
+        final int startIndex = (nextIndex.getAndIncrement() & Integer.MAX_VALUE) % maxIndex;
+        final long now = System.nanoTime();
+        int bestIndex = startIndex;
+        long bestCost = Long.MAX_VALUE;
+        for (int i = 0; i < maxIndex; i++) {
+            final int index = (startIndex + i) % maxIndex;
+            if (isOperational(index)) {
+                final long cost = getEstimatedCost(index, now);
+                if (cost < bestCost) {
+                    bestIndex = index;
+                    bestCost = cost;
+                }
+            }
+        }
+        return bestIndex;
+    }
+
+    @Override
+    boolean isMonitoringRequests() {
+        return true;
+    }
+}
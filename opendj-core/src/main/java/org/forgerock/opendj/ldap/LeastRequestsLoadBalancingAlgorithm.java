@@ -0,0 +1,75 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.ldap;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.util.Options;
+
+/**
+ * A least requests load balancing algorithm distributes connection requests to the operational connection factory
+ * whose connections have the fewest requests in progress. Connection factories having the same number of requests in
+ * progress are selected in a round robin fashion.
+ */
+final class LeastRequestsLoadBalancingAlgorithm extends AbstractLoadBalancingAlgorithm {
+    private final int maxIndex;
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    LeastRequestsLoadBalancingAlgorithm(final Collection<? extends ConnectionFactory> factories,
+            final Options options) {
+        super(factories, options);
+        this.maxIndex = factories.size();
+    }
+
+    @Override
+    String getAlgorithmName() {
+        return "LeastRequests";
+    }
+
+    @Override
+    int getInitialConnectionFactoryIndex() {
+        // Rotate the starting point so that ties are broken fairly.
+        final int startIndex = (nextIndex.getAndIncrement() & Integer.MAX_VALUE) % maxIndex;
+        int bestIndex = startIndex;
+        int bestRequests = Integer.MAX_VALUE;
+        for (int i = 0; i < maxIndex; i++) {
+            final int index = (startIndex + i) % maxIndex;
+            if (isOperational(index)) {
+                final int requests = getActiveRequests(index);
+                if (requests < bestRequests) {
+                    bestIndex = index;
+                    bestRequests = requests;
+                }
+            }
+        }
+        return bestIndex;
+    }
+
+    @Override
+    boolean isMonitoringRequests() {
+        return true;
+    }
+}
@@ -23,6 +23,7 @@
  *
  *      Copyright 2009-2010 Sun Microsystems, Inc.
  *      Portions copyright 2012-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldap;
@@ -50,6 +51,13 @@ import org.forgerock.util.Reject;
  * the same order they were presented.
  * <p>
  * All operations are supported by this implementation.
+ * <p>
+ * This implementation is not thread safe, but concurrent read operations are
+ * safe as long as no thread modifies the attribute, e.g. when reads and writes
+ * are guarded by a read-write lock. Read operations only lazily compute the
+ * normalized form of a single value, which is immutable, so concurrent readers
+ * may at worst compute it twice. In particular, the memory footprint of an
+ * attribute does not depend on the filters it has been matched against.
  */
 public final class LinkedAttribute extends AbstractAttribute {
 
@@ -61,6 +69,8 @@ public final class LinkedAttribute extends AbstractAttribute {
 
         abstract boolean contains(LinkedAttribute attribute, ByteString value);
 
+        abstract boolean containsNormalizedValue(LinkedAttribute attribute, ByteString normalizedValue);
+
         boolean containsAll(final LinkedAttribute attribute, final Collection<?> values) {
             // TODO: could optimize if objects is a LinkedAttribute having the
             // same equality matching rule.
@@ -88,7 +98,7 @@ public final class LinkedAttribute extends AbstractAttribute {
 
         @Override
         boolean add(final LinkedAttribute attribute, final ByteString value) {
-            final ByteString normalizedValue = normalizeValue(attribute, value);
+            final ByteString normalizedValue = attribute.normalizeOwnValue(value);
             return attribute.multipleValues.put(normalizedValue, value) == null;
         }
 
@@ -103,6 +113,11 @@ public final class LinkedAttribute extends AbstractAttribute {
             return attribute.multipleValues.containsKey(normalizeValue(attribute, value));
         }
 
+        @Override
+        boolean containsNormalizedValue(final LinkedAttribute attribute, final ByteString normalizedValue) {
+            return attribute.multipleValues.containsKey(normalizedValue);
+        }
+
         @Override
         ByteString firstValue(final LinkedAttribute attribute) {
             return attribute.multipleValues.values().iterator().next();
@@ -231,7 +246,7 @@ public final class LinkedAttribute extends AbstractAttribute {
 
         @Override
         boolean add(final LinkedAttribute attribute, final ByteString value) {
-            final ByteString normalizedValue = normalizeValue(attribute, value);
+            final ByteString normalizedValue = attribute.normalizeOwnValue(value);
             if (attribute.normalizedSingleValue().equals(normalizedValue)) {
                 return false;
             }
@@ -259,6 +274,11 @@ public final class LinkedAttribute extends AbstractAttribute {
             return attribute.normalizedSingleValue().equals(normalizedValue);
         }
 
+        @Override
+        boolean containsNormalizedValue(final LinkedAttribute attribute, final ByteString normalizedValue) {
+            return attribute.normalizedSingleValue().equals(normalizedValue);
+        }
+
         @Override
         ByteString firstValue(final LinkedAttribute attribute) {
             if (attribute.singleValue != null) {
@@ -362,6 +382,7 @@ public final class LinkedAttribute extends AbstractAttribute {
         @Override
         boolean add(final LinkedAttribute attribute, final ByteString value) {
             attribute.singleValue = value;
+            attribute.mayContainInvalidValues = false;
             attribute.pimpl = SINGLE_VALUE_IMPL;
             return true;
         }
@@ -376,6 +397,11 @@ public final class LinkedAttribute extends AbstractAttribute {
             return false;
         }
 
+        @Override
+        boolean containsNormalizedValue(final LinkedAttribute attribute, final ByteString normalizedValue) {
+            return false;
+        }
+
         @Override
         boolean containsAll(final LinkedAttribute attribute, final Collection<?> values) {
             return values.isEmpty();
@@ -453,6 +479,13 @@ public final class LinkedAttribute extends AbstractAttribute {
     private final AttributeDescription attributeDescription;
     private Map<ByteString, ByteString> multipleValues;
     private ByteString normalizedSingleValue;
+    /**
+     * Indicates whether one of the values of this attribute could not be
+     * normalized using the equality matching rule. It is reset when a value is
+     * added to an empty attribute. Like {@link #normalizedSingleValue}, it may be
+     * set by read operations.
+     */
+    private boolean mayContainInvalidValues;
     private Impl pimpl = ZERO_VALUE_IMPL;
     private ByteString singleValue;
 
@@ -473,6 +506,7 @@ public final class LinkedAttribute extends AbstractAttribute {
             this.pimpl = other.pimpl;
             this.singleValue = other.singleValue;
             this.normalizedSingleValue = other.normalizedSingleValue;
+            this.mayContainInvalidValues = other.mayContainInvalidValues;
             if (other.multipleValues != null) {
                 this.multipleValues = new LinkedHashMap<>(other.multipleValues);
             }
@@ -673,6 +707,13 @@ public final class LinkedAttribute extends AbstractAttribute {
         return pimpl.containsAll(this, values);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsNormalizedValue(final ByteString normalizedValue) {
+        Reject.ifNull(normalizedValue);
+        return pimpl.containsNormalizedValue(this, normalizedValue);
+    }
+
     /** {@inheritDoc} */
     @Override
     public ByteString firstValue() {
@@ -712,10 +753,30 @@ public final class LinkedAttribute extends AbstractAttribute {
         return pimpl.size(this);
     }
 
+    /**
+     * Returns {@code true} if some values of this attribute may not be valid
+     * according to the equality matching rule, in which case they are indexed
+     * using their unnormalized form. A single value is only taken into account
+     * once it has been normalized, e.g. by {@link #containsNormalizedValue}.
+     */
+    boolean mayContainInvalidValues() {
+        return mayContainInvalidValues;
+    }
+
+    /** Normalizes a value of this attribute using the equality matching rule, falling back to the value itself. */
+    private ByteString normalizeOwnValue(final ByteString value) {
+        try {
+            return attributeDescription.getAttributeType().getEqualityMatchingRule().normalizeAttributeValue(value);
+        } catch (final Exception e) {
+            mayContainInvalidValues = true;
+            return value;
+        }
+    }
+
     /** Lazily computes the normalized single value. */
     private ByteString normalizedSingleValue() {
         if (normalizedSingleValue == null) {
-            normalizedSingleValue = normalizeValue(this, singleValue);
+            normalizedSingleValue = normalizeOwnValue(singleValue);
         }
         return normalizedSingleValue;
     }
@@ -23,6 +23,7 @@
  *
  *      Copyright 2010 Sun Microsystems, Inc.
  *      Portions Copyright 2013-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldap;
@@ -32,6 +33,7 @@ import static org.forgerock.util.time.Duration.duration;
 import java.io.Closeable;
 import java.util.concurrent.ScheduledExecutorService;
 
+import org.forgerock.opendj.ldap.schema.AttributeType;
 import org.forgerock.util.Option;
 import org.forgerock.util.time.Duration;
 
@@ -62,6 +64,15 @@ public interface LoadBalancingAlgorithm extends Closeable {
      */
     Option<ScheduledExecutorService> LOAD_BALANCER_SCHEDULER = Option.of(ScheduledExecutorService.class, null);
 
+    /**
+     * Specifies the attribute type which identifies the entries whose subtrees should be routed to the same connection
+     * factory by {@link Connections#newAffinityRequestLoadBalancer affinity} load-balancers. Requests are routed
+     * according to the name of the closest superior entry, or the target entry itself, whose RDN contains this
+     * attribute type. By default, or if there is no such entry, requests are routed according to the name of the
+     * target entry.
+     */
+    Option<AttributeType> LOAD_BALANCER_AFFINITY_ATTRIBUTE = Option.of(AttributeType.class, null);
+
     /**
      * Releases any resources associated with this algorithm, including any associated connection factories.
      */
@@ -23,11 +23,19 @@
  *
  *      Copyright 2009 Sun Microsystems, Inc.
  *      Portions copyright 2012-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.opendj.ldap;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.LocalizedIllegalArgumentException;
@@ -36,18 +44,36 @@ import org.forgerock.opendj.ldap.schema.MatchingRule;
 import org.forgerock.opendj.ldap.schema.MatchingRuleUse;
 import org.forgerock.opendj.ldap.schema.Schema;
 import org.forgerock.opendj.ldap.schema.UnknownSchemaElementException;
+import org.forgerock.opendj.ldap.spi.IndexQueryFactory;
+import org.forgerock.opendj.ldap.spi.IndexingOptions;
 
 import com.forgerock.opendj.util.StaticUtils;
 
 /**
  * An interface for determining whether entries match a {@code Filter}.
+ * <p>
+ * Filters are compiled when the matcher is created: nested AND and OR
+ * components are flattened, duplicate components are removed, components
+ * whose result is known in advance are folded, and the remaining components
+ * are reordered so that the cheapest and most selective checks, such as
+ * presence and equality, are evaluated before substring, approximate and
+ * extensible matches. In particular, {@code (objectClass=*)} is assumed to
+ * match every entry, and equality components asserting different values of
+ * the same single-valued attribute are assumed never to match the same entry.
  */
 public final class Matcher {
     private static final class AndMatcherImpl extends MatcherImpl {
         private final List<MatcherImpl> subMatchers;
+        private final int cost;
 
         private AndMatcherImpl(final List<MatcherImpl> subMatchers) {
             this.subMatchers = subMatchers;
+            this.cost = totalCost(subMatchers);
+        }
+
+        @Override
+        int cost() {
+            return cost;
         }
 
         @Override
@@ -75,14 +101,46 @@ public final class Matcher {
 
         private final MatchingRuleUse ruleUse;
 
+        /**
+         * The normalized assertion value if the assertion is a plain equality
+         * assertion which can be evaluated by probing the normalized values of
+         * the attribute, or {@code null} otherwise.
+         */
+        private final ByteString normalizedAssertionValue;
+
+        private final int cost;
+
+        private AssertionMatcherImpl(final AttributeDescription attributeDescription,
+                final MatchingRule rule, final MatchingRuleUse ruleUse, final Assertion assertion,
+                final boolean dnAttributes, final int cost) {
+            this(attributeDescription, rule, ruleUse, assertion, dnAttributes, null, cost);
+        }
+
         private AssertionMatcherImpl(final AttributeDescription attributeDescription,
                 final MatchingRule rule, final MatchingRuleUse ruleUse, final Assertion assertion,
-                final boolean dnAttributes) {
+                final boolean dnAttributes, final ByteString normalizedAssertionValue, final int cost) {
             this.attributeDescription = attributeDescription;
             this.rule = rule;
             this.ruleUse = ruleUse;
             this.assertion = assertion;
             this.dnAttributes = dnAttributes;
+            this.normalizedAssertionValue = normalizedAssertionValue;
+            this.cost = normalizedAssertionValue != null && !dnAttributes ? COST_INDEXED_EQUALITY : cost;
+        }
+
+        @Override
+        int cost() {
+            return cost;
+        }
+
+        /**
+         * Returns {@code true} if this matcher is an equality assertion
+         * against a single-valued attribute, in which case it cannot match the
+         * same entry as an equality assertion having a different value.
+         */
+        private boolean isSingleValuedEquality() {
+            return normalizedAssertionValue != null && !dnAttributes
+                    && attributeDescription.getAttributeType().isSingleValue();
         }
 
         @Override
@@ -96,8 +154,7 @@ public final class Matcher {
                 // If the type field is present and the matchingRule is present,
                 // the matchValue is compared against the specified attribute
                 // type and its subtypes.
-                final ConditionResult p =
-                        Matcher.matches(entry.getAttribute(attributeDescription), rule, assertion);
+                final ConditionResult p = matchesAttribute(entry.getAttribute(attributeDescription));
                 if (p == ConditionResult.TRUE) {
                     return p;
                 }
@@ -140,6 +197,64 @@ public final class Matcher {
             }
             return r;
         }
+
+        private ConditionResult matchesAttribute(final Attribute a) {
+            if (a != null && normalizedAssertionValue != null && isIndexedByRule(a)) {
+                if (a.containsNormalizedValue(normalizedAssertionValue)) {
+                    return ConditionResult.TRUE;
+                } else if (a instanceof LinkedAttribute && !((LinkedAttribute) a).mayContainInvalidValues()) {
+                    return ConditionResult.FALSE;
+                }
+                // Invalid values make the assertion undefined rather than false: check each value.
+            }
+            return Matcher.matches(a, rule, assertion);
+        }
+
+        private boolean isIndexedByRule(final Attribute a) {
+            // Attributes index their values using the equality matching rule of
+            // their own attribute type, which may come from a different schema.
+            final MatchingRule equalityRule =
+                    a.getAttributeDescription().getAttributeType().getEqualityMatchingRule();
+            return equalityRule != null && equalityRule.getOID().equals(rule.getOID());
+        }
+    }
+
+    /**
+     * An index query factory which returns the key of exact match queries and
+     * {@code null} for all other types of query. It is used for determining
+     * whether an equality assertion simply compares normalized values.
+     */
+    private static final class ExactMatchKeyFactory implements IndexQueryFactory<ByteSequence> {
+        @Override
+        public ByteSequence createExactMatchQuery(final String indexID, final ByteSequence key) {
+            return key;
+        }
+
+        @Override
+        public ByteSequence createMatchAllQuery() {
+            return null;
+        }
+
+        @Override
+        public ByteSequence createRangeMatchQuery(final String indexID, final ByteSequence lower,
+                final ByteSequence upper, final boolean lowerIncluded, final boolean upperIncluded) {
+            return null;
+        }
+
+        @Override
+        public ByteSequence createIntersectionQuery(final Collection<ByteSequence> subqueries) {
+            return null;
+        }
+
+        @Override
+        public ByteSequence createUnionQuery(final Collection<ByteSequence> subqueries) {
+            return null;
+        }
+
+        @Override
+        public IndexingOptions getIndexingOptions() {
+            return null;
+        }
     }
 
     private static class FalseMatcherImpl extends MatcherImpl {
@@ -151,6 +266,15 @@ public final class Matcher {
 
     private static abstract class MatcherImpl {
         public abstract ConditionResult matches(Entry entry);
+
+        /**
+         * Returns the estimated relative cost of evaluating this matcher
+         * against an entry, which is used for ordering the components of AND
+         * and OR filters.
+         */
+        int cost() {
+            return COST_CONSTANT;
+        }
     }
 
     private static final class NotMatcherImpl extends MatcherImpl {
@@ -160,6 +284,11 @@ public final class Matcher {
             this.subFilter = subFilter;
         }
 
+        @Override
+        int cost() {
+            return subFilter.cost();
+        }
+
         @Override
         public ConditionResult matches(final Entry entry) {
             return ConditionResult.not(subFilter.matches(entry));
@@ -168,9 +297,16 @@ public final class Matcher {
 
     private static final class OrMatcherImpl extends MatcherImpl {
         private final List<MatcherImpl> subMatchers;
+        private final int cost;
 
         private OrMatcherImpl(final List<MatcherImpl> subMatchers) {
             this.subMatchers = subMatchers;
+            this.cost = totalCost(subMatchers);
+        }
+
+        @Override
+        int cost() {
+            return cost;
         }
 
         @Override
@@ -194,6 +330,11 @@ public final class Matcher {
             this.attribute = attribute;
         }
 
+        @Override
+        int cost() {
+            return COST_PRESENT;
+        }
+
         @Override
         public ConditionResult matches(final Entry entry) {
             return entry.getAttribute(attribute) == null ? ConditionResult.FALSE
@@ -216,20 +357,51 @@ public final class Matcher {
     }
 
     /**
-     * A visitor which is used to transform a filter into a matcher.
+     * A visitor which is used to transform a filter into a matcher. Identical
+     * sub-filters are compiled only once, which allows duplicates to be
+     * detected using the identity of their matchers.
      */
     private static final class Visitor implements FilterVisitor<MatcherImpl, Schema> {
+        private final Map<String, MatcherImpl> compiled = new HashMap<>();
+
+        private MatcherImpl compile(final Filter filter, final Schema schema) {
+            final String key = filter.toString();
+            MatcherImpl matcher = compiled.get(key);
+            if (matcher == null) {
+                matcher = filter.accept(this, schema);
+                compiled.put(key, matcher);
+            }
+            return matcher;
+        }
+
         public MatcherImpl visitAndFilter(final Schema schema, final List<Filter> subFilters) {
             if (subFilters.isEmpty()) {
                 logger.trace(LocalizableMessage.raw("Empty add filter component. Will always return TRUE"));
                 return TRUE;
             }
 
-            final List<MatcherImpl> subMatchers = new ArrayList<>(subFilters.size());
+            final Set<MatcherImpl> subMatchers = new LinkedHashSet<>(subFilters.size());
             for (final Filter f : subFilters) {
-                subMatchers.add(f.accept(this, schema));
+                final MatcherImpl subMatcher = compile(f, schema);
+                if (subMatcher == FALSE) {
+                    return FALSE;
+                } else if (subMatcher instanceof AndMatcherImpl) {
+                    subMatchers.addAll(((AndMatcherImpl) subMatcher).subMatchers);
+                } else if (subMatcher != TRUE) {
+                    subMatchers.add(subMatcher);
+                }
+            }
+            if (hasConflictingEqualityAssertions(subMatchers)) {
+                return FALSE;
+            }
+            switch (subMatchers.size()) {
+            case 0:
+                return TRUE;
+            case 1:
+                return subMatchers.iterator().next();
+            default:
+                return new AndMatcherImpl(sortByCost(subMatchers));
             }
-            return new AndMatcherImpl(subMatchers);
         }
 
         public MatcherImpl visitApproxMatchFilter(final Schema schema,
@@ -260,7 +432,7 @@ public final class Matcher {
                 logger.warn(LocalizableMessage.raw("The assertion value %s is invalid", assertionValue, de));
                 return UNDEFINED;
             }
-            return new AssertionMatcherImpl(ad, rule, null, assertion, false);
+            return new AssertionMatcherImpl(ad, rule, null, assertion, false, COST_APPROXIMATE);
         }
 
         public MatcherImpl visitEqualityMatchFilter(final Schema schema,
@@ -291,7 +463,8 @@ public final class Matcher {
                 logger.warn(LocalizableMessage.raw("The assertion value %s is invalid", assertionValue, de));
                 return UNDEFINED;
             }
-            return new AssertionMatcherImpl(ad, rule, null, assertion, false);
+            return new AssertionMatcherImpl(ad, rule, null, assertion, false,
+                    normalizeEqualityAssertionValue(rule, assertionValue, assertion), COST_EQUALITY);
         }
 
         public MatcherImpl visitExtensibleMatchFilter(final Schema schema,
@@ -366,7 +539,10 @@ public final class Matcher {
                 logger.warn(LocalizableMessage.raw("The assertion value %s is invalid", assertionValue, de));
                 return UNDEFINED;
             }
-            return new AssertionMatcherImpl(ad, rule, ruleUse, assertion, dnAttributes);
+            final ByteString normalizedAssertionValue = ad != null && ruleUse == null
+                    ? normalizeEqualityAssertionValue(rule, assertionValue, assertion) : null;
+            return new AssertionMatcherImpl(ad, rule, ruleUse, assertion, dnAttributes, normalizedAssertionValue,
+                    COST_EXTENSIBLE);
         }
 
         public MatcherImpl visitGreaterOrEqualFilter(final Schema schema,
@@ -398,7 +574,7 @@ public final class Matcher {
                 logger.warn(LocalizableMessage.raw("The assertion value %s is invalid", assertionValue, de));
                 return UNDEFINED;
             }
-            return new AssertionMatcherImpl(ad, rule, null, assertion, false);
+            return new AssertionMatcherImpl(ad, rule, null, assertion, false, COST_ORDERING);
         }
 
         public MatcherImpl visitLessOrEqualFilter(final Schema schema,
@@ -429,11 +605,20 @@ public final class Matcher {
                 logger.warn(LocalizableMessage.raw("The assertion value %s is invalid", assertionValue , de));
                 return UNDEFINED;
             }
-            return new AssertionMatcherImpl(ad, rule, null, assertion, false);
+            return new AssertionMatcherImpl(ad, rule, null, assertion, false, COST_ORDERING);
         }
 
         public MatcherImpl visitNotFilter(final Schema schema, final Filter subFilter) {
-            final MatcherImpl subMatcher = subFilter.accept(this, schema);
+            final MatcherImpl subMatcher = compile(subFilter, schema);
+            if (subMatcher == TRUE) {
+                return FALSE;
+            } else if (subMatcher == FALSE) {
+                return TRUE;
+            } else if (subMatcher == UNDEFINED) {
+                return UNDEFINED;
+            } else if (subMatcher instanceof NotMatcherImpl) {
+                return ((NotMatcherImpl) subMatcher).subFilter;
+            }
             return new NotMatcherImpl(subMatcher);
         }
 
@@ -443,11 +628,25 @@ public final class Matcher {
                 return FALSE;
             }
 
-            final List<MatcherImpl> subMatchers = new ArrayList<>(subFilters.size());
+            final Set<MatcherImpl> subMatchers = new LinkedHashSet<>(subFilters.size());
             for (final Filter f : subFilters) {
-                subMatchers.add(f.accept(this, schema));
+                final MatcherImpl subMatcher = compile(f, schema);
+                if (subMatcher == TRUE) {
+                    return TRUE;
+                } else if (subMatcher instanceof OrMatcherImpl) {
+                    subMatchers.addAll(((OrMatcherImpl) subMatcher).subMatchers);
+                } else if (subMatcher != FALSE) {
+                    subMatchers.add(subMatcher);
+                }
+            }
+            switch (subMatchers.size()) {
+            case 0:
+                return FALSE;
+            case 1:
+                return subMatchers.iterator().next();
+            default:
+                return new OrMatcherImpl(sortByCost(subMatchers));
             }
-            return new OrMatcherImpl(subMatchers);
         }
 
         public MatcherImpl visitPresentFilter(final Schema schema, final String attributeDescription) {
@@ -461,6 +660,10 @@ public final class Matcher {
                 return UNDEFINED;
             }
 
+            if (ad.isObjectClass()) {
+                // All entries have at least one object class.
+                return TRUE;
+            }
             return new PresentMatcherImpl(ad);
         }
 
@@ -493,7 +696,7 @@ public final class Matcher {
                 logger.warn(LocalizableMessage.raw("The substring assertion values contain an invalid value", de));
                 return UNDEFINED;
             }
-            return new AssertionMatcherImpl(ad, rule, null, assertion, false);
+            return new AssertionMatcherImpl(ad, rule, null, assertion, false, COST_SUBSTRING);
         }
 
         public MatcherImpl visitUnrecognizedFilter(final Schema schema, final byte filterTag,
@@ -511,7 +714,56 @@ public final class Matcher {
     private static final MatcherImpl TRUE = new TrueMatcherImpl();
     private static final MatcherImpl UNDEFINED = new UndefinedMatcherImpl();
 
-    private static final FilterVisitor<MatcherImpl, Schema> VISITOR = new Visitor();
+    /*
+     * Estimated relative costs of evaluating each type of filter component. Presence
+     * and equality checks which can be answered without normalizing attribute values
+     * are cheapest, followed by checks which must normalize and compare each value.
+     */
+    private static final int COST_CONSTANT = 0;
+    private static final int COST_PRESENT = 1;
+    private static final int COST_INDEXED_EQUALITY = 2;
+    private static final int COST_EQUALITY = 4;
+    private static final int COST_ORDERING = 6;
+    private static final int COST_SUBSTRING = 8;
+    private static final int COST_APPROXIMATE = 10;
+    private static final int COST_EXTENSIBLE = 12;
+
+    private static final Comparator<MatcherImpl> COST_COMPARATOR = new Comparator<MatcherImpl>() {
+        @Override
+        public int compare(final MatcherImpl m1, final MatcherImpl m2) {
+            return Integer.compare(m1.cost(), m2.cost());
+        }
+    };
+
+    private static List<MatcherImpl> sortByCost(final Collection<MatcherImpl> matchers) {
+        final List<MatcherImpl> sorted = new ArrayList<>(matchers);
+        // Stable, so components of equal cost keep the order in which they were written.
+        Collections.sort(sorted, COST_COMPARATOR);
+        return sorted;
+    }
+
+    private static int totalCost(final List<MatcherImpl> matchers) {
+        int cost = 0;
+        for (final MatcherImpl m : matchers) {
+            cost += m.cost();
+        }
+        return cost;
+    }
+
+    private static boolean hasConflictingEqualityAssertions(final Collection<MatcherImpl> matchers) {
+        final Map<AttributeDescription, ByteString> values = new HashMap<>();
+        for (final MatcherImpl m : matchers) {
+            if (m instanceof AssertionMatcherImpl && ((AssertionMatcherImpl) m).isSingleValuedEquality()) {
+                final AssertionMatcherImpl equality = (AssertionMatcherImpl) m;
+                final ByteString previous =
+                        values.put(equality.attributeDescription, equality.normalizedAssertionValue);
+                if (previous != null && !previous.equals(equality.normalizedAssertionValue)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 
     private static ConditionResult matches(final Attribute a, final MatchingRule rule,
             final Assertion assertion) {
@@ -545,10 +797,30 @@ public final class Matcher {
         }
     }
 
+    private static final ExactMatchKeyFactory EXACT_MATCH_KEY_FACTORY = new ExactMatchKeyFactory();
+
+    /**
+     * Returns the normalized form of an equality assertion value if the
+     * assertion matches exactly those attribute values having the same
+     * normalized form, or {@code null} if the assertion must be evaluated
+     * against each attribute value in turn.
+     */
+    private static ByteString normalizeEqualityAssertionValue(final MatchingRule rule,
+            final ByteString assertionValue, final Assertion assertion) {
+        try {
+            final ByteString normalizedAssertionValue = rule.normalizeAttributeValue(assertionValue);
+            final ByteSequence key = assertion.createIndexQuery(EXACT_MATCH_KEY_FACTORY);
+            return normalizedAssertionValue.equals(key) ? normalizedAssertionValue : null;
+        } catch (final DecodeException e) {
+            // Assertion values using a different syntax, e.g. first component matching.
+            return null;
+        }
+    }
+
     private final MatcherImpl impl;
 
     Matcher(final Filter filter, final Schema schema) {
-        this.impl = filter.accept(VISITOR, schema);
+        this.impl = new Visitor().compile(filter, schema);
     }
 
     /**
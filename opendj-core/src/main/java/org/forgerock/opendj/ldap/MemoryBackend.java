@@ -21,6 +21,7 @@
  * CDDL HEADER END
  *
  *      Copyright 2013-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.opendj.ldap;
 
@@ -34,8 +35,12 @@ import static org.forgerock.opendj.ldap.responses.Responses.newSearchResultEntry
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.forgerock.i18n.LocalizedIllegalArgumentException;
 import org.forgerock.opendj.ldap.controls.AssertionRequestControl;
@@ -72,7 +77,8 @@ import org.forgerock.opendj.ldif.EntryReader;
  * not modifyDN nor extended operations
  * <li>assertion, pre-, and post- read controls, subtree delete control, and
  * permissive modify control
- * <li>thread safety - supports concurrent operations
+ * <li>thread safety - supports concurrent operations. Reads never block, and
+ * updates to different entries are performed concurrently
  * </ul>
  * It does not support the following:
  * <ul>
@@ -80,8 +86,13 @@ import org.forgerock.opendj.ldif.EntryReader;
  * <li>secure password storage
  * <li>schema checking
  * <li>persistence
- * <li>indexing
  * </ul>
+ * Searches are performed by scanning all of the entries within the scope of
+ * the search unless {@link #addIndex(AttributeDescription, IndexType...)
+ * attribute indexes} have been added, in which case the indexes are used in
+ * order to reduce the number of entries which need to be matched against the
+ * search filter.
+ * <p>
  * This class can be used in conjunction with the factories defined in
  * {@link Connections} to create simple servers as well as mock LDAP
  * connections. For example, to create a mock LDAP connection factory:
@@ -101,10 +112,57 @@ import org.forgerock.opendj.ldif.EntryReader;
  * </pre>
  */
 public final class MemoryBackend implements RequestHandler<RequestContext> {
+    /**
+     * The types of attribute index which may be maintained by a memory
+     * backend.
+     *
+     * @see MemoryBackend#addIndex(AttributeDescription, IndexType...)
+     */
+    public static enum IndexType {
+        /**
+         * An index for equality filters, e.g. {@code (uid=jdoe)}, based on the
+         * attribute's equality matching rule.
+         */
+        EQUALITY,
+        /**
+         * An index for greater or equal and less or equal filters, e.g.
+         * {@code (uidNumber>=1000)}, based on the attribute's ordering
+         * matching rule.
+         */
+        ORDERING,
+        /** An index for presence filters, e.g. {@code (mail=*)}. */
+        PRESENCE,
+        /**
+         * An index for substring filters, e.g. {@code (cn=*doe*)}, based on
+         * the attribute's substring matching rule.
+         */
+        SUBSTRING
+    }
+
+    /** The number of lock stripes used for serializing updates to individual entries. */
+    private static final int NUMBER_OF_ENTRY_LOCKS = 64;
+
     private final DecodeOptions decodeOptions;
     private final ConcurrentSkipListMap<DN, Entry> entries = new ConcurrentSkipListMap<>();
+    private final MemoryBackendIndex indexes;
     private final Schema schema;
-    private final Object writeLock = new Object();
+
+    /**
+     * Updates to an entry hold the write lock of the entry's stripe. Additions
+     * additionally hold the read lock of the parent entry's stripe, which
+     * prevents the parent from being deleted until the child has been added.
+     * Conversely, the deletion of a leaf entry holds its stripe's write lock,
+     * so no children can be added while the deletion checks that the entry
+     * has no children. Reads do not take any locks.
+     */
+    private final ReentrantReadWriteLock[] entryLocks = new ReentrantReadWriteLock[NUMBER_OF_ENTRY_LOCKS];
+
+    /**
+     * Updates to individual entries hold the read lock, whereas updates which
+     * impact many entries, such as subtree deletes or loading entries, hold
+     * the write lock. The entry locks are always acquired after this lock.
+     */
+    private final ReentrantReadWriteLock bulkLock = new ReentrantReadWriteLock();
 
     /**
      * Creates a new empty memory backend which will use the default schema.
@@ -136,6 +194,10 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
     public MemoryBackend(final Schema schema) {
         this.schema = schema;
         this.decodeOptions = new DecodeOptions().setSchema(schema);
+        this.indexes = new MemoryBackendIndex(schema);
+        for (int i = 0; i < NUMBER_OF_ENTRY_LOCKS; i++) {
+            entryLocks[i] = new ReentrantReadWriteLock();
+        }
     }
 
     /**
@@ -151,11 +213,62 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
      *             or if duplicate entries are detected.
      */
     public MemoryBackend(final Schema schema, final EntryReader reader) throws IOException {
-        this.schema = schema;
-        this.decodeOptions = new DecodeOptions().setSchema(schema);
+        this(schema);
         load(reader, false);
     }
 
+    /**
+     * Adds an index for the named attribute to this memory backend and indexes
+     * all of the entries already contained in this memory backend. Indexes
+     * speed up searches whose filters contain assertions about the indexed
+     * attribute, at the cost of slower updates and increased memory usage.
+     * Only values of the attribute having exactly the provided attribute
+     * description are indexed. Adding an index for an attribute which is
+     * already indexed replaces the existing index.
+     *
+     * @param attributeDescription
+     *            The name of the attribute to be indexed.
+     * @param indexTypes
+     *            The types of index to maintain for the attribute.
+     * @return This memory backend.
+     * @throws IllegalArgumentException
+     *             If the attribute type does not define a matching rule which
+     *             is required by one of the index types.
+     */
+    public MemoryBackend addIndex(final AttributeDescription attributeDescription, final IndexType... indexTypes) {
+        bulkLock.writeLock().lock();
+        try {
+            indexes.addIndex(attributeDescription, indexTypes);
+            for (final Entry entry : entries.values()) {
+                indexes.update(entry.getName(), null, entry);
+            }
+        } finally {
+            bulkLock.writeLock().unlock();
+        }
+        return this;
+    }
+
+    /**
+     * Adds an index for the named attribute to this memory backend and indexes
+     * all of the entries already contained in this memory backend.
+     *
+     * @param attributeDescription
+     *            The name of the attribute to be indexed.
+     * @param indexTypes
+     *            The types of index to maintain for the attribute.
+     * @return This memory backend.
+     * @throws LocalizedIllegalArgumentException
+     *             If {@code attributeDescription} is not a valid LDAP string
+     *             representation of an attribute description.
+     * @throws IllegalArgumentException
+     *             If the attribute type does not define a matching rule which
+     *             is required by one of the index types.
+     * @see #addIndex(AttributeDescription, IndexType...)
+     */
+    public MemoryBackend addIndex(final String attributeDescription, final IndexType... indexTypes) {
+        return addIndex(AttributeDescription.valueOf(attributeDescription, schema), indexTypes);
+    }
+
     /**
      * Clears the contents of this memory backend so that it does not contain
      * any entries.
@@ -163,8 +276,12 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
      * @return This memory backend.
      */
     public MemoryBackend clear() {
-        synchronized (writeLock) {
+        bulkLock.writeLock().lock();
+        try {
             entries.clear();
+            indexes.clear();
+        } finally {
+            bulkLock.writeLock().unlock();
         }
         return this;
     }
@@ -234,16 +351,20 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
             final IntermediateResponseHandler intermediateResponseHandler,
             final LdapResultHandler<Result> resultHandler) {
         try {
-            synchronized (writeLock) {
-                final DN dn = request.getName();
-                final DN parent = dn.parent();
+            final DN dn = request.getName();
+            final DN parent = dn.parent();
+            lockEntry(dn, parent);
+            try {
                 if (entries.containsKey(dn)) {
                     throw newLdapException(ResultCode.ENTRY_ALREADY_EXISTS, "The entry '" + dn + "' already exists");
                 } else if (parent != null && !entries.containsKey(parent)) {
                     noSuchObject(parent);
                 } else {
                     entries.put(dn, request);
+                    indexes.update(dn, null, request);
                 }
+            } finally {
+                unlockEntry(dn, parent);
             }
             resultHandler.handleResult(getResult(request, null, request));
         } catch (final LdapException e) {
@@ -257,23 +378,20 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
             final IntermediateResponseHandler intermediateResponseHandler,
             final LdapResultHandler<BindResult> resultHandler) {
         try {
-            final Entry entry;
-            synchronized (writeLock) {
-                final DN username = DN.valueOf(request.getName(), schema);
-                final byte[] password;
-                if (request instanceof SimpleBindRequest) {
-                    password = ((SimpleBindRequest) request).getPassword();
-                } else if (request instanceof GenericBindRequest
-                        && request.getAuthenticationType() == BindRequest.AUTHENTICATION_TYPE_SIMPLE) {
-                    password = ((GenericBindRequest) request).getAuthenticationValue();
-                } else {
-                    throw newLdapException(ResultCode.PROTOCOL_ERROR,
-                            "non-SIMPLE authentication not supported: " + request.getAuthenticationType());
-                }
-                entry = getRequiredEntry(null, username);
-                if (!entry.containsAttribute("userPassword", password)) {
-                    throw newLdapException(ResultCode.INVALID_CREDENTIALS, "Wrong password");
-                }
+            final DN username = DN.valueOf(request.getName(), schema);
+            final byte[] password;
+            if (request instanceof SimpleBindRequest) {
+                password = ((SimpleBindRequest) request).getPassword();
+            } else if (request instanceof GenericBindRequest
+                    && request.getAuthenticationType() == BindRequest.AUTHENTICATION_TYPE_SIMPLE) {
+                password = ((GenericBindRequest) request).getAuthenticationValue();
+            } else {
+                throw newLdapException(ResultCode.PROTOCOL_ERROR,
+                        "non-SIMPLE authentication not supported: " + request.getAuthenticationType());
+            }
+            final Entry entry = getRequiredEntry(null, username);
+            if (!entry.containsAttribute("userPassword", password)) {
+                throw newLdapException(ResultCode.INVALID_CREDENTIALS, "Wrong password");
             }
             resultHandler.handleResult(getBindResult(request, entry, entry));
         } catch (final LocalizedIllegalArgumentException e) {
@@ -295,15 +413,9 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
             final IntermediateResponseHandler intermediateResponseHandler,
             final LdapResultHandler<CompareResult> resultHandler) {
         try {
-            final Entry entry;
-            final Attribute assertion;
-            synchronized (writeLock) {
-                final DN dn = request.getName();
-                entry = getRequiredEntry(request, dn);
-                assertion =
-                        singletonAttribute(request.getAttributeDescription(), request
-                                .getAssertionValue());
-            }
+            final Entry entry = getRequiredEntry(request, request.getName());
+            final Attribute assertion =
+                    singletonAttribute(request.getAttributeDescription(), request.getAssertionValue());
             resultHandler.handleResult(getCompareResult(request, entry, entry.containsAttribute(
                     assertion, null)));
         } catch (final LdapException e) {
@@ -317,20 +429,34 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
             final LdapResultHandler<Result> resultHandler) {
         try {
             final Entry entry;
-            synchronized (writeLock) {
-                final DN dn = request.getName();
-                entry = getRequiredEntry(request, dn);
-                if (request.getControl(SubtreeDeleteRequestControl.DECODER, decodeOptions) != null) {
-                    // Subtree delete.
-                    entries.subMap(dn, dn.child(RDN.maxValue())).clear();
-                } else {
+            final DN dn = request.getName();
+            if (request.getControl(SubtreeDeleteRequestControl.DECODER, decodeOptions) != null) {
+                // Subtree delete.
+                bulkLock.writeLock().lock();
+                try {
+                    entry = getRequiredEntry(request, dn);
+                    final Map<DN, Entry> subtree = entries.subMap(dn, dn.child(RDN.maxValue()));
+                    for (final Entry subordinate : subtree.values()) {
+                        indexes.update(subordinate.getName(), subordinate, null);
+                    }
+                    subtree.clear();
+                } finally {
+                    bulkLock.writeLock().unlock();
+                }
+            } else {
+                lockEntry(dn, null);
+                try {
+                    entry = getRequiredEntry(request, dn);
                     // Must be leaf.
                     final DN next = entries.higherKey(dn);
                     if (next == null || !next.isChildOf(dn)) {
                         entries.remove(dn);
+                        indexes.update(dn, entry, null);
                     } else {
                         throw newLdapException(ResultCode.NOT_ALLOWED_ON_NONLEAF);
                     }
+                } finally {
+                    unlockEntry(dn, null);
                 }
             }
             resultHandler.handleResult(getResult(request, entry, null));
@@ -357,11 +483,15 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
         try {
             final Entry entry;
             final Entry newEntry;
-            synchronized (writeLock) {
-                final DN dn = request.getName();
+            final DN dn = request.getName();
+            lockEntry(dn, null);
+            try {
                 entry = getRequiredEntry(request, dn);
                 newEntry = new LinkedHashMapEntry(entry);
                 entries.put(dn, modifyEntry(newEntry, request));
+                indexes.update(dn, entry, newEntry);
+            } finally {
+                unlockEntry(dn, null);
             }
             resultHandler.handleResult(getResult(request, entry, newEntry));
         } catch (final LdapException e) {
@@ -396,8 +526,8 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
                 resultHandler.handleResult(newResult(ResultCode.SUCCESS));
             } else if (scope.equals(SearchScope.SINGLE_LEVEL) || scope.equals(SearchScope.SUBORDINATES)
                 || scope.equals(SearchScope.WHOLE_SUBTREE)) {
-                searchWithSubordinates(requestContext, entryHandler, resultHandler, dn, matcher, attributeFilter,
-                    request.getSizeLimit(), scope,
+                searchWithSubordinates(requestContext, entryHandler, resultHandler, dn, filter, matcher,
+                    attributeFilter, request.getSizeLimit(), scope,
                     request.getControl(SimplePagedResultsControl.DECODER, new DecodeOptions()));
             } else {
                 throw newLdapException(ResultCode.PROTOCOL_ERROR,
@@ -436,7 +566,8 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
      *             {@code false}.
      */
     public MemoryBackend load(final EntryReader reader, final boolean overwrite) throws IOException {
-        synchronized (writeLock) {
+        bulkLock.writeLock().lock();
+        try {
             if (reader != null) {
                 try {
                     while (reader.hasNext()) {
@@ -446,13 +577,15 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
                             throw newLdapException(ResultCode.ENTRY_ALREADY_EXISTS,
                                     "Attempted to add the entry '" + dn + "' multiple times");
                         } else {
-                            entries.put(dn, entry);
+                            indexes.update(dn, entries.put(dn, entry), entry);
                         }
                     }
                 } finally {
                     reader.close();
                 }
             }
+        } finally {
+            bulkLock.writeLock().unlock();
         }
         return this;
     }
@@ -473,6 +606,7 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
      * @param requestContext context of this request
      * @param resultHandler handler which should be used to send back the search results to the client.
      * @param dn distinguished name of the base entry used for this request
+     * @param filter the search filter, which is used for selecting candidate entries from the indexes
      * @param matcher to filter entries that matches this request
      * @param attributeFilter to select attributes to return in search results
      * @param sizeLimit maximum number of entries to return. A value of zero indicates no restriction
@@ -485,16 +619,15 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
      *           If the request is unsuccessful.
      */
     private void searchWithSubordinates(final RequestContext requestContext, final SearchResultHandler entryHandler,
-            final LdapResultHandler<Result> resultHandler, final DN dn, final Matcher matcher,
+            final LdapResultHandler<Result> resultHandler, final DN dn, final Filter filter, final Matcher matcher,
             final AttributeFilter attributeFilter, final int sizeLimit, SearchScope scope,
             SimplePagedResultsControl pagedResults) throws CancelledResultException, LdapException {
         final int pageSize = pagedResults != null ? pagedResults.getSize() : 0;
-        final int offset = (pagedResults != null && !pagedResults.getCookie().isEmpty())
-                ? Integer.valueOf(pagedResults.getCookie().toString()) : 0;
-        final Map<DN, Entry> subtree = entries.subMap(dn, dn.child(RDN.maxValue()));
+        final DN lastReturned = pageSize > 0 ? decodePagedResultsCookie(dn, pagedResults.getCookie()) : null;
+        final Iterable<Entry> candidates = getCandidateEntries(dn, lastReturned, filter);
         int numberOfResults = 0;
-        int position = 0;
-        for (final Entry entry : subtree.values()) {
+        DN lastName = null;
+        for (final Entry entry : candidates) {
             requestContext.checkIfCancelled(false);
             if (scope.equals(SearchScope.WHOLE_SUBTREE) || entry.getName().isChildOf(dn)
                     || (scope.equals(SearchScope.SUBORDINATES) && !entry.getName().equals(dn))) {
@@ -509,11 +642,6 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
                         throw newLdapException(newResult(ResultCode.SIZE_LIMIT_EXCEEDED));
                     }
 
-                    // Ignore this entry if we haven't reached the first page yet.
-                    if (pageSize > 0 && position++ < offset) {
-                        continue;
-                    }
-
                     // Send the entry back to the client.
                     if (!sendEntry(attributeFilter, entryHandler, entry)) {
                         // Client has disconnected or cancelled.
@@ -521,6 +649,7 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
                     }
 
                     numberOfResults++;
+                    lastName = entry.getName();
 
                     // Stop if we've reached the end of the page.
                     if (pageSize > 0 && numberOfResults == pageSize) {
@@ -531,13 +660,97 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
         }
         final Result result = newResult(ResultCode.SUCCESS);
         if (pageSize > 0) {
-            final ByteString cookie = numberOfResults == pageSize ? ByteString.valueOfUtf8(String.valueOf(position))
+            /*
+             * The cookie contains the name of the last returned entry so that
+             * the next page can resume immediately after it without having to
+             * re-read the previous pages or keep any state in the back-end.
+             */
+            final ByteString cookie = numberOfResults == pageSize ? ByteString.valueOfUtf8(lastName.toString())
                     : ByteString.empty();
             result.addControl(SimplePagedResultsControl.newControl(true, 0, cookie));
         }
         resultHandler.handleResult(result);
     }
 
+    /**
+     * Returns the name of the last entry returned in the previous page of
+     * results, or {@code null} if the cookie is empty and the first page
+     * should be returned.
+     */
+    private DN decodePagedResultsCookie(final DN dn, final ByteString cookie) throws LdapException {
+        if (cookie.isEmpty()) {
+            return null;
+        }
+        try {
+            final DN lastReturned = DN.valueOf(cookie.toString(), schema);
+            if (lastReturned.isSubordinateOrEqualTo(dn)) {
+                return lastReturned;
+            }
+        } catch (final LocalizedIllegalArgumentException e) {
+            // Fall-through.
+        }
+        throw newLdapException(ResultCode.PROTOCOL_ERROR,
+                "The simple paged results control contains an invalid cookie");
+    }
+
+    /**
+     * Returns the entries within the subtree of the named entry which may
+     * match the provided filter, in ascending name order, and starting after
+     * the named {@code lastReturned} entry if it is not {@code null}. The
+     * candidates are selected from the indexes where possible, falling back to
+     * all entries in the subtree otherwise.
+     */
+    private Iterable<Entry> getCandidateEntries(final DN dn, final DN lastReturned, final Filter filter) {
+        final DN lowerBound = lastReturned != null ? lastReturned : dn;
+        final boolean lowerIncluded = lastReturned == null;
+        final DN upperBound = dn.child(RDN.maxValue());
+        final NavigableSet<DN> candidates = indexes.search(filter);
+        if (candidates == null) {
+            return entries.subMap(lowerBound, lowerIncluded, upperBound, false).values();
+        }
+        final NavigableSet<DN> subtree = candidates.subSet(lowerBound, lowerIncluded, upperBound, false);
+        return new Iterable<Entry>() {
+            @Override
+            public Iterator<Entry> iterator() {
+                return new Iterator<Entry>() {
+                    private final Iterator<DN> names = subtree.iterator();
+                    private Entry next = advance();
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public Entry next() {
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        final Entry entry = next;
+                        next = advance();
+                        return entry;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    private Entry advance() {
+                        while (names.hasNext()) {
+                            // The entry may have been removed since the index was read.
+                            final Entry entry = entries.get(names.next());
+                            if (entry != null) {
+                                return entry;
+                            }
+                        }
+                        return null;
+                    }
+                };
+            }
+        };
+    }
+
     private <R extends Result> R addResultControls(final Request request, final Entry before,
             final Entry after, final R result) throws LdapException {
         try {
@@ -611,6 +824,40 @@ public final class MemoryBackend implements RequestHandler<RequestContext> {
         return entry;
     }
 
+    private int getEntryLockIndex(final DN dn) {
+        return (dn.hashCode() & Integer.MAX_VALUE) % NUMBER_OF_ENTRY_LOCKS;
+    }
+
+    /**
+     * Locks the named entry for update, as well as its parent for sharing if
+     * {@code parent} is not {@code null}. Lock stripes are always acquired in
+     * ascending order in order to avoid deadlocks.
+     */
+    private void lockEntry(final DN dn, final DN parent) {
+        bulkLock.readLock().lock();
+        final int entryLock = getEntryLockIndex(dn);
+        final int parentLock = parent != null ? getEntryLockIndex(parent) : entryLock;
+        if (entryLock == parentLock) {
+            entryLocks[entryLock].writeLock().lock();
+        } else if (entryLock < parentLock) {
+            entryLocks[entryLock].writeLock().lock();
+            entryLocks[parentLock].readLock().lock();
+        } else {
+            entryLocks[parentLock].readLock().lock();
+            entryLocks[entryLock].writeLock().lock();
+        }
+    }
+
+    private void unlockEntry(final DN dn, final DN parent) {
+        final int entryLock = getEntryLockIndex(dn);
+        final int parentLock = parent != null ? getEntryLockIndex(parent) : entryLock;
+        if (entryLock != parentLock) {
+            entryLocks[parentLock].readLock().unlock();
+        }
+        entryLocks[entryLock].writeLock().unlock();
+        bulkLock.readLock().unlock();
+    }
+
     private Result getResult(final Request request, final Entry before, final Entry after) throws LdapException {
         return addResultControls(request, before, after, newResult(ResultCode.SUCCESS));
     }
@@ -0,0 +1,533 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.ldap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.LocalizedIllegalArgumentException;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.MemoryBackend.IndexType;
+import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.forgerock.opendj.ldap.schema.MatchingRule;
+import org.forgerock.opendj.ldap.schema.Schema;
+import org.forgerock.opendj.ldap.schema.UnknownSchemaElementException;
+import org.forgerock.opendj.ldap.spi.IndexQueryFactory;
+import org.forgerock.opendj.ldap.spi.Indexer;
+import org.forgerock.opendj.ldap.spi.IndexingOptions;
+
+/**
+ * The attribute indexes maintained by a {@link MemoryBackend}. Index keys are
+ * generated using the {@link Indexer}s of the indexed attribute's matching
+ * rules, and search filters are evaluated against the indexes using
+ * {@link Assertion#createIndexQuery(IndexQueryFactory)}.
+ * <p>
+ * Index queries return a super-set of the names of the entries matching the
+ * filter, so each candidate entry must still be checked using a
+ * {@link Matcher}. A {@code null} query result indicates that the filter
+ * could not be evaluated using the indexes and that all entries are
+ * candidates.
+ * <p>
+ * Index reads are non-blocking. Index updates are serialized per indexed
+ * attribute.
+ */
+final class MemoryBackendIndex {
+    /** The indexes maintained for a single attribute description. */
+    private static final class AttributeIndex implements IndexQueryFactory<NavigableSet<DN>> {
+        private final AttributeDescription attributeDescription;
+        private final Map<String, Indexer> indexers;
+        private final Map<String, ConcurrentSkipListMap<ByteString, NavigableSet<DN>>> keyIndexes;
+        private final NavigableSet<DN> presenceIndex;
+
+        private AttributeIndex(final AttributeDescription attributeDescription,
+                final Map<String, Indexer> indexers, final boolean presence) {
+            this.attributeDescription = attributeDescription;
+            this.indexers = indexers;
+            this.keyIndexes = new HashMap<>();
+            for (final String indexID : indexers.keySet()) {
+                keyIndexes.put(indexID, new ConcurrentSkipListMap<ByteString, NavigableSet<DN>>());
+            }
+            this.presenceIndex = presence ? new ConcurrentSkipListSet<DN>() : null;
+        }
+
+        @Override
+        public NavigableSet<DN> createExactMatchQuery(final String indexID, final ByteSequence key) {
+            final ConcurrentSkipListMap<ByteString, NavigableSet<DN>> index = keyIndexes.get(indexID);
+            if (index == null) {
+                return null;
+            }
+            final NavigableSet<DN> dns = index.get(key.toByteString());
+            return dns != null ? dns : new TreeSet<DN>();
+        }
+
+        @Override
+        public NavigableSet<DN> createMatchAllQuery() {
+            return null;
+        }
+
+        @Override
+        public NavigableSet<DN> createRangeMatchQuery(final String indexID, final ByteSequence lower,
+                final ByteSequence upper, final boolean lowerIncluded, final boolean upperIncluded) {
+            final ConcurrentSkipListMap<ByteString, NavigableSet<DN>> index = keyIndexes.get(indexID);
+            if (index == null) {
+                return null;
+            }
+            ConcurrentNavigableMap<ByteString, NavigableSet<DN>> range = index;
+            if (lower.length() > 0) {
+                range = range.tailMap(lower.toByteString(), lowerIncluded);
+            }
+            if (upper.length() > 0) {
+                range = range.headMap(upper.toByteString(), upperIncluded);
+            }
+            final NavigableSet<DN> union = new TreeSet<>();
+            for (final NavigableSet<DN> dns : range.values()) {
+                union.addAll(dns);
+            }
+            return union;
+        }
+
+        @Override
+        public NavigableSet<DN> createIntersectionQuery(final Collection<NavigableSet<DN>> subqueries) {
+            return intersect(subqueries);
+        }
+
+        @Override
+        public NavigableSet<DN> createUnionQuery(final Collection<NavigableSet<DN>> subqueries) {
+            return union(subqueries);
+        }
+
+        @Override
+        public IndexingOptions getIndexingOptions() {
+            return INDEXING_OPTIONS;
+        }
+
+        private synchronized void update(final Schema schema, final DN dn, final Entry before, final Entry after) {
+            final Attribute oldAttribute = before != null ? before.getAttribute(attributeDescription) : null;
+            final Attribute newAttribute = after != null ? after.getAttribute(attributeDescription) : null;
+            for (final Map.Entry<String, Indexer> indexer : indexers.entrySet()) {
+                final Set<ByteString> oldKeys = createKeys(schema, indexer.getValue(), oldAttribute);
+                final Set<ByteString> newKeys = createKeys(schema, indexer.getValue(), newAttribute);
+                final ConcurrentSkipListMap<ByteString, NavigableSet<DN>> index = keyIndexes.get(indexer.getKey());
+                for (final ByteString key : newKeys) {
+                    if (!oldKeys.contains(key)) {
+                        NavigableSet<DN> dns = index.get(key);
+                        if (dns == null) {
+                            dns = new ConcurrentSkipListSet<>();
+                            index.put(key, dns);
+                        }
+                        dns.add(dn);
+                    }
+                }
+                for (final ByteString key : oldKeys) {
+                    if (!newKeys.contains(key)) {
+                        final NavigableSet<DN> dns = index.get(key);
+                        if (dns != null && dns.remove(dn) && dns.isEmpty()) {
+                            index.remove(key);
+                        }
+                    }
+                }
+            }
+            if (presenceIndex != null) {
+                if (newAttribute != null && !newAttribute.isEmpty()) {
+                    presenceIndex.add(dn);
+                } else {
+                    presenceIndex.remove(dn);
+                }
+            }
+        }
+
+        private synchronized void clear() {
+            for (final ConcurrentSkipListMap<ByteString, NavigableSet<DN>> index : keyIndexes.values()) {
+                index.clear();
+            }
+            if (presenceIndex != null) {
+                presenceIndex.clear();
+            }
+        }
+
+        private Set<ByteString> createKeys(final Schema schema, final Indexer indexer, final Attribute attribute) {
+            if (attribute == null || attribute.isEmpty()) {
+                return Collections.emptySet();
+            }
+            final Set<ByteString> keys = new HashSet<>();
+            for (final ByteString value : attribute) {
+                try {
+                    indexer.createKeys(schema, value, keys);
+                } catch (final DecodeException e) {
+                    /*
+                     * Invalid values can never match an assertion so they do
+                     * not need to be indexed.
+                     */
+                    logger.trace(LocalizableMessage.raw(
+                            "The attribute value %s of %s is invalid and will not be indexed",
+                            value, attributeDescription, e));
+                }
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * A visitor which is used to transform a filter into a set of candidate
+     * entry names.
+     */
+    private final class Visitor implements FilterVisitor<NavigableSet<DN>, Void> {
+        @Override
+        public NavigableSet<DN> visitAndFilter(final Void p, final List<Filter> subFilters) {
+            if (subFilters.isEmpty()) {
+                return null;
+            }
+            final List<NavigableSet<DN>> candidates = new ArrayList<>(subFilters.size());
+            for (final Filter subFilter : subFilters) {
+                final NavigableSet<DN> dns = subFilter.accept(this, p);
+                if (dns != null) {
+                    if (dns.isEmpty()) {
+                        return dns;
+                    }
+                    candidates.add(dns);
+                }
+            }
+            return intersect(candidates);
+        }
+
+        @Override
+        public NavigableSet<DN> visitApproxMatchFilter(final Void p, final String attributeDescription,
+                final ByteString assertionValue) {
+            final AttributeIndex index = getIndex(attributeDescription);
+            if (index == null) {
+                return null;
+            }
+            final MatchingRule rule = index.attributeDescription.getAttributeType().getApproximateMatchingRule();
+            if (rule == null) {
+                return null;
+            }
+            try {
+                return rule.getAssertion(assertionValue).createIndexQuery(index);
+            } catch (final DecodeException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public NavigableSet<DN> visitEqualityMatchFilter(final Void p, final String attributeDescription,
+                final ByteString assertionValue) {
+            final AttributeIndex index = getIndex(attributeDescription);
+            if (index == null) {
+                return null;
+            }
+            final MatchingRule rule = index.attributeDescription.getAttributeType().getEqualityMatchingRule();
+            if (rule == null) {
+                return null;
+            }
+            try {
+                return rule.getAssertion(assertionValue).createIndexQuery(index);
+            } catch (final DecodeException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public NavigableSet<DN> visitExtensibleMatchFilter(final Void p, final String matchingRule,
+                final String attributeDescription, final ByteString assertionValue, final boolean dnAttributes) {
+            if (dnAttributes || attributeDescription == null) {
+                // Any attribute or the entry's name may match.
+                return null;
+            }
+            final AttributeIndex index = getIndex(attributeDescription);
+            if (index == null) {
+                return null;
+            }
+            final MatchingRule rule;
+            if (matchingRule != null) {
+                try {
+                    rule = schema.getMatchingRule(matchingRule);
+                } catch (final UnknownSchemaElementException e) {
+                    return null;
+                }
+            } else {
+                rule = index.attributeDescription.getAttributeType().getEqualityMatchingRule();
+                if (rule == null) {
+                    return null;
+                }
+            }
+            try {
+                return rule.getAssertion(assertionValue).createIndexQuery(index);
+            } catch (final DecodeException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public NavigableSet<DN> visitGreaterOrEqualFilter(final Void p, final String attributeDescription,
+                final ByteString assertionValue) {
+            final AttributeIndex index = getIndex(attributeDescription);
+            if (index == null) {
+                return null;
+            }
+            final MatchingRule rule = index.attributeDescription.getAttributeType().getOrderingMatchingRule();
+            if (rule == null) {
+                return null;
+            }
+            try {
+                return rule.getGreaterOrEqualAssertion(assertionValue).createIndexQuery(index);
+            } catch (final DecodeException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public NavigableSet<DN> visitLessOrEqualFilter(final Void p, final String attributeDescription,
+                final ByteString assertionValue) {
+            final AttributeIndex index = getIndex(attributeDescription);
+            if (index == null) {
+                return null;
+            }
+            final MatchingRule rule = index.attributeDescription.getAttributeType().getOrderingMatchingRule();
+            if (rule == null) {
+                return null;
+            }
+            try {
+                return rule.getLessOrEqualAssertion(assertionValue).createIndexQuery(index);
+            } catch (final DecodeException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public NavigableSet<DN> visitNotFilter(final Void p, final Filter subFilter) {
+            return null;
+        }
+
+        @Override
+        public NavigableSet<DN> visitOrFilter(final Void p, final List<Filter> subFilters) {
+            final List<NavigableSet<DN>> candidates = new ArrayList<>(subFilters.size());
+            for (final Filter subFilter : subFilters) {
+                final NavigableSet<DN> dns = subFilter.accept(this, p);
+                if (dns == null) {
+                    return null;
+                }
+                candidates.add(dns);
+            }
+            return union(candidates);
+        }
+
+        @Override
+        public NavigableSet<DN> visitPresentFilter(final Void p, final String attributeDescription) {
+            final AttributeIndex index = getIndex(attributeDescription);
+            return index != null ? index.presenceIndex : null;
+        }
+
+        @Override
+        public NavigableSet<DN> visitSubstringsFilter(final Void p, final String attributeDescription,
+                final ByteString initialSubstring, final List<ByteString> anySubstrings,
+                final ByteString finalSubstring) {
+            final AttributeIndex index = getIndex(attributeDescription);
+            if (index == null) {
+                return null;
+            }
+            final MatchingRule rule = index.attributeDescription.getAttributeType().getSubstringMatchingRule();
+            if (rule == null) {
+                return null;
+            }
+            try {
+                return rule.getSubstringAssertion(initialSubstring, anySubstrings, finalSubstring)
+                        .createIndexQuery(index);
+            } catch (final DecodeException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public NavigableSet<DN> visitUnrecognizedFilter(final Void p, final byte filterTag,
+                final ByteString filterBytes) {
+            return null;
+        }
+    }
+
+    /** The substring key size, which is the same as the default used by the directory server. */
+    private static final int SUBSTRING_KEY_SIZE = 6;
+
+    private static final IndexingOptions INDEXING_OPTIONS = new IndexingOptions() {
+        @Override
+        public int substringKeySize() {
+            return SUBSTRING_KEY_SIZE;
+        }
+    };
+
+    private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+    private final Map<AttributeDescription, AttributeIndex> indexes = new ConcurrentHashMap<>();
+    private final Schema schema;
+    private final Visitor visitor = new Visitor();
+
+    MemoryBackendIndex(final Schema schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * Creates a new index for the provided attribute. The caller is
+     * responsible for indexing any existing entries.
+     */
+    void addIndex(final AttributeDescription attributeDescription, final IndexType... indexTypes) {
+        final AttributeType attributeType = attributeDescription.getAttributeType();
+        final Map<String, Indexer> indexers = new LinkedHashMap<>();
+        boolean presence = false;
+        for (final IndexType indexType : indexTypes) {
+            final MatchingRule rule;
+            switch (indexType) {
+            case EQUALITY:
+                rule = attributeType.getEqualityMatchingRule();
+                break;
+            case ORDERING:
+                rule = attributeType.getOrderingMatchingRule();
+                break;
+            case SUBSTRING:
+                rule = attributeType.getSubstringMatchingRule();
+                break;
+            default:
+                presence = true;
+                continue;
+            }
+            if (rule == null) {
+                throw new IllegalArgumentException("The attribute type " + attributeType.getNameOrOID()
+                        + " does not define a matching rule which can be used for " + indexType + " indexing");
+            }
+            for (final Indexer indexer : rule.createIndexers(INDEXING_OPTIONS)) {
+                if (!indexers.containsKey(indexer.getIndexID())) {
+                    indexers.put(indexer.getIndexID(), indexer);
+                }
+            }
+        }
+        indexes.put(attributeDescription, new AttributeIndex(attributeDescription, indexers, presence));
+    }
+
+    /** Removes all keys from the indexes, but not the indexes themselves. */
+    void clear() {
+        for (final AttributeIndex index : indexes.values()) {
+            index.clear();
+        }
+    }
+
+    /**
+     * Returns the names of the entries which may match the provided filter in
+     * ascending order, or {@code null} if the filter cannot be evaluated using
+     * the indexes.
+     */
+    NavigableSet<DN> search(final Filter filter) {
+        return indexes.isEmpty() ? null : filter.accept(visitor, null);
+    }
+
+    /**
+     * Updates the indexes following a change to the named entry. The
+     * {@code before} entry is {@code null} for additions, and the
+     * {@code after} entry is {@code null} for deletions.
+     */
+    void update(final DN dn, final Entry before, final Entry after) {
+        for (final AttributeIndex index : indexes.values()) {
+            index.update(schema, dn, before, after);
+        }
+    }
+
+    private AttributeIndex getIndex(final String attributeDescription) {
+        try {
+            return indexes.get(AttributeDescription.valueOf(attributeDescription, schema));
+        } catch (final LocalizedIllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static NavigableSet<DN> intersect(final Collection<NavigableSet<DN>> subqueries) {
+        NavigableSet<DN> smallest = null;
+        int smallestSize = Integer.MAX_VALUE;
+        for (final NavigableSet<DN> dns : subqueries) {
+            if (dns != null) {
+                final int size = size(dns, smallestSize);
+                if (size < smallestSize) {
+                    smallest = dns;
+                    smallestSize = size;
+                }
+            }
+        }
+        if (smallest == null || subqueries.size() == 1) {
+            return smallest;
+        }
+        final NavigableSet<DN> intersection = new TreeSet<>();
+        candidates:
+        for (final DN dn : smallest) {
+            for (final NavigableSet<DN> dns : subqueries) {
+                if (dns != null && dns != smallest && !dns.contains(dn)) {
+                    continue candidates;
+                }
+            }
+            intersection.add(dn);
+        }
+        return intersection;
+    }
+
+    /**
+     * Returns the size of the provided set, or {@code limit} if it contains at
+     * least {@code limit} names. Concurrent sets are counted by traversal, so
+     * the count stops as soon as the set is known to be too big to be useful.
+     */
+    private static int size(final NavigableSet<DN> dns, final int limit) {
+        if (!(dns instanceof ConcurrentSkipListSet)) {
+            return dns.size();
+        }
+        int size = 0;
+        for (final Iterator<DN> i = dns.iterator(); i.hasNext() && size < limit; i.next()) {
+            size++;
+        }
+        return size;
+    }
+
+    private static NavigableSet<DN> union(final Collection<NavigableSet<DN>> subqueries) {
+        if (subqueries.size() == 1) {
+            return subqueries.iterator().next();
+        }
+        final NavigableSet<DN> union = new TreeSet<>();
+        for (final NavigableSet<DN> dns : subqueries) {
+            if (dns == null) {
+                return null;
+            }
+            union.addAll(dns);
+        }
+        return union;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.ldap;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.forgerock.util.Options;
+
+/**
+ * A power of two choices load balancing algorithm picks two distinct connection factories at random and distributes
+ * the connection request to the one which is expected to complete a new request the soonest. Sampling avoids scanning
+ * every connection factory and avoids the herd behavior of always selecting the least loaded one, while still steering
+ * traffic away from overloaded or slow factories.
+ */
+final class PowerOfTwoChoicesLoadBalancingAlgorithm extends AbstractLoadBalancingAlgorithm {
+    private final int maxIndex;
+
+    PowerOfTwoChoicesLoadBalancingAlgorithm(final Collection<? extends ConnectionFactory> factories,
+            final Options options) {
+        super(factories, options);
+        this.maxIndex = factories.size();
+    }
+
+    @Override
+    String getAlgorithmName() {
+        return "PowerOfTwoChoices";
+    }
+
+    @Override
+    int getInitialConnectionFactoryIndex() {
+        if (maxIndex == 1) {
+            return 0;
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int first = random.nextInt(maxIndex);
+        final int second = (first + 1 + random.nextInt(maxIndex - 1)) % maxIndex;
+        if (!isOperational(first)) {
+            return second;
+        } else if (!isOperational(second)) {
+            return first;
+        }
+        final long now = System.nanoTime();
+        return getEstimatedCost(second, now) < getEstimatedCost(first, now) ? second : first;
+    }
+
+    @Override
+    boolean isMonitoringRequests() {
+        return true;
+    }
+}
@@ -0,0 +1,399 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.ldap;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.forgerock.opendj.ldap.requests.AbandonRequest;
+import org.forgerock.opendj.ldap.requests.AddRequest;
+import org.forgerock.opendj.ldap.requests.BindRequest;
+import org.forgerock.opendj.ldap.requests.CompareRequest;
+import org.forgerock.opendj.ldap.requests.DeleteRequest;
+import org.forgerock.opendj.ldap.requests.ExtendedRequest;
+import org.forgerock.opendj.ldap.requests.ModifyDNRequest;
+import org.forgerock.opendj.ldap.requests.ModifyRequest;
+import org.forgerock.opendj.ldap.requests.SearchRequest;
+import org.forgerock.opendj.ldap.requests.StartTLSExtendedRequest;
+import org.forgerock.opendj.ldap.requests.UnbindRequest;
+import org.forgerock.opendj.ldap.responses.BindResult;
+import org.forgerock.opendj.ldap.responses.CompareResult;
+import org.forgerock.opendj.ldap.responses.ExtendedResult;
+import org.forgerock.opendj.ldap.responses.Result;
+import org.forgerock.opendj.ldap.spi.ConnectionState;
+import org.forgerock.opendj.ldap.spi.LdapPromiseImpl;
+import org.forgerock.util.Reject;
+import org.forgerock.util.promise.ExceptionHandler;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.ResultHandler;
+
+import static org.forgerock.opendj.ldap.LdapException.*;
+import static org.forgerock.opendj.ldap.requests.Requests.*;
+import static org.forgerock.opendj.ldap.spi.LdapPromiseImpl.*;
+import static org.forgerock.opendj.ldap.spi.LdapPromises.*;
+import static org.forgerock.util.promise.Promises.*;
+
+/**
+ * A load balancing connection factory whose connections select a connection
+ * factory using the provided algorithm for each request, rather than once when
+ * the connection is obtained. Each request borrows a connection from the
+ * selected factory, which should normally be a connection pool, and releases it
+ * as soon as the request completes.
+ * <p>
+ * Requests which change the state of a connection cannot be spread in this way.
+ * A successful bind pins the load balanced connection to the connection which
+ * processed the bind, and all subsequent requests are sent to it. Once the load
+ * balanced connection is closed, the pinned connection is reset using an
+ * anonymous bind before being released. StartTLS requests are not supported
+ * because TLS cannot be removed from a connection before releasing it: the
+ * underlying connection factories should be configured to use SSL instead.
+ */
+final class RequestLoadBalancer implements ConnectionFactory {
+    /** Sends a request using the connection selected for it. */
+    private interface RequestSender<R> {
+        LdapPromise<R> sendRequest(Connection connection);
+    }
+
+    /** A request which is being processed by an underlying connection. */
+    private static final class PendingRequest {
+        private final Connection connection;
+        /** The request ID allocated by the underlying connection, or -1 if the request has not been sent yet. */
+        private volatile int requestID = -1;
+
+        private PendingRequest(final Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    private final class LoadBalancedConnection extends AbstractAsynchronousConnection implements
+            ConnectionEventListener {
+        private final ConnectionState state = new ConnectionState();
+        private final AtomicInteger nextRequestID = new AtomicInteger();
+        private final ConcurrentMap<Integer, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+
+        /** The connection which processed the last successful bind, if any. */
+        private final AtomicReference<Connection> boundConnection = new AtomicReference<>();
+
+        @Override
+        public LdapPromise<Void> abandonAsync(final AbandonRequest request) {
+            checkState();
+            final PendingRequest pendingRequest = pendingRequests.get(request.getRequestID());
+            if (pendingRequest == null || pendingRequest.requestID < 0) {
+                // The request has already completed or has not been sent yet.
+                return newSuccessfulLdapPromise((Void) null);
+            }
+            return pendingRequest.connection.abandonAsync(newAbandonRequest(pendingRequest.requestID));
+        }
+
+        @Override
+        public LdapPromise<Result> addAsync(final AddRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            return execute(new RequestSender<Result>() {
+                @Override
+                public LdapPromise<Result> sendRequest(final Connection connection) {
+                    return connection.addAsync(request, intermediateResponseHandler);
+                }
+            }, request.getName(), false);
+        }
+
+        @Override
+        public void addConnectionEventListener(final ConnectionEventListener listener) {
+            state.addConnectionEventListener(listener);
+        }
+
+        @Override
+        public LdapPromise<BindResult> bindAsync(final BindRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            return execute(new RequestSender<BindResult>() {
+                @Override
+                public LdapPromise<BindResult> sendRequest(final Connection connection) {
+                    return connection.bindAsync(request, intermediateResponseHandler);
+                }
+            }, null, true);
+        }
+
+        @Override
+        public void close() {
+            final Connection connection;
+            synchronized (state) {
+                if (!state.notifyConnectionClosed()) {
+                    return;
+                }
+                connection = boundConnection.getAndSet(null);
+            }
+            if (connection != null) {
+                connection.removeConnectionEventListener(this);
+                release(connection, true);
+            }
+        }
+
+        @Override
+        public void close(final UnbindRequest request, final String reason) {
+            close();
+        }
+
+        @Override
+        public LdapPromise<CompareResult> compareAsync(final CompareRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            return execute(new RequestSender<CompareResult>() {
+                @Override
+                public LdapPromise<CompareResult> sendRequest(final Connection connection) {
+                    return connection.compareAsync(request, intermediateResponseHandler);
+                }
+            }, request.getName(), false);
+        }
+
+        @Override
+        public LdapPromise<Result> deleteAsync(final DeleteRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            return execute(new RequestSender<Result>() {
+                @Override
+                public LdapPromise<Result> sendRequest(final Connection connection) {
+                    return connection.deleteAsync(request, intermediateResponseHandler);
+                }
+            }, request.getName(), false);
+        }
+
+        @Override
+        public <R extends ExtendedResult> LdapPromise<R> extendedRequestAsync(final ExtendedRequest<R> request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            if (StartTLSExtendedRequest.OID.equals(request.getOID())) {
+                checkState();
+                return newFailedLdapPromise(newLdapException(ResultCode.CLIENT_SIDE_NOT_SUPPORTED,
+                        "StartTLS is not supported by request load balanced connections"));
+            }
+            return execute(new RequestSender<R>() {
+                @Override
+                public LdapPromise<R> sendRequest(final Connection connection) {
+                    return connection.extendedRequestAsync(request, intermediateResponseHandler);
+                }
+            }, null, false);
+        }
+
+        @Override
+        public void handleConnectionClosed() {
+            // The bound connection is only closed by this connection.
+        }
+
+        @Override
+        public void handleConnectionError(final boolean isDisconnectNotification, final LdapException error) {
+            state.notifyConnectionError(isDisconnectNotification, error);
+        }
+
+        @Override
+        public void handleUnsolicitedNotification(final ExtendedResult notification) {
+            state.notifyUnsolicitedNotification(notification);
+        }
+
+        @Override
+        public boolean isClosed() {
+            return state.isClosed();
+        }
+
+        @Override
+        public boolean isValid() {
+            final Connection connection = boundConnection.get();
+            return state.isValid() && (connection == null || connection.isValid());
+        }
+
+        @Override
+        public LdapPromise<Result> modifyAsync(final ModifyRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            return execute(new RequestSender<Result>() {
+                @Override
+                public LdapPromise<Result> sendRequest(final Connection connection) {
+                    return connection.modifyAsync(request, intermediateResponseHandler);
+                }
+            }, request.getName(), false);
+        }
+
+        @Override
+        public LdapPromise<Result> modifyDNAsync(final ModifyDNRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler) {
+            return execute(new RequestSender<Result>() {
+                @Override
+                public LdapPromise<Result> sendRequest(final Connection connection) {
+                    return connection.modifyDNAsync(request, intermediateResponseHandler);
+                }
+            }, request.getName(), false);
+        }
+
+        @Override
+        public void removeConnectionEventListener(final ConnectionEventListener listener) {
+            state.removeConnectionEventListener(listener);
+        }
+
+        @Override
+        public LdapPromise<Result> searchAsync(final SearchRequest request,
+                final IntermediateResponseHandler intermediateResponseHandler, final SearchResultHandler entryHandler) {
+            return execute(new RequestSender<Result>() {
+                @Override
+                public LdapPromise<Result> sendRequest(final Connection connection) {
+                    return connection.searchAsync(request, intermediateResponseHandler, entryHandler);
+                }
+            }, request.getName(), false);
+        }
+
+        @Override
+        public String toString() {
+            return "LoadBalancedConnection(" + algorithm + ')';
+        }
+
+        private void checkState() {
+            if (state.isClosed()) {
+                throw new IllegalStateException("Connection is already closed");
+            }
+        }
+
+        private <R> LdapPromise<R> execute(final RequestSender<R> sender, final DN name, final boolean isBind) {
+            checkState();
+            final int requestID = nextRequestID.incrementAndGet();
+            final LdapPromiseImpl<R> promise = newLdapPromiseImpl(requestID);
+            final Connection connection = boundConnection.get();
+            if (connection != null) {
+                send(sender, isBind, requestID, connection, false, promise);
+                return promise;
+            }
+
+            final ConnectionFactory factory;
+            try {
+                factory = getConnectionFactory(name);
+            } catch (final LdapException e) {
+                promise.handleException(e);
+                return promise;
+            }
+            factory.getConnectionAsync().thenOnResult(new ResultHandler<Connection>() {
+                @Override
+                public void handleResult(final Connection connection) {
+                    send(sender, isBind, requestID, connection, true, promise);
+                }
+            }).thenOnException(new ExceptionHandler<LdapException>() {
+                @Override
+                public void handleException(final LdapException exception) {
+                    promise.handleException(exception);
+                }
+            });
+            return promise;
+        }
+
+        private <R> void send(final RequestSender<R> sender, final boolean isBind, final int requestID,
+                final Connection connection, final boolean isBorrowed, final LdapPromiseImpl<R> promise) {
+            // Register the request first so that it can be abandoned and so that it is always unregistered.
+            final PendingRequest pendingRequest = new PendingRequest(connection);
+            pendingRequests.put(requestID, pendingRequest);
+            final LdapPromise<R> result = sender.sendRequest(connection);
+            pendingRequest.requestID = result.getRequestID();
+            result.thenOnResult(new ResultHandler<R>() {
+                @Override
+                public void handleResult(final R value) {
+                    pendingRequests.remove(requestID);
+                    if (isBorrowed) {
+                        if (!isBind || !pin(connection)) {
+                            release(connection, isBind);
+                        }
+                    }
+                    promise.handleResult(value);
+                }
+            }).thenOnException(new ExceptionHandler<LdapException>() {
+                @Override
+                public void handleException(final LdapException exception) {
+                    pendingRequests.remove(requestID);
+                    if (isBorrowed) {
+                        release(connection, isBind);
+                    }
+                    promise.handleException(exception);
+                }
+            });
+        }
+
+        /** Returns {@code true} if the connection is now the bound connection. */
+        private boolean pin(final Connection connection) {
+            synchronized (state) {
+                // A concurrent bind may have won the race, or this connection may have been closed meanwhile.
+                if (state.isClosed() || !boundConnection.compareAndSet(null, connection)) {
+                    return false;
+                }
+                connection.addConnectionEventListener(this);
+                return true;
+            }
+        }
+    }
+
+    private final LoadBalancingAlgorithm algorithm;
+
+    RequestLoadBalancer(final LoadBalancingAlgorithm algorithm) {
+        Reject.ifNull(algorithm);
+        this.algorithm = algorithm;
+    }
+
+    @Override
+    public void close() {
+        // Delegate to the algorithm.
+        algorithm.close();
+    }
+
+    @Override
+    public Connection getConnection() throws LdapException {
+        return new LoadBalancedConnection();
+    }
+
+    @Override
+    public Promise<Connection, LdapException> getConnectionAsync() {
+        return newResultPromise((Connection) new LoadBalancedConnection());
+    }
+
+    @Override
+    public String toString() {
+        return "RequestLoadBalancer(" + algorithm + ')';
+    }
+
+    /** Lets algorithms which support it select a connection factory according to the request's target entry. */
+    private ConnectionFactory getConnectionFactory(final DN name) throws LdapException {
+        if (name != null && algorithm instanceof AbstractLoadBalancingAlgorithm) {
+            return ((AbstractLoadBalancingAlgorithm) algorithm).getConnectionFactory(name);
+        }
+        return algorithm.getConnectionFactory();
+    }
+
+    /**
+     * Releases a borrowed connection. Connections which have processed a bind
+     * request are first reset to an anonymous state so that the authenticated
+     * identity does not leak to other users of the connection factory.
+     */
+    private static void release(final Connection connection, final boolean isBound) {
+        if (!isBound) {
+            connection.close();
+            return;
+        }
+        connection.bindAsync(newSimpleBindRequest()).thenAlways(new Runnable() {
+            @Override
+            public void run() {
+                connection.close();
+            }
+        });
+    }
+}
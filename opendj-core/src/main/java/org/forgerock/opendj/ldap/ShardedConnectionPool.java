@@ -0,0 +1,214 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.ldap;
+
+import static org.forgerock.util.promise.Promises.newResultPromise;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.forgerock.util.Reject;
+import org.forgerock.util.promise.Promise;
+
+/**
+ * A connection pool implementation which splits its connections between
+ * several independent {@link CachedConnectionPool shards}, in order to avoid
+ * contention between threads borrowing and releasing connections at high
+ * request rates.
+ * <p>
+ * Each thread borrows connections from its own shard, which is selected using
+ * the thread's ID. When the shard has no idle connections, an idle connection
+ * is stolen from another shard before resorting to growing a shard which has
+ * spare capacity. If every shard is full, the request waits for a connection
+ * of the thread's own shard to be released. Connections are always released
+ * to the shard they were borrowed from.
+ */
+final class ShardedConnectionPool implements ConnectionPool {
+    /** Reports the events of the shards as events of the sharded pool. */
+    private final class ShardEventListener implements ConnectionPoolEventListener {
+        private final ConnectionPoolEventListener listener;
+
+        private ShardEventListener(final ConnectionPoolEventListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void handleConnectionBorrowed(final ConnectionPool pool, final long waitTimeNanos) {
+            listener.handleConnectionBorrowed(ShardedConnectionPool.this, waitTimeNanos);
+        }
+
+        @Override
+        public void handleConnectionCreated(final ConnectionPool pool, final long creationTimeNanos) {
+            listener.handleConnectionCreated(ShardedConnectionPool.this, creationTimeNanos);
+        }
+
+        @Override
+        public void handleConnectionCreationFailed(final ConnectionPool pool, final long creationTimeNanos,
+                final LdapException error) {
+            listener.handleConnectionCreationFailed(ShardedConnectionPool.this, creationTimeNanos, error);
+        }
+
+        @Override
+        public void handleConnectionReleased(final ConnectionPool pool, final long leaseTimeNanos) {
+            listener.handleConnectionReleased(ShardedConnectionPool.this, leaseTimeNanos);
+        }
+
+        @Override
+        public void handleIdleConnectionsPurged(final ConnectionPool pool, final int count) {
+            listener.handleIdleConnectionsPurged(ShardedConnectionPool.this, count);
+        }
+    }
+
+    private final ConnectionFactory factory;
+    private final AtomicBoolean isClosed = new AtomicBoolean();
+    private final CachedConnectionPool[] shards;
+    private final ConcurrentMap<ConnectionPoolEventListener, ShardEventListener> eventListeners =
+            new ConcurrentHashMap<>();
+
+    ShardedConnectionPool(final ConnectionFactory factory, final int corePoolSize, final int maximumPoolSize,
+            final long idleTimeout, final TimeUnit unit, final ScheduledExecutorService scheduler,
+            final int numberOfShards) {
+        Reject.ifNull(factory);
+        Reject.ifFalse(numberOfShards > 0, "numberOfShards <= 0");
+        Reject.ifFalse(corePoolSize >= 0, "corePoolSize < 0");
+        Reject.ifFalse(maximumPoolSize > 0, "maxPoolSize <= 0");
+        Reject.ifFalse(corePoolSize <= maximumPoolSize, "corePoolSize > maxPoolSize");
+
+        this.factory = factory;
+        // Each shard must be able to hold at least one connection.
+        this.shards = new CachedConnectionPool[Math.min(numberOfShards, maximumPoolSize)];
+        // The shards share the factory, which is closed once all of them have been closed.
+        final ConnectionFactory shardFactory = Connections.uncloseable(factory);
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new CachedConnectionPool(shardFactory, share(corePoolSize, i), share(maximumPoolSize, i),
+                    idleTimeout, unit, scheduler);
+        }
+    }
+
+    @Override
+    public void addEventListener(final ConnectionPoolEventListener listener) {
+        Reject.ifNull(listener);
+        final ShardEventListener shardListener = new ShardEventListener(listener);
+        if (eventListeners.putIfAbsent(listener, shardListener) == null) {
+            for (final CachedConnectionPool shard : shards) {
+                shard.addEventListener(shardListener);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!isClosed.compareAndSet(false, true)) {
+            return;
+        }
+        for (final CachedConnectionPool shard : shards) {
+            shard.close();
+        }
+        factory.close();
+    }
+
+    @Override
+    public Connection getConnection() throws LdapException {
+        try {
+            return getConnectionAsync().getOrThrow();
+        } catch (final InterruptedException e) {
+            throw LdapException.newLdapException(ResultCode.CLIENT_SIDE_USER_CANCELLED, e);
+        }
+    }
+
+    @Override
+    public Promise<Connection, LdapException> getConnectionAsync() {
+        if (isClosed.get()) {
+            throw new IllegalStateException("ShardedConnectionPool is already closed");
+        }
+        final long requestTimeNanos = System.nanoTime();
+        final int home = (int) (Thread.currentThread().getId() % shards.length);
+        final CachedConnectionPool shard = shards[home];
+        Connection connection = shard.pollIdleConnection(requestTimeNanos);
+        for (int i = 1; connection == null && i < shards.length; i++) {
+            // Steal from the neighbouring shards first.
+            connection = shards[(home + i) % shards.length].pollIdleConnection(requestTimeNanos);
+        }
+        if (connection != null) {
+            return newResultPromise(connection);
+        }
+        // Grow a shard which has spare capacity, otherwise wait for a connection of the thread's own shard.
+        for (int i = 0; i < shards.length; i++) {
+            final CachedConnectionPool candidate = shards[(home + i) % shards.length];
+            if (candidate.hasSpareCapacity()) {
+                return candidate.getConnectionAsync(requestTimeNanos);
+            }
+        }
+        return shard.getConnectionAsync(requestTimeNanos);
+    }
+
+    @Override
+    public ConnectionPoolStatistics getStatistics() {
+        final ConnectionPoolStatistics[] statistics = new ConnectionPoolStatistics[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            statistics[i] = shards[i].getStatistics();
+        }
+        return ConnectionPoolStatistics.sum(statistics);
+    }
+
+    @Override
+    public void removeEventListener(final ConnectionPoolEventListener listener) {
+        Reject.ifNull(listener);
+        final ShardEventListener shardListener = eventListeners.remove(listener);
+        if (shardListener != null) {
+            for (final CachedConnectionPool shard : shards) {
+                shard.removeEventListener(shardListener);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ShardedConnectionPool(" + Arrays.toString(shards) + ")";
+    }
+
+    /** Package private for unit testing. */
+    int currentPoolSize() {
+        int size = 0;
+        for (final CachedConnectionPool shard : shards) {
+            size += shard.currentPoolSize();
+        }
+        return size;
+    }
+
+    /** Package private for unit testing. */
+    int numberOfShards() {
+        return shards.length;
+    }
+
+    /** Splits a size evenly between the shards, the first shards receiving any remainder. */
+    private int share(final int size, final int shard) {
+        return size / shards.length + (shard < size % shards.length ? 1 : 0);
+    }
+}
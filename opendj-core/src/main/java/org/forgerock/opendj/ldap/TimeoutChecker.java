@@ -23,16 +23,19 @@
  *
  *      Copyright 2010 Sun Microsystems, Inc.
  *      Portions copyright 2013-2014 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.opendj.ldap;
 
-import static java.util.Collections.newSetFromMap;
-
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.util.Reject;
 
 import com.forgerock.opendj.util.ReferenceCountedObject;
 
@@ -42,8 +45,76 @@ import com.forgerock.opendj.util.ReferenceCountedObject;
  * All listeners registered with the {@code #addListener()} method are called
  * back with {@code TimeoutEventListener#handleTimeout()} to be able to handle
  * the timeout.
+ * <p>
+ * Timeouts are managed using a hierarchical timing wheel having a resolution
+ * of one millisecond, so that scheduling, cancelling and expiring a timeout
+ * are all constant time operations regardless of the number of pending
+ * timeouts. In particular, each listener is only called back once the delay
+ * which it returned from its previous call back has elapsed, rather than each
+ * time that any listener is due. Individual tasks may also be scheduled
+ * directly using {@link #schedule(Runnable, long, TimeUnit)}.
  */
 public final class TimeoutChecker {
+    /**
+     * A task which has been scheduled for execution by a
+     * {@code TimeoutChecker} and which may be cancelled.
+     */
+    public static final class ScheduledTimeout {
+        private final Runnable task;
+        /** The tick at which the task should be run. */
+        private long deadline;
+        /** Links within a slot of the wheel, {@code null} once the task has been cancelled or has expired. */
+        private ScheduledTimeout next;
+        private ScheduledTimeout previous;
+
+        private ScheduledTimeout(final Runnable task) {
+            this.task = task;
+        }
+
+        private void unlink() {
+            previous.next = next;
+            next.previous = previous;
+            previous = next = null;
+        }
+    }
+
+    /**
+     * Calls back a listener each time that the delay returned by its previous
+     * call back has elapsed.
+     */
+    private final class ListenerTask implements Runnable {
+        private final TimeoutEventListener listener;
+        private volatile ScheduledTimeout timeout;
+
+        private ListenerTask(final TimeoutEventListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            if (listeners.get(listener) != this) {
+                // Removed.
+                return;
+            }
+            logger.trace(LocalizableMessage.raw("Checking connection %s", listener));
+            long delay;
+            try {
+                delay = listener.handleTimeout(System.currentTimeMillis());
+            } catch (final Throwable t) {
+                logger.warn(LocalizableMessage.raw("Timeout listener %s failed", listener, t));
+                // Keep checking the listener, otherwise its timeouts would never expire again.
+                delay = listener.getTimeout();
+            }
+            if (delay > 0) {
+                timeout = schedule(this, delay, TimeUnit.MILLISECONDS);
+                if (listeners.get(listener) != this) {
+                    // Removed while it was being called back.
+                    cancel(timeout);
+                }
+            }
+        }
+    }
+
     /**
      * Global reference on the timeout checker.
      */
@@ -62,75 +133,109 @@ public final class TimeoutChecker {
 
     private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    /** Six levels span more than two years, longer delays are cascaded through the last level. */
+    private static final int LEVELS = 6;
+    private static final long RANGE = 1L << (SLOT_BITS * LEVELS);
+    private static final long MAX_DELAY_NANOS = Long.MAX_VALUE >>> 2;
+
     /**
-     * Condition variable used for coordinating the timeout thread.
+     * Condition variable used for coordinating the timeout thread. It also
+     * guards the timing wheel.
      */
     private final Object stateLock = new Object();
 
     /**
-     * The listener set must be safe from CMEs. For example, if the listener is
+     * The listener map must be safe from CMEs. For example, if the listener is
      * a connection, expiring requests can cause the connection to be closed.
      */
-    private final Set<TimeoutEventListener> listeners =
-            newSetFromMap(new ConcurrentHashMap<TimeoutEventListener, Boolean>());
+    private final ConcurrentMap<TimeoutEventListener, ListenerTask> listeners = new ConcurrentHashMap<>();
 
     /**
-     * Used to signal thread shutdown.
+     * The slots of each level of the timing wheel. Each slot is the sentinel
+     * of a circular doubly linked list of timeouts. A slot of level {@code n}
+     * contains the timeouts due within a span of {@code 64^n} ticks.
      */
-    private volatile boolean shutdownRequested;
+    private final ScheduledTimeout[][] wheel = new ScheduledTimeout[LEVELS][SLOTS];
+
+    /** The time from which ticks are counted. */
+    private final long startNanos = System.nanoTime();
+
+    /** The last tick whose timeouts have been expired. */
+    private long currentTick;
+
+    /** The tick at which the timeout thread will next wake up, or {@code Long.MAX_VALUE}. */
+    private long wakeUpTick = Long.MAX_VALUE;
+
+    /** The number of pending timeouts. */
+    private int size;
 
     /**
-     * Contains the minimum delay for listeners which were added while the
-     * timeout check was not sleeping (i.e. while it was processing listeners).
+     * Used to signal thread shutdown.
      */
-    private volatile long pendingListenerMinDelay = Long.MAX_VALUE;
+    private volatile boolean shutdownRequested;
 
     private TimeoutChecker() {
+        for (final ScheduledTimeout[] level : wheel) {
+            for (int i = 0; i < SLOTS; i++) {
+                final ScheduledTimeout sentinel = new ScheduledTimeout(null);
+                sentinel.next = sentinel.previous = sentinel;
+                level[i] = sentinel;
+            }
+        }
+
         final Thread checkerThread = new Thread("OpenDJ LDAP SDK Timeout Checker") {
             @Override
             public void run() {
                 logger.debug(LocalizableMessage.raw("Timeout Checker Starting"));
+                final List<ScheduledTimeout> expiredTimeouts = new ArrayList<>();
                 while (!shutdownRequested) {
-                    /*
-                     * New listeners may be added during iteration and may not
-                     * be included in the computation of the new delay. This
-                     * could potentially result in the timeout checker waiting
-                     * longer than it should, or even forever (e.g. if the new
-                     * listener is the first).
-                     */
-                    final long currentTime = System.currentTimeMillis();
-                    long delay = Long.MAX_VALUE;
-                    pendingListenerMinDelay = Long.MAX_VALUE;
-                    for (final TimeoutEventListener listener : listeners) {
-                        logger.trace(LocalizableMessage.raw("Checking connection %s delay = %d", listener, delay));
-
-                        // May update the connections set.
-                        final long newDelay = listener.handleTimeout(currentTime);
-                        if (newDelay > 0) {
-                            delay = Math.min(newDelay, delay);
-                        }
-                    }
-
                     try {
                         synchronized (stateLock) {
-                            // Include any pending listener delays.
-                            delay = Math.min(pendingListenerMinDelay, delay);
+                            final long now = tickOf(System.nanoTime());
+                            if (size == 0) {
+                                currentTick = Math.max(currentTick, now);
+                            }
+                            while (currentTick < now) {
+                                advance(expiredTimeouts);
+                            }
                             if (shutdownRequested) {
                                 // Stop immediately.
                                 break;
-                            } else if (delay <= 0) {
-                                /*
-                                 * If there is at least one connection then the
-                                 * delay should be > 0.
-                                 */
-                                stateLock.wait();
-                            } else {
-                                stateLock.wait(delay);
+                            } else if (expiredTimeouts.isEmpty()) {
+                                wakeUpTick = nextWakeUpTick();
+                                if (wakeUpTick == Long.MAX_VALUE) {
+                                    stateLock.wait();
+                                } else {
+                                    final long waitNanos = startNanos + wakeUpTick * TICK_NANOS - System.nanoTime();
+                                    if (waitNanos > 0) {
+                                        TimeUnit.NANOSECONDS.timedWait(stateLock, waitNanos);
+                                    }
+                                }
+                                wakeUpTick = Long.MAX_VALUE;
+                                continue;
                             }
                         }
                     } catch (final InterruptedException e) {
                         shutdownRequested = true;
+                        break;
                     }
+
+                    /*
+                     * Run the tasks without holding the lock, they may schedule or cancel other timeouts. A failing
+                     * task must neither prevent the remaining tasks from running nor stop the checker thread.
+                     */
+                    for (final ScheduledTimeout timeout : expiredTimeouts) {
+                        try {
+                            timeout.task.run();
+                        } catch (final Throwable t) {
+                            logger.warn(LocalizableMessage.raw("Timeout task %s failed", timeout.task, t));
+                        }
+                    }
+                    expiredTimeouts.clear();
                 }
             }
         };
@@ -152,10 +257,9 @@ public final class TimeoutChecker {
          */
         final long timeout = listener.getTimeout();
         if (timeout > 0) {
-            listeners.add(listener);
-            synchronized (stateLock) {
-                pendingListenerMinDelay = Math.min(pendingListenerMinDelay, timeout);
-                stateLock.notifyAll();
+            final ListenerTask task = new ListenerTask(listener);
+            if (listeners.putIfAbsent(listener, task) == null) {
+                task.timeout = schedule(task, timeout, TimeUnit.MILLISECONDS);
             }
         }
     }
@@ -167,8 +271,131 @@ public final class TimeoutChecker {
      *            The timeout event listener.
      */
     public void removeListener(final TimeoutEventListener listener) {
-        listeners.remove(listener);
-        // No need to signal.
+        final ListenerTask task = listeners.remove(listener);
+        if (task != null && task.timeout != null) {
+            cancel(task.timeout);
+        }
+    }
+
+    /**
+     * Schedules a task to be run once the provided delay has elapsed. The task
+     * is run by the timeout checker thread and should therefore complete
+     * quickly.
+     *
+     * @param task
+     *            The task to be run.
+     * @param delay
+     *            The delay after which the task should be run.
+     * @param unit
+     *            The unit of the delay.
+     * @return The scheduled timeout, which may be used for cancelling the
+     *         task.
+     */
+    public ScheduledTimeout schedule(final Runnable task, final long delay, final TimeUnit unit) {
+        Reject.ifNull(task, unit);
+        final ScheduledTimeout timeout = new ScheduledTimeout(task);
+        final long delayNanos = Math.min(Math.max(unit.toNanos(delay), 0), MAX_DELAY_NANOS);
+        synchronized (stateLock) {
+            final long nanoTime = System.nanoTime();
+            if (size == 0) {
+                // The wheel is empty, so skip the idle ticks rather than have the timeout thread catch up.
+                currentTick = Math.max(currentTick, tickOf(nanoTime));
+            }
+            // Round up so that tasks are never run early.
+            timeout.deadline = tickOf(nanoTime + delayNanos + TICK_NANOS - 1);
+            insert(timeout);
+            size++;
+            if (timeout.deadline < wakeUpTick) {
+                stateLock.notifyAll();
+            }
+        }
+        return timeout;
+    }
+
+    /**
+     * Cancels a scheduled timeout.
+     *
+     * @param timeout
+     *            The timeout to be cancelled.
+     * @return {@code true} if the timeout was cancelled, or {@code false} if
+     *         it has already expired or been cancelled.
+     */
+    public boolean cancel(final ScheduledTimeout timeout) {
+        synchronized (stateLock) {
+            if (timeout.next == null) {
+                return false;
+            }
+            timeout.unlink();
+            size--;
+            // No need to signal.
+            return true;
+        }
+    }
+
+    /** Expires the timeouts of the next tick, cascading those of higher levels which are now due. */
+    private void advance(final List<ScheduledTimeout> expiredTimeouts) {
+        currentTick++;
+        int levels = 1;
+        while (levels < LEVELS && (currentTick & ((1L << (SLOT_BITS * levels)) - 1)) == 0) {
+            levels++;
+        }
+        for (int level = levels - 1; level > 0; level--) {
+            final ScheduledTimeout slot = wheel[level][(int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK];
+            while (slot.next != slot) {
+                final ScheduledTimeout timeout = slot.next;
+                timeout.unlink();
+                insert(timeout);
+            }
+        }
+        final ScheduledTimeout slot = wheel[0][(int) currentTick & SLOT_MASK];
+        while (slot.next != slot) {
+            final ScheduledTimeout timeout = slot.next;
+            timeout.unlink();
+            if (timeout.deadline <= currentTick) {
+                expiredTimeouts.add(timeout);
+                size--;
+            } else {
+                insert(timeout);
+            }
+        }
+    }
+
+    /** Links a timeout into the slot which will be examined at or before its deadline. */
+    private void insert(final ScheduledTimeout timeout) {
+        // Never insert into the current slot, which has already been examined.
+        final long delta = Math.min(Math.max(timeout.deadline - currentTick, 1), RANGE - 1);
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        final ScheduledTimeout slot = wheel[level][(int) ((currentTick + delta) >>> (SLOT_BITS * level)) & SLOT_MASK];
+        timeout.previous = slot.previous;
+        timeout.next = slot;
+        slot.previous.next = timeout;
+        slot.previous = timeout;
+    }
+
+    /**
+     * Returns the next tick having timeouts to expire or cascade, or
+     * {@code Long.MAX_VALUE} if there are no pending timeouts.
+     */
+    private long nextWakeUpTick() {
+        if (size == 0) {
+            return Long.MAX_VALUE;
+        }
+        // Timeouts in higher levels are cascaded at the latest when the first level wraps around.
+        final long nextCascadeTick = (currentTick | SLOT_MASK) + 1;
+        for (long tick = currentTick + 1; tick < nextCascadeTick; tick++) {
+            final ScheduledTimeout slot = wheel[0][(int) tick & SLOT_MASK];
+            if (slot.next != slot) {
+                return tick;
+            }
+        }
+        return nextCascadeTick;
+    }
+
+    private long tickOf(final long nanoTime) {
+        return (nanoTime - startNanos) / TICK_NANOS;
     }
 
     private void shutdown() {
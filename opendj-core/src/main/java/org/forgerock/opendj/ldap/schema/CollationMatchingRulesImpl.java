@@ -22,10 +22,13 @@
  *
  *
  *      Copyright 2014-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.opendj.ldap.schema;
 
+import java.text.CollationElementIterator;
 import java.text.Collator;
+import java.text.RuleBasedCollator;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -36,6 +39,7 @@ import org.forgerock.i18n.LocalizedIllegalArgumentException;
 import org.forgerock.opendj.ldap.Assertion;
 import org.forgerock.opendj.ldap.ByteSequence;
 import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.forgerock.opendj.ldap.ConditionResult;
 import org.forgerock.opendj.ldap.DecodeException;
 import org.forgerock.opendj.ldap.spi.IndexQueryFactory;
@@ -128,15 +132,85 @@ final class CollationMatchingRulesImpl {
         return new CollationGreaterThanOrEqualToMatchingRuleImpl(locale);
     }
 
+    /**
+     * Creates a collator for the provided locale which only considers primary
+     * differences.
+     *
+     * @param locale
+     *            The locale of the collator.
+     * @return The new collator.
+     */
+    static Collator createCollator(Locale locale) {
+        Collator collator = Collator.getInstance(locale);
+        collator.setStrength(Collator.PRIMARY);
+        collator.setDecomposition(Collator.FULL_DECOMPOSITION);
+        return collator;
+    }
+
+    /**
+     * Computes primary strength collation keys. Collators are not thread safe
+     * and the JDK synchronizes {@code Collator.getCollationKey()}, so each
+     * thread uses its own instance in order to avoid contention.
+     */
+    static final class CollationKeyGenerator {
+        /**
+         * Offset added by {@code RuleBasedCollator.getCollationKey()} to
+         * primary orders so that they are never 0.
+         */
+        private static final int COLLATION_KEY_OFFSET = 1;
+
+        private final Collator collator;
+        /** Only available for rule based collators, whose keys can be built directly from the collation elements. */
+        private final CollationElementIterator iterator;
+        private final ByteStringBuilder builder = new ByteStringBuilder();
+
+        CollationKeyGenerator(final Collator collator) {
+            this.collator = collator;
+            this.iterator = collator instanceof RuleBasedCollator
+                    ? ((RuleBasedCollator) collator).getCollationElementIterator("") : null;
+        }
+
+        ByteString getCollationKey(final ByteSequence value) {
+            final String source = value.toString();
+            if (iterator == null) {
+                final byte[] byteArray = collator.getCollationKey(source).toByteArray();
+                // Last 4 bytes are 0s when collator strength is set to PRIMARY, so skip them
+                return ByteString.wrap(byteArray).subSequence(0, byteArray.length - 4);
+            }
+
+            /*
+             * Same bytes as the primary part of the collation key returned by
+             * the rule based collator, without creating the intermediate
+             * strings, key and byte array.
+             */
+            builder.clear();
+            iterator.setText(source);
+            for (int order = iterator.next(); order != CollationElementIterator.NULLORDER; order = iterator.next()) {
+                final int primaryOrder = CollationElementIterator.primaryOrder(order);
+                if (primaryOrder != 0) {
+                    builder.appendShort(primaryOrder + COLLATION_KEY_OFFSET);
+                }
+            }
+            return builder.toByteString();
+        }
+    }
+
     /**
      * Defines the base for collation matching rules.
      */
     private static abstract class AbstractCollationMatchingRuleImpl extends AbstractMatchingRuleImpl {
         private final Locale locale;
-        final Collator collator;
         final String indexName;
         final Indexer indexer;
 
+        /** The collation key generator of each thread. */
+        private final ThreadLocal<CollationKeyGenerator> generators = new ThreadLocal<CollationKeyGenerator>() {
+            @Override
+            protected CollationKeyGenerator initialValue() {
+                return new CollationKeyGenerator(createCollator(locale));
+            }
+        };
+
         /**
          * Creates the collation matching rule with the provided locale.
          *
@@ -145,18 +219,10 @@ final class CollationMatchingRulesImpl {
          */
         AbstractCollationMatchingRuleImpl(Locale locale) {
             this.locale = locale;
-            this.collator = createCollator(locale);
             this.indexName = getPrefixIndexName() + "." + INDEX_ID_SHARED;
             this.indexer = new DefaultIndexer(indexName);
         }
 
-        private Collator createCollator(Locale locale) {
-            Collator collator = Collator.getInstance(locale);
-            collator.setStrength(Collator.PRIMARY);
-            collator.setDecomposition(Collator.FULL_DECOMPOSITION);
-            return collator;
-        }
-
         /**
          * Returns the prefix name of the index database for this matching rule. An
          * index name for this rule will be based upon the Locale. This will
@@ -193,9 +259,7 @@ final class CollationMatchingRulesImpl {
         public ByteString normalizeAttributeValue(final Schema schema, final ByteSequence value)
                 throws DecodeException {
             try {
-                final byte[] byteArray = collator.getCollationKey(value.toString()).toByteArray();
-                // Last 4 bytes are 0s when collator strength is set to PRIMARY, so skip them
-                return ByteString.wrap(byteArray).subSequence(0, byteArray.length - 4);
+                return generators.get().getCollationKey(value);
             } catch (final LocalizedIllegalArgumentException e) {
                 throw DecodeException.error(e.getMessageObject());
             }
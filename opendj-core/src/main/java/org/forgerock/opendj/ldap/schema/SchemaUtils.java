@@ -23,6 +23,7 @@
  *
  *      Copyright 2009 Sun Microsystems, Inc.
  *      Portions copyright 2011-2016 ForgeRock AS
+ *      Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.opendj.ldap.schema;
 
@@ -43,6 +44,7 @@ import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.ldap.ByteSequence;
 import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.forgerock.opendj.ldap.DecodeException;
 
 import com.forgerock.opendj.util.SubstringReader;
@@ -723,25 +725,68 @@ final class SchemaUtils {
 
     static ByteString normalizeStringAttributeValue(final ByteSequence value, final boolean trim,
             final boolean foldCase) {
-        final StringBuilder buffer = new StringBuilder();
-        prepareUnicode(buffer, value, trim, foldCase);
+        final ByteStringBuilder builder = new ByteStringBuilder(value.length());
+        normalizeStringAttributeValue(value, trim, foldCase, builder);
+        return toByteString(builder);
+    }
 
-        if (buffer.length() == 0) {
-            return singleSpaceOrEmpty(value);
+    /**
+     * Appends the normalized form of a string value to the provided builder,
+     * avoiding any intermediate string when the value only contains ASCII
+     * characters.
+     */
+    static void normalizeStringAttributeValue(final ByteSequence value, final boolean trim,
+            final boolean foldCase, final ByteStringBuilder builder) {
+        final int start = builder.length();
+        prepareUnicode(builder, value, trim, foldCase);
+
+        if (builder.length() == start) {
+            builder.appendBytes(singleSpaceOrEmpty(value));
         }
-        return ByteString.valueOfUtf8(buffer);
     }
 
     static ByteString normalizeIA5StringAttributeValue(final ByteSequence value, boolean trim, boolean foldCase)
             throws DecodeException {
-        final StringBuilder buffer = new StringBuilder();
-        prepareUnicode(buffer, value, trim, foldCase);
+        final ByteStringBuilder builder = new ByteStringBuilder(value.length());
+        normalizeIA5StringAttributeValue(value, trim, foldCase, builder);
+        return toByteString(builder);
+    }
 
-        if (buffer.length() == 0) {
-            return singleSpaceOrEmpty(value);
+    /**
+     * Appends the normalized form of an IA5 string value to the provided
+     * builder, avoiding any intermediate string when the value only contains
+     * ASCII characters.
+     */
+    static void normalizeIA5StringAttributeValue(final ByteSequence value, boolean trim, boolean foldCase,
+            final ByteStringBuilder builder) throws DecodeException {
+        final int start = builder.length();
+        prepareUnicode(builder, value, trim, foldCase);
+
+        if (builder.length() == start) {
+            builder.appendBytes(singleSpaceOrEmpty(value));
+            return;
         }
-        throwIfIA5IllegalCharacter(buffer, value);
-        return ByteString.valueOfUtf8(buffer);
+        // Only non IA5 characters have non ASCII bytes in their UTF-8 encoding.
+        for (int i = start; i < builder.length(); i++) {
+            if ((builder.byteAt(i) & 0x80) != 0) {
+                throwIfIA5IllegalCharacter(new StringBuilder(builder.subSequence(start, builder.length()).toString()),
+                        value);
+            }
+        }
+    }
+
+    /**
+     * Returns the content of a builder which will not be used anymore. Its
+     * backing array is shared rather than copied, unless it is mostly unused.
+     */
+    private static ByteString toByteString(final ByteStringBuilder builder) {
+        final int length = builder.length();
+        if (length == 0) {
+            return ByteString.empty();
+        } else if (length * 2 < builder.getBackingArray().length) {
+            return builder.toByteString();
+        }
+        return ByteString.wrap(builder.getBackingArray(), 0, length);
     }
 
     static void throwDecodeException(LocalizedLogger logger, LocalizableMessage message) throws DecodeException {
@@ -766,21 +811,19 @@ final class SchemaUtils {
     }
 
     static ByteString normalizeNumericStringAttributeValue(final ByteSequence value) {
-        final StringBuilder buffer = new StringBuilder();
-        prepareUnicode(buffer, value, TRIM, NO_CASE_FOLD);
-
-        // Remove any space
-        for (int pos = buffer.length() - 1; pos > 0; pos--) {
-            char c = buffer.charAt(pos);
-            if (c == ' ') {
-                buffer.delete(pos, pos + 1);
+        final ByteStringBuilder builder = new ByteStringBuilder(value.length());
+        prepareUnicode(builder, value, TRIM, NO_CASE_FOLD);
+
+        // Remove any space, other than a leading one. Spaces are single bytes in UTF-8.
+        int newLength = Math.min(builder.length(), 1);
+        final byte[] bytes = builder.getBackingArray();
+        for (int pos = 1; pos < builder.length(); pos++) {
+            if (bytes[pos] != ' ') {
+                bytes[newLength++] = bytes[pos];
             }
         }
-
-        if (buffer.length() == 0) {
-            return ByteString.empty();
-        }
-        return ByteString.valueOfUtf8(buffer);
+        builder.setLength(newLength);
+        return toByteString(builder);
     }
 
 }
@@ -23,6 +23,7 @@
  *
  *      Copyright 2009 Sun Microsystems, Inc.
  *      Portions copyright 2014-2015 ForgeRock AS
+ *      Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.opendj.ldap.schema;
 
@@ -46,20 +47,28 @@ final class TelephoneNumberEqualityMatchingRuleImpl extends AbstractEqualityMatc
     }
 
     public ByteString normalizeAttributeValue(final Schema schema, final ByteSequence value) {
-        final String valueString = value.toString();
-        final int valueLength = valueString.length();
-        final StringBuilder buffer = new StringBuilder(valueLength);
-
-        // Iterate through the characters in the value and filter out
-        // everything that isn't a digit.
+        // Iterate through the bytes of the value and filter out everything
+        // that isn't a digit. Digits are ASCII characters, and no other
+        // character contains ASCII bytes in its UTF-8 encoding.
+        final int valueLength = value.length();
+        int digits = 0;
         for (int i = 0; i < valueLength; i++) {
-            final char c = valueString.charAt(i);
-            if (StaticUtils.isDigit(c)) {
-                buffer.append(c);
+            if (StaticUtils.isDigit((char) value.byteAt(i))) {
+                digits++;
             }
         }
+        if (digits == valueLength) {
+            return value.toByteString();
+        }
 
-        return ByteString.valueOfUtf8(buffer);
+        final byte[] normalizedValue = new byte[digits];
+        for (int i = 0, j = 0; j < digits; i++) {
+            final byte b = value.byteAt(i);
+            if (StaticUtils.isDigit((char) b)) {
+                normalizedValue[j++] = b;
+            }
+        }
+        return ByteString.wrap(normalizedValue);
     }
 
     @Override
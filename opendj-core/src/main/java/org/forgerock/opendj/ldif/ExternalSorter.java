@@ -0,0 +1,384 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+
+package org.forgerock.opendj.ldif;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.forgerock.util.Utils;
+
+/**
+ * Sorts {@code byte[][] {key, value}} records by key using a bounded amount of
+ * memory. Records are accumulated into runs which are sorted and spilled to
+ * temporary files once the memory budget is exhausted. The runs are then merged
+ * back together when the sorted records are read. Records having the same key
+ * are returned in the order in which they were added.
+ * <p>
+ * Runs may optionally be sorted and spilled in parallel using up to
+ * {@code parallelism} background threads, in which case the memory budget is
+ * shared between the run being filled and the runs being sorted.
+ */
+final class ExternalSorter implements Closeable {
+    /** A reader of sorted records. */
+    interface SortedRecordReader extends Closeable {
+        /**
+         * Returns the next record without consuming it, or {@code null} if
+         * there are no more records.
+         */
+        byte[][] peek() throws IOException;
+
+        /** Returns and consumes the next record. */
+        byte[][] next() throws IOException;
+    }
+
+    /** Approximate per-record overhead of the arrays and list slot holding a record. */
+    private static final int RECORD_OVERHEAD = 64;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int END_OF_RUN = -1;
+
+    /** Returns a sorted record reader over an already sorted list of records. */
+    static SortedRecordReader newListReader(final List<byte[][]> records) {
+        return new SortedRecordReader() {
+            private int index;
+
+            @Override
+            public void close() {
+                // Nothing to do.
+            }
+
+            @Override
+            public byte[][] peek() {
+                return index < records.size() ? records.get(index) : null;
+            }
+
+            @Override
+            public byte[][] next() {
+                if (index >= records.size()) {
+                    throw new NoSuchElementException();
+                }
+                return records.get(index++);
+            }
+        };
+    }
+
+    private final Comparator<byte[][]> comparator;
+    private final long runMemoryLimit;
+    private final File tempDirectory;
+    private final int parallelism;
+    private final Semaphore availableSorters;
+    private ExecutorService executor;
+    private final List<File> runFiles = Collections.synchronizedList(new ArrayList<File>());
+    private final List<Future<Void>> pendingRuns = new ArrayList<>();
+    private final List<RunReader> runReaders = new ArrayList<>();
+    private List<byte[][]> currentRun = new ArrayList<>();
+    private long currentRunMemory;
+    private boolean isSorted;
+
+    /**
+     * Creates a new external sorter.
+     *
+     * @param comparator
+     *            The comparator which will be used for ordering records.
+     * @param maxMemory
+     *            The approximate maximum number of bytes of record data which
+     *            may be held in memory.
+     * @param parallelism
+     *            The maximum number of runs which may be sorted in parallel.
+     * @param tempDirectory
+     *            The directory where runs will be spilled, or {@code null} if
+     *            the default temporary directory should be used.
+     */
+    ExternalSorter(final Comparator<byte[][]> comparator, final long maxMemory, final int parallelism,
+            final File tempDirectory) {
+        this.comparator = comparator;
+        this.tempDirectory = tempDirectory;
+        this.parallelism = parallelism;
+        if (parallelism > 1) {
+            this.runMemoryLimit = Math.max(1, maxMemory / (parallelism + 1));
+            this.availableSorters = new Semaphore(parallelism);
+        } else {
+            this.runMemoryLimit = Math.max(1, maxMemory);
+            this.availableSorters = null;
+        }
+    }
+
+    /**
+     * Adds a record to this sorter, spilling the current run to disk if the
+     * memory budget has been exhausted.
+     *
+     * @param record
+     *            The {@code {key, value}} record.
+     * @throws IOException
+     *             If the current run could not be spilled.
+     */
+    void add(final byte[][] record) throws IOException {
+        if (isSorted) {
+            throw new IllegalStateException();
+        }
+        currentRun.add(record);
+        currentRunMemory += record[0].length + record[1].length + RECORD_OVERHEAD;
+        if (currentRunMemory >= runMemoryLimit) {
+            spillCurrentRun();
+        }
+    }
+
+    /**
+     * Returns a reader over all the records added to this sorter in sorted
+     * order. Records are only written to disk if they could not all be held in
+     * memory. This method may only be called once.
+     *
+     * @return A reader over the sorted records.
+     * @throws IOException
+     *             If an error occurred while spilling or reading runs.
+     */
+    SortedRecordReader sort() throws IOException {
+        if (isSorted) {
+            throw new IllegalStateException();
+        }
+        isSorted = true;
+        if (pendingRuns.isEmpty()) {
+            // Everything fits in memory.
+            final List<byte[][]> records = currentRun;
+            currentRun = null;
+            Collections.sort(records, comparator);
+            return newListReader(records);
+        }
+        if (!currentRun.isEmpty()) {
+            spillCurrentRun();
+        }
+        currentRun = null;
+        for (final Future<Void> pendingRun : pendingRuns) {
+            awaitRun(pendingRun);
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+        for (final File runFile : runFiles) {
+            runReaders.add(new RunReader(runReaders.size(), runFile));
+        }
+        return new MergeReader(runReaders);
+    }
+
+    /** Closes any open runs and deletes all temporary files. */
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        for (final RunReader runReader : runReaders) {
+            Utils.closeSilently(runReader);
+        }
+        synchronized (runFiles) {
+            for (final File runFile : runFiles) {
+                runFile.delete();
+            }
+            runFiles.clear();
+        }
+    }
+
+    private void spillCurrentRun() throws IOException {
+        final List<byte[][]> run = currentRun;
+        currentRun = new ArrayList<>();
+        currentRunMemory = 0;
+
+        // Reserve the run file now so that runs are merged in the order they were created.
+        final File runFile = File.createTempFile("ldif-sort-", ".run", tempDirectory);
+        runFile.deleteOnExit();
+        runFiles.add(runFile);
+
+        final Callable<Void> task = new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                try {
+                    writeRun(run, runFile);
+                    return null;
+                } finally {
+                    if (availableSorters != null) {
+                        availableSorters.release();
+                    }
+                }
+            }
+        };
+
+        if (availableSorters == null) {
+            try {
+                task.call();
+            } catch (final IOException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new IllegalStateException(e);
+            }
+            pendingRuns.add(null);
+        } else {
+            try {
+                availableSorters.acquire();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (executor == null) {
+                // Only start sorting threads once the records no longer fit in memory.
+                executor = Executors.newFixedThreadPool(parallelism,
+                        Utils.newThreadFactory(null, "OpenDJ LDIF Sorter", true));
+            }
+            pendingRuns.add(executor.submit(task));
+        }
+    }
+
+    private void writeRun(final List<byte[][]> run, final File runFile) throws IOException {
+        Collections.sort(run, comparator);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(runFile), BUFFER_SIZE))) {
+            for (final byte[][] record : run) {
+                out.writeInt(record[0].length);
+                out.write(record[0]);
+                out.writeInt(record[1].length);
+                out.write(record[1]);
+            }
+            out.writeInt(END_OF_RUN);
+        }
+    }
+
+    private static void awaitRun(final Future<Void> pendingRun) throws IOException {
+        if (pendingRun == null) {
+            // Run was written synchronously.
+            return;
+        }
+        try {
+            pendingRun.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /** Reads back a single spilled run. */
+    private static final class RunReader implements Closeable {
+        private final int index;
+        private final DataInputStream in;
+        private byte[][] current;
+
+        private RunReader(final int index, final File runFile) throws IOException {
+            this.index = index;
+            this.in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(runFile), BUFFER_SIZE));
+            advance();
+        }
+
+        private void advance() throws IOException {
+            final int keyLength = in.readInt();
+            if (keyLength == END_OF_RUN) {
+                current = null;
+                in.close();
+                return;
+            }
+            final byte[] key = new byte[keyLength];
+            in.readFully(key);
+            final byte[] value = new byte[in.readInt()];
+            in.readFully(value);
+            current = new byte[][] { key, value };
+        }
+
+        @Override
+        public void close() throws IOException {
+            current = null;
+            in.close();
+        }
+    }
+
+    /** Merges spilled runs, preferring earlier runs in order to keep the sort stable. */
+    private final class MergeReader implements SortedRecordReader {
+        private final PriorityQueue<RunReader> queue;
+
+        private MergeReader(final List<RunReader> runs) {
+            this.queue = new PriorityQueue<>(Math.max(1, runs.size()), new Comparator<RunReader>() {
+                @Override
+                public int compare(final RunReader r1, final RunReader r2) {
+                    final int cmp = comparator.compare(r1.current, r2.current);
+                    return cmp != 0 ? cmp : r1.index - r2.index;
+                }
+            });
+            for (final RunReader run : runs) {
+                if (run.current != null) {
+                    queue.add(run);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            ExternalSorter.this.close();
+        }
+
+        @Override
+        public byte[][] peek() {
+            final RunReader run = queue.peek();
+            return run != null ? run.current : null;
+        }
+
+        @Override
+        public byte[][] next() throws IOException {
+            final RunReader run = queue.poll();
+            if (run == null) {
+                throw new NoSuchElementException();
+            }
+            final byte[][] record = run.current;
+            run.advance();
+            if (run.current != null) {
+                queue.add(run);
+            }
+            return record;
+        }
+    }
+}
@@ -21,15 +21,18 @@
  * CDDL HEADER END
  *
  *      Copyright 2011-2015 ForgeRock AS.
- *      Portions Copyright 2017 Wren Security.
+ *      Portions Copyright 2017-2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldif;
 
 import static com.forgerock.opendj.ldap.CoreMessages.*;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -47,6 +50,7 @@ import org.forgerock.opendj.ldap.AVA;
 import org.forgerock.opendj.ldap.Attribute;
 import org.forgerock.opendj.ldap.AttributeDescription;
 import org.forgerock.opendj.ldap.Attributes;
+import org.forgerock.opendj.ldap.ByteSequence;
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.forgerock.opendj.ldap.DN;
@@ -68,6 +72,9 @@ import org.forgerock.opendj.ldap.requests.Requests;
 import org.forgerock.opendj.ldap.requests.SearchRequest;
 import org.forgerock.opendj.ldap.schema.AttributeUsage;
 import org.forgerock.opendj.ldap.schema.Schema;
+import org.forgerock.opendj.ldif.ExternalSorter.SortedRecordReader;
+import org.forgerock.util.Option;
+import org.forgerock.util.Options;
 import org.forgerock.util.Utils;
 
 /**
@@ -75,6 +82,39 @@ import org.forgerock.util.Utils;
  * readers and writers.
  */
 public final class LDIF {
+    /** Marks an entry written by a sorted patch at its original DN. */
+    private static final byte PATCHED_ENTRY = 0;
+    /** Marks an entry written by a sorted patch after it has been moved to a new DN. */
+    private static final byte MOVED_ENTRY = 1;
+
+    /**
+     * Specifies the approximate maximum amount of memory in bytes which may be
+     * used for sorting entries and change records when calling
+     * {@link #diff(EntryReader, EntryReader, Options)} or
+     * {@link #patch(EntryReader, ChangeRecordReader, RejectedChangeRecordListener, Options)}.
+     * Records which do not fit will be spilled to temporary files.
+     * <p>
+     * The default value is 128 MB.
+     */
+    public static final Option<Long> SORT_MAX_MEMORY_IN_BYTES = Option.withDefault(128L * 1024 * 1024);
+
+    /**
+     * Specifies the maximum number of sorted runs which may be sorted and
+     * written to temporary files in parallel. The memory limit is shared
+     * between the runs being sorted.
+     * <p>
+     * The default value is 1, meaning that runs are sorted by the calling
+     * thread.
+     */
+    public static final Option<Integer> SORT_PARALLELISM = Option.withDefault(1);
+
+    /**
+     * Specifies the directory where temporary files will be written when
+     * sorting entries and change records. The default value is {@code null},
+     * meaning that the default temporary-file directory will be used.
+     */
+    public static final Option<File> SORT_TEMPORARY_DIRECTORY = Option.of(File.class, null);
+
     // @formatter:off
     private static final class EntryIteratorReader implements EntryReader {
         private final Iterator<Entry> iterator;
@@ -85,6 +125,291 @@ public final class LDIF {
     }
     // @formatter:on
 
+    /**
+     * Applies change records sorted by DN to entries sorted by DN by walking
+     * both in DN order. Subtree deletes and renames remain active until all the
+     * entries within their scope have been visited, and are interleaved with
+     * the changes targeting those entries according to their position in the
+     * patch. Patched entries are written to an external sorter because renamed
+     * entries usually need to be moved elsewhere in the DIT.
+     */
+    private static final class SortedPatch {
+        /** A subtree delete or rename which applies to the entries subordinate to its target. */
+        private static final class SubtreeChange {
+            private final long sequenceNumber;
+            private final byte[] encodedChange;
+            private final byte[] upperBound;
+            private final DN oldDN;
+            /** The new DN of a renamed subtree, or {@code null} for a subtree delete. */
+            private final DN newDN;
+
+            private SubtreeChange(final byte[] encodedChange, final DN oldDN, final DN newDN) {
+                this.sequenceNumber = decodeSequenceNumber(encodedChange);
+                this.encodedChange = encodedChange;
+                this.upperBound = toNormalizedByteArray(oldDN.child(RDN.maxValue()));
+                this.oldDN = oldDN;
+                this.newDN = newDN;
+            }
+        }
+
+        private static final Comparator<SubtreeChange> SEQUENCE_ORDER = new Comparator<SubtreeChange>() {
+            @Override
+            public int compare(final SubtreeChange c1, final SubtreeChange c2) {
+                return Long.compare(c1.sequenceNumber, c2.sequenceNumber);
+            }
+        };
+
+        private final SortedRecordReader entries;
+        private final SortedRecordReader changes;
+        private final ExternalSorter output;
+        private final RejectedChangeRecordListener listener;
+        /** The active subtree changes, each of which is within the scope of its predecessors. */
+        private final List<SubtreeChange> subtreeChanges = new ArrayList<>();
+
+        private SortedPatch(final SortedRecordReader entries, final SortedRecordReader changes,
+                final ExternalSorter output, final RejectedChangeRecordListener listener) {
+            this.entries = entries;
+            this.changes = changes;
+            this.output = output;
+            this.listener = listener;
+        }
+
+        private void apply() throws IOException {
+            while (entries.peek() != null || changes.peek() != null) {
+                final byte[] normDN = nextNormalizedDN();
+                while (!subtreeChanges.isEmpty()
+                        && DN_ORDER.compare(normDN, subtreeChanges.get(subtreeChanges.size() - 1).upperBound) >= 0) {
+                    subtreeChanges.remove(subtreeChanges.size() - 1);
+                }
+
+                // The last entry wins if the input contains duplicates.
+                byte[] encodedEntry = null;
+                while (entries.peek() != null && DN_ORDER.compare(entries.peek()[0], normDN) == 0) {
+                    encodedEntry = entries.next()[1];
+                }
+                final List<byte[]> entryChanges = new ArrayList<>();
+                while (changes.peek() != null && DN_ORDER.compare(changes.peek()[0], normDN) == 0) {
+                    entryChanges.add(changes.next()[1]);
+                }
+
+                if (entryChanges.isEmpty() && subtreeChanges.isEmpty()) {
+                    // Unaffected by the patch, so avoid decoding the entry.
+                    if (encodedEntry != null) {
+                        output.add(new byte[][] { normDN, encodePatchedEntry(encodedEntry) });
+                    }
+                    continue;
+                }
+
+                // Apply the subtree changes and the changes targeting this entry in patch order.
+                final List<SubtreeChange> superiorChanges = new ArrayList<>(subtreeChanges);
+                Collections.sort(superiorChanges, SEQUENCE_ORDER);
+                Entry entry = encodedEntry != null ? decodeEntry(encodedEntry) : null;
+                int i = 0;
+                int j = 0;
+                while (i < superiorChanges.size() || j < entryChanges.size()) {
+                    if (j == entryChanges.size() || (i < superiorChanges.size()
+                            && superiorChanges.get(i).sequenceNumber < decodeSequenceNumber(entryChanges.get(j)))) {
+                        entry = applySubtreeChange(superiorChanges.get(i++), entry);
+                    } else {
+                        entry = applyChange(normDN, entryChanges.get(j++), entry);
+                    }
+                }
+                if (entry != null) {
+                    output.add(new byte[][] { normDN, encodePatchedEntry(encodeEntry(entry)[1]) });
+                }
+            }
+        }
+
+        private byte[] nextNormalizedDN() throws IOException {
+            final byte[][] nextEntry = entries.peek();
+            final byte[][] nextChange = changes.peek();
+            if (nextEntry == null) {
+                return nextChange[0];
+            } else if (nextChange == null || DN_ORDER.compare(nextEntry[0], nextChange[0]) <= 0) {
+                return nextEntry[0];
+            } else {
+                return nextChange[0];
+            }
+        }
+
+        private Entry applySubtreeChange(final SubtreeChange change, final Entry entry) throws IOException {
+            if (entry != null && change.newDN != null) {
+                entry.setName(entry.getName().rename(change.oldDN, change.newDN));
+                move(change.encodedChange, entry);
+            }
+            return null;
+        }
+
+        private Entry applyChange(final byte[] normDN, final byte[] encodedChange, final Entry entry)
+                throws IOException {
+            final ChangeRecord change = decodeChangeRecord(encodedChange);
+            if (change instanceof AddRequest) {
+                return applyAdd(normDN, (AddRequest) change, entry);
+            } else if (change instanceof DeleteRequest) {
+                return applyDelete(encodedChange, (DeleteRequest) change, entry);
+            } else if (change instanceof ModifyDNRequest) {
+                return applyModifyDN(encodedChange, (ModifyDNRequest) change, entry);
+            } else {
+                return applyModify((ModifyRequest) change, entry);
+            }
+        }
+
+        private Entry applyAdd(final byte[] normDN, final AddRequest change, final Entry entry)
+                throws IOException {
+            if (entry == null) {
+                return new LinkedHashMapEntry(change);
+            }
+            final Entry newEntry = listener.handleDuplicateEntry(change, entry);
+            if (DN_ORDER.compare(toNormalizedByteArray(newEntry.getName()), normDN) == 0) {
+                return newEntry;
+            }
+            move(null, newEntry);
+            return entry;
+        }
+
+        private Entry applyDelete(final byte[] encodedChange, final DeleteRequest change, final Entry entry)
+                throws IOException {
+            if (entry == null) {
+                rejectMissingEntry(listener, change);
+                return null;
+            }
+            if (isSubtreeDelete(change)) {
+                subtreeChanges.add(new SubtreeChange(encodedChange, change.getName(), null));
+            }
+            return null;
+        }
+
+        private Entry applyModifyDN(final byte[] encodedChange, final ModifyDNRequest change,
+                final Entry entry) throws IOException {
+            if (entry == null) {
+                rejectMissingEntry(listener, change);
+                return null;
+            }
+
+            final DN oldDN = change.getName();
+            final DN newDN = getNewDN(change);
+            entry.setName(newDN);
+            applyRDNChange(change, oldDN, newDN, entry);
+            move(encodedChange, entry);
+            subtreeChanges.add(new SubtreeChange(encodedChange, oldDN, newDN));
+            return null;
+        }
+
+        private Entry applyModify(final ModifyRequest change, final Entry entry) throws IOException {
+            if (entry == null) {
+                rejectMissingEntry(listener, change);
+                return null;
+            }
+            applyModifications(change, entry);
+            return entry;
+        }
+
+        /**
+         * Writes an entry which has been moved by a change (or by the rejected
+         * change listener if the change is {@code null}) to its new position.
+         */
+        private void move(final byte[] encodedChange, final Entry entry) throws IOException {
+            final byte[][] encodedEntry = encodeEntry(entry);
+            final ByteStringBuilder builder = new ByteStringBuilder();
+            builder.appendByte(MOVED_ENTRY);
+            if (encodedChange != null) {
+                builder.appendInt(encodedChange.length).appendBytes(encodedChange);
+            } else {
+                builder.appendInt(0);
+            }
+            builder.appendBytes(encodedEntry[1]);
+            output.add(new byte[][] { encodedEntry[0], builder.toByteArray() });
+        }
+
+        private static byte[] encodePatchedEntry(final byte[] asn1EntryFormat) {
+            final byte[] value = new byte[asn1EntryFormat.length + 1];
+            value[0] = PATCHED_ENTRY;
+            System.arraycopy(asn1EntryFormat, 0, value, 1, asn1EntryFormat.length);
+            return value;
+        }
+    }
+
+    /**
+     * Reads the entries produced by a {@link SortedPatch}, resolving conflicts
+     * between entries which have been moved to the same DN.
+     */
+    private static final class PatchedEntryReader implements EntryReader {
+        private final SortedRecordReader records;
+        private final RejectedChangeRecordListener listener;
+        private final EntryReader input;
+        private final ChangeRecordReader patch;
+        private Entry nextEntry;
+
+        private PatchedEntryReader(final SortedRecordReader records,
+                final RejectedChangeRecordListener listener, final EntryReader input,
+                final ChangeRecordReader patch) {
+            this.records = records;
+            this.listener = listener;
+            this.input = input;
+            this.patch = patch;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                input.close();
+            } finally {
+                try {
+                    patch.close();
+                } finally {
+                    Utils.closeSilently(records);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            if (nextEntry == null && records.peek() != null) {
+                nextEntry = readNextEntry();
+            }
+            return nextEntry != null;
+        }
+
+        @Override
+        public Entry readEntry() throws IOException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Entry entry = nextEntry;
+            nextEntry = null;
+            return entry;
+        }
+
+        private Entry readNextEntry() throws IOException {
+            final byte[] normDN = records.peek()[0];
+            Entry entry = null;
+            final List<byte[]> movedEntries = new ArrayList<>();
+            while (records.peek() != null && DN_ORDER.compare(records.peek()[0], normDN) == 0) {
+                final byte[] value = records.next()[1];
+                if (value[0] == PATCHED_ENTRY) {
+                    entry = decodeEntry(ByteString.wrap(value, 1, value.length - 1));
+                } else {
+                    movedEntries.add(value);
+                }
+            }
+
+            // Moved entries replace or are merged with the entry already present at their new DN.
+            for (final byte[] value : movedEntries) {
+                final int changeLength = ByteString.wrap(value, 1, 4).toInt();
+                final Entry movedEntry =
+                        decodeEntry(ByteString.wrap(value, 5 + changeLength, value.length - 5 - changeLength));
+                if (entry == null || changeLength == 0) {
+                    entry = movedEntry;
+                } else {
+                    final ModifyDNRequest change = (ModifyDNRequest) decodeChangeRecord(
+                            Arrays.copyOfRange(value, 5, 5 + changeLength));
+                    entry = listener.handleDuplicateEntry(change, entry, movedEntry);
+                }
+            }
+            return entry;
+        }
+    }
+
     /**
      * Comparator ordering the DN ASC.
      */
@@ -99,8 +424,8 @@ public final class LDIF {
      */
     private static final Comparator<byte[]> DN_ORDER = new Comparator<byte[]>() {
         public int compare(byte[] b1, byte[] b2) {
-            final ByteString bs = ByteString.valueOfBytes(b1);
-            final ByteString bs2 = ByteString.valueOfBytes(b2);
+            final ByteString bs = ByteString.wrap(b1);
+            final ByteString bs2 = ByteString.wrap(b2);
             return bs.compareTo(bs2);
         }
     };
@@ -166,22 +491,68 @@ public final class LDIF {
      */
     public static ChangeRecordReader diff(final EntryReader source, final EntryReader target)
             throws IOException {
-
         final List<byte[][]> source2 = readEntriesAsList(source);
         final List<byte[][]> target2 = readEntriesAsList(target);
-        final Iterator<byte[][]> sourceIterator = source2.iterator();
-        final Iterator<byte[][]> targetIterator = target2.iterator();
+        return diff(source, target, ExternalSorter.newListReader(source2),
+                ExternalSorter.newListReader(target2));
+    }
 
+    /**
+     * Compares the content of {@code source} to the content of {@code target}
+     * and returns the differences in a change record reader. Closing the
+     * returned reader will cause {@code source} and {@code target} to be closed
+     * as well.
+     * <p>
+     * Unlike {@link #diff(EntryReader, EntryReader)}, this method sorts the
+     * entries using a bounded amount of memory, spilling sorted runs to
+     * temporary files when the limit defined by
+     * {@link #SORT_MAX_MEMORY_IN_BYTES} is exceeded, and then compares them
+     * by merging the sorted runs. It is therefore suited to comparing files
+     * which are larger than the available heap.
+     *
+     * @param source
+     *            The entry reader containing the source entries to be compared.
+     * @param target
+     *            The entry reader containing the target entries to be compared.
+     * @param options
+     *            The options controlling how entries are sorted, such as
+     *            {@link #SORT_MAX_MEMORY_IN_BYTES}, {@link #SORT_PARALLELISM},
+     *            and {@link #SORT_TEMPORARY_DIRECTORY}.
+     * @return A change record reader containing the differences.
+     * @throws IOException
+     *             If an unexpected IO error occurred.
+     */
+    public static ChangeRecordReader diff(final EntryReader source, final EntryReader target,
+            final Options options) throws IOException {
+        final ExternalSorter sourceSorter = newSorter(options, 2);
+        final ExternalSorter targetSorter = newSorter(options, 2);
+        try {
+            final SortedRecordReader sourceRecords = sortEntries(source, sourceSorter);
+            final SortedRecordReader targetRecords = sortEntries(target, targetSorter);
+            return diff(source, target, sourceRecords, targetRecords);
+        } catch (final IOException | RuntimeException e) {
+            Utils.closeSilently(sourceSorter, targetSorter);
+            throw e;
+        }
+    }
+
+    private static ChangeRecordReader diff(final EntryReader source, final EntryReader target,
+            final SortedRecordReader sourceRecords, final SortedRecordReader targetRecords)
+            throws IOException {
         return new ChangeRecordReader() {
-            private Entry sourceEntry = nextEntry(sourceIterator);
-            private Entry targetEntry = nextEntry(targetIterator);
+            private Entry sourceEntry = nextEntry(sourceRecords);
+            private Entry targetEntry = nextEntry(targetRecords);
 
             @Override
             public void close() throws IOException {
                 try {
                     source.close();
                 } finally {
-                    target.close();
+                    try {
+                        target.close();
+                    } finally {
+                        Utils.closeSilently(sourceRecords, targetRecords);
+                    }
                 }
             }
 
@@ -201,39 +572,39 @@ public final class LDIF {
                         // Modify record: entry in both source and target.
                         final ModifyRequest request =
                                 Requests.newModifyRequest(sourceEntry, targetEntry);
-                        sourceEntry = nextEntry(sourceIterator);
-                        targetEntry = nextEntry(targetIterator);
+                        sourceEntry = nextEntry(sourceRecords);
+                        targetEntry = nextEntry(targetRecords);
                         return request;
                     } else if (cmp < 0) {
                         // Delete record: entry in source but not in target.
                         final DeleteRequest request =
                                 Requests.newDeleteRequest(sourceEntry.getName());
-                        sourceEntry = nextEntry(sourceIterator);
+                        sourceEntry = nextEntry(sourceRecords);
                         return request;
                     } else {
                         // Add record: entry in target but not in source.
                         final AddRequest request = Requests.newAddRequest(targetEntry);
-                        targetEntry = nextEntry(targetIterator);
+                        targetEntry = nextEntry(targetRecords);
                         return request;
                     }
                 } else if (sourceEntry != null) {
                     // Delete remaining source records.
                     final DeleteRequest request = Requests.newDeleteRequest(sourceEntry.getName());
-                    sourceEntry = nextEntry(sourceIterator);
+                    sourceEntry = nextEntry(sourceRecords);
                     return request;
                 } else if (targetEntry != null) {
                     // Add remaining target records.
                     final AddRequest request = Requests.newAddRequest(targetEntry);
-                    targetEntry = nextEntry(targetIterator);
+                    targetEntry = nextEntry(targetRecords);
                     return request;
                 } else {
                     throw new NoSuchElementException();
                 }
             }
 
-            private Entry nextEntry(final Iterator<byte[][]> i) {
-                if (i.hasNext()) {
-                    return decodeEntry(i.next()[1]);
+            private Entry nextEntry(final SortedRecordReader records) throws IOException {
+                if (records.peek() != null) {
+                    return decodeEntry(records.next()[1]);
                 }
                 return null;
             }
@@ -479,16 +850,13 @@ public final class LDIF {
                                 final DeleteRequest change) {
                             if (entries.get(changeNormDN) == null) {
                                 try {
-                                    listener.handleRejectedChangeRecord(change,
-                                            REJECTED_CHANGE_FAIL_DELETE.get(change.getName()
-                                                    .toString()));
+                                    rejectMissingEntry(listener, change);
                                 } catch (final DecodeException e) {
                                     return e;
                                 }
                             } else {
                                 try {
-                                    if (change.getControl(SubtreeDeleteRequestControl.DECODER,
-                                            new DecodeOptions()) != null) {
+                                    if (isSubtreeDelete(change)) {
                                         entries.subMap(
                                             toNormalizedByteArray(change.getName()),
                                             toNormalizedByteArray(change.getName().child(RDN.maxValue()))).clear();
@@ -508,24 +876,14 @@ public final class LDIF {
                                 final ModifyDNRequest change) {
                             if (entries.get(changeNormDN) == null) {
                                 try {
-                                    listener.handleRejectedChangeRecord(change,
-                                            REJECTED_CHANGE_FAIL_MODIFYDN.get(change.getName()
-                                                    .toString()));
+                                    rejectMissingEntry(listener, change);
                                 } catch (final DecodeException e) {
                                     return e;
                                 }
                             } else {
                                 // Calculate the old and new DN.
                                 final DN oldDN = changeDN;
-
-                                DN newSuperior = change.getNewSuperior();
-                                if (newSuperior == null) {
-                                    newSuperior = change.getName().parent();
-                                    if (newSuperior == null) {
-                                        newSuperior = DN.rootDN();
-                                    }
-                                }
-                                final DN newDN = newSuperior.child(change.getNewRDN());
+                                final DN newDN = getNewDN(change);
 
                                 // Move the renamed entries into a separate map
                                 // in order to avoid cases where the renamed subtree overlaps.
@@ -550,14 +908,7 @@ public final class LDIF {
                                 final Entry targetEntry =
                                         decodeEntry(renamedEntries.values().iterator().next());
 
-                                if (change.isDeleteOldRDN()) {
-                                    for (final AVA ava : oldDN.rdn()) {
-                                        targetEntry.removeAttribute(ava.toAttribute(), null);
-                                    }
-                                }
-                                for (final AVA ava : newDN.rdn()) {
-                                    targetEntry.addAttribute(ava.toAttribute());
-                                }
+                                applyRDNChange(change, oldDN, newDN, targetEntry);
 
                                 renamedEntries.remove(toNormalizedByteArray(targetEntry.getName()));
                                 renamedEntries.put(toNormalizedByteArray(targetEntry.getName()),
@@ -595,29 +946,13 @@ public final class LDIF {
                                 final ModifyRequest change) {
                             if (entries.get(changeNormDN) == null) {
                                 try {
-                                    listener.handleRejectedChangeRecord(change,
-                                            REJECTED_CHANGE_FAIL_MODIFY.get(change.getName()
-                                                    .toString()));
+                                    rejectMissingEntry(listener, change);
                                 } catch (final DecodeException e) {
                                     return e;
                                 }
                             } else {
                                 final Entry entry = decodeEntry(entries.get(changeNormDN));
-                                for (final Modification modification : change.getModifications()) {
-                                    final ModificationType modType =
-                                            modification.getModificationType();
-                                    if (modType.equals(ModificationType.ADD)) {
-                                        entry.addAttribute(modification.getAttribute(), null);
-                                    } else if (modType.equals(ModificationType.DELETE)) {
-                                        entry.removeAttribute(modification.getAttribute(), null);
-                                    } else if (modType.equals(ModificationType.REPLACE)) {
-                                        entry.replaceAttribute(modification.getAttribute());
-                                    } else {
-                                        System.err.println("Unable to apply \"" + modType
-                                                + "\" modification to entry \"" + change.getName()
-                                                + "\": modification type not supported");
-                                    }
-                                }
+                                applyModifications(change, entry);
                                 entries.put(changeNormDN, encodeEntry(entry)[1]);
                             }
                             return null;
@@ -654,6 +989,73 @@ public final class LDIF {
         };
     }
 
+    /**
+     * Applies the set of changes contained in {@code patch} to the content of
+     * {@code input} and returns the result in an entry reader. Closing the
+     * returned reader will cause {@code input} and {@code patch} to be closed
+     * as well.
+     * <p>
+     * Unlike {@link #patch(EntryReader, ChangeRecordReader, RejectedChangeRecordListener)},
+     * this method does not read the content of {@code input} into memory.
+     * Instead, the entries and the change records are both sorted by DN using a
+     * bounded amount of memory, spilling sorted runs to temporary files when
+     * the limit defined by {@link #SORT_MAX_MEMORY_IN_BYTES} is exceeded, and
+     * the changes are then applied by merging the two sorted streams. It is
+     * therefore suited to patching files which are larger than the available
+     * heap.
+     * <p>
+     * Changes targeting the same entry are applied in the order in which they
+     * appear in {@code patch}, as are subtree deletes and renames relative to
+     * changes targeting their subordinate entries. However, changes targeting
+     * the new name of an entry which has been renamed by a previous change in
+     * {@code patch} will be rejected as if the entry did not exist.
+     * <p>
+     * <b>NOTE:</b> this method will not perform modifications required in order
+     * to maintain referential integrity. In particular, if an entry references
+     * another entry using a DN valued attribute and the referenced entry is
+     * deleted, then the DN reference will not be removed. The same applies to
+     * renamed entries and their references.
+     *
+     * @param input
+     *            The entry reader containing the set of entries to be patched.
+     * @param patch
+     *            The change record reader containing the set of changes to be
+     *            applied.
+     * @param listener
+     *            The rejected change listener.
+     * @param options
+     *            The options controlling how entries and change records are
+     *            sorted, such as {@link #SORT_MAX_MEMORY_IN_BYTES},
+     *            {@link #SORT_PARALLELISM}, and
+     *            {@link #SORT_TEMPORARY_DIRECTORY}.
+     * @return An entry reader containing the patched entries.
+     * @throws IOException
+     *             If an unexpected IO error occurred.
+     */
+    public static EntryReader patch(final EntryReader input, final ChangeRecordReader patch,
+            final RejectedChangeRecordListener listener, final Options options) throws IOException {
+        final ExternalSorter changeSorter = newSorter(options, 3);
+        final ExternalSorter entrySorter = newSorter(options, 3);
+        final ExternalSorter outputSorter = newSorter(options, 3);
+        try {
+            long sequenceNumber = 0;
+            while (patch.hasNext()) {
+                final ChangeRecord change = patch.readChangeRecord();
+                changeSorter.add(new byte[][] { toNormalizedByteArray(change.getName()),
+                    encodeChangeRecord(sequenceNumber++, change) });
+            }
+            final SortedRecordReader changes = changeSorter.sort();
+            final SortedRecordReader entries = sortEntries(input, entrySorter);
+            new SortedPatch(entries, changes, outputSorter, listener).apply();
+            changeSorter.close();
+            entrySorter.close();
+            return new PatchedEntryReader(outputSorter.sort(), listener, input, patch);
+        } catch (final IOException | RuntimeException e) {
+            Utils.closeSilently(changeSorter, entrySorter, outputSorter);
+            throw e;
+        }
+    }
+
     /**
      * Returns a filtered view of {@code input} containing only those entries
      * which match the search base DN, scope, and filtered defined in
@@ -797,6 +1199,19 @@ public final class LDIF {
         };
     }
 
+    private static ExternalSorter newSorter(final Options options, final int sorterCount) {
+        return new ExternalSorter(DN_ORDER2, options.get(SORT_MAX_MEMORY_IN_BYTES) / sorterCount,
+                options.get(SORT_PARALLELISM), options.get(SORT_TEMPORARY_DIRECTORY));
+    }
+
+    private static SortedRecordReader sortEntries(final EntryReader reader, final ExternalSorter sorter)
+            throws IOException {
+        while (reader.hasNext()) {
+            sorter.add(encodeEntry(reader.readEntry()));
+        }
+        return sorter.sort();
+    }
+
     private static List<byte[][]> readEntriesAsList(final EntryReader reader) throws IOException {
         final List<byte[][]> entries = new ArrayList<>();
 
@@ -824,6 +1239,10 @@ public final class LDIF {
     }
 
     private static Entry decodeEntry(final byte[] asn1EntryFormat) {
+        return decodeEntry(ByteString.wrap(asn1EntryFormat));
+    }
+
+    private static Entry decodeEntry(final ByteSequence asn1EntryFormat) {
         try {
             return LDAP.readEntry(ASN1.getReader(asn1EntryFormat), new DecodeOptions());
         } catch (IOException ex) {
@@ -850,7 +1269,101 @@ public final class LDIF {
         }
     }
 
+    /**
+     * Encodes a change record as its sequence number followed by its LDIF
+     * representation, so that it can be sorted by DN and then applied in its
+     * original order.
+     */
+    private static byte[] encodeChangeRecord(final long sequenceNumber, final ChangeRecord change)
+            throws IOException {
+        final List<String> ldifLines = new ArrayList<>();
+        final LDIFChangeRecordWriter writer = new LDIFChangeRecordWriter(ldifLines);
+        writer.writeChangeRecord(change);
+        writer.close();
+
+        final ByteStringBuilder builder = new ByteStringBuilder();
+        builder.appendLong(sequenceNumber);
+        for (final String ldifLine : ldifLines) {
+            builder.appendUtf8(ldifLine).appendByte('\n');
+        }
+        return builder.toByteArray();
+    }
+
+    private static long decodeSequenceNumber(final byte[] encodedChangeRecord) {
+        return ByteString.wrap(encodedChangeRecord, 0, 8).toLong();
+    }
+
+    private static ChangeRecord decodeChangeRecord(final byte[] encodedChangeRecord) throws IOException {
+        final String ldif =
+                new String(encodedChangeRecord, 8, encodedChangeRecord.length - 8, StandardCharsets.UTF_8);
+        try (LDIFChangeRecordReader reader = new LDIFChangeRecordReader(ldif.split("\n"))) {
+            return reader.readChangeRecord();
+        }
+    }
+
     /** Prevent instantiation. */
+    /** Applies the modifications of a change record to the entry it targets. */
+    private static void applyModifications(final ModifyRequest change, final Entry entry) {
+        for (final Modification modification : change.getModifications()) {
+            final ModificationType modType = modification.getModificationType();
+            if (modType.equals(ModificationType.ADD)) {
+                entry.addAttribute(modification.getAttribute(), null);
+            } else if (modType.equals(ModificationType.DELETE)) {
+                entry.removeAttribute(modification.getAttribute(), null);
+            } else if (modType.equals(ModificationType.REPLACE)) {
+                entry.replaceAttribute(modification.getAttribute());
+            } else {
+                System.err.println("Unable to apply \"" + modType
+                        + "\" modification to entry \"" + change.getName()
+                        + "\": modification type not supported");
+            }
+        }
+    }
+
+    /** Updates the RDN attributes of an entry renamed by a modify DN change record. */
+    private static void applyRDNChange(final ModifyDNRequest change, final DN oldDN, final DN newDN,
+            final Entry entry) {
+        if (change.isDeleteOldRDN()) {
+            for (final AVA ava : oldDN.rdn()) {
+                entry.removeAttribute(ava.toAttribute(), null);
+            }
+        }
+        for (final AVA ava : newDN.rdn()) {
+            entry.addAttribute(ava.toAttribute());
+        }
+    }
+
+    /** Returns the name of the entry renamed by a modify DN change record. */
+    private static DN getNewDN(final ModifyDNRequest change) {
+        DN newSuperior = change.getNewSuperior();
+        if (newSuperior == null) {
+            newSuperior = change.getName().parent();
+            if (newSuperior == null) {
+                newSuperior = DN.rootDN();
+            }
+        }
+        return newSuperior.child(change.getNewRDN());
+    }
+
+    private static boolean isSubtreeDelete(final DeleteRequest change) throws DecodeException {
+        return change.getControl(SubtreeDeleteRequestControl.DECODER, new DecodeOptions()) != null;
+    }
+
+    private static void rejectMissingEntry(final RejectedChangeRecordListener listener, final DeleteRequest change)
+            throws DecodeException {
+        listener.handleRejectedChangeRecord(change, REJECTED_CHANGE_FAIL_DELETE.get(change.getName().toString()));
+    }
+
+    private static void rejectMissingEntry(final RejectedChangeRecordListener listener,
+            final ModifyDNRequest change) throws DecodeException {
+        listener.handleRejectedChangeRecord(change, REJECTED_CHANGE_FAIL_MODIFYDN.get(change.getName().toString()));
+    }
+
+    private static void rejectMissingEntry(final RejectedChangeRecordListener listener, final ModifyRequest change)
+            throws DecodeException {
+        listener.handleRejectedChangeRecord(change, REJECTED_CHANGE_FAIL_MODIFY.get(change.getName().toString()));
+    }
+
     private LDIF() {
         // Do nothing.
     }
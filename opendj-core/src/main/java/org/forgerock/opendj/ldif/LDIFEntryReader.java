@@ -23,6 +23,7 @@
  *
  *      Copyright 2009-2010 Sun Microsystems, Inc.
  *      Portions copyright 2011-2015 ForgeRock AS
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldif;
@@ -31,11 +32,24 @@ import static com.forgerock.opendj.ldap.CoreMessages.*;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.LocalizedIllegalArgumentException;
@@ -107,7 +121,224 @@ public final class LDIFEntryReader extends AbstractLDIFReader implements EntryRe
         }
     }
 
+    /** The number of LDIF records decoded by each parallel decoding task. */
+    private static final int DECODING_BATCH_SIZE = 128;
+
+    /**
+     * A rejected record notification made while decoding a record in parallel,
+     * which is replayed against the rejected record listener by the thread
+     * reading entries.
+     */
+    private abstract static class Rejection {
+        abstract void replay(RejectedLDIFListener listener) throws DecodeException;
+    }
+
+    /** Records rejected record notifications so that they can be replayed in order. */
+    private static final class RecordingListener implements RejectedLDIFListener {
+        private final List<Rejection> rejections = new ArrayList<>(1);
+        private boolean isMalformed;
+
+        @Override
+        public void handleMalformedRecord(final long lineNumber, final List<String> lines,
+                final LocalizableMessage reason) {
+            isMalformed = true;
+            rejections.add(new Rejection() {
+                @Override
+                void replay(final RejectedLDIFListener listener) throws DecodeException {
+                    listener.handleMalformedRecord(lineNumber, lines, reason);
+                }
+            });
+        }
+
+        @Override
+        public void handleSchemaValidationFailure(final long lineNumber, final List<String> lines,
+                final List<LocalizableMessage> reasons) {
+            rejections.add(new Rejection() {
+                @Override
+                void replay(final RejectedLDIFListener listener) throws DecodeException {
+                    listener.handleSchemaValidationFailure(lineNumber, lines, reasons);
+                }
+            });
+        }
+
+        @Override
+        public void handleSchemaValidationWarning(final long lineNumber, final List<String> lines,
+                final List<LocalizableMessage> reasons) {
+            rejections.add(new Rejection() {
+                @Override
+                void replay(final RejectedLDIFListener listener) throws DecodeException {
+                    listener.handleSchemaValidationWarning(lineNumber, lines, reasons);
+                }
+            });
+        }
+
+        @Override
+        public void handleSkippedRecord(final long lineNumber, final List<String> lines,
+                final LocalizableMessage reason) {
+            rejections.add(new Rejection() {
+                @Override
+                void replay(final RejectedLDIFListener listener) throws DecodeException {
+                    listener.handleSkippedRecord(lineNumber, lines, reason);
+                }
+            });
+        }
+    }
+
+    /** The outcome of decoding a record in parallel. */
+    private static final class DecodedRecord {
+        private final LDIFRecord record;
+        private final Entry entry;
+        private final List<Rejection> rejections;
+        private final boolean isMalformed;
+
+        private DecodedRecord(final LDIFRecord record, final Entry entry, final RecordingListener recorder) {
+            this.record = record;
+            this.entry = entry;
+            this.rejections = recorder.rejections;
+            this.isMalformed = recorder.isMalformed;
+        }
+
+        /**
+         * Notifies the listener of any rejections and returns the entry, or
+         * {@code null} if it was rejected. A listener which throws a
+         * {@code DecodeException} for anything other than a malformed record
+         * causes the record to be treated as malformed, in the same way as
+         * when decoding sequentially.
+         */
+        private Entry deliver(final RejectedLDIFListener listener) throws DecodeException {
+            for (final Rejection rejection : rejections) {
+                try {
+                    rejection.replay(listener);
+                } catch (final DecodeException e) {
+                    if (isMalformed) {
+                        throw e;
+                    }
+                    listener.handleMalformedRecord(record.lineNumber, record.ldifLines, e.getMessageObject());
+                    return null;
+                }
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Reads LDIF records on the calling thread and decodes them in batches
+     * using a pool of threads, keeping a bounded number of batches in flight.
+     */
+    private final class ParallelDecoder {
+        private final ExecutorService executor;
+        /** Batches in submission order, used when the entry order is preserved. */
+        private final Deque<Future<List<DecodedRecord>>> orderedBatches = new ArrayDeque<>();
+        /** Batches in completion order, used when the entry order is not preserved. */
+        private final CompletionService<List<DecodedRecord>> unorderedBatches;
+        private final int maxPendingBatches;
+        private int pendingBatches;
+        private Iterator<DecodedRecord> currentBatch = Collections.<DecodedRecord> emptyList().iterator();
+        private IOException readException;
+        private boolean isEndOfInput;
+
+        private ParallelDecoder() {
+            this.executor = Executors.newFixedThreadPool(decodingThreads,
+                    Utils.newThreadFactory(null, "OpenDJ LDIF Entry Decoder", true));
+            this.unorderedBatches = preserveEntryOrder ? null
+                    : new ExecutorCompletionService<List<DecodedRecord>>(executor);
+            this.maxPendingBatches = decodingThreads * 2;
+        }
+
+        private Entry nextEntry() throws IOException {
+            while (true) {
+                while (currentBatch.hasNext()) {
+                    final Entry entry = currentBatch.next().deliver(rejectedRecordListener);
+                    if (entry != null) {
+                        return entry;
+                    }
+                }
+                submitBatches();
+                if (pendingBatches == 0) {
+                    if (readException != null) {
+                        // Report read errors once all the preceding records have been returned.
+                        final IOException e = readException;
+                        readException = null;
+                        throw e;
+                    }
+                    return EOF;
+                }
+                currentBatch = takeBatch().iterator();
+            }
+        }
+
+        private void submitBatches() {
+            while (!isEndOfInput && pendingBatches < maxPendingBatches) {
+                final List<LDIFRecord> records = new ArrayList<>(DECODING_BATCH_SIZE);
+                try {
+                    while (records.size() < DECODING_BATCH_SIZE) {
+                        final LDIFRecord record = readLDIFRecord();
+                        if (record == null) {
+                            isEndOfInput = true;
+                            break;
+                        }
+                        records.add(record);
+                    }
+                } catch (final IOException e) {
+                    readException = e;
+                    isEndOfInput = true;
+                }
+                if (records.isEmpty()) {
+                    break;
+                }
+
+                final Callable<List<DecodedRecord>> task = new Callable<List<DecodedRecord>>() {
+                    @Override
+                    public List<DecodedRecord> call() throws DecodeException {
+                        final List<DecodedRecord> decodedRecords = new ArrayList<>(records.size());
+                        for (final LDIFRecord record : records) {
+                            final RecordingListener recorder = new RecordingListener();
+                            final Entry entry = decodeEntry(record, recorder);
+                            decodedRecords.add(new DecodedRecord(record, entry, recorder));
+                        }
+                        return decodedRecords;
+                    }
+                };
+                if (unorderedBatches != null) {
+                    unorderedBatches.submit(task);
+                } else {
+                    orderedBatches.add(executor.submit(task));
+                }
+                pendingBatches++;
+            }
+        }
+
+        private List<DecodedRecord> takeBatch() throws IOException {
+            try {
+                final Future<List<DecodedRecord>> batch =
+                        unorderedBatches != null ? unorderedBatches.take() : orderedBatches.removeFirst();
+                pendingBatches--;
+                return batch.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (final ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+
+        private void close() {
+            executor.shutdownNow();
+        }
+    }
+
     private Entry nextEntry;
+    private int decodingThreads = 1;
+    private boolean preserveEntryOrder = true;
+    private ParallelDecoder parallelDecoder;
 
     /**
      * Creates a new LDIF entry reader whose source is the provided input
@@ -164,6 +395,9 @@ public final class LDIFEntryReader extends AbstractLDIFReader implements EntryRe
     /** {@inheritDoc} */
     @Override
     public void close() throws IOException {
+        if (parallelDecoder != null) {
+            parallelDecoder.close();
+        }
         close0();
     }
 
@@ -196,6 +430,51 @@ public final class LDIFEntryReader extends AbstractLDIFReader implements EntryRe
         return entry;
     }
 
+    /**
+     * Specifies the number of threads which should be used for decoding
+     * entries. By default entries are decoded by the thread calling
+     * {@link #hasNext()} or {@link #readEntry()}. When more than one thread is
+     * specified, LDIF records are still read sequentially by the calling
+     * thread, but are decoded in batches by a pool of threads which is released
+     * when this reader is closed. The rejected record listener is always
+     * invoked by the calling thread, in the order in which the rejected records
+     * are returned.
+     * <p>
+     * This method, as well as the methods used for configuring the decoding
+     * of entries, must not be called once entries have been read.
+     *
+     * @param threads
+     *            The number of threads which should be used for decoding
+     *            entries.
+     * @return A reference to this {@code LDIFEntryReader}.
+     * @throws IllegalArgumentException
+     *             If {@code threads} is less than one.
+     * @see #setPreserveEntryOrder(boolean)
+     */
+    public LDIFEntryReader setDecodingThreads(final int threads) {
+        Reject.ifTrue(threads < 1, "The number of decoding threads must be greater than zero");
+        this.decodingThreads = threads;
+        return this;
+    }
+
+    /**
+     * Specifies whether or not entries decoded using multiple threads should be
+     * returned in the order in which they appear in the LDIF. When the order is
+     * not preserved, batches of entries are returned as soon as they have been
+     * decoded, so that a batch which is slow to decode does not hold up the
+     * others. The default is {@code true}.
+     *
+     * @param preserveEntryOrder
+     *            {@code true} if entries should be returned in LDIF order, or
+     *            {@code false} if they may be returned in any order.
+     * @return A reference to this {@code LDIFEntryReader}.
+     * @see #setDecodingThreads(int)
+     */
+    public LDIFEntryReader setPreserveEntryOrder(final boolean preserveEntryOrder) {
+        this.preserveEntryOrder = preserveEntryOrder;
+        return this;
+    }
+
     /**
      * Specifies whether or not all operational attributes should be excluded
      * from any entries that are read from LDIF. The default is {@code false}.
@@ -366,6 +645,12 @@ public final class LDIFEntryReader extends AbstractLDIFReader implements EntryRe
     }
 
     private Entry getNextEntry() throws DecodeException, IOException {
+        if (nextEntry == null && decodingThreads > 1) {
+            if (parallelDecoder == null) {
+                parallelDecoder = new ParallelDecoder();
+            }
+            nextEntry = parallelDecoder.nextEntry();
+        }
         while (nextEntry == null) {
             // Read the set of lines that make up the next entry.
             final LDIFRecord record = readLDIFRecord();
@@ -373,68 +658,74 @@ public final class LDIFEntryReader extends AbstractLDIFReader implements EntryRe
                 nextEntry = EOF;
                 break;
             }
+            nextEntry = decodeEntry(record, rejectedRecordListener);
+        }
 
-            try {
-                /*
-                 * Read the DN of the entry and see if it is one that should be
-                 * included in the import.
-                 */
-                final DN entryDN = readLDIFRecordDN(record);
-                if (entryDN == null) {
-                    // Skip version record.
-                    continue;
-                }
-
-                // Skip if branch containing the entry DN is excluded.
-                if (isBranchExcluded(entryDN)) {
-                    final LocalizableMessage message =
-                            ERR_LDIF_ENTRY_EXCLUDED_BY_DN
-                                    .get(record.lineNumber, entryDN.toString());
-                    handleSkippedRecord(record, message);
-                    continue;
-                }
+        return nextEntry;
+    }
 
-                // Use an Entry for the AttributeSequence.
-                final Entry entry = new LinkedHashMapEntry(entryDN);
-                boolean schemaValidationFailure = false;
-                final List<LocalizableMessage> schemaErrors = new LinkedList<>();
-                while (record.iterator.hasNext()) {
-                    final String ldifLine = record.iterator.next();
-                    if (!readLDIFRecordAttributeValue(record, ldifLine, entry, schemaErrors)) {
-                        schemaValidationFailure = true;
-                    }
-                }
+    /**
+     * Decodes the provided LDIF record, returning {@code null} if it was a
+     * version record or if it was rejected.
+     */
+    private Entry decodeEntry(final LDIFRecord record, final RejectedLDIFListener listener)
+            throws DecodeException {
+        try {
+            /*
+             * Read the DN of the entry and see if it is one that should be
+             * included in the import.
+             */
+            final DN entryDN = readLDIFRecordDN(record);
+            if (entryDN == null) {
+                // Skip version record.
+                return null;
+            }
 
-                // Skip if the entry is excluded by any filters.
-                if (isEntryExcluded(entry)) {
-                    final LocalizableMessage message =
-                            ERR_LDIF_ENTRY_EXCLUDED_BY_FILTER.get(record.lineNumber, entryDN
-                                    .toString());
-                    handleSkippedRecord(record, message);
-                    continue;
-                }
+            // Skip if branch containing the entry DN is excluded.
+            if (isBranchExcluded(entryDN)) {
+                final LocalizableMessage message =
+                        ERR_LDIF_ENTRY_EXCLUDED_BY_DN.get(record.lineNumber, entryDN.toString());
+                listener.handleSkippedRecord(record.lineNumber, record.ldifLines, message);
+                return null;
+            }
 
-                if (!schema.validateEntry(entry, schemaValidationPolicy, schemaErrors)) {
+            // Use an Entry for the AttributeSequence.
+            final Entry entry = new LinkedHashMapEntry(entryDN);
+            boolean schemaValidationFailure = false;
+            final List<LocalizableMessage> schemaErrors = new LinkedList<>();
+            while (record.iterator.hasNext()) {
+                final String ldifLine = record.iterator.next();
+                if (!readLDIFRecordAttributeValue(record, ldifLine, entry, schemaErrors)) {
                     schemaValidationFailure = true;
                 }
+            }
 
-                if (schemaValidationFailure) {
-                    handleSchemaValidationFailure(record, schemaErrors);
-                    continue;
-                }
+            // Skip if the entry is excluded by any filters.
+            if (isEntryExcluded(entry)) {
+                final LocalizableMessage message =
+                        ERR_LDIF_ENTRY_EXCLUDED_BY_FILTER.get(record.lineNumber, entryDN.toString());
+                listener.handleSkippedRecord(record.lineNumber, record.ldifLines, message);
+                return null;
+            }
 
-                if (!schemaErrors.isEmpty()) {
-                    handleSchemaValidationWarning(record, schemaErrors);
-                }
+            if (!schema.validateEntry(entry, schemaValidationPolicy, schemaErrors)) {
+                schemaValidationFailure = true;
+            }
 
-                nextEntry = entry;
-            } catch (final DecodeException e) {
-                handleMalformedRecord(record, e.getMessageObject());
-                continue;
+            if (schemaValidationFailure) {
+                listener.handleSchemaValidationFailure(record.lineNumber, record.ldifLines, schemaErrors);
+                return null;
             }
-        }
 
-        return nextEntry;
+            if (!schemaErrors.isEmpty()) {
+                listener.handleSchemaValidationWarning(record.lineNumber, record.ldifLines, schemaErrors);
+            }
+
+            return entry;
+        } catch (final DecodeException e) {
+            listener.handleMalformedRecord(record.lineNumber, record.ldifLines, e.getMessageObject());
+            return null;
+        }
     }
 
 }
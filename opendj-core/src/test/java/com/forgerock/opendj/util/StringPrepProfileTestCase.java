@@ -23,6 +23,7 @@
  *
  *      Copyright 2010 Sun Microsystems, Inc.
  *      Portions Copyright 2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package com.forgerock.opendj.util;
@@ -31,6 +32,7 @@ import static org.testng.Assert.assertEquals;
 
 import org.forgerock.opendj.ldap.Assertion;
 import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.forgerock.opendj.ldap.ConditionResult;
 import org.forgerock.opendj.ldap.schema.MatchingRule;
 import org.forgerock.opendj.ldap.schema.Schema;
@@ -100,4 +102,32 @@ public class StringPrepProfileTestCase extends UtilTestCase {
             { "foo\u017Bbar", "foo\u017Cbar", ConditionResult.TRUE },
             { "foo\u017BBAR", "foo\u017Cbar", ConditionResult.TRUE }, };
     }
+
+    /**
+     * Tests that preparing a value into a byte string builder produces the
+     * UTF-8 encoding of the string prepared form.
+     */
+    @Test(dataProvider = "prepareData")
+    public void testPrepareUnicodeToByteStringBuilder(final String value) throws Exception {
+        final ByteString sequence = ByteString.valueOfUtf8(value);
+        for (final boolean trim : new boolean[] { true, false }) {
+            for (final boolean foldCase : new boolean[] { true, false }) {
+                final StringBuilder expected = new StringBuilder();
+                StringPrepProfile.prepareUnicode(expected, sequence, trim, foldCase);
+
+                final ByteStringBuilder builder = new ByteStringBuilder().appendUtf8("prefix");
+                StringPrepProfile.prepareUnicode(builder, sequence, trim, foldCase);
+                assertEquals(builder.toByteString(), ByteString.valueOfUtf8("prefix" + expected));
+            }
+        }
+    }
+
+    /** Generates values for comparing both string preparation methods. */
+    @DataProvider(name = "prepareData")
+    public Object[][] createPrepareData() {
+        return new Object[][] { { "" }, { " " }, { "   " }, { "\u0009" }, { "ABC45678" },
+            { "  foo  BAR  " }, { "foo\u000B\u000Cbar\u000D" }, { "\u0001foo\u001F\u007Fbar\u0000" },
+            { " \u0009 a" }, { "a \u0009 " }, { "foo\u00ADBAR " }, { "  Foo \u017B BAR  " },
+            { "test\u200D " }, { "\u00C9T\u00C9" }, };
+    }
 }
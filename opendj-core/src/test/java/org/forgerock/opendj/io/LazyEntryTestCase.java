@@ -0,0 +1,142 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.io;
+
+import static org.fest.assertions.Assertions.*;
+
+import org.forgerock.opendj.ldap.AttributeDescription;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DecodeException;
+import org.forgerock.opendj.ldap.DecodeOptions;
+import org.forgerock.opendj.ldap.Entry;
+import org.forgerock.opendj.ldap.LinkedHashMapEntry;
+import org.forgerock.opendj.ldap.SdkTestCase;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class LazyEntryTestCase extends SdkTestCase {
+    private static final Entry ENTRY = new LinkedHashMapEntry(
+            "dn: uid=bjensen,ou=people,dc=example,dc=com",
+            "objectClass: top",
+            "objectClass: person",
+            "uid: bjensen",
+            "cn: Barbara Jensen",
+            "cn: Babs Jensen",
+            "sn: Jensen");
+
+    @Test
+    public void testLazyEntryIsEqualToEagerEntry() throws Exception {
+        final Entry entry = readEntry(ENTRY);
+        assertThat(entry).isInstanceOf(LazyEntry.class);
+        assertThat(entry.getName()).isEqualTo(ENTRY.getName());
+        assertThat(entry.getAttributeCount()).isEqualTo(4);
+        assertThat(entry).isEqualTo(ENTRY);
+    }
+
+    @Test
+    public void testGetAttributeDecodesOnlyRequestedAttribute() throws Exception {
+        final Entry entry = readEntry(ENTRY);
+        assertThat(entry.getAttribute("commonName")).isEqualTo(ENTRY.getAttribute("cn"));
+        assertThat(entry.parseAttribute("sn").asString()).isEqualTo("Jensen");
+        assertThat(entry.getAttribute("description")).isNull();
+        assertThat(entry.getAttribute(AttributeDescription.valueOf("cn;lang-fr"))).isNull();
+    }
+
+    @Test
+    public void testModifyLazyEntry() throws Exception {
+        final Entry entry = readEntry(ENTRY);
+        entry.getAttribute("cn").add(ByteString.valueOfUtf8("BJ"));
+        entry.addAttribute("description", "modified");
+        entry.removeAttribute("sn");
+
+        assertThat(entry.getAttributeCount()).isEqualTo(4);
+        assertThat(entry.getAttribute("cn")).hasSize(3);
+        assertThat(entry.parseAttribute("description").asString()).isEqualTo("modified");
+        assertThat(entry.getAttribute("sn")).isNull();
+    }
+
+    @Test
+    public void testLazyDecodingIsDisabledByDefault() throws Exception {
+        final Entry entry = readEntry(ENTRY, new DecodeOptions());
+        assertThat(entry).isInstanceOf(LinkedHashMapEntry.class);
+        assertThat(entry).isEqualTo(ENTRY);
+    }
+
+    @Test
+    public void testGetAttributeDoesNotParseOtherAttributeDescriptions() throws Exception {
+        final ByteStringBuilder builder = new ByteStringBuilder();
+        final ASN1Writer writer = ASN1.getWriter(builder);
+        writer.writeStartSequence(LDAP.OP_TYPE_SEARCH_RESULT_ENTRY);
+        writer.writeOctetString("dc=example,dc=com");
+        writer.writeStartSequence();
+        writeAttribute(writer, "cn", "first");
+        writeAttribute(writer, "invalid description!", "ignored");
+        writeAttribute(writer, "cn", "second");
+        writer.writeEndSequence();
+        writer.writeEndSequence();
+        final Entry entry =
+                LDAP.readEntry(ASN1.getReader(builder), new DecodeOptions().setLazyEntryDecoding(true));
+
+        assertThat(entry.parseAttribute("cn").asString()).isEqualTo("first");
+        assertThat(entry.getAttribute("sn")).isNull();
+    }
+
+    @Test(expectedExceptions = DecodeException.class)
+    public void testMalformedAttributeListIsRejected() throws Exception {
+        final ByteStringBuilder builder = new ByteStringBuilder();
+        final ASN1Writer writer = ASN1.getWriter(builder);
+        writer.writeStartSequence(LDAP.OP_TYPE_SEARCH_RESULT_ENTRY);
+        writer.writeOctetString("dc=example,dc=com");
+        writer.writeStartSequence();
+        writer.writeStartSequence();
+        writer.writeOctetString("cn");
+        writer.writeOctetString("not a set");
+        writer.writeEndSequence();
+        writer.writeEndSequence();
+        writer.writeEndSequence();
+        LDAP.readEntry(ASN1.getReader(builder), new DecodeOptions().setLazyEntryDecoding(true));
+    }
+
+    private void writeAttribute(final ASN1Writer writer, final String attributeDescription, final String value)
+            throws Exception {
+        writer.writeStartSequence();
+        writer.writeOctetString(attributeDescription);
+        writer.writeStartSet();
+        writer.writeOctetString(value);
+        writer.writeEndSet();
+        writer.writeEndSequence();
+    }
+
+    private Entry readEntry(final Entry entry) throws Exception {
+        return readEntry(entry, new DecodeOptions().setLazyEntryDecoding(true));
+    }
+
+    private Entry readEntry(final Entry entry, final DecodeOptions options) throws Exception {
+        final ByteStringBuilder builder = new ByteStringBuilder();
+        LDAP.writeEntry(ASN1.getWriter(builder), entry);
+        return LDAP.readEntry(ASN1.getReader(builder), options);
+    }
+}
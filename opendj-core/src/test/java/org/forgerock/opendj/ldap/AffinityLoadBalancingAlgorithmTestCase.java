@@ -0,0 +1,128 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.ldap;
+
+import static java.util.Arrays.asList;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.forgerock.opendj.ldap.LdapException.newLdapException;
+import static org.forgerock.opendj.ldap.LoadBalancingAlgorithm.LOAD_BALANCER_AFFINITY_ATTRIBUTE;
+import static org.forgerock.opendj.ldap.TestCaseUtils.mockConnectionFactory;
+import static org.forgerock.util.Options.defaultOptions;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.forgerock.opendj.ldap.schema.Schema;
+import org.forgerock.util.promise.Promises;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class AffinityLoadBalancingAlgorithmTestCase extends SdkTestCase {
+
+    private static ConnectionFactory mockFactory() {
+        return mockConnectionFactory(mock(Connection.class));
+    }
+
+    private static DN entry(final int i) {
+        return DN.valueOf("uid=user." + i + ",ou=people,dc=example,dc=com");
+    }
+
+    @Test
+    public void testSameEntryIsRoutedToSameFactory() throws Exception {
+        final AffinityLoadBalancingAlgorithm algorithm = new AffinityLoadBalancingAlgorithm(
+                asList(mockFactory(), mockFactory(), mockFactory()), defaultOptions());
+        try {
+            final Set<Integer> indexes = new HashSet<>();
+            for (int i = 0; i < 100; i++) {
+                final int index = algorithm.getInitialConnectionFactoryIndex(entry(i));
+                assertThat(algorithm.getInitialConnectionFactoryIndex(entry(i))).isEqualTo(index);
+                indexes.add(index);
+            }
+            assertThat(indexes).containsOnly(0, 1, 2);
+
+            // Equivalent names are routed identically.
+            final DN name = DN.valueOf("UID=User.1, OU=People,DC=Example,DC=Com");
+            assertThat(algorithm.getInitialConnectionFactoryIndex(name))
+                    .isEqualTo(algorithm.getInitialConnectionFactoryIndex(entry(1)));
+        } finally {
+            algorithm.close();
+        }
+    }
+
+    @Test
+    public void testSubtreeIsRoutedToSameFactory() throws Exception {
+        final AffinityLoadBalancingAlgorithm algorithm = new AffinityLoadBalancingAlgorithm(
+                asList(mockFactory(), mockFactory(), mockFactory()),
+                defaultOptions().set(LOAD_BALANCER_AFFINITY_ATTRIBUTE,
+                        Schema.getDefaultSchema().getAttributeType("ou")));
+        try {
+            final int index = algorithm.getInitialConnectionFactoryIndex(DN.valueOf("ou=people,dc=example,dc=com"));
+            for (int i = 0; i < 100; i++) {
+                assertThat(algorithm.getInitialConnectionFactoryIndex(entry(i))).isEqualTo(index);
+            }
+        } finally {
+            algorithm.close();
+        }
+    }
+
+    @Test
+    public void testOfflineFactoryOnlyMovesItsOwnEntries() throws Exception {
+        final ConnectionFactory failingFactory = mock(ConnectionFactory.class);
+        final LdapException error = newLdapException(ResultCode.CLIENT_SIDE_CONNECT_ERROR);
+        when(failingFactory.getConnection()).thenThrow(error);
+        when(failingFactory.getConnectionAsync())
+                .thenReturn(Promises.<Connection, LdapException> newExceptionPromise(error));
+        final AffinityLoadBalancingAlgorithm algorithm = new AffinityLoadBalancingAlgorithm(
+                asList(mockFactory(), failingFactory, mockFactory()), defaultOptions());
+        try {
+            final int[] indexes = new int[100];
+            int failingEntry = -1;
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = algorithm.getInitialConnectionFactoryIndex(entry(i));
+                if (indexes[i] == 1) {
+                    failingEntry = i;
+                }
+            }
+            assertThat(failingEntry).isNotEqualTo(-1);
+
+            // The connection attempt fails over and marks the factory as offline.
+            algorithm.getConnectionFactory(entry(failingEntry)).getConnection();
+            assertThat(algorithm.isOperational(1)).isFalse();
+
+            for (int i = 0; i < indexes.length; i++) {
+                final int index = algorithm.getInitialConnectionFactoryIndex(entry(i));
+                if (indexes[i] == 1) {
+                    assertThat(index).isNotEqualTo(1);
+                } else {
+                    assertThat(index).isEqualTo(indexes[i]);
+                }
+            }
+        } finally {
+            algorithm.close();
+        }
+    }
+}
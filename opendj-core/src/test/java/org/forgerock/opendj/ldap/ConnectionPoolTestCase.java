@@ -23,6 +23,7 @@
  *
  *      Copyright 2010 Sun Microsystems, Inc.
  *      Portions Copyright 2011-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldap;
@@ -30,8 +31,11 @@ package org.forgerock.opendj.ldap;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.forgerock.opendj.ldap.ConnectionPoolStatistics.Histogram;
 import org.forgerock.opendj.ldap.requests.BindRequest;
 import org.forgerock.opendj.ldap.requests.Requests;
 import org.forgerock.opendj.ldap.responses.ExtendedResult;
@@ -47,6 +51,7 @@ import static org.fest.assertions.Assertions.*;
 import static org.forgerock.opendj.ldap.Connections.*;
 import static org.forgerock.opendj.ldap.LdapException.*;
 import static org.forgerock.opendj.ldap.TestCaseUtils.*;
+import static org.forgerock.opendj.ldap.spi.LdapPromises.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
@@ -264,6 +269,201 @@ public class ConnectionPoolTestCase extends SdkTestCase {
         pool.close();
     }
 
+    /**
+     * Verifies that connections released concurrently with pending connection
+     * requests are always handed over, so that no request is left waiting while
+     * a connection is idle.
+     *
+     * @throws Exception
+     *             If an unexpected error occurred.
+     */
+    @Test(timeOut = 30000)
+    public void testConcurrentGetAndReleaseAtCapacity() throws Exception {
+        final Connection connection1 = mock(Connection.class);
+        when(connection1.isValid()).thenReturn(true);
+        final Connection connection2 = mock(Connection.class);
+        when(connection2.isValid()).thenReturn(true);
+
+        final ConnectionFactory factory = mockConnectionFactory(connection1, connection2);
+        final ConnectionPool pool = Connections.newFixedConnectionPool(factory, 2);
+
+        final int threadCount = 8;
+        final int iterations = 1000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger borrowed = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < iterations; j++) {
+                            final Connection connection = pool.getConnection();
+                            borrowed.incrementAndGet();
+                            connection.close();
+                        }
+                    } catch (final Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(borrowed.get()).isEqualTo(threadCount * iterations);
+        verify(factory, times(2)).getConnection();
+        pool.close();
+    }
+
+    /**
+     * Verifies that the statistics and event listeners report borrowed,
+     * released and created connections, as well as waiting requests.
+     *
+     * @throws Exception
+     *             If an unexpected error occurred.
+     */
+    @Test
+    public void testStatisticsAndEventListener() throws Exception {
+        final Connection connection1 = mock(Connection.class);
+        when(connection1.isValid()).thenReturn(true);
+        final Connection connection2 = mock(Connection.class);
+        when(connection2.isValid()).thenReturn(true);
+
+        final ConnectionFactory factory = mockConnectionFactory(connection1, connection2);
+        final ConnectionPool pool = Connections.newFixedConnectionPool(factory, 2);
+        final ConnectionPoolEventListener listener = mock(ConnectionPoolEventListener.class);
+        pool.addEventListener(listener);
+
+        final Connection pc1 = pool.getConnection();
+        final Connection pc2 = pool.getConnection();
+        final Promise<? extends Connection, LdapException> promise = pool.getConnectionAsync();
+
+        ConnectionPoolStatistics statistics = pool.getStatistics();
+        assertThat(statistics.getMaxPoolSize()).isEqualTo(2);
+        assertThat(statistics.getActiveConnections()).isEqualTo(2);
+        assertThat(statistics.getIdleConnections()).isEqualTo(0);
+        assertThat(statistics.getPendingRequests()).isEqualTo(1);
+        assertThat(statistics.getConnectionsCreated()).isEqualTo(2);
+        assertThat(statistics.getConnectionCreationFailures()).isEqualTo(0);
+        assertThat(statistics.getConnectionCreationTime().getCount()).isEqualTo(2);
+        assertThat(statistics.getBorrowWaitTime().getCount()).isEqualTo(2);
+
+        pc2.close();
+        final Connection pc3 = promise.get();
+        pc1.close();
+
+        statistics = pool.getStatistics();
+        assertThat(statistics.getActiveConnections()).isEqualTo(1);
+        assertThat(statistics.getIdleConnections()).isEqualTo(1);
+        assertThat(statistics.getPendingRequests()).isEqualTo(0);
+        assertThat(statistics.getBorrowWaitTime().getCount()).isEqualTo(3);
+        assertThat(statistics.getLeaseTime().getCount()).isEqualTo(2);
+
+        verify(listener, times(2)).handleConnectionCreated(same(pool), anyLong());
+        verify(listener, times(3)).handleConnectionBorrowed(same(pool), anyLong());
+        verify(listener, times(2)).handleConnectionReleased(same(pool), anyLong());
+        verifyNoMoreInteractions(listener);
+
+        pool.removeEventListener(listener);
+        pc3.close();
+        verifyNoMoreInteractions(listener);
+        assertThat(pool.getStatistics().getActiveConnections()).isEqualTo(0);
+        pool.close();
+    }
+
+    /**
+     * Verifies that event listeners which throw do not prevent the pool from
+     * handing out connections, nor leak pool permits.
+     *
+     * @throws Exception
+     *             If an unexpected error occurred.
+     */
+    @Test(timeOut = 10000)
+    public void testFailingEventListener() throws Exception {
+        final Connection connection = mock(Connection.class);
+        when(connection.isValid()).thenReturn(true);
+        final LdapException connectError = newLdapException(ResultCode.CLIENT_SIDE_CONNECT_ERROR);
+        final AtomicInteger connectionAttempts = new AtomicInteger();
+        final ConnectionFactory factory = mock(ConnectionFactory.class);
+        when(factory.getConnectionAsync()).thenAnswer(new Answer<Promise<Connection, LdapException>>() {
+            @Override
+            public Promise<Connection, LdapException> answer(final InvocationOnMock invocation)
+                    throws Throwable {
+                if (connectionAttempts.getAndIncrement() == 0) {
+                    return newFailedLdapPromise(connectError);
+                }
+                return newSuccessfulLdapPromise(connection);
+            }
+        });
+
+        final ConnectionPool pool = Connections.newFixedConnectionPool(factory, 1);
+        final ConnectionPoolEventListener listener = mock(ConnectionPoolEventListener.class);
+        final RuntimeException listenerError = new IllegalStateException();
+        doThrow(listenerError).when(listener).handleConnectionBorrowed(any(ConnectionPool.class), anyLong());
+        doThrow(listenerError).when(listener).handleConnectionCreated(any(ConnectionPool.class), anyLong());
+        doThrow(listenerError).when(listener).handleConnectionCreationFailed(any(ConnectionPool.class), anyLong(),
+                any(LdapException.class));
+        doThrow(listenerError).when(listener).handleConnectionReleased(any(ConnectionPool.class), anyLong());
+        pool.addEventListener(listener);
+
+        try {
+            pool.getConnection();
+            Assert.fail("Expected an exception to be thrown");
+        } catch (LdapException e) {
+            assertThat(e).isSameAs(connectError);
+        }
+
+        // The failed connection attempt must have released its permit.
+        final Connection pc1 = pool.getConnection();
+        pc1.close();
+        final Connection pc2 = pool.getConnection();
+        assertThat(pool.getStatistics().getActiveConnections()).isEqualTo(1);
+        pc2.close();
+
+        final ConnectionPoolStatistics statistics = pool.getStatistics();
+        assertThat(statistics.getActiveConnections()).isEqualTo(0);
+        assertThat(statistics.getIdleConnections()).isEqualTo(1);
+        assertThat(statistics.getConnectionsCreated()).isEqualTo(1);
+        assertThat(statistics.getConnectionCreationFailures()).isEqualTo(1);
+
+        verify(listener).handleConnectionCreationFailed(same(pool), anyLong(), same(connectError));
+        verify(listener).handleConnectionCreated(same(pool), anyLong());
+        verify(listener, times(2)).handleConnectionBorrowed(same(pool), anyLong());
+        verify(listener, times(2)).handleConnectionReleased(same(pool), anyLong());
+        pool.close();
+    }
+
+    /**
+     * Verifies that histogram percentiles are bounded by the bucket containing
+     * the percentile and by the longest recorded duration.
+     */
+    @Test
+    public void testStatisticsHistogram() {
+        final Histogram.Recorder recorder = new Histogram.Recorder();
+        for (int i = 0; i < 99; i++) {
+            recorder.record(500);
+        }
+        recorder.record(TimeUnit.MILLISECONDS.toNanos(3));
+
+        final Histogram histogram = recorder.snapshot();
+        assertThat(histogram.getCount()).isEqualTo(100);
+        assertThat(histogram.getBucketCount(0)).isEqualTo(99);
+        assertThat(histogram.getMaxNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(3));
+        // The 500ns durations are reported as the upper bound of their bucket.
+        assertThat(histogram.getPercentileNanos(50)).isEqualTo(1000);
+        assertThat(histogram.getPercentileNanos(99)).isEqualTo(1000);
+        assertThat(histogram.getPercentileNanos(100)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(3));
+        assertThat(histogram.getBucketUpperBoundNanos(0)).isEqualTo(1000);
+        assertThat(histogram.getBucketUpperBoundNanos(histogram.getNumberOfBuckets() - 1))
+                .isEqualTo(Long.MAX_VALUE);
+    }
+
     /**
      * Verifies that stale connections which have become invalid while in use
      * are not placed back in the pool after being closed.
@@ -0,0 +1,110 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.ldap;
+
+import static org.fest.assertions.Assertions.*;
+
+import org.forgerock.opendj.ldap.DecodeCache.EvictionPolicy;
+import org.forgerock.opendj.ldap.schema.Schema;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class DecodeCacheTestCase extends SdkTestCase {
+
+    @Test
+    public void testSharedCacheHitsAndMisses() {
+        final DecodeCache<String> cache = DecodeCache.newCache(false, 64, EvictionPolicy.LRU);
+        final Schema schema = Schema.getCoreSchema();
+
+        assertThat(cache.get(schema, "key")).isNull();
+        cache.put(schema, "key", "value");
+        assertThat(cache.get(schema, "key")).isEqualTo("value");
+        assertThat(cache.get(Schema.getEmptySchema(), "key")).isNull();
+
+        final CacheStatistics statistics = cache.getStatistics();
+        assertThat(statistics.getHits()).isEqualTo(1);
+        assertThat(statistics.getMisses()).isEqualTo(2);
+        assertThat(statistics.getEvictions()).isEqualTo(0);
+        assertThat(statistics.getSize()).isEqualTo(1);
+        assertThat(statistics.getHitRatio()).isEqualTo(1.0 / 3);
+    }
+
+    @Test
+    public void testSharedCacheIsBounded() {
+        final DecodeCache<String> cache = DecodeCache.newCache(false, 64, EvictionPolicy.FIFO);
+        final Schema schema = Schema.getCoreSchema();
+        for (int i = 0; i < 1000; i++) {
+            cache.put(schema, "key" + i, "value" + i);
+        }
+
+        final CacheStatistics statistics = cache.getStatistics();
+        assertThat(statistics.getSize()).isLessThanOrEqualTo(64);
+        assertThat(statistics.getEvictions()).isEqualTo(1000 - statistics.getSize());
+        assertThat(cache.get(schema, "key999")).isEqualTo("value999");
+    }
+
+    @Test
+    public void testThreadLocalCacheLruEviction() {
+        final DecodeCache<String> cache = DecodeCache.newCache(true, 2, EvictionPolicy.LRU);
+        final Schema schema = Schema.getCoreSchema();
+        cache.put(schema, "a", "1");
+        cache.put(schema, "b", "2");
+        assertThat(cache.get(schema, "a")).isEqualTo("1");
+        cache.put(schema, "c", "3");
+
+        assertThat(cache.get(schema, "a")).isEqualTo("1");
+        assertThat(cache.get(schema, "b")).isNull();
+        assertThat(cache.get(schema, "c")).isEqualTo("3");
+    }
+
+    @Test
+    public void testThreadLocalCacheFifoEviction() {
+        final DecodeCache<String> cache = DecodeCache.newCache(true, 2, EvictionPolicy.FIFO);
+        final Schema schema = Schema.getCoreSchema();
+        cache.put(schema, "a", "1");
+        cache.put(schema, "b", "2");
+        assertThat(cache.get(schema, "a")).isEqualTo("1");
+        cache.put(schema, "c", "3");
+
+        assertThat(cache.get(schema, "a")).isNull();
+        assertThat(cache.get(schema, "b")).isEqualTo("2");
+        assertThat(cache.get(schema, "c")).isEqualTo("3");
+    }
+
+    @Test
+    public void testDisabledCache() {
+        final DecodeCache<String> cache = DecodeCache.newCache(false, 0, EvictionPolicy.LRU);
+        cache.put(Schema.getCoreSchema(), "key", "value");
+        assertThat(cache.get(Schema.getCoreSchema(), "key")).isNull();
+    }
+
+    @Test
+    public void testDNCacheStatistics() {
+        final long hits = DN.getCacheStatistics().getHits();
+        DN.valueOf("cn=first,ou=decode cache,dc=example,dc=com");
+        DN.valueOf("cn=second,ou=decode cache,dc=example,dc=com");
+        assertThat(DN.getCacheStatistics().getHits()).isGreaterThan(hits);
+    }
+}
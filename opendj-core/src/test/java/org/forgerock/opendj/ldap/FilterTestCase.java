@@ -23,6 +23,7 @@
  *
  *      Copyright 2010 Sun Microsystems, Inc.
  *      Portions copyright 2011-2015 ForgeRock AS
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldap;
@@ -203,6 +204,98 @@ public class FilterTestCase extends SdkTestCase {
         Filter.valueOf(filterStr);
     }
 
+    @Test
+    public void testEqualityMatchInvalidValues() throws Exception {
+        final Matcher matcher = Filter.valueOf("(createTimestamp=20260101000000Z)").matcher();
+        final Matcher notMatcher = Filter.valueOf("(!(createTimestamp=20260101000000Z))").matcher();
+        final Entry entry = new LinkedHashMapEntry("dn: cn=test", "objectclass: top", "cn: test",
+                "createTimestamp: not a time");
+        assertEquals(matcher.matches(entry), ConditionResult.UNDEFINED);
+        assertEquals(notMatcher.matches(entry), ConditionResult.UNDEFINED);
+
+        entry.addAttribute("createTimestamp", "20250101000000Z");
+        assertEquals(matcher.matches(entry), ConditionResult.UNDEFINED);
+        assertEquals(notMatcher.matches(entry), ConditionResult.UNDEFINED);
+
+        entry.addAttribute("createTimestamp", "20260101000000Z");
+        assertEquals(matcher.matches(entry), ConditionResult.TRUE);
+        assertEquals(notMatcher.matches(entry), ConditionResult.FALSE);
+
+        entry.replaceAttribute("createTimestamp", "20250101000000Z");
+        assertEquals(matcher.matches(entry), ConditionResult.FALSE);
+        assertEquals(notMatcher.matches(entry), ConditionResult.TRUE);
+    }
+
+    @Test
+    public void testEqualityMatchLargeGroup() throws Exception {
+        final Entry entry = new LinkedHashMapEntry("dn: cn=group", "objectclass: groupOfNames", "cn: group");
+        for (int i = 0; i < 1000; i++) {
+            entry.addAttribute("member", "uid=user." + i + ",ou=people,dc=example,dc=com");
+        }
+        assertEquals(Filter.equality("member", "UID=user.500, ou=People,dc=example,dc=com").matcher()
+                .matches(entry), ConditionResult.TRUE);
+        assertEquals(Filter.equality("member", "uid=user.1000,ou=people,dc=example,dc=com").matcher()
+                .matches(entry), ConditionResult.FALSE);
+        assertEquals(Filter.valueOf("(member:=uid=user.999,ou=people,dc=example,dc=com)").matcher()
+                .matches(entry), ConditionResult.TRUE);
+    }
+
+    @DataProvider
+    public Object[][] compiledFilters() {
+        // @formatter:off
+        return new Object[][] {
+            { "(&(cn=*b*)(&(sn=smith)(cn=bob)))", ConditionResult.TRUE },
+            { "(&(cn=*b*)(&(sn=smith)(cn=alice)))", ConditionResult.FALSE },
+            { "(|(cn=*z*)(|(sn=jones)(cn=bob)))", ConditionResult.TRUE },
+            { "(|(cn=*z*)(|(sn=jones)(cn=alice)))", ConditionResult.FALSE },
+            { "(&(cn=bob)(cn=bob)(cn=bob))", ConditionResult.TRUE },
+            { "(|(cn=alice)(cn=alice))", ConditionResult.FALSE },
+            { "(!(!(cn=bob)))", ConditionResult.TRUE },
+            { "(!(!(cn=alice)))", ConditionResult.FALSE },
+            { "(!(objectClass=*))", ConditionResult.FALSE },
+            { "(|(cn=alice)(objectClass=*))", ConditionResult.TRUE },
+            { "(&(objectClass=*)(sn=*))", ConditionResult.TRUE },
+            { "(&(objectClass=*)(mail=*))", ConditionResult.FALSE },
+            { "(&(sn=smith)(&)(|(cn=bob)(|)))", ConditionResult.TRUE },
+            { "(&(sn=smith)(|))", ConditionResult.FALSE },
+        };
+        // @formatter:on
+    }
+
+    @Test(dataProvider = "compiledFilters")
+    public void testMatcherCompilation(final String filter, final ConditionResult expected) throws Exception {
+        final Entry entry = new LinkedHashMapEntry("dn: cn=bob", "objectclass: person", "cn: bob", "sn: smith");
+        assertEquals(Filter.valueOf(filter).matcher().matches(entry), expected);
+    }
+
+    @Test
+    public void testMatcherObjectClassPresent() throws Exception {
+        final Entry entry = new LinkedHashMapEntry("dn: cn=bob", "cn: bob");
+        assertEquals(Filter.objectClassPresent().matcher().matches(entry), ConditionResult.TRUE);
+    }
+
+    @Test
+    public void testMatcherConflictingSingleValuedEqualities() throws Exception {
+        // The schema only allows one country, so the filter is known never to match.
+        final Entry entry = new LinkedHashMapEntry("dn: cn=bob", "objectclass: person", "c: us", "c: fr");
+        assertEquals(Filter.valueOf("(&(c=us)(c=fr))").matcher().matches(entry), ConditionResult.FALSE);
+        assertEquals(Filter.valueOf("(&(c=us)(c=US))").matcher().matches(entry), ConditionResult.TRUE);
+    }
+
+    @Test
+    public void testSubstringMatchAfterModification() throws Exception {
+        final Matcher matcher = Filter.substrings("cn", "b", null, null).matcher();
+        final Entry entry = new LinkedHashMapEntry("dn: cn=aaa", "objectclass: top", "cn: aaa");
+        assertEquals(matcher.matches(entry), ConditionResult.FALSE);
+        assertEquals(matcher.matches(entry), ConditionResult.FALSE);
+
+        entry.addAttribute("cn", "bbb");
+        assertEquals(matcher.matches(entry), ConditionResult.TRUE);
+
+        entry.removeAttribute("cn", "bbb");
+        assertEquals(matcher.matches(entry), ConditionResult.FALSE);
+    }
+
     @Test
     public void testGreaterThanFalse1() throws Exception {
         final Filter filter = Filter.greaterThan("cn", "bbb");
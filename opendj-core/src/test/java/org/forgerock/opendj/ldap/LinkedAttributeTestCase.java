@@ -23,6 +23,7 @@
  *
  *      Copyright 2009-2010 Sun Microsystems, Inc.
  *      Portions Copyright 2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldap;
@@ -32,6 +33,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+import org.forgerock.opendj.ldap.schema.MatchingRule;
 import org.forgerock.opendj.ldap.schema.Schema;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -212,6 +214,27 @@ public final class LinkedAttributeTestCase extends SdkTestCase {
         Assert.assertFalse(a.contains(ByteString.valueOfUtf8("value4")));
     }
 
+    @Test
+    public void testContainsNormalizedValue() throws Exception {
+        final MatchingRule rule = Schema.getDefaultSchema().getAttributeType("cn").getEqualityMatchingRule();
+        final ByteString normalizedValue1 = rule.normalizeAttributeValue(ByteString.valueOfUtf8("VALUE1"));
+        final ByteString normalizedValue2 = rule.normalizeAttributeValue(ByteString.valueOfUtf8("  value2 "));
+        Attribute a = new LinkedAttribute("cn");
+        Assert.assertFalse(a.containsNormalizedValue(normalizedValue1));
+
+        a.add(ByteString.valueOfUtf8("Value1"));
+        Assert.assertTrue(a.containsNormalizedValue(normalizedValue1));
+        Assert.assertFalse(a.containsNormalizedValue(normalizedValue2));
+
+        a.add(ByteString.valueOfUtf8("Value2"));
+        Assert.assertTrue(a.containsNormalizedValue(normalizedValue1));
+        Assert.assertTrue(a.containsNormalizedValue(normalizedValue2));
+
+        a.remove(ByteString.valueOfUtf8("value1"));
+        Assert.assertFalse(a.containsNormalizedValue(normalizedValue1));
+        Assert.assertTrue(a.containsNormalizedValue(normalizedValue2));
+    }
+
     @Test
     public void testContainsAll() {
         Attribute a = new LinkedAttribute("test");
@@ -0,0 +1,134 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.ldap;
+
+import static java.util.Arrays.asList;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.forgerock.opendj.ldap.TestCaseUtils.mockConnectionFactory;
+import static org.forgerock.opendj.ldap.requests.Requests.newAddRequest;
+import static org.forgerock.opendj.ldap.responses.Responses.newResult;
+import static org.forgerock.opendj.ldap.spi.LdapPromises.asPromise;
+import static org.forgerock.util.Options.defaultOptions;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.forgerock.opendj.ldap.requests.AddRequest;
+import org.forgerock.opendj.ldap.responses.Result;
+import org.forgerock.util.promise.PromiseImpl;
+import org.forgerock.util.promise.Promises;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class LoadAwareLoadBalancingAlgorithmTestCase extends SdkTestCase {
+    private static final AddRequest ADD_REQUEST = newAddRequest("dc=example,dc=com");
+
+    private PromiseImpl<Result, LdapException> pendingResult;
+    private Connection connection2;
+    private ConnectionFactory factory1;
+    private ConnectionFactory factory2;
+
+    @BeforeMethod
+    public void setUp() {
+        pendingResult = PromiseImpl.create();
+        connection2 = mockConnection(asPromise(PromiseImpl.<Result, LdapException> create()));
+        factory1 = mockConnectionFactory(mockConnection(asPromise(pendingResult)));
+        factory2 = mockConnectionFactory(connection2);
+    }
+
+    private static Connection mockConnection(final LdapPromise<Result> addResult) {
+        final Connection connection = mock(Connection.class);
+        when(connection.isValid()).thenReturn(true);
+        when(connection.addAsync(any(AddRequest.class), any(IntermediateResponseHandler.class))).thenReturn(addResult);
+        return connection;
+    }
+
+    @Test
+    public void testLeastRequestsSelectsLeastBusyFactory() throws Exception {
+        final AbstractLoadBalancingAlgorithm algorithm =
+                new LeastRequestsLoadBalancingAlgorithm(asList(factory1, factory2), defaultOptions());
+        try {
+            // The first connection request is a tie, and is won by the first factory.
+            algorithm.getConnectionFactory().getConnection().addAsync(ADD_REQUEST);
+            assertThat(algorithm.getActiveRequests(0)).isEqualTo(1);
+
+            for (int i = 0; i < 4; i++) {
+                algorithm.getConnectionFactory().getConnection();
+            }
+            verify(factory1, times(1)).getConnection();
+            verify(factory2, times(4)).getConnection();
+
+            pendingResult.handleResult(newResult(ResultCode.SUCCESS));
+            assertThat(algorithm.getActiveRequests(0)).isEqualTo(0);
+            assertThat(algorithm.getAverageResponseTimeNanos(0, System.nanoTime())).isGreaterThan(0);
+        } finally {
+            algorithm.close();
+        }
+    }
+
+    @Test
+    public void testLatencyAwareAvoidsSlowFactory() throws Exception {
+        final AbstractLoadBalancingAlgorithm algorithm =
+                new LatencyAwareLoadBalancingAlgorithm(asList(factory1, factory2), defaultOptions());
+        try {
+            // The first factory responds slowly.
+            algorithm.getConnectionFactory().getConnection().addAsync(ADD_REQUEST);
+            Thread.sleep(20);
+            pendingResult.handleResult(newResult(ResultCode.SUCCESS));
+
+            // The second factory responds immediately.
+            when(connection2.addAsync(any(AddRequest.class), any(IntermediateResponseHandler.class)))
+                    .thenReturn(asPromise(Promises.<Result, LdapException> newResultPromise(
+                            newResult(ResultCode.SUCCESS))));
+            for (int i = 0; i < 10; i++) {
+                algorithm.getConnectionFactory().getConnection().addAsync(ADD_REQUEST);
+            }
+            verify(factory1, times(1)).getConnection();
+            verify(factory2, times(10)).getConnection();
+        } finally {
+            algorithm.close();
+        }
+    }
+
+    @Test
+    public void testPowerOfTwoChoicesSelectsLeastBusyFactory() throws Exception {
+        final AbstractLoadBalancingAlgorithm algorithm =
+                new PowerOfTwoChoicesLoadBalancingAlgorithm(asList(factory1, factory2), defaultOptions());
+        try {
+            // Both factories are sampled each time, so the busy one is always avoided.
+            algorithm.getConnectionFactory().getConnection().addAsync(ADD_REQUEST);
+            final ConnectionFactory idleFactory = algorithm.getActiveRequests(0) == 1 ? factory2 : factory1;
+            for (int i = 0; i < 10; i++) {
+                algorithm.getConnectionFactory().getConnection();
+            }
+            verify(idleFactory, times(10)).getConnection();
+        } finally {
+            algorithm.close();
+        }
+    }
+}
@@ -22,6 +22,7 @@
  *
  *
  *      Copyright 2013-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.opendj.ldap;
 
@@ -38,6 +39,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.forgerock.opendj.ldap.controls.AssertionRequestControl;
 import org.forgerock.opendj.ldap.controls.PermissiveModifyRequestControl;
@@ -550,6 +556,114 @@ public class MemoryBackendTestCase extends SdkTestCase {
         assertThat(cookie.isEmpty()).isTrue();
     }
 
+    @Test
+    public void testSearchPagedResultsResumesAfterDeletedEntry() throws Exception {
+        final Connection connection = getConnection();
+        final List<SearchResultEntry> entries = new ArrayList<>();
+        final SearchRequest search =
+                Requests.newSearchRequest("ou=people,dc=example,dc=com", SearchScope.WHOLE_SUBTREE,
+                        "(uid=*)");
+
+        search.addControl(SimplePagedResultsControl.newControl(true, 2, ByteString.empty()));
+        Result result = connection.search(search, entries);
+        assertThat(entries).hasSize(2);
+        final ByteString cookie =
+                result.getControl(SimplePagedResultsControl.DECODER, new DecodeOptions()).getCookie();
+        entries.clear();
+        search.getControls().clear();
+
+        // The next page must resume after the last returned entry even if it has been removed.
+        connection.delete("uid=test2,ou=people,dc=example,dc=com");
+        search.addControl(SimplePagedResultsControl.newControl(true, 2, cookie));
+        connection.search(search, entries);
+        assertThat(entries).hasSize(2);
+        assertThat(entries.get(0).getName().toString()).isEqualTo(
+                "uid=test3,ou=People,dc=example,dc=com");
+        assertThat(entries.get(1).getName().toString()).isEqualTo(
+                "uid=test4,ou=People,dc=example,dc=com");
+    }
+
+    @Test
+    public void testSearchPagedResultsInvalidCookie() throws Exception {
+        final Connection connection = getConnection();
+        final SearchRequest search =
+                Requests.newSearchRequest("ou=people,dc=example,dc=com", SearchScope.WHOLE_SUBTREE,
+                        "(uid=*)");
+        search.addControl(SimplePagedResultsControl.newControl(true, 2,
+                ByteString.valueOfUtf8("dc=xxx,dc=com")));
+        try {
+            connection.search(search, new ArrayList<SearchResultEntry>());
+            TestCaseUtils.failWasExpected(LdapException.class);
+        } catch (LdapException e) {
+            assertThat(e.getResult().getResultCode()).isEqualTo(ResultCode.PROTOCOL_ERROR);
+        }
+    }
+
+    @Test
+    public void testConcurrentAddAndDeleteKeepsParentInvariants() throws Exception {
+        final MemoryBackend backend = getBackend();
+        final Connection connection = newInternalConnection(backend);
+        final Entry parentEntry = valueOfLDIFEntry("dn: ou=Concurrent,dc=example,dc=com",
+                "objectClass: organizationalunit", "objectClass: top", "ou: Concurrent");
+        connection.add(parentEntry);
+        final int numberOfThreads = 4;
+        final int entriesPerThread = 50;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads + 1);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < numberOfThreads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        for (int i = 0; i < entriesPerThread; i++) {
+                            try {
+                                connection.add(valueOfLDIFEntry("dn: uid=user." + thread + "." + i
+                                        + ",ou=Concurrent,dc=example,dc=com", "objectClass: top",
+                                        "objectClass: person", "uid: user." + thread + "." + i,
+                                        "cn: user", "sn: user"));
+                            } catch (final EntryNotFoundException e) {
+                                // The parent has been deleted.
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int i = 0; i < entriesPerThread; i++) {
+                        try {
+                            connection.delete(parentEntry.getName().toString());
+                            connection.add(parentEntry);
+                        } catch (final LdapException e) {
+                            assertThat(e.getResult().getResultCode()).isEqualTo(
+                                    ResultCode.NOT_ALLOWED_ON_NONLEAF);
+                        }
+                    }
+                    return null;
+                }
+            }));
+            start.countDown();
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (final Entry entry : backend.getAll()) {
+            final DN parent = entry.getName().parent();
+            if (parent != null && !parent.isRootDN()) {
+                assertThat(backend.contains(parent)).as("parent of " + entry.getName()).isTrue();
+            }
+        }
+    }
+
     @Test
     public void testSimpleBind() throws Exception {
         final Connection connection = getConnection();
@@ -592,7 +706,92 @@ public class MemoryBackendTestCase extends SdkTestCase {
                 getUser1Entry());
     }
 
+    @Test
+    public void testSearchIndexedEquality() throws Exception {
+        final Connection connection = getIndexedConnection();
+        assertThat(connection.searchSingleEntry("dc=example,dc=com", SearchScope.WHOLE_SUBTREE, "(uid=test1)")).
+                isEqualTo(getUser1Entry());
+    }
+
+    @Test(expectedExceptions = EntryNotFoundException.class)
+    public void testSearchIndexedEqualityNotFound() throws Exception {
+        final Connection connection = getIndexedConnection();
+        connection.searchSingleEntry("dc=example,dc=com", SearchScope.WHOLE_SUBTREE, "(uid=missing)");
+    }
+
+    @Test
+    public void testSearchIndexedScope() throws Exception {
+        final Connection connection = getIndexedConnection();
+        final List<SearchResultEntry> entries = new ArrayList<>();
+        connection.search(Requests.newSearchRequest("dc=example,dc=com", SearchScope.SINGLE_LEVEL, "(uid=*)"),
+                entries);
+        assertThat(entries).isEmpty();
+        connection.search(Requests.newSearchRequest("ou=people,dc=example,dc=com", SearchScope.SINGLE_LEVEL,
+                "(uid=*)"), entries);
+        assertThat(entries).hasSize(5);
+    }
+
+    @Test
+    public void testSearchIndexedSubstringAndPresence() throws Exception {
+        final Connection connection = getIndexedConnection();
+        final List<SearchResultEntry> entries = new ArrayList<>();
+        connection.search(Requests.newSearchRequest("dc=com", SearchScope.WHOLE_SUBTREE,
+                "(&(uid=test*)(!(uid=test2))(cn=*user*))"), entries);
+        assertThat(entries).hasSize(4);
+        assertThat(entries.get(0).getName().toString()).isEqualTo("uid=test1,ou=People,dc=example,dc=com");
+        assertThat(entries.get(3).getName().toString()).isEqualTo("uid=test5,ou=People,dc=example,dc=com");
+    }
+
+    @Test
+    public void testSearchIndexedOr() throws Exception {
+        final Connection connection = getIndexedConnection();
+        final List<SearchResultEntry> entries = new ArrayList<>();
+        connection.search(Requests.newSearchRequest("dc=com", SearchScope.WHOLE_SUBTREE,
+                "(|(uid=test2)(uid=test4)(dc=xxx))"), entries);
+        assertThat(entries).hasSize(3);
+        assertThat(entries.get(0).getName().toString()).isEqualTo("uid=test2,ou=People,dc=example,dc=com");
+        assertThat(entries.get(1).getName().toString()).isEqualTo("uid=test4,ou=People,dc=example,dc=com");
+        assertThat(entries.get(2).getName().toString()).isEqualTo("dc=xxx,dc=com");
+    }
+
+    @Test
+    public void testSearchIndexedAfterUpdates() throws Exception {
+        final Connection connection = getIndexedConnection();
+        connection.modify(newModifyRequest("uid=test1,ou=people,dc=example,dc=com").addModification(
+                ModificationType.REPLACE, "uid", "renamed"));
+        connection.delete("uid=test2,ou=people,dc=example,dc=com");
+        connection.add(valueOfLDIFEntry("dn: uid=test6,ou=People,dc=example,dc=com", "objectClass: top",
+                "objectClass: person", "uid: test6", "cn: test user 6", "sn: user 6"));
+
+        final List<SearchResultEntry> entries = new ArrayList<>();
+        connection.search(Requests.newSearchRequest("dc=com", SearchScope.WHOLE_SUBTREE, "(uid=test*)"), entries);
+        assertThat(entries).hasSize(4);
+        assertThat(entries.get(0).getName().toString()).isEqualTo("uid=test3,ou=People,dc=example,dc=com");
+        assertThat(entries.get(3).getName().toString()).isEqualTo("uid=test6,ou=People,dc=example,dc=com");
+        assertThat(connection.searchSingleEntry("dc=com", SearchScope.WHOLE_SUBTREE, "(uid=renamed)").getName()
+                .toString()).isEqualTo("uid=test1,ou=People,dc=example,dc=com");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testAddIndexWithoutMatchingRule() throws Exception {
+        // The uid attribute type does not have an ordering matching rule.
+        getBackend().addIndex("uid", MemoryBackend.IndexType.ORDERING);
+    }
+
+    private Connection getIndexedConnection() throws IOException {
+        final MemoryBackend backend = getBackend();
+        backend.addIndex("uid", MemoryBackend.IndexType.EQUALITY, MemoryBackend.IndexType.PRESENCE,
+                MemoryBackend.IndexType.SUBSTRING);
+        backend.addIndex("dc", MemoryBackend.IndexType.EQUALITY);
+        backend.addIndex("cn", MemoryBackend.IndexType.SUBSTRING);
+        return newInternalConnection(backend);
+    }
+
     private Connection getConnection() throws IOException {
+        return newInternalConnection(getBackend());
+    }
+
+    private MemoryBackend getBackend() throws IOException {
         // @formatter:off
         String[] ldifEntries = new String[] {
             "dn: dc=com",
@@ -661,8 +860,7 @@ public class MemoryBackendTestCase extends SdkTestCase {
         };
         // @formatter:on
         numberOfEntriesInBackend = getNumberOfEntries(ldifEntries);
-        final MemoryBackend backend = new MemoryBackend(new LDIFEntryReader(ldifEntries));
-        return newInternalConnection(backend);
+        return new MemoryBackend(new LDIFEntryReader(ldifEntries));
     }
 
     private int getNumberOfEntries(String[] ldifEntries) {
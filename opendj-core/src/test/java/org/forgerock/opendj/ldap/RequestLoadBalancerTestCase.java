@@ -0,0 +1,148 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.ldap;
+
+import static java.util.Arrays.asList;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.forgerock.opendj.ldap.Connections.newRequestLoadBalancer;
+import static org.forgerock.opendj.ldap.TestCaseUtils.mockConnectionFactory;
+import static org.forgerock.opendj.ldap.requests.Requests.newAddRequest;
+import static org.forgerock.opendj.ldap.requests.Requests.newSimpleBindRequest;
+import static org.forgerock.opendj.ldap.requests.Requests.newStartTLSExtendedRequest;
+import static org.forgerock.opendj.ldap.responses.Responses.newBindResult;
+import static org.forgerock.opendj.ldap.responses.Responses.newResult;
+import static org.forgerock.opendj.ldap.spi.LdapPromises.newSuccessfulLdapPromise;
+import static org.forgerock.util.Options.defaultOptions;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.net.ssl.SSLContext;
+
+import org.forgerock.opendj.ldap.requests.AddRequest;
+import org.forgerock.opendj.ldap.requests.BindRequest;
+import org.forgerock.opendj.ldap.responses.BindResult;
+import org.forgerock.opendj.ldap.responses.Result;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class RequestLoadBalancerTestCase extends SdkTestCase {
+    private static final AddRequest ADD_REQUEST = newAddRequest("dc=example,dc=com");
+
+    private Connection connection1;
+    private Connection connection2;
+    private ConnectionFactory factory1;
+    private ConnectionFactory factory2;
+    private ConnectionFactory loadBalancer;
+
+    @BeforeMethod
+    public void setUp() {
+        connection1 = mockConnection();
+        connection2 = mockConnection();
+        factory1 = mockConnectionFactory(connection1);
+        factory2 = mockConnectionFactory(connection2);
+        loadBalancer = newRequestLoadBalancer(
+                new RoundRobinLoadBalancingAlgorithm(asList(factory1, factory2), defaultOptions()));
+    }
+
+    private static Connection mockConnection() {
+        final Connection connection = mock(Connection.class);
+        when(connection.isValid()).thenReturn(true);
+        when(connection.addAsync(any(AddRequest.class), any(IntermediateResponseHandler.class)))
+                .thenReturn(newSuccessfulLdapPromise((Result) newResult(ResultCode.SUCCESS)));
+        final LdapPromise<BindResult> bindResult = newSuccessfulLdapPromise(newBindResult(ResultCode.SUCCESS));
+        when(connection.bindAsync(any(BindRequest.class), any(IntermediateResponseHandler.class)))
+                .thenReturn(bindResult);
+        when(connection.bindAsync(any(BindRequest.class))).thenReturn(bindResult);
+        return connection;
+    }
+
+    @Test
+    public void testRequestsAreLoadBalanced() throws Exception {
+        final Connection connection = loadBalancer.getConnection();
+        for (int i = 0; i < 4; i++) {
+            assertThat(connection.add(ADD_REQUEST).getResultCode()).isEqualTo(ResultCode.SUCCESS);
+        }
+        verify(connection1, times(2)).addAsync(any(AddRequest.class), any(IntermediateResponseHandler.class));
+        verify(connection2, times(2)).addAsync(any(AddRequest.class), any(IntermediateResponseHandler.class));
+
+        // Each borrowed connection is released once its request completes.
+        verify(connection1, times(2)).close();
+        verify(connection2, times(2)).close();
+        connection.close();
+        assertThat(connection.isClosed()).isTrue();
+        loadBalancer.close();
+        verify(factory1).close();
+        verify(factory2).close();
+    }
+
+    @Test
+    public void testBindPinsConnection() throws Exception {
+        final Connection connection = loadBalancer.getConnection();
+        connection.bind(newSimpleBindRequest("cn=test", "password".toCharArray()));
+        for (int i = 0; i < 4; i++) {
+            connection.add(ADD_REQUEST);
+        }
+        verify(connection1, times(4)).addAsync(any(AddRequest.class), any(IntermediateResponseHandler.class));
+        verify(connection2, never()).addAsync(any(AddRequest.class), any(IntermediateResponseHandler.class));
+        verify(connection1, never()).close();
+
+        // The bound connection is reset before being released.
+        connection.close();
+        verify(connection1).bindAsync(any(BindRequest.class));
+        verify(connection1).close();
+        loadBalancer.close();
+    }
+
+    @Test
+    public void testStartTLSIsNotSupported() throws Exception {
+        final Connection connection = loadBalancer.getConnection();
+        try {
+            connection.extendedRequest(newStartTLSExtendedRequest(SSLContext.getDefault()));
+            TestCaseUtils.failWasExpected(LdapException.class);
+        } catch (final LdapException e) {
+            assertThat(e.getResult().getResultCode()).isEqualTo(ResultCode.CLIENT_SIDE_NOT_SUPPORTED);
+        }
+        verify(factory1, never()).getConnectionAsync();
+        verify(factory2, never()).getConnectionAsync();
+        connection.close();
+        loadBalancer.close();
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testClosedConnectionRejectsRequests() throws Exception {
+        final Connection connection = loadBalancer.getConnection();
+        connection.close();
+        try {
+            connection.add(ADD_REQUEST);
+        } finally {
+            loadBalancer.close();
+        }
+    }
+}
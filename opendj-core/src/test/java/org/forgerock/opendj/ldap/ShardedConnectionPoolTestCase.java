@@ -0,0 +1,109 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.ldap;
+
+import org.testng.annotations.Test;
+
+import static org.fest.assertions.Assertions.*;
+import static org.forgerock.opendj.ldap.Connections.*;
+import static org.forgerock.opendj.ldap.TestCaseUtils.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests the sharded connection pool implementation.
+ */
+@SuppressWarnings("javadoc")
+public class ShardedConnectionPoolTestCase extends SdkTestCase {
+
+    @Test
+    public void testNumberOfShardsIsCappedByPoolSize() throws Exception {
+        final ShardedConnectionPool pool =
+                (ShardedConnectionPool) newShardedConnectionPool(mock(ConnectionFactory.class), 2, 8);
+        assertThat(pool.numberOfShards()).isEqualTo(2);
+        assertThat(pool.getStatistics().getMaxPoolSize()).isEqualTo(2);
+        pool.close();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidNumberOfShards() throws Exception {
+        newShardedConnectionPool(mock(ConnectionFactory.class), 2, 0);
+    }
+
+    @Test
+    public void testIdleConnectionsAreStolenFromOtherShards() throws Exception {
+        final Connection connection1 = mock(Connection.class);
+        final Connection connection2 = mock(Connection.class);
+        when(connection1.isValid()).thenReturn(true);
+        when(connection2.isValid()).thenReturn(true);
+        final ConnectionFactory factory = mockConnectionFactory(connection1, connection2);
+        final ShardedConnectionPool pool = (ShardedConnectionPool) newShardedConnectionPool(factory, 2, 2);
+
+        // The second connection is created by the shard which still has capacity.
+        final Connection pc1 = pool.getConnection();
+        final Connection pc2 = pool.getConnection();
+        assertThat(pool.currentPoolSize()).isEqualTo(2);
+        pc1.close();
+        pc2.close();
+
+        // Both idle connections are reused, whichever shard owns them.
+        final Connection pc3 = pool.getConnection();
+        final Connection pc4 = pool.getConnection();
+        verify(factory, times(2)).getConnectionAsync();
+        assertThat(pool.currentPoolSize()).isEqualTo(2);
+
+        final ConnectionPoolStatistics statistics = pool.getStatistics();
+        assertThat(statistics.getActiveConnections()).isEqualTo(2);
+        assertThat(statistics.getIdleConnections()).isEqualTo(0);
+        assertThat(statistics.getConnectionsCreated()).isEqualTo(2);
+        assertThat(statistics.getBorrowWaitTime().getCount()).isEqualTo(4);
+        assertThat(statistics.getLeaseTime().getCount()).isEqualTo(2);
+
+        pc3.close();
+        pc4.close();
+        pool.close();
+        verify(connection1).close();
+        verify(connection2).close();
+        verify(factory).close();
+    }
+
+    @Test
+    public void testEventListenersSeeTheShardedPool() throws Exception {
+        final Connection connection = mock(Connection.class);
+        when(connection.isValid()).thenReturn(true);
+        final ConnectionPool pool = newShardedConnectionPool(mockConnectionFactory(connection), 1, 1);
+        final ConnectionPoolEventListener listener = mock(ConnectionPoolEventListener.class);
+        pool.addEventListener(listener);
+        pool.getConnection().close();
+        verify(listener).handleConnectionCreated(same(pool), anyLong());
+        verify(listener).handleConnectionBorrowed(same(pool), anyLong());
+        verify(listener).handleConnectionReleased(same(pool), anyLong());
+
+        pool.removeEventListener(listener);
+        pool.getConnection().close();
+        verify(listener, times(1)).handleConnectionBorrowed(same(pool), anyLong());
+        pool.close();
+    }
+}
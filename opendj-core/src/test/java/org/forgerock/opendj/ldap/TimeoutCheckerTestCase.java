@@ -0,0 +1,175 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.ldap;
+
+import static java.util.concurrent.TimeUnit.*;
+import static org.fest.assertions.Assertions.*;
+import static org.forgerock.opendj.ldap.TimeoutChecker.TIMEOUT_CHECKER;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.opendj.ldap.TimeoutChecker.ScheduledTimeout;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.forgerock.opendj.util.ReferenceCountedObject;
+
+@SuppressWarnings("javadoc")
+public class TimeoutCheckerTestCase extends SdkTestCase {
+    private ReferenceCountedObject<TimeoutChecker>.Reference checker;
+
+    @BeforeClass
+    public void acquireTimeoutChecker() {
+        checker = TIMEOUT_CHECKER.acquire();
+    }
+
+    @AfterClass
+    public void releaseTimeoutChecker() {
+        checker.release();
+    }
+
+    @Test
+    public void testScheduledTasksRunInDeadlineOrder() throws Exception {
+        // The delays span the first two levels of the wheel.
+        final long[] delays = { 150, 5, 70, 1, 20, 64, 129 };
+        final List<Long> completed = new CopyOnWriteArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(delays.length);
+        final long start = System.nanoTime();
+        for (final long delay : delays) {
+            checker.get().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    assertThat(NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(delay);
+                    completed.add(delay);
+                    latch.countDown();
+                }
+            }, delay, MILLISECONDS);
+        }
+        assertThat(latch.await(10, SECONDS)).isTrue();
+        assertThat(completed).containsExactly(1L, 5L, 20L, 64L, 70L, 129L, 150L);
+    }
+
+    @Test
+    public void testCancelledTaskDoesNotRun() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+        final ScheduledTimeout cancelled = checker.get().schedule(task, 20, MILLISECONDS);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final ScheduledTimeout expired = checker.get().schedule(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 50, MILLISECONDS);
+
+        assertThat(checker.get().cancel(cancelled)).isTrue();
+        assertThat(checker.get().cancel(cancelled)).isFalse();
+        assertThat(latch.await(10, SECONDS)).isTrue();
+        assertThat(checker.get().cancel(expired)).isFalse();
+        assertThat(runs.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testListenerIsCalledBackUntilRemoved() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(3);
+        final AtomicInteger callbacks = new AtomicInteger();
+        final TimeoutEventListener listener = new TimeoutEventListener() {
+            @Override
+            public long handleTimeout(final long currentTime) {
+                callbacks.incrementAndGet();
+                latch.countDown();
+                return 10;
+            }
+
+            @Override
+            public long getTimeout() {
+                return 10;
+            }
+        };
+        checker.get().addListener(listener);
+        assertThat(latch.await(10, SECONDS)).isTrue();
+        checker.get().removeListener(listener);
+
+        final int count = callbacks.get();
+        Thread.sleep(50);
+        assertThat(callbacks.get()).isLessThanOrEqualTo(count + 1);
+    }
+
+    @Test
+    public void testListenerIsCalledBackAgainAfterFailing() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(2);
+        final TimeoutEventListener listener = new TimeoutEventListener() {
+            @Override
+            public long handleTimeout(final long currentTime) {
+                latch.countDown();
+                if (latch.getCount() == 1) {
+                    throw new IllegalStateException("expected");
+                }
+                return 0;
+            }
+
+            @Override
+            public long getTimeout() {
+                return 5;
+            }
+        };
+        checker.get().addListener(listener);
+        try {
+            assertThat(latch.await(10, SECONDS)).isTrue();
+        } finally {
+            checker.get().removeListener(listener);
+        }
+    }
+
+    @Test
+    public void testListenerReturningZeroIsNotCalledBackAgain() throws Exception {
+        final AtomicInteger callbacks = new AtomicInteger();
+        final TimeoutEventListener listener = new TimeoutEventListener() {
+            @Override
+            public long handleTimeout(final long currentTime) {
+                callbacks.incrementAndGet();
+                return 0;
+            }
+
+            @Override
+            public long getTimeout() {
+                return 5;
+            }
+        };
+        checker.get().addListener(listener);
+        Thread.sleep(100);
+        checker.get().removeListener(listener);
+        assertThat(callbacks.get()).isEqualTo(1);
+    }
+}
@@ -22,13 +22,24 @@
  *
  *
  *      Copyright 2014-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.opendj.ldap.schema;
 
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.forgerock.opendj.ldap.Assertion;
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ConditionResult;
 import org.forgerock.opendj.ldap.schema.AbstractSubstringMatchingRuleImplTest.FakeIndexQueryFactory;
+import org.forgerock.opendj.ldap.schema.CollationMatchingRulesImpl.CollationKeyGenerator;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -118,4 +129,61 @@ public class CollationEqualityMatchingRuleTest extends MatchingRuleTest {
         assertEquals(indexQuery, "exactMatch(fr.shared, value=='" + normalizedValue.toHexString() + "')");
     }
 
+    @DataProvider
+    public Object[][] collationKeys() {
+        return new Object[][] {
+            { Locale.FRENCH, "pass\u00E9" },
+            { Locale.FRENCH, "  PASSE  " },
+            { Locale.GERMAN, "stra\u00DFe" },
+            { Locale.ENGLISH, "" },
+            { Locale.ENGLISH, "-_-" },
+            { new Locale("da"), "\u00E6ble" },
+            { new Locale("th"), "\u0E40\u0E01\u0E21" },
+            { Locale.JAPANESE, "\u3042\u30A2" },
+            { Locale.CHINESE, "\u4E2D\u6587" },
+        };
+    }
+
+    @Test(dataProvider = "collationKeys")
+    public void testCollationKeyMatchesCollator(final Locale locale, final String value) throws Exception {
+        final Collator collator = CollationMatchingRulesImpl.createCollator(locale);
+        final byte[] expected = collator.getCollationKey(value).toByteArray();
+        final ByteString actual = new CollationKeyGenerator(collator).getCollationKey(ByteString.valueOfUtf8(value));
+        assertThat(actual).isEqualTo(ByteString.wrap(expected).subSequence(0, expected.length - 4));
+    }
+
+    @Test
+    public void testConcurrentNormalization() throws Exception {
+        final MatchingRule matchingRule = getRule();
+        final List<ByteString> values = new ArrayList<>();
+        final List<ByteString> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final ByteString value = ByteString.valueOfUtf8("pass\u00E9 num\u00E9ro " + i);
+            values.add(value);
+            expected.add(matchingRule.normalizeAttributeValue(value));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<List<ByteString>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<List<ByteString>>() {
+                    @Override
+                    public List<ByteString> call() throws Exception {
+                        final List<ByteString> normalizedValues = new ArrayList<>();
+                        for (final ByteString value : values) {
+                            normalizedValues.add(matchingRule.normalizeAttributeValue(value));
+                        }
+                        return normalizedValues;
+                    }
+                }));
+            }
+            for (final Future<List<ByteString>> result : results) {
+                assertThat(result.get()).isEqualTo(expected);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
 }
@@ -23,6 +23,7 @@
  *
  *      Copyright 2009-2010 Sun Microsystems, Inc.
  *      Portions copyright 2012 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldif;
@@ -33,7 +34,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import org.forgerock.i18n.LocalizableMessage;
@@ -1675,4 +1679,93 @@ public final class LDIFEntryReaderTestCase extends AbstractLDIFTestCase {
     public void testValueOfLDIFEntryDoesntAllowNull() throws Exception {
         LDIFEntryReader.valueOfLDIFEntry((String[]) null);
     }
+
+    private static List<String> parallelDecodingLDIF(final int count, final int malformedIndex) {
+        final List<String> ldif = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ldif.add(i == malformedIndex ? "dn: baddn" : "dn: uid=user." + i + ",ou=People,dc=example,dc=com");
+            ldif.add("objectClass: person");
+            ldif.add("uid: user." + i);
+            ldif.add("cn: User " + i);
+            ldif.add("sn: User");
+            ldif.add("");
+        }
+        return ldif;
+    }
+
+    private static List<Entry> readAll(final LDIFEntryReader reader) throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        try {
+            while (reader.hasNext()) {
+                entries.add(reader.readEntry());
+            }
+        } finally {
+            reader.close();
+        }
+        return entries;
+    }
+
+    @Test
+    public void testParallelDecodingPreservesEntryOrder() throws Exception {
+        final List<String> ldif = parallelDecodingLDIF(1000, -1);
+
+        final List<Entry> expected = readAll(new LDIFEntryReader(ldif));
+        final List<Entry> actual = readAll(new LDIFEntryReader(ldif).setDecodingThreads(4));
+
+        assertThat(actual).hasSize(1000);
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    public void testParallelDecodingWithoutEntryOrder() throws Exception {
+        final List<String> ldif = parallelDecodingLDIF(1000, -1);
+
+        final List<Entry> expected = readAll(new LDIFEntryReader(ldif));
+        final List<Entry> actual =
+                readAll(new LDIFEntryReader(ldif).setDecodingThreads(4).setPreserveEntryOrder(false));
+
+        assertThat(actual).hasSize(1000);
+        assertThat(new HashSet<>(actual)).isEqualTo(new HashSet<>(expected));
+    }
+
+    @Test
+    public void testParallelDecodingRejectedLDIFListenerMalformedRecord() throws Exception {
+        final RejectedLDIFListener listener = mock(RejectedLDIFListener.class);
+        final LDIFEntryReader reader =
+                new LDIFEntryReader(parallelDecodingLDIF(500, 300)).setDecodingThreads(3);
+        reader.setRejectedLDIFListener(listener);
+
+        final List<Entry> entries = readAll(reader);
+
+        assertThat(entries).hasSize(499);
+        assertThat(entries.get(300).getName().toString()).isEqualTo("uid=user.301,ou=People,dc=example,dc=com");
+        verify(listener).handleMalformedRecord(
+                eq(1801L),
+                eq(Arrays.asList("dn: baddn", "objectClass: person", "uid: user.300", "cn: User 300", "sn: User")),
+                any(LocalizableMessage.class));
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test
+    public void testParallelDecodingFailFastReturnsPrecedingEntries() throws Exception {
+        final LDIFEntryReader reader =
+                new LDIFEntryReader(parallelDecodingLDIF(500, 300)).setDecodingThreads(3);
+        int count = 0;
+        try {
+            while (reader.hasNext()) {
+                reader.readEntry();
+                count++;
+            }
+            TestCaseUtils.failWasExpected(DecodeException.class);
+        } catch (final DecodeException e) {
+            assertThat(count).isEqualTo(300);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testSetDecodingThreadsDoesntAllowZero() throws Exception {
+        new LDIFEntryReader(getStandardEntry()).setDecodingThreads(0);
+    }
 }
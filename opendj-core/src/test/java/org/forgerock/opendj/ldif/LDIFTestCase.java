@@ -23,6 +23,7 @@
  *
  *      Copyright 2009-2010 Sun Microsystems, Inc.
  *      Portions copyright 2012-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.ldif;
@@ -56,6 +57,7 @@ import org.forgerock.opendj.ldap.schema.MatchingRule;
 import org.forgerock.opendj.ldap.schema.Schema;
 import org.forgerock.opendj.ldap.schema.SchemaBuilder;
 import org.forgerock.opendj.ldap.schema.Syntax;
+import org.forgerock.util.Options;
 import org.testng.annotations.Test;
 
 import com.forgerock.opendj.ldap.CoreMessages;
@@ -2841,4 +2843,190 @@ public class LDIFTestCase extends AbstractLDIFTestCase {
     public void testMakeEntriesNull() throws Exception {
         LDIF.makeEntries((String[]) null);
     }
+
+    /**
+     * Returns options which force the external sort used by the streaming
+     * diff and patch to spill many small runs, sorted in parallel.
+     */
+    private static Options externalSortOptions() {
+        return Options.defaultOptions()
+                .set(LDIF.SORT_MAX_MEMORY_IN_BYTES, 4096L)
+                .set(LDIF.SORT_PARALLELISM, 2);
+    }
+
+    private static List<String> externalSortEntries(final String suffix, final int count) {
+        final List<String> ldif = new ArrayList<>();
+        ldif.add("dn: ou=People," + suffix);
+        ldif.add("objectClass: organizationalunit");
+        ldif.add("ou: People");
+        ldif.add("");
+        ldif.add("dn: ou=Groups," + suffix);
+        ldif.add("objectClass: organizationalunit");
+        ldif.add("ou: Groups");
+        // Add the entries in reverse order so that they really need sorting.
+        for (int i = count - 1; i >= 0; i--) {
+            ldif.add("");
+            ldif.add("dn: uid=user." + i + ",ou=People," + suffix);
+            ldif.add("objectClass: person");
+            ldif.add("uid: user." + i);
+            ldif.add("cn: User " + i);
+            ldif.add("sn: " + (i % 7 == 0 ? "Changed" : "User"));
+            ldif.add("");
+            ldif.add("dn: cn=group." + i + ",ou=Groups," + suffix);
+            ldif.add("objectClass: groupOfNames");
+            ldif.add("cn: group." + i);
+        }
+        return ldif;
+    }
+
+    private static List<String> toLDIF(final EntryReader reader) throws IOException {
+        final List<String> ldif = new ArrayList<>();
+        try {
+            LDIF.copyTo(reader, new LDIFEntryWriter(ldif)).flush();
+        } finally {
+            reader.close();
+        }
+        return ldif;
+    }
+
+    private static List<String> toLDIF(final ChangeRecordReader reader) throws IOException {
+        final List<String> ldif = new ArrayList<>();
+        try {
+            LDIF.copyTo(reader, new LDIFChangeRecordWriter(ldif)).flush();
+        } finally {
+            reader.close();
+        }
+        return ldif;
+    }
+
+    @Test
+    public void testLdifDiffWithExternalSortMatchesInMemoryDiff() throws Exception {
+        final List<String> source = externalSortEntries("dc=example,dc=com", 200);
+        final List<String> target = externalSortEntries("dc=example,dc=com", 250);
+        target.addAll(Arrays.asList("",
+            "dn: uid=user.new,ou=People,dc=example,dc=org",
+            "objectClass: person",
+            "uid: user.new",
+            "cn: New User",
+            "sn: User"));
+
+        final List<String> expected = toLDIF(LDIF.diff(new LDIFEntryReader(source), new LDIFEntryReader(target)));
+        final List<String> actual = toLDIF(LDIF.diff(new LDIFEntryReader(source), new LDIFEntryReader(target),
+                externalSortOptions()));
+
+        assertThat(actual).isNotEmpty();
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    public void testLdifPatchWithExternalSortMatchesInMemoryPatch() throws Exception {
+        final List<String> input = externalSortEntries("dc=example,dc=com", 200);
+        // @formatter:off
+        final String[] patch = {
+            "dn: uid=user.5,ou=People,dc=example,dc=com",
+            "changetype: modify",
+            "replace: sn",
+            "sn: Modified",
+            "",
+            "dn: uid=user.7,ou=People,dc=example,dc=com",
+            "changetype: delete",
+            "",
+            "dn: uid=user.1000,ou=People,dc=example,dc=com",
+            "changetype: add",
+            "objectClass: person",
+            "uid: user.1000",
+            "cn: User 1000",
+            "sn: User",
+            "",
+            "dn: uid=user.3,ou=People,dc=example,dc=com",
+            "changetype: add",
+            "objectClass: person",
+            "uid: user.3",
+            "cn: Replaced",
+            "sn: Replaced",
+            "",
+            "dn: ou=Groups,dc=example,dc=com",
+            "changetype: modrdn",
+            "newrdn: ou=Teams",
+            "deleteoldrdn: 1",
+            "",
+            "dn: uid=user.9,ou=People,dc=example,dc=com",
+            "changetype: modify",
+            "add: description",
+            "description: first",
+            "",
+            "dn: uid=user.9,ou=People,dc=example,dc=com",
+            "changetype: modify",
+            "replace: description",
+            "description: second"
+        };
+        // @formatter:on
+
+        final List<String> expected = toLDIF(LDIF.patch(new LDIFEntryReader(input),
+                new LDIFChangeRecordReader(patch), RejectedChangeRecordListener.OVERWRITE));
+        final List<String> actual = toLDIF(LDIF.patch(new LDIFEntryReader(input),
+                new LDIFChangeRecordReader(patch), RejectedChangeRecordListener.OVERWRITE,
+                externalSortOptions()));
+
+        assertThat(actual).isNotEmpty();
+        assertThat(actual).contains("dn: ou=Teams,dc=example,dc=com", "dn: cn=group.0,ou=Teams,dc=example,dc=com",
+                "description: second");
+        assertThat(actual).excludes("dn: ou=Groups,dc=example,dc=com", "dn: uid=user.7,ou=People,dc=example,dc=com");
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    public void testLdifPatchWithExternalSortAppliesSubtreeDeleteInPatchOrder() throws Exception {
+        final List<String> input = externalSortEntries("dc=example,dc=com", 50);
+        // @formatter:off
+        final String[] patch = {
+            "dn: uid=user.1,ou=People,dc=example,dc=com",
+            "changetype: modify",
+            "replace: sn",
+            "sn: Modified",
+            "",
+            "dn: ou=People,dc=example,dc=com",
+            "control: 1.2.840.113556.1.4.805 true",
+            "changetype: delete",
+            "",
+            "dn: ou=People,dc=example,dc=com",
+            "changetype: add",
+            "objectClass: organizationalunit",
+            "ou: People",
+            "",
+            "dn: uid=user.2,ou=People,dc=example,dc=com",
+            "changetype: add",
+            "objectClass: person",
+            "uid: user.2",
+            "cn: Recreated",
+            "sn: Recreated"
+        };
+        // @formatter:on
+
+        final EntryReader reader = LDIF.patch(new LDIFEntryReader(input), new LDIFChangeRecordReader(patch),
+                RejectedChangeRecordListener.OVERWRITE, externalSortOptions());
+        final List<String> actual = toLDIF(reader);
+
+        assertThat(actual).contains("dn: ou=People,dc=example,dc=com",
+                "dn: uid=user.2,ou=People,dc=example,dc=com", "cn: Recreated",
+                "dn: cn=group.1,ou=Groups,dc=example,dc=com");
+        assertThat(actual).excludes("dn: uid=user.1,ou=People,dc=example,dc=com",
+                "dn: uid=user.3,ou=People,dc=example,dc=com");
+    }
+
+    @Test(expectedExceptions = DecodeException.class)
+    public void testLdifPatchWithExternalSortRejectsMissingEntry() throws Exception {
+        final List<String> input = externalSortEntries("dc=example,dc=com", 10);
+        // @formatter:off
+        final LDIFChangeRecordReader patch = new LDIFChangeRecordReader(
+            "dn: uid=missing,ou=People,dc=example,dc=com",
+            "changetype: modify",
+            "replace: sn",
+            "sn: Modified"
+        );
+        // @formatter:on
+
+        LDIF.patch(new LDIFEntryReader(input), patch, RejectedChangeRecordListener.FAIL_FAST,
+                externalSortOptions());
+    }
 }
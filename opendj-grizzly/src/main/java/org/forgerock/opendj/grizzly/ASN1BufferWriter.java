@@ -23,6 +23,7 @@
  *
  *      Copyright 2010 Sun Microsystems, Inc.
  *      Portions copyright 2012-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.opendj.grizzly;
 
@@ -30,6 +31,9 @@ import static com.forgerock.opendj.ldap.CoreMessages.*;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
@@ -41,10 +45,29 @@ import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Cacheable;
 import org.glassfish.grizzly.memory.ByteBufferWrapper;
+import org.glassfish.grizzly.memory.CompositeBuffer;
+import org.glassfish.grizzly.memory.MemoryManager;
 
 import com.forgerock.opendj.util.StaticUtils;
 
-/** Grizzly ASN1 writer implementation. */
+/**
+ * Grizzly ASN1 writer implementation.
+ * <p>
+ * Encoded messages are written to a heap buffer which is recycled between
+ * messages. If the writer has a memory manager, then the part of a message
+ * which does not fit in {@link #DEFAULT_MAX_INTERNAL_BUFFER_SIZE} bytes is
+ * written to buffers allocated by the memory manager, rather than growing the
+ * heap buffer. Large messages are then returned as a composite buffer, which
+ * the transport can write using a gathering write, and whose buffers are
+ * returned to the memory manager once written.
+ * <p>
+ * In that case nested sequences are also written directly to the message
+ * buffers: their length is reserved when they start and written when they
+ * end. Sequences contained in a single buffer are then moved back so that
+ * their length uses the shortest encoding, which makes small messages
+ * identical to the ones written without a memory manager. Longer sequences
+ * keep the reserved four bytes long form of the length, which BER allows.
+ */
 final class ASN1BufferWriter extends AbstractASN1Writer implements Cacheable {
     private class ChildSequenceBuffer implements SequenceBuffer {
         private SequenceBuffer parent;
@@ -78,6 +101,81 @@ final class ASN1BufferWriter extends AbstractASN1Writer implements Cacheable {
         }
     }
 
+    /**
+     * Writes nested sequences directly to the message buffers, reserving the
+     * space needed for the longest encoding of their length.
+     */
+    private final class ReservedLengthSequenceBuffer implements SequenceBuffer {
+        /** The positions in the message of the lengths of the started sequences. */
+        private int[] lengthPositions = new int[16];
+        private int depth;
+
+        public SequenceBuffer endSequence() throws IOException {
+            final int lengthPosition = lengthPositions[--depth];
+            final int position = getPosition();
+            final int length = position - lengthPosition - RESERVED_LENGTH.length;
+            final Buffer buffer = pooledBuffers.isEmpty() ? outBuffer : pooledBuffers.get(pooledBuffers.size() - 1);
+            final int bufferPosition = lengthPosition - (position - buffer.position());
+            if (bufferPosition >= 0) {
+                // The whole sequence is in the current buffer: use the shortest length encoding.
+                final int lengthSize = getLengthSize(length);
+                moveBytes(buffer, bufferPosition + RESERVED_LENGTH.length, bufferPosition + lengthSize, length);
+                buffer.position(buffer.position() - RESERVED_LENGTH.length + lengthSize);
+                putLength(buffer, bufferPosition, length, lengthSize);
+            } else {
+                putByteAt(lengthPosition, (byte) 0x84);
+                for (int i = 1; i < RESERVED_LENGTH.length; i++) {
+                    putByteAt(lengthPosition + i, (byte) (length >> (8 * (RESERVED_LENGTH.length - 1 - i))));
+                }
+            }
+            logger.trace("WRITE ASN.1 END SEQUENCE(length=%d)", length);
+            return depth > 0 ? this : rootBuffer;
+        }
+
+        public SequenceBuffer startSequence(final byte type) throws IOException {
+            rootBuffer.writeByte(type);
+            if (depth == lengthPositions.length) {
+                lengthPositions = Arrays.copyOf(lengthPositions, depth * 2);
+            }
+            lengthPositions[depth++] = getPosition();
+            rootBuffer.writeByteArray(RESERVED_LENGTH, 0, RESERVED_LENGTH.length);
+            return this;
+        }
+
+        public void writeByte(final byte b) throws IOException {
+            rootBuffer.writeByte(b);
+        }
+
+        public void writeByteArray(final byte[] bs, final int offset, final int length) throws IOException {
+            rootBuffer.writeByteArray(bs, offset, length);
+        }
+
+        /** Returns the number of bytes written for the current message. */
+        private int getPosition() {
+            int position = outBuffer.position();
+            for (final Buffer buffer : pooledBuffers) {
+                position += buffer.position();
+            }
+            return position;
+        }
+
+        private void putByteAt(final int position, final byte b) {
+            if (position < outBuffer.position()) {
+                outBuffer.put(position, b);
+                return;
+            }
+            int bufferPosition = position - outBuffer.position();
+            for (final Buffer buffer : pooledBuffers) {
+                if (bufferPosition < buffer.position()) {
+                    buffer.put(bufferPosition, b);
+                    return;
+                }
+                bufferPosition -= buffer.position();
+            }
+            throw new IndexOutOfBoundsException(String.valueOf(position));
+        }
+    }
+
     private static final class RecyclableBuffer extends ByteBufferWrapper {
         private volatile boolean usable = true;
 
@@ -118,25 +216,66 @@ final class ASN1BufferWriter extends AbstractASN1Writer implements Cacheable {
         }
 
         public SequenceBuffer startSequence(final byte type) throws IOException {
+            if (memoryManager != null) {
+                return reservedLengthBuffer.startSequence(type);
+            }
             if (child == null) {
                 child = new ChildSequenceBuffer();
                 child.parent = this;
             }
-            outBuffer.ensureAdditionalCapacity(1);
-            outBuffer.put(type);
+            writeByte(type);
             child.buffer.clear();
             return child;
         }
 
         public void writeByte(final byte b) throws IOException {
-            outBuffer.ensureAdditionalCapacity(1);
-            outBuffer.put(b);
+            if (isPooledEncoding(1)) {
+                getPooledBuffer().put(b);
+            } else {
+                outBuffer.ensureAdditionalCapacity(1);
+                outBuffer.put(b);
+            }
         }
 
         public void writeByteArray(final byte[] bs, final int offset, final int length)
                 throws IOException {
-            outBuffer.ensureAdditionalCapacity(length);
-            outBuffer.put(bs, offset, length);
+            if (isPooledEncoding(length)) {
+                int written = 0;
+                while (written < length) {
+                    final Buffer buffer = getPooledBuffer();
+                    final int chunkLength = Math.min(buffer.remaining(), length - written);
+                    buffer.put(bs, offset + written, chunkLength);
+                    written += chunkLength;
+                }
+            } else {
+                outBuffer.ensureAdditionalCapacity(length);
+                outBuffer.put(bs, offset, length);
+            }
+        }
+
+        /**
+         * Returns {@code true} if the next bytes should be written to pooled
+         * buffers, either because the heap buffer would exceed its maximum
+         * size or because previous bytes have already been written to pooled
+         * buffers.
+         */
+        private boolean isPooledEncoding(final int length) {
+            return memoryManager != null
+                    && (!pooledBuffers.isEmpty()
+                            || outBuffer.position() + length > DEFAULT_MAX_INTERNAL_BUFFER_SIZE);
+        }
+
+        private Buffer getPooledBuffer() {
+            if (!pooledBuffers.isEmpty()) {
+                final Buffer buffer = pooledBuffers.get(pooledBuffers.size() - 1);
+                if (buffer.hasRemaining()) {
+                    return buffer;
+                }
+            }
+            final Buffer buffer = memoryManager.allocate(POOLED_BUFFER_SIZE);
+            buffer.allowBufferDispose(true);
+            pooledBuffers.add(buffer);
+            return buffer;
         }
     }
 
@@ -162,6 +301,18 @@ final class ASN1BufferWriter extends AbstractASN1Writer implements Cacheable {
      */
     private static final int DEFAULT_MAX_INTERNAL_BUFFER_SIZE = 32 * 1024;
 
+    /**
+     * Size of the buffers allocated from the memory manager once a message
+     * exceeds the size of the internal buffer.
+     */
+    private static final int POOLED_BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * Placeholder for the length of a sequence written with a memory manager,
+     * long enough for the longest length encoding.
+     */
+    private static final byte[] RESERVED_LENGTH = new byte[5];
+
     /**
      * Reset the writer.
      */
@@ -171,18 +322,43 @@ final class ASN1BufferWriter extends AbstractASN1Writer implements Cacheable {
             outBuffer = new RecyclableBuffer();
         }
         outBuffer.clear();
+        disposePooledBuffers();
     }
 
     private SequenceBuffer sequenceBuffer;
     private RecyclableBuffer outBuffer;
     private final RootSequenceBuffer rootBuffer;
+    private final ReservedLengthSequenceBuffer reservedLengthBuffer = new ReservedLengthSequenceBuffer();
+
+    /**
+     * The memory manager used for allocating the buffers of large messages, or
+     * {@code null} if messages are only written to the internal heap buffer.
+     */
+    private final MemoryManager<?> memoryManager;
+
+    /** The buffers allocated for the current message, the last one being written to. */
+    private final List<Buffer> pooledBuffers = new ArrayList<>();
 
     /**
      * Creates a new ASN.1 writer that writes to a StreamWriter.
      */
     ASN1BufferWriter() {
+        this(null);
+    }
+
+    /**
+     * Creates a new ASN.1 writer which writes large messages to buffers
+     * allocated by the provided memory manager.
+     *
+     * @param memoryManager
+     *            The memory manager used for allocating the buffers of large
+     *            messages, or {@code null} if messages should only be written
+     *            to the internal heap buffer.
+     */
+    ASN1BufferWriter(final MemoryManager<?> memoryManager) {
         this.sequenceBuffer = this.rootBuffer = new RootSequenceBuffer();
         this.outBuffer = new RecyclableBuffer();
+        this.memoryManager = memoryManager;
     }
 
     /**
@@ -193,6 +369,7 @@ final class ASN1BufferWriter extends AbstractASN1Writer implements Cacheable {
      *             if an error occurs while closing the stream.
      */
     public void close() throws IOException {
+        disposePooledBuffers();
         outBuffer = null;
     }
 
@@ -211,7 +388,12 @@ final class ASN1BufferWriter extends AbstractASN1Writer implements Cacheable {
      */
     public void recycle() {
         sequenceBuffer = rootBuffer;
-        outBuffer.clear();
+        reservedLengthBuffer.depth = 0;
+        if (outBuffer.usable) {
+            outBuffer.clear();
+        }
+        // Otherwise the buffer may still be queued for writing, in which case it will be replaced by reset().
+        disposePooledBuffers();
     }
 
     /** {@inheritDoc} */
@@ -416,7 +598,74 @@ final class ASN1BufferWriter extends AbstractASN1Writer implements Cacheable {
 
     Buffer getBuffer() {
         outBuffer.usable = false;
-        return outBuffer.flip();
+        final Buffer buffer = outBuffer.flip();
+        if (pooledBuffers.isEmpty()) {
+            return buffer;
+        }
+
+        /*
+         * The composite buffer takes ownership of the pooled buffers: they
+         * will be disposed along with it once the message has been written.
+         */
+        final CompositeBuffer compositeBuffer = CompositeBuffer.newBuffer(memoryManager);
+        compositeBuffer.append(buffer);
+        for (final Buffer pooledBuffer : pooledBuffers) {
+            compositeBuffer.append(pooledBuffer.flip());
+        }
+        pooledBuffers.clear();
+        compositeBuffer.allowBufferDispose(true);
+        compositeBuffer.allowInternalBuffersDispose(true);
+        return compositeBuffer;
+    }
+
+    /** Returns the buffers of a message which has not been sent to the memory manager. */
+    private void disposePooledBuffers() {
+        for (final Buffer pooledBuffer : pooledBuffers) {
+            pooledBuffer.dispose();
+        }
+        pooledBuffers.clear();
+    }
+
+    /** Returns the number of bytes of the shortest encoding of the provided length. */
+    private static int getLengthSize(final int length) {
+        if (length < 128) {
+            return 1;
+        } else if ((length & 0x000000FF) == length) {
+            return 2;
+        } else if ((length & 0x0000FFFF) == length) {
+            return 3;
+        } else if ((length & 0x00FFFFFF) == length) {
+            return 4;
+        }
+        return 5;
+    }
+
+    /** Writes the provided length at the specified index, using the shortest encoding. */
+    private static void putLength(final Buffer buffer, final int index, final int length, final int lengthSize) {
+        if (lengthSize == 1) {
+            buffer.put(index, (byte) length);
+            return;
+        }
+        buffer.put(index, (byte) (0x80 | (lengthSize - 1)));
+        for (int i = 1; i < lengthSize; i++) {
+            buffer.put(index + i, (byte) (length >> (8 * (lengthSize - 1 - i))));
+        }
+    }
+
+    /** Moves bytes towards the beginning of the buffer. */
+    private static void moveBytes(final Buffer buffer, final int from, final int to, final int length) {
+        if (from == to) {
+            return;
+        }
+        if (buffer.hasArray()) {
+            final byte[] array = buffer.array();
+            final int offset = buffer.arrayOffset();
+            System.arraycopy(array, offset + from, array, offset + to, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                buffer.put(to + i, buffer.get(from + i));
+            }
+        }
     }
 
     /**
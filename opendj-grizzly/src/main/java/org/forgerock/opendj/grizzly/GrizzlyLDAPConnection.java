@@ -23,12 +23,15 @@
  *
  *      Copyright 2010 Sun Microsystems, Inc.
  *      Portions Copyright 2011-2015 ForgeRock AS
+ *      Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.opendj.grizzly;
 
 import static com.forgerock.opendj.grizzly.GrizzlyMessages.LDAP_CONNECTION_BIND_OR_START_TLS_CONNECTION_TIMEOUT;
 import static com.forgerock.opendj.grizzly.GrizzlyMessages.LDAP_CONNECTION_BIND_OR_START_TLS_REQUEST_TIMEOUT;
 import static com.forgerock.opendj.grizzly.GrizzlyMessages.LDAP_CONNECTION_REQUEST_TIMEOUT;
+import static org.forgerock.opendj.ldap.LDAPConnectionFactory.REQUEST_PIPELINING_BATCH_SIZE;
+import static org.forgerock.opendj.ldap.LDAPConnectionFactory.REQUEST_PIPELINING_ENABLED;
 import static org.forgerock.opendj.ldap.LDAPConnectionFactory.REQUEST_TIMEOUT;
 import static org.forgerock.opendj.ldap.LdapException.newLdapException;
 import static org.forgerock.opendj.ldap.ResultCode.CLIENT_SIDE_LOCAL_ERROR;
@@ -37,8 +40,8 @@ import static org.forgerock.opendj.ldap.spi.LdapPromises.*;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -89,6 +92,7 @@ import org.forgerock.util.Reject;
 import org.forgerock.util.promise.Promise;
 import org.forgerock.util.promise.PromiseImpl;
 import org.forgerock.util.time.Duration;
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.CompletionHandler;
 import org.glassfish.grizzly.EmptyCompletionHandler;
 import org.glassfish.grizzly.filterchain.Filter;
@@ -120,7 +124,9 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
     private final org.glassfish.grizzly.Connection<?> connection;
     private final AtomicInteger nextMsgID = new AtomicInteger(1);
     private final GrizzlyLDAPConnectionFactory factory;
-    private final ConcurrentHashMap<Integer, ResultLdapPromiseImpl<?, ?>> pendingRequests = new ConcurrentHashMap<>();
+    private final PendingRequestTable pendingRequests;
+    /** The request pipeline, or {@code null} if requests are written individually. */
+    private final RequestPipeline pipeline;
     private final long requestTimeoutMS;
     private final Object stateLock = new Object();
     /** Guarded by stateLock. */
@@ -143,8 +149,12 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
             final GrizzlyLDAPConnectionFactory factory) {
         this.connection = connection;
         this.factory = factory;
-        final Duration requestTimeout = factory.getLDAPOptions().get(REQUEST_TIMEOUT);
+        final Options options = factory.getLDAPOptions();
+        final Duration requestTimeout = options.get(REQUEST_TIMEOUT);
         this.requestTimeoutMS = requestTimeout.isUnlimited() ? 0 : requestTimeout.to(TimeUnit.MILLISECONDS);
+        this.pendingRequests = new PendingRequestTable(requestTimeoutMS);
+        this.pipeline = options.get(REQUEST_PIPELINING_ENABLED)
+                ? new RequestPipeline(connection, options.get(REQUEST_PIPELINING_BATCH_SIZE)) : null;
     }
 
     @Override
@@ -200,7 +210,7 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
         try {
             final int messageID = nextMsgID.getAndIncrement();
             writer.writeAbandonRequest(messageID, request);
-            connection.write(writer.getASN1Writer().getBuffer(), null);
+            writeRequest(writer, false);
             return newSuccessfulLdapPromise((Void) null, messageID);
         } catch (final IOException e) {
             return newFailedLdapPromise(adaptRequestIOException(e));
@@ -225,7 +235,7 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
                 final LDAPWriter<ASN1BufferWriter> writer = GrizzlyUtils.getWriter();
                 try {
                     writer.writeAddRequest(messageID, request);
-                    connection.write(writer.getASN1Writer().getBuffer(), null);
+                    writeRequest(writer, false);
                 } finally {
                     GrizzlyUtils.recycleWriter(writer);
                 }
@@ -301,7 +311,7 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
                     // using the bind request passed to this method.
                     final GenericBindRequest initialRequest = context.nextBindRequest();
                     writer.writeBindRequest(messageID, 3, initialRequest);
-                    connection.write(writer.getASN1Writer().getBuffer(), null);
+                    writeRequest(writer, true);
                 } finally {
                     GrizzlyUtils.recycleWriter(writer);
                 }
@@ -346,7 +356,7 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
                 final LDAPWriter<ASN1BufferWriter> writer = GrizzlyUtils.getWriter();
                 try {
                     writer.writeCompareRequest(messageID, request);
-                    connection.write(writer.getASN1Writer().getBuffer(), null);
+                    writeRequest(writer, false);
                 } finally {
                     GrizzlyUtils.recycleWriter(writer);
                 }
@@ -376,7 +386,7 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
                 final LDAPWriter<ASN1BufferWriter> writer = GrizzlyUtils.getWriter();
                 try {
                     writer.writeDeleteRequest(messageID, request);
-                    connection.write(writer.getASN1Writer().getBuffer(), null);
+                    writeRequest(writer, false);
                 } finally {
                     GrizzlyUtils.recycleWriter(writer);
                 }
@@ -396,10 +406,11 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
         final int messageID = nextMsgID.getAndIncrement();
         final ExtendedResultLdapPromiseImpl<R> promise =
                 newExtendedLdapPromise(messageID, request, intermediateResponseHandler, this);
+        final boolean isStartTLS = StartTLSExtendedRequest.OID.equals(request.getOID());
         try {
             synchronized (stateLock) {
                 checkConnectionIsValid();
-                if (StartTLSExtendedRequest.OID.equals(request.getOID())) {
+                if (isStartTLS) {
                     if (!pendingRequests.isEmpty()) {
                         promise.setResultOrError(request.getResultDecoder().newExtendedErrorResult(
                                 ResultCode.OPERATIONS_ERROR, "", "There are pending operations on this connection"));
@@ -422,7 +433,7 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
                 final LDAPWriter<ASN1BufferWriter> writer = GrizzlyUtils.getWriter();
                 try {
                     writer.writeExtendedRequest(messageID, request);
-                    connection.write(writer.getASN1Writer().getBuffer(), null);
+                    writeRequest(writer, isStartTLS);
                 } finally {
                     GrizzlyUtils.recycleWriter(writer);
                 }
@@ -467,7 +478,7 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
                 final LDAPWriter<ASN1BufferWriter> writer = GrizzlyUtils.getWriter();
                 try {
                     writer.writeModifyRequest(messageID, request);
-                    connection.write(writer.getASN1Writer().getBuffer(), null);
+                    writeRequest(writer, false);
                 } finally {
                     GrizzlyUtils.recycleWriter(writer);
                 }
@@ -497,7 +508,7 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
                 final LDAPWriter<ASN1BufferWriter> writer = GrizzlyUtils.getWriter();
                 try {
                     writer.writeModifyDNRequest(messageID, request);
-                    connection.write(writer.getASN1Writer().getBuffer(), null);
+                    writeRequest(writer, false);
                 } finally {
                     GrizzlyUtils.recycleWriter(writer);
                 }
@@ -538,7 +549,7 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
                 final LDAPWriter<ASN1BufferWriter> writer = GrizzlyUtils.getWriter();
                 try {
                     writer.writeSearchRequest(messageID, request);
-                    connection.write(writer.getASN1Writer().getBuffer(), null);
+                    writeRequest(writer, false);
                 } finally {
                     GrizzlyUtils.recycleWriter(writer);
                 }
@@ -569,19 +580,10 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
             return 0;
         }
 
-        long delay = requestTimeoutMS;
-        for (final ResultLdapPromiseImpl<?, ?> promise : pendingRequests.values()) {
-            if (promise == null || !promise.checkForTimeout()) {
-                continue;
-            }
-            final long diff = (promise.getTimestamp() + requestTimeoutMS) - currentTime;
-            if (diff > 0) {
-                // Will expire in diff milliseconds.
-                delay = Math.min(delay, diff);
-            } else if (pendingRequests.remove(promise.getRequestID()) == null) {
-                // Result arrived at the same time.
-                continue;
-            } else if (promise.isBindOrStartTLS()) {
+        final List<ResultLdapPromiseImpl<?, ?>> expiredRequests = new ArrayList<>(0);
+        final long delay = pendingRequests.removeExpired(currentTime, expiredRequests);
+        for (final ResultLdapPromiseImpl<?, ?> promise : expiredRequests) {
+            if (promise.isBindOrStartTLS()) {
                 /*
                  * No other operations can be performed while a bind or StartTLS
                  * request is active, so we cannot time out the request. We
@@ -672,11 +674,10 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
         }
 
         // First abort all outstanding requests.
-        for (final int requestID : pendingRequests.keySet()) {
-            final ResultLdapPromiseImpl<?, ?> promise = pendingRequests.remove(requestID);
-            if (promise != null) {
-                promise.adaptErrorResult(connectionInvalidReason);
-            }
+        final List<ResultLdapPromiseImpl<?, ?>> abortedRequests = new ArrayList<>();
+        pendingRequests.removeAll(abortedRequests);
+        for (final ResultLdapPromiseImpl<?, ?> promise : abortedRequests) {
+            promise.adaptErrorResult(connectionInvalidReason);
         }
 
         /*
@@ -687,7 +688,7 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
             final LDAPWriter<ASN1BufferWriter> writer = GrizzlyUtils.getWriter();
             try {
                 writer.writeUnbindRequest(nextMsgID.getAndIncrement(), unbindRequest);
-                connection.write(writer.getASN1Writer().getBuffer(), null);
+                writeRequest(writer, true);
             } catch (final Exception ignore) {
                 /*
                  * Underlying channel probably blown up. Ignore all errors,
@@ -730,7 +731,7 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
         return factory.getLDAPOptions();
     }
 
-    ResultLdapPromiseImpl<?, ?> getPendingRequest(final Integer messageID) {
+    ResultLdapPromiseImpl<?, ?> getPendingRequest(final int messageID) {
         return pendingRequests.get(messageID);
     }
 
@@ -777,7 +778,7 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
         }
     }
 
-    ResultLdapPromiseImpl<?, ?> removePendingRequest(final Integer messageID) {
+    ResultLdapPromiseImpl<?, ?> removePendingRequest(final int messageID) {
         return pendingRequests.remove(messageID);
     }
 
@@ -872,4 +873,27 @@ final class GrizzlyLDAPConnection implements LDAPConnectionImpl, TimeoutEventLis
     private boolean isValid0() {
         return !isFailed && !isClosed;
     }
+
+    /**
+     * Writes the request encoded by the provided writer, either directly or
+     * through the request pipeline if pipelining is enabled.
+     *
+     * @param writer
+     *            The writer containing the encoded request.
+     * @param flush
+     *            {@code true} if the request, along with any previously
+     *            pipelined requests, must be written before this method
+     *            returns, as is the case for bind, StartTLS and unbind
+     *            requests.
+     */
+    private void writeRequest(final LDAPWriter<ASN1BufferWriter> writer, final boolean flush) {
+        final Buffer buffer = writer.getASN1Writer().getBuffer();
+        if (pipeline == null) {
+            connection.write(buffer, null);
+        } else if (flush) {
+            pipeline.writeAndFlush(buffer);
+        } else {
+            pipeline.write(buffer);
+        }
+    }
 }
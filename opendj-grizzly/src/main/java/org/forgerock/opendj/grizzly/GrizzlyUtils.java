@@ -22,6 +22,7 @@
  *
  *
  *      Copyright 2013-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.opendj.grizzly;
 
@@ -43,6 +44,7 @@ import org.glassfish.grizzly.filterchain.FilterChain;
 import org.glassfish.grizzly.filterchain.FilterChainBuilder;
 import org.glassfish.grizzly.filterchain.TransportFilter;
 import org.glassfish.grizzly.memory.MemoryManager;
+import org.glassfish.grizzly.memory.PooledMemoryManager;
 import org.glassfish.grizzly.nio.transport.TCPNIOConnection;
 import org.glassfish.grizzly.ssl.SSLFilter;
 
@@ -56,6 +58,18 @@ final class GrizzlyUtils {
     private static final ThreadCache.CachedTypeIndex<LDAPWriter> WRITER_INDEX = ThreadCache
             .obtainIndex(LDAPWriter.class, 1);
 
+    /**
+     * The memory manager used for encoding large LDAP messages, or
+     * {@code null} if they should be encoded in growing heap buffers. It may be
+     * configured using the {@code org.forgerock.opendj.transport.encodingBuffers}
+     * property, whose value is either {@code heap} (the default),
+     * {@code pooled} for pooled heap buffers, or {@code pooledDirect} for
+     * pooled direct buffers, which avoid an additional copy when writing to
+     * the socket.
+     */
+    private static final MemoryManager<?> ENCODING_MEMORY_MANAGER = getEncodingMemoryManager(
+            System.getProperty("org.forgerock.opendj.transport.encodingBuffers"));
+
     /**
      * Build a filter chain from the provided processor if possible and the
      * provided filter.
@@ -168,12 +182,22 @@ final class GrizzlyUtils {
     static LDAPWriter<ASN1BufferWriter> getWriter() {
         LDAPWriter<ASN1BufferWriter> writer = ThreadCache.takeFromCache(WRITER_INDEX);
         if (writer == null) {
-            writer = LDAP.getWriter(new ASN1BufferWriter());
+            writer = LDAP.getWriter(new ASN1BufferWriter(ENCODING_MEMORY_MANAGER));
         }
         writer.getASN1Writer().reset();
         return writer;
     }
 
+    private static MemoryManager<?> getEncodingMemoryManager(final String encodingBuffers) {
+        if ("pooledDirect".equalsIgnoreCase(encodingBuffers)) {
+            return new PooledMemoryManager(true);
+        } else if ("pooled".equalsIgnoreCase(encodingBuffers)) {
+            return new PooledMemoryManager(false);
+        } else {
+            return null;
+        }
+    }
+
     /**
      * Recycle a LDAP writer to a thread local cache.
      * <p>
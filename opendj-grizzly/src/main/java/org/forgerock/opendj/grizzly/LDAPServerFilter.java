@@ -23,6 +23,7 @@
  *
  *      Copyright 2010 Sun Microsystems, Inc.
  *      Portions Copyright 2012-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.grizzly;
@@ -75,8 +76,11 @@ import org.forgerock.opendj.ldap.responses.SearchResultEntry;
 import org.forgerock.opendj.ldap.responses.SearchResultReference;
 import org.forgerock.util.Options;
 import org.forgerock.util.Reject;
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.EmptyCompletionHandler;
 import org.glassfish.grizzly.Grizzly;
+import org.glassfish.grizzly.WriteResult;
 import org.glassfish.grizzly.attributes.Attribute;
 import org.glassfish.grizzly.filterchain.Filter;
 import org.glassfish.grizzly.filterchain.FilterChain;
@@ -85,8 +89,12 @@ import org.glassfish.grizzly.filterchain.NextAction;
 import org.glassfish.grizzly.ssl.SSLEngineConfigurator;
 import org.glassfish.grizzly.ssl.SSLFilter;
 import org.glassfish.grizzly.ssl.SSLUtils;
+import org.glassfish.grizzly.strategies.SameThreadIOStrategy;
+import org.glassfish.grizzly.threadpool.Threads;
 
 import static org.forgerock.opendj.grizzly.GrizzlyUtils.*;
+import static org.forgerock.opendj.ldap.LDAPListener.WRITE_QUEUE_HIGH_WATER_MARK_IN_BYTES;
+import static org.forgerock.opendj.ldap.LDAPListener.WRITE_QUEUE_LOW_WATER_MARK_IN_BYTES;
 
 /**
  * Grizzly filter implementation for decoding LDAP requests and handling server
@@ -249,8 +257,27 @@ final class LDAPServerFilter extends LDAPBaseFilter {
         private final AtomicBoolean isClosed = new AtomicBoolean();
         private ServerConnection<Integer> serverConnection;
 
-        private ClientContextImpl(final Connection<?> connection) {
+        /** Flow control is disabled, and writes are blocking, if the high-water mark is 0. */
+        private final int writeQueueHighWaterMark;
+        private final int writeQueueLowWaterMark;
+        private final Object writeQueueLock = new Object();
+        /** The number of bytes written but not yet sent to the client. Guarded by writeQueueLock. */
+        private long writeQueueSize;
+        /**
+         * Whether Grizzly service threads may be suspended. This is not the case when requests are handled by the
+         * selector threads, since they are responsible for draining the write queue.
+         */
+        private final boolean canSuspendServiceThreads;
+
+        private ClientContextImpl(final Connection<?> connection, final int writeQueueHighWaterMark,
+                final int writeQueueLowWaterMark) {
             this.connection = connection;
+            this.writeQueueHighWaterMark = Math.max(writeQueueHighWaterMark, 0);
+            this.writeQueueLowWaterMark = writeQueueLowWaterMark > 0
+                    ? Math.min(writeQueueLowWaterMark, this.writeQueueHighWaterMark)
+                    : this.writeQueueHighWaterMark / 2;
+            this.canSuspendServiceThreads =
+                    !(connection.getTransport().getIOStrategy() instanceof SameThreadIOStrategy);
         }
 
         @Override
@@ -335,7 +362,7 @@ final class LDAPServerFilter extends LDAPBaseFilter {
             LDAPWriter<ASN1BufferWriter> writer = GrizzlyUtils.getWriter();
             try {
                 writer.writeExtendedResult(0, notification);
-                connection.write(writer.getASN1Writer().getBuffer(), null);
+                write(writer);
             } catch (final IOException ioe) {
                 handleException(ioe);
             } finally {
@@ -356,7 +383,74 @@ final class LDAPServerFilter extends LDAPBaseFilter {
         }
 
         public void write(final LDAPWriter<ASN1BufferWriter> writer) {
-            connection.write(writer.getASN1Writer().getBuffer(), null);
+            final Buffer buffer = writer.getASN1Writer().getBuffer();
+            if (writeQueueHighWaterMark == 0) {
+                connection.write(buffer, null);
+                return;
+            }
+
+            final int size = buffer.remaining();
+            synchronized (writeQueueLock) {
+                writeQueueSize += size;
+            }
+            connection.write(buffer, new EmptyCompletionHandler<WriteResult<?, ?>>() {
+                @Override
+                public void completed(final WriteResult<?, ?> result) {
+                    writeDequeued(size);
+                }
+
+                @Override
+                public void failed(final Throwable throwable) {
+                    writeDequeued(size);
+                    // The response is lost, e.g. because the write queue limit has been exceeded.
+                    handleException(throwable);
+                }
+            });
+        }
+
+        /**
+         * Suspends the calling thread while the write queue is above the
+         * high-water mark, until it drains to the low-water mark or the
+         * connection is closed. Request handlers running synchronously in
+         * Grizzly worker threads are suspended as well, since the write queue
+         * is drained by the selector threads. Selector threads are never
+         * suspended.
+         */
+        private void waitUntilWritable() {
+            if (writeQueueHighWaterMark == 0 || (!canSuspendServiceThreads && Threads.isService())) {
+                return;
+            }
+            synchronized (writeQueueLock) {
+                if (writeQueueSize < writeQueueHighWaterMark) {
+                    return;
+                }
+                logger.trace("Suspending search result writes to %s while %d bytes are queued", this,
+                        writeQueueSize);
+                while (writeQueueSize > writeQueueLowWaterMark && !isClosed.get()) {
+                    try {
+                        writeQueueLock.wait();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        /** Resumes the threads suspended by {@link #waitUntilWritable()} once the connection is closed. */
+        private void resumeSuspendedWriters() {
+            synchronized (writeQueueLock) {
+                writeQueueLock.notifyAll();
+            }
+        }
+
+        private void writeDequeued(final int size) {
+            synchronized (writeQueueLock) {
+                writeQueueSize -= size;
+                if (writeQueueSize <= writeQueueLowWaterMark) {
+                    writeQueueLock.notifyAll();
+                }
+            }
         }
 
         private void disconnect0(final ResultCode resultCode, final String message) {
@@ -369,6 +463,7 @@ final class LDAPServerFilter extends LDAPBaseFilter {
                         serverConnection.handleConnectionDisconnected(resultCode, message);
                     }
                 } finally {
+                    resumeSuspendedWriters();
                     // Close the connection.
                     connection.closeSilently();
                 }
@@ -389,6 +484,7 @@ final class LDAPServerFilter extends LDAPBaseFilter {
                         serverConnection.handleConnectionClosed(messageID, unbindRequest);
                     }
                 } finally {
+                    resumeSuspendedWriters();
                     // If this close was a result of an unbind request then the
                     // connection won't actually be closed yet. To avoid TIME_WAIT TCP
                     // state, let the client disconnect.
@@ -412,6 +508,7 @@ final class LDAPServerFilter extends LDAPBaseFilter {
                         serverConnection.handleConnectionError(error);
                     }
                 } finally {
+                    resumeSuspendedWriters();
                     // Close the connection.
                     connection.closeSilently();
                 }
@@ -577,6 +674,7 @@ final class LDAPServerFilter extends LDAPBaseFilter {
 
         @Override
         public boolean handleEntry(final SearchResultEntry entry) {
+            context.waitUntilWritable();
             writeMessage(new LDAPWrite<SearchResultEntry>() {
                 @Override
                 public void perform(LDAPWriter<ASN1BufferWriter> writer, int messageID,
@@ -594,6 +692,7 @@ final class LDAPServerFilter extends LDAPBaseFilter {
 
         @Override
         public boolean handleReference(final SearchResultReference reference) {
+            context.waitUntilWritable();
             writeMessage(new LDAPWrite<SearchResultReference>() {
                 @Override
                 public void perform(LDAPWriter<ASN1BufferWriter> writer, int messageID,
@@ -643,6 +742,12 @@ final class LDAPServerFilter extends LDAPBaseFilter {
      */
     private static final int DEFAULT_MAX_REQUEST_SIZE = 5 * 1024 * 1024;
 
+    /**
+     * Limit of Grizzly's write queue, as a multiple of the write queue
+     * high-water mark, when write queue flow control is enabled.
+     */
+    private static final long WRITE_QUEUE_SIZE_LIMIT_FACTOR = 4;
+
     private static final Attribute<ClientContextImpl> LDAP_CONNECTION_ATTR =
             Grizzly.DEFAULT_ATTRIBUTE_BUILDER.createAttribute("LDAPServerConnection");
 
@@ -844,8 +949,21 @@ final class LDAPServerFilter extends LDAPBaseFilter {
         final Connection<?> connection = ctx.getConnection();
         Options options = listener.getLDAPListenerOptions();
         configureConnection(connection, logger, options);
+        final int writeQueueHighWaterMark = options.get(WRITE_QUEUE_HIGH_WATER_MARK_IN_BYTES);
+        if (writeQueueHighWaterMark > 0) {
+            /*
+             * Search results are throttled by the client context well before
+             * this limit is reached: it only protects the heap from responses
+             * which are not subject to flow control, or which are much larger
+             * than the high-water mark. Clients exceeding it are disconnected.
+             */
+            connection.configureBlocking(false);
+            connection.setMaxAsyncWriteQueueSize(
+                    (int) Math.min(WRITE_QUEUE_SIZE_LIMIT_FACTOR * writeQueueHighWaterMark, Integer.MAX_VALUE));
+        }
         try {
-            final ClientContextImpl clientContext = new ClientContextImpl(connection);
+            final ClientContextImpl clientContext = new ClientContextImpl(connection, writeQueueHighWaterMark,
+                    options.get(WRITE_QUEUE_LOW_WATER_MARK_IN_BYTES));
             final ServerConnection<Integer> serverConn =
                     listener.getConnectionFactory().handleAccept(clientContext);
             clientContext.setServerConnection(serverConn);
@@ -0,0 +1,347 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.grizzly;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.forgerock.opendj.ldap.spi.ResultLdapPromiseImpl;
+
+/**
+ * The table of requests which are awaiting a response on a connection, keyed
+ * by message ID.
+ * <p>
+ * The table is split into stripes, each of which is an open-addressed hash
+ * table of primitive message IDs using linear probing. Since message IDs are
+ * allocated sequentially, consecutive requests are spread evenly across
+ * stripes and rarely collide within a stripe. Once the table has grown to
+ * accommodate the peak number of outstanding requests, registering and
+ * removing requests does not allocate any memory.
+ * <p>
+ * If a request timeout is specified, each stripe also maintains a timing wheel
+ * of message IDs indexed by the time at which the requests are due to expire,
+ * so that only the requests which may have expired need to be examined when
+ * checking for timeouts. Message IDs are not removed from the wheel when the
+ * request completes, but are simply ignored once their slot is examined. The
+ * expiration time of requests whose timestamp has been refreshed since they
+ * were registered, such as searches returning entries, is recomputed at that
+ * point.
+ */
+final class PendingRequestTable {
+    /** Must be a power of 2. */
+    private static final int NUMBER_OF_STRIPES = 16;
+    /** Must be a power of 2. */
+    private static final int INITIAL_STRIPE_CAPACITY = 16;
+    /** Must be a power of 2. */
+    private static final int WHEEL_SIZE = 64;
+    private static final int INITIAL_SLOT_CAPACITY = 8;
+
+    private final class Stripe {
+        private int[] messageIDs = new int[INITIAL_STRIPE_CAPACITY];
+        private ResultLdapPromiseImpl<?, ?>[] promises = new ResultLdapPromiseImpl<?, ?>[INITIAL_STRIPE_CAPACITY];
+        private int size;
+
+        /** The message IDs in each slot of the timing wheel, or {@code null} if there is no timeout. */
+        private final int[][] slots;
+        private final int[] slotSizes;
+        /** Spare slot used while expiring the requests of another slot. */
+        private int[] spareSlot;
+        private long lastExpiredTick;
+
+        private Stripe(final long currentTime) {
+            if (tickMS > 0) {
+                slots = new int[WHEEL_SIZE][];
+                for (int i = 0; i < WHEEL_SIZE; i++) {
+                    slots[i] = new int[INITIAL_SLOT_CAPACITY];
+                }
+                slotSizes = new int[WHEEL_SIZE];
+                spareSlot = new int[INITIAL_SLOT_CAPACITY];
+                lastExpiredTick = currentTime / tickMS;
+            } else {
+                slots = null;
+                slotSizes = null;
+            }
+        }
+
+        private synchronized ResultLdapPromiseImpl<?, ?> get(final int messageID) {
+            final int index = indexOf(messageID);
+            return index >= 0 ? promises[index] : null;
+        }
+
+        private synchronized void put(final int messageID, final ResultLdapPromiseImpl<?, ?> promise) {
+            if (size >= (promises.length >>> 1) + (promises.length >>> 2)) {
+                resize();
+            }
+            final int mask = promises.length - 1;
+            int index = hash(messageID) & mask;
+            while (promises[index] != null && messageIDs[index] != messageID) {
+                index = (index + 1) & mask;
+            }
+            if (promises[index] == null) {
+                size++;
+            }
+            messageIDs[index] = messageID;
+            promises[index] = promise;
+            if (slots != null) {
+                schedule(messageID, promise.getTimestamp() + timeoutMS);
+            }
+        }
+
+        private synchronized ResultLdapPromiseImpl<?, ?> remove(final int messageID) {
+            final int index = indexOf(messageID);
+            return index >= 0 ? removeAt(index) : null;
+        }
+
+        private synchronized void removeAll(final List<ResultLdapPromiseImpl<?, ?>> removedRequests) {
+            for (int i = 0; i < promises.length; i++) {
+                if (promises[i] != null) {
+                    removedRequests.add(promises[i]);
+                    promises[i] = null;
+                }
+            }
+            size = 0;
+            if (slots != null) {
+                Arrays.fill(slotSizes, 0);
+            }
+        }
+
+        private synchronized long removeExpired(final long currentTime,
+                final List<ResultLdapPromiseImpl<?, ?>> expiredRequests) {
+            final long currentTick = currentTime / tickMS;
+            // No need to examine each slot more than once.
+            for (long tick = Math.max(lastExpiredTick + 1, currentTick - WHEEL_SIZE + 1); tick <= currentTick; tick++) {
+                final int slot = (int) tick & (WHEEL_SIZE - 1);
+                final int[] slotMessageIDs = slots[slot];
+                final int slotSize = slotSizes[slot];
+                slots[slot] = spareSlot;
+                slotSizes[slot] = 0;
+                for (int i = 0; i < slotSize; i++) {
+                    final int index = indexOf(slotMessageIDs[i]);
+                    if (index < 0 || !promises[index].checkForTimeout()) {
+                        // Request has completed or never expires.
+                        continue;
+                    }
+                    final long expirationTime = promises[index].getTimestamp() + timeoutMS;
+                    if (expirationTime <= currentTime) {
+                        expiredRequests.add(removeAt(index));
+                    } else {
+                        schedule(slotMessageIDs[i], expirationTime);
+                    }
+                }
+                spareSlot = slotMessageIDs;
+            }
+            lastExpiredTick = Math.max(lastExpiredTick, currentTick);
+
+            // Determine when the next non-empty slot is due.
+            for (long tick = currentTick + 1; tick <= currentTick + WHEEL_SIZE; tick++) {
+                if (slotSizes[(int) tick & (WHEEL_SIZE - 1)] > 0) {
+                    return tick * tickMS - currentTime;
+                }
+            }
+            return timeoutMS;
+        }
+
+        private int indexOf(final int messageID) {
+            final int mask = promises.length - 1;
+            int index = hash(messageID) & mask;
+            while (promises[index] != null) {
+                if (messageIDs[index] == messageID) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        private ResultLdapPromiseImpl<?, ?> removeAt(int index) {
+            final ResultLdapPromiseImpl<?, ?> promise = promises[index];
+            final int mask = promises.length - 1;
+            promises[index] = null;
+            size--;
+
+            // Shift back subsequent entries which would no longer be reachable.
+            int next = (index + 1) & mask;
+            while (promises[next] != null) {
+                final int home = hash(messageIDs[next]) & mask;
+                if (((next - home) & mask) >= ((next - index) & mask)) {
+                    messageIDs[index] = messageIDs[next];
+                    promises[index] = promises[next];
+                    promises[next] = null;
+                    index = next;
+                }
+                next = (next + 1) & mask;
+            }
+            return promise;
+        }
+
+        private void resize() {
+            final int[] oldMessageIDs = messageIDs;
+            final ResultLdapPromiseImpl<?, ?>[] oldPromises = promises;
+            messageIDs = new int[oldPromises.length << 1];
+            promises = new ResultLdapPromiseImpl<?, ?>[oldPromises.length << 1];
+            final int mask = promises.length - 1;
+            for (int i = 0; i < oldPromises.length; i++) {
+                if (oldPromises[i] != null) {
+                    int index = hash(oldMessageIDs[i]) & mask;
+                    while (promises[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    messageIDs[index] = oldMessageIDs[i];
+                    promises[index] = oldPromises[i];
+                }
+            }
+        }
+
+        private void schedule(final int messageID, final long expirationTime) {
+            // Round up so that requests are never examined before they expire.
+            final long tick = Math.max((expirationTime + tickMS - 1) / tickMS, lastExpiredTick + 1);
+            final int slot = (int) tick & (WHEEL_SIZE - 1);
+            int[] slotMessageIDs = slots[slot];
+            if (slotSizes[slot] == slotMessageIDs.length) {
+                slotMessageIDs = slots[slot] = Arrays.copyOf(slotMessageIDs, slotMessageIDs.length << 1);
+            }
+            slotMessageIDs[slotSizes[slot]++] = messageID;
+        }
+    }
+
+    private final Stripe[] stripes = new Stripe[NUMBER_OF_STRIPES];
+    private final long timeoutMS;
+    /** The duration of each slot of the timing wheels, or 0 if there is no timeout. */
+    private final long tickMS;
+
+    /**
+     * Creates a new empty pending request table.
+     *
+     * @param timeoutMS
+     *            The request timeout in milliseconds, or 0 if requests never
+     *            time out.
+     */
+    PendingRequestTable(final long timeoutMS) {
+        this.timeoutMS = Math.max(timeoutMS, 0);
+        // Ensure that the wheel spans the timeout so that expiration times never wrap around.
+        this.tickMS = this.timeoutMS > 0 ? Math.max(1, (this.timeoutMS + WHEEL_SIZE - 2) / (WHEEL_SIZE - 1)) : 0;
+        final long currentTime = System.currentTimeMillis();
+        for (int i = 0; i < NUMBER_OF_STRIPES; i++) {
+            stripes[i] = new Stripe(currentTime);
+        }
+    }
+
+    /**
+     * Returns the pending request having the provided message ID.
+     *
+     * @param messageID
+     *            The message ID of the request.
+     * @return The pending request, or {@code null} if there is no such
+     *         request.
+     */
+    ResultLdapPromiseImpl<?, ?> get(final int messageID) {
+        return stripeOf(messageID).get(messageID);
+    }
+
+    /**
+     * Returns {@code true} if there are no pending requests.
+     *
+     * @return {@code true} if there are no pending requests.
+     */
+    boolean isEmpty() {
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                if (stripe.size > 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Registers a pending request, replacing any existing request having the
+     * same message ID.
+     *
+     * @param messageID
+     *            The message ID of the request.
+     * @param promise
+     *            The promise of the request.
+     */
+    void put(final int messageID, final ResultLdapPromiseImpl<?, ?> promise) {
+        stripeOf(messageID).put(messageID, promise);
+    }
+
+    /**
+     * Removes the pending request having the provided message ID.
+     *
+     * @param messageID
+     *            The message ID of the request.
+     * @return The removed request, or {@code null} if there is no such
+     *         request.
+     */
+    ResultLdapPromiseImpl<?, ?> remove(final int messageID) {
+        return stripeOf(messageID).remove(messageID);
+    }
+
+    /**
+     * Removes all the pending requests.
+     *
+     * @param removedRequests
+     *            The list to which the removed requests will be added.
+     */
+    void removeAll(final List<ResultLdapPromiseImpl<?, ?>> removedRequests) {
+        for (final Stripe stripe : stripes) {
+            stripe.removeAll(removedRequests);
+        }
+    }
+
+    /**
+     * Removes the pending requests which have timed out. Requests for which
+     * {@link ResultLdapPromiseImpl#checkForTimeout()} returns {@code false}
+     * never time out.
+     *
+     * @param currentTime
+     *            The current time in milliseconds.
+     * @param expiredRequests
+     *            The list to which the expired requests will be added.
+     * @return The delay in milliseconds before pending requests should be
+     *         checked again, or 0 if requests never time out.
+     */
+    long removeExpired(final long currentTime, final List<ResultLdapPromiseImpl<?, ?>> expiredRequests) {
+        if (timeoutMS == 0) {
+            return 0;
+        }
+        long delay = timeoutMS;
+        for (final Stripe stripe : stripes) {
+            delay = Math.min(delay, stripe.removeExpired(currentTime, expiredRequests));
+        }
+        return delay;
+    }
+
+    private static int hash(final int messageID) {
+        // Consecutive message IDs are assigned to different stripes.
+        return messageID >>> 4;
+    }
+
+    private Stripe stripeOf(final int messageID) {
+        return stripes[messageID & (NUMBER_OF_STRIPES - 1)];
+    }
+}
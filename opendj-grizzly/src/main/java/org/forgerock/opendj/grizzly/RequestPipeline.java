@@ -0,0 +1,146 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.grizzly;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.Connection;
+import org.glassfish.grizzly.memory.CompositeBuffer;
+import org.glassfish.grizzly.memory.MemoryManager;
+
+/**
+ * Coalesces the requests written to a connection by concurrent threads into
+ * batches which are written to the transport using a single gathering write.
+ * <p>
+ * Requests are queued in the order in which they are written. The first thread
+ * to find the pipeline idle becomes responsible for writing the queued requests
+ * in batches of at most {@code batchSize} requests until the queue is empty,
+ * while the other threads return immediately. Batches therefore form naturally
+ * while a previous batch is being written, without delaying requests written to
+ * an idle connection.
+ * <p>
+ * Requests which must be written before the caller can proceed, such as bind,
+ * StartTLS or unbind requests, are written using {@link #writeAndFlush}, which
+ * only returns once all the requests queued before it have been written.
+ */
+final class RequestPipeline {
+    private final Connection<?> connection;
+    private final int batchSize;
+    private final MemoryManager<?> memoryManager;
+    private final Queue<Buffer> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * Creates a new request pipeline for the provided connection.
+     *
+     * @param connection
+     *            The connection to which requests will be written.
+     * @param batchSize
+     *            The maximum number of requests written in a single batch.
+     */
+    RequestPipeline(final Connection<?> connection, final int batchSize) {
+        this.connection = connection;
+        this.batchSize = Math.max(1, batchSize);
+        this.memoryManager = connection.getTransport().getMemoryManager();
+    }
+
+    /**
+     * Queues the provided encoded request and writes it, along with any other
+     * queued requests, unless another thread is already writing requests to
+     * the connection, in which case that thread will write it.
+     *
+     * @param buffer
+     *            The encoded request, which is copied before this method
+     *            returns so that the encoding buffer can be recycled.
+     */
+    void write(final Buffer buffer) {
+        pendingWrites.offer(copyOf(buffer));
+        writePendingRequestsIfIdle();
+    }
+
+    /**
+     * Queues the provided encoded request and waits until it has been written
+     * along with any requests queued before it.
+     *
+     * @param buffer
+     *            The encoded request, which is copied before this method
+     *            returns so that the encoding buffer can be recycled.
+     */
+    void writeAndFlush(final Buffer buffer) {
+        pendingWrites.offer(copyOf(buffer));
+        writeLock.lock();
+        try {
+            writePendingRequests();
+        } finally {
+            writeLock.unlock();
+        }
+        // Requests queued by other threads which gave up on the lock must still be written.
+        writePendingRequestsIfIdle();
+    }
+
+    private Buffer copyOf(final Buffer buffer) {
+        final Buffer copy = memoryManager.allocate(buffer.remaining());
+        copy.put(buffer);
+        copy.flip();
+        copy.allowBufferDispose(true);
+        buffer.dispose();
+        return copy;
+    }
+
+    /** Must be called while holding the write lock. */
+    private void writePendingRequests() {
+        Buffer buffer;
+        while ((buffer = pendingWrites.poll()) != null) {
+            Buffer next = batchSize > 1 ? pendingWrites.poll() : null;
+            if (next == null) {
+                connection.write(buffer, null);
+                continue;
+            }
+            final CompositeBuffer batch = CompositeBuffer.newBuffer(memoryManager);
+            batch.allowBufferDispose(true);
+            batch.allowInternalBuffersDispose(true);
+            batch.append(buffer);
+            batch.append(next);
+            for (int i = 2; i < batchSize && (next = pendingWrites.poll()) != null; i++) {
+                batch.append(next);
+            }
+            connection.write(batch, null);
+        }
+    }
+
+    private void writePendingRequestsIfIdle() {
+        while (!pendingWrites.isEmpty() && writeLock.tryLock()) {
+            try {
+                writePendingRequests();
+            } finally {
+                writeLock.unlock();
+            }
+            // Loop in case a request was queued just before the lock was released.
+        }
+    }
+}
@@ -23,20 +23,27 @@
  *
  *      Copyright 2010 Sun Microsystems, Inc.
  *      Portions copyright 2011-2013 ForgeRock AS
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.grizzly;
 
+import static org.fest.assertions.Assertions.*;
+
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.forgerock.opendj.io.ASN1Reader;
 import org.forgerock.opendj.io.ASN1Writer;
 import org.forgerock.opendj.io.ASN1WriterTestCase;
+import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.DecodeException;
 import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.memory.ByteBufferWrapper;
+import org.glassfish.grizzly.memory.CompositeBuffer;
 import org.glassfish.grizzly.memory.MemoryManager;
+import org.testng.annotations.Test;
 
 /**
  * This class provides testcases for ASN1BufferWriter.
@@ -68,4 +75,82 @@ public class ASN1BufferWriterTestCase extends ASN1WriterTestCase {
         writer.recycle();
         return writer;
     }
+
+    /**
+     * Tests that large messages written by a writer having a memory manager
+     * are split into pooled buffers, including the content of their nested
+     * sequences, and can be decoded.
+     */
+    @Test
+    public void testEncodeLargeSequenceWithMemoryManager() throws Exception {
+        final byte[] value = new byte[200 * 1024];
+        Arrays.fill(value, (byte) 'x');
+
+        final ASN1BufferWriter pooledWriter = new ASN1BufferWriter(MemoryManager.DEFAULT_MEMORY_MANAGER);
+        pooledWriter.writeStartSequence();
+        pooledWriter.writeInteger(1);
+        pooledWriter.writeStartSequence();
+        pooledWriter.writeOctetString("small");
+        pooledWriter.writeEndSequence();
+        pooledWriter.writeStartSequence();
+        pooledWriter.writeOctetString(value, 0, value.length);
+        pooledWriter.writeStartSequence();
+        pooledWriter.writeBoolean(true);
+        pooledWriter.writeEndSequence();
+        pooledWriter.writeEndSequence();
+        pooledWriter.writeEndSequence();
+
+        final Buffer pooledBuffer = pooledWriter.getBuffer();
+        assertThat(pooledBuffer instanceof CompositeBuffer).isTrue();
+        final ASN1Reader reader = getReader(toByteString(pooledBuffer).toByteArray());
+        reader.readStartSequence();
+        assertThat(reader.readInteger()).isEqualTo(1);
+        reader.readStartSequence();
+        assertThat(reader.readOctetStringAsString()).isEqualTo("small");
+        reader.readEndSequence();
+        reader.readStartSequence();
+        assertThat(reader.readOctetString()).isEqualTo(ByteString.wrap(value));
+        reader.readStartSequence();
+        assertThat(reader.readBoolean()).isTrue();
+        reader.readEndSequence();
+        reader.readEndSequence();
+        reader.readEndSequence();
+        assertThat(reader.hasNextElement()).isFalse();
+        pooledBuffer.dispose();
+    }
+
+    /**
+     * Tests that messages fitting in the internal buffer are encoded
+     * identically with and without a memory manager.
+     */
+    @Test
+    public void testEncodeSmallSequenceWithMemoryManager() throws Exception {
+        final byte[] value = new byte[1000];
+        Arrays.fill(value, (byte) 'x');
+
+        final ASN1BufferWriter heapWriter = new ASN1BufferWriter();
+        final ASN1BufferWriter pooledWriter = new ASN1BufferWriter(MemoryManager.DEFAULT_MEMORY_MANAGER);
+        for (final ASN1BufferWriter w : Arrays.asList(heapWriter, pooledWriter)) {
+            w.writeStartSequence();
+            w.writeInteger(1);
+            w.writeStartSequence();
+            w.writeOctetString(value, 0, value.length);
+            w.writeStartSet();
+            w.writeOctetString("value");
+            w.writeEndSet();
+            w.writeEndSequence();
+            w.writeEndSequence();
+        }
+
+        final Buffer heapBuffer = heapWriter.getBuffer();
+        final Buffer pooledBuffer = pooledWriter.getBuffer();
+        assertThat(pooledBuffer instanceof CompositeBuffer).isFalse();
+        assertThat(toByteString(pooledBuffer)).isEqualTo(toByteString(heapBuffer));
+    }
+
+    private ByteString toByteString(final Buffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return ByteString.wrap(bytes);
+    }
 }
@@ -22,6 +22,7 @@
  *
  *
  *      Copyright 2013-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package org.forgerock.opendj.grizzly;
@@ -32,22 +33,37 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
+import static org.forgerock.opendj.ldap.LDAPConnectionFactory.REQUEST_PIPELINING_BATCH_SIZE;
+import static org.forgerock.opendj.ldap.LDAPConnectionFactory.REQUEST_PIPELINING_ENABLED;
 import static org.forgerock.opendj.ldap.LDAPConnectionFactory.REQUEST_TIMEOUT;
 import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.forgerock.opendj.ldap.Connections;
 import org.forgerock.opendj.ldap.LdapException;
+import org.forgerock.opendj.ldap.LDAPClientContext;
 import org.forgerock.opendj.ldap.LDAPListener;
+import org.forgerock.opendj.ldap.LdapPromise;
+import org.forgerock.opendj.ldap.MemoryBackend;
 import org.forgerock.opendj.ldap.RequestHandler;
 import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SdkTestCase;
 import org.forgerock.opendj.ldap.SearchResultHandler;
 import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.ldap.ServerConnectionFactory;
 import org.forgerock.opendj.ldap.TestCaseUtils;
 import org.forgerock.opendj.ldap.TimeoutResultException;
 import org.forgerock.opendj.ldap.controls.PersistentSearchRequestControl;
+import org.forgerock.opendj.ldap.requests.AddRequest;
 import org.forgerock.opendj.ldap.requests.Requests;
 import org.forgerock.opendj.ldap.requests.SearchRequest;
+import org.forgerock.opendj.ldap.responses.Result;
+import org.forgerock.opendj.ldap.responses.SearchResultEntry;
+import org.forgerock.opendj.ldap.responses.SearchResultReference;
+import org.forgerock.opendj.ldif.LDIFEntryReader;
 import org.forgerock.util.Options;
 import org.forgerock.util.promise.ExceptionHandler;
 import org.mockito.ArgumentCaptor;
@@ -76,6 +92,80 @@ public class GrizzlyLDAPConnectionTestCase extends SdkTestCase {
         doTestRequestTimeout(true);
     }
 
+    /**
+     * Tests that requests issued concurrently on a pipelining connection are
+     * all written and processed by the server.
+     */
+    @Test
+    public void testRequestPipelining() throws Exception {
+        InetSocketAddress address = TestCaseUtils.findFreeSocketAddress();
+        MemoryBackend backend = new MemoryBackend(new LDIFEntryReader(
+                "dn: dc=example,dc=com",
+                "objectClass: top",
+                "objectClass: domain",
+                "dc: example"));
+        ServerConnectionFactory<LDAPClientContext, Integer> serverFactory =
+                Connections.newServerConnectionFactory(backend);
+        LDAPListener listener = new LDAPListener(address, serverFactory);
+        GrizzlyLDAPConnectionFactory factory = new GrizzlyLDAPConnectionFactory(address.getHostName(),
+                                                                  address.getPort(),
+                                                                  Options.defaultOptions()
+                                                                         .set(REQUEST_PIPELINING_ENABLED, true)
+                                                                         .set(REQUEST_PIPELINING_BATCH_SIZE, 8));
+        final GrizzlyLDAPConnection connection = (GrizzlyLDAPConnection) factory.getConnectionAsync().getOrThrow();
+        try {
+            final int threadCount = 4;
+            final int requestsPerThread = 250;
+            final List<LdapPromise<Result>> promises = new CopyOnWriteArrayList<>();
+            final CountDownLatch latch = new CountDownLatch(threadCount);
+            for (int i = 0; i < threadCount; i++) {
+                final int threadIndex = i;
+                new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int j = 0; j < requestsPerThread; j++) {
+                                final String uid = "user." + threadIndex + "." + j;
+                                final AddRequest request = Requests.newAddRequest(
+                                        "dn: uid=" + uid + ",dc=example,dc=com",
+                                        "objectClass: top",
+                                        "objectClass: extensibleObject",
+                                        "uid: " + uid);
+                                promises.add(connection.addAsync(request, null));
+                            }
+                        } finally {
+                            latch.countDown();
+                        }
+                    }
+                }.start();
+            }
+            latch.await();
+            for (LdapPromise<Result> promise : promises) {
+                assertThat(promise.getOrThrow().getResultCode()).isEqualTo(ResultCode.SUCCESS);
+            }
+
+            final AtomicInteger entryCount = new AtomicInteger();
+            connection.searchAsync(Requests.newSearchRequest("dc=example,dc=com", SearchScope.SINGLE_LEVEL,
+                    "(objectClass=*)"), null, new SearchResultHandler() {
+                        @Override
+                        public boolean handleEntry(SearchResultEntry entry) {
+                            entryCount.incrementAndGet();
+                            return true;
+                        }
+
+                        @Override
+                        public boolean handleReference(SearchResultReference reference) {
+                            return true;
+                        }
+                    }).getOrThrow();
+            assertThat(entryCount.get()).isEqualTo(threadCount * requestsPerThread);
+        } finally {
+            connection.close();
+            listener.close();
+            factory.close();
+        }
+    }
+
     private void doTestRequestTimeout(boolean isPersistentSearch) throws Exception {
         InetSocketAddress address = TestCaseUtils.findFreeSocketAddress();
 
@@ -23,6 +23,7 @@
  *
  *      Copyright 2010 Sun Microsystems, Inc.
  *      Portions Copyright 2011-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 package org.forgerock.opendj.grizzly;
 
@@ -30,6 +31,8 @@ import java.net.InetSocketAddress;
 import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
 import org.forgerock.opendj.ldap.Connection;
@@ -42,11 +45,13 @@ import org.forgerock.opendj.ldap.LDAPClientContext;
 import org.forgerock.opendj.ldap.LDAPConnectionFactory;
 import org.forgerock.opendj.ldap.LDAPListener;
 import org.forgerock.opendj.ldap.LdapException;
+import org.forgerock.opendj.ldap.LdapPromise;
 import org.forgerock.opendj.ldap.ProviderNotFoundException;
 import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.LdapResultHandler;
 import org.forgerock.opendj.ldap.SdkTestCase;
 import org.forgerock.opendj.ldap.SearchResultHandler;
+import org.forgerock.opendj.ldap.SearchScope;
 import org.forgerock.opendj.ldap.ServerConnection;
 import org.forgerock.opendj.ldap.ServerConnectionFactory;
 import org.forgerock.opendj.ldap.TestCaseUtils;
@@ -58,6 +63,7 @@ import org.forgerock.opendj.ldap.requests.DeleteRequest;
 import org.forgerock.opendj.ldap.requests.ExtendedRequest;
 import org.forgerock.opendj.ldap.requests.ModifyDNRequest;
 import org.forgerock.opendj.ldap.requests.ModifyRequest;
+import org.forgerock.opendj.ldap.requests.Requests;
 import org.forgerock.opendj.ldap.requests.SearchRequest;
 import org.forgerock.opendj.ldap.requests.UnbindRequest;
 import org.forgerock.opendj.ldap.responses.BindResult;
@@ -65,6 +71,8 @@ import org.forgerock.opendj.ldap.responses.CompareResult;
 import org.forgerock.opendj.ldap.responses.ExtendedResult;
 import org.forgerock.opendj.ldap.responses.Responses;
 import org.forgerock.opendj.ldap.responses.Result;
+import org.forgerock.opendj.ldap.responses.SearchResultEntry;
+import org.forgerock.opendj.ldap.responses.SearchResultReference;
 import org.forgerock.util.Options;
 import org.forgerock.util.promise.PromiseImpl;
 import org.testng.annotations.AfterClass;
@@ -745,4 +753,88 @@ public class GrizzlyLDAPListenerTestCase extends SdkTestCase {
             assertThat(connection.isClosed()).isTrue();
         }
     }
+
+    /**
+     * Tests that a synchronous request handler streaming a large search result
+     * to a client which does not read it is suspended, and that the search
+     * result is fully returned to the client once it resumes reading.
+     *
+     * @throws Exception
+     *             If an unexpected error occurred.
+     */
+    @Test(timeOut = 30000)
+    public void testWriteQueueFlowControl() throws Exception {
+        final int entryCount = 5000;
+        final char[] description = new char[4096];
+        Arrays.fill(description, 'x');
+        final AtomicReference<Thread> producer = new AtomicReference<>();
+        final AtomicInteger producedEntries = new AtomicInteger();
+        final MockServerConnection serverConnection = new MockServerConnection() {
+            @Override
+            public void handleSearch(final Integer requestContext, final SearchRequest request,
+                    final IntermediateResponseHandler intermediateResponseHandler,
+                    final SearchResultHandler entryHandler, final LdapResultHandler<Result> resultHandler) {
+                producer.set(Thread.currentThread());
+                for (int i = 0; i < entryCount; i++) {
+                    entryHandler.handleEntry(Responses.newSearchResultEntry(
+                            "dn: uid=user." + i + ",dc=example,dc=com",
+                            "objectClass: top",
+                            "objectClass: extensibleObject",
+                            "description: " + new String(description)));
+                    producedEntries.incrementAndGet();
+                }
+                resultHandler.handleResult(Responses.newResult(ResultCode.SUCCESS));
+            }
+        };
+        final MockServerConnectionFactory factory = new MockServerConnectionFactory(serverConnection);
+        final Options options = defaultOptions()
+                .set(WRITE_QUEUE_HIGH_WATER_MARK_IN_BYTES, 16 * 1024)
+                .set(WRITE_QUEUE_LOW_WATER_MARK_IN_BYTES, 4 * 1024);
+        final LDAPListener listener = new LDAPListener(findFreeSocketAddress(), factory, options);
+
+        Connection connection = null;
+        final CountDownLatch resumeReading = new CountDownLatch(1);
+        try {
+            connection = new LDAPConnectionFactory(listener.getHostName(), listener.getPort()).getConnection();
+            final AtomicInteger receivedEntries = new AtomicInteger();
+            final LdapPromise<Result> promise = connection.searchAsync(Requests.newSearchRequest(
+                    "dc=example,dc=com", SearchScope.SINGLE_LEVEL, "(objectClass=*)"), new SearchResultHandler() {
+                        @Override
+                        public boolean handleEntry(final SearchResultEntry entry) {
+                            // Stop reading responses until the producer has been suspended.
+                            try {
+                                resumeReading.await();
+                            } catch (final InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            receivedEntries.incrementAndGet();
+                            return true;
+                        }
+
+                        @Override
+                        public boolean handleReference(final SearchResultReference reference) {
+                            return true;
+                        }
+                    });
+
+            // The producer must be waiting for the write queue to drain before having returned all the entries.
+            while (producer.get() == null || producer.get().getState() != Thread.State.WAITING) {
+                assertThat(producedEntries.get()).isLessThan(entryCount);
+                Thread.sleep(10);
+            }
+            assertThat(producedEntries.get()).isLessThan(entryCount);
+            resumeReading.countDown();
+
+            final Result result = promise.getOrThrow();
+            assertThat(result.getResultCode()).isEqualTo(ResultCode.SUCCESS);
+            assertThat(receivedEntries.get()).isEqualTo(entryCount);
+            assertThat(producedEntries.get()).isEqualTo(entryCount);
+        } finally {
+            resumeReading.countDown();
+            if (connection != null) {
+                connection.close();
+            }
+            listener.close();
+        }
+    }
 }
@@ -0,0 +1,137 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package org.forgerock.opendj.grizzly;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.forgerock.opendj.ldap.spi.LdapPromises.newResultLdapPromise;
+import static org.forgerock.opendj.ldap.spi.LdapPromises.newSearchLdapPromise;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.forgerock.opendj.ldap.SdkTestCase;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.ldap.controls.PersistentSearchRequestControl;
+import org.forgerock.opendj.ldap.requests.Requests;
+import org.forgerock.opendj.ldap.requests.SearchRequest;
+import org.forgerock.opendj.ldap.spi.LDAPConnectionImpl;
+import org.forgerock.opendj.ldap.spi.ResultLdapPromiseImpl;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the pending request table.
+ */
+@SuppressWarnings("javadoc")
+public class PendingRequestTableTestCase extends SdkTestCase {
+    private final LDAPConnectionImpl connection = mock(LDAPConnectionImpl.class);
+
+    @Test
+    public void testPutGetRemove() {
+        final PendingRequestTable table = new PendingRequestTable(0);
+        assertThat(table.isEmpty()).isTrue();
+
+        final int count = 10000;
+        final List<ResultLdapPromiseImpl<?, ?>> promises = new ArrayList<>();
+        for (int messageID = 1; messageID <= count; messageID++) {
+            final ResultLdapPromiseImpl<?, ?> promise = newPromise(messageID);
+            promises.add(promise);
+            table.put(messageID, promise);
+        }
+        assertThat(table.isEmpty()).isFalse();
+        for (int messageID = 1; messageID <= count; messageID++) {
+            assertThat(table.get(messageID)).isSameAs(promises.get(messageID - 1));
+        }
+        assertThat(table.get(0)).isNull();
+        assertThat(table.get(count + 1)).isNull();
+
+        // Remove every other request in order to exercise removal from probe sequences.
+        for (int messageID = 1; messageID <= count; messageID += 2) {
+            assertThat(table.remove(messageID)).isSameAs(promises.get(messageID - 1));
+            assertThat(table.remove(messageID)).isNull();
+        }
+        for (int messageID = 1; messageID <= count; messageID++) {
+            if (messageID % 2 == 0) {
+                assertThat(table.get(messageID)).isSameAs(promises.get(messageID - 1));
+            } else {
+                assertThat(table.get(messageID)).isNull();
+            }
+        }
+
+        final List<ResultLdapPromiseImpl<?, ?>> removedRequests = new ArrayList<>();
+        table.removeAll(removedRequests);
+        assertThat(removedRequests).hasSize(count / 2);
+        assertThat(table.isEmpty()).isTrue();
+        assertThat(table.get(2)).isNull();
+    }
+
+    @Test
+    public void testRemoveExpired() {
+        final PendingRequestTable table = new PendingRequestTable(1000);
+        final ResultLdapPromiseImpl<?, ?> completed = newPromise(1);
+        final ResultLdapPromiseImpl<?, ?> pending = newPromise(2);
+        table.put(1, completed);
+        table.put(2, pending);
+        table.remove(1);
+
+        final long now = System.currentTimeMillis();
+        final List<ResultLdapPromiseImpl<?, ?>> expiredRequests = new ArrayList<>();
+        final long delay = table.removeExpired(now, expiredRequests);
+        assertThat(expiredRequests).isEmpty();
+        assertThat(delay).isGreaterThan(0).isLessThanOrEqualTo(1000 + 100);
+
+        table.removeExpired(now + 2000, expiredRequests);
+        assertThat(expiredRequests).containsOnly(pending);
+        assertThat(table.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testRemoveExpiredIgnoresPersistentSearches() {
+        final PendingRequestTable table = new PendingRequestTable(1000);
+        final SearchRequest request = Requests.newSearchRequest("dc=test", SearchScope.BASE_OBJECT, "(objectClass=*)")
+                .addControl(PersistentSearchRequestControl.newControl(true, true, true));
+        final ResultLdapPromiseImpl<?, ?> promise = newSearchLdapPromise(1, request, null, null, connection);
+        table.put(1, promise);
+
+        final List<ResultLdapPromiseImpl<?, ?>> expiredRequests = new ArrayList<>();
+        table.removeExpired(System.currentTimeMillis() + 1000000, expiredRequests);
+        assertThat(expiredRequests).isEmpty();
+        assertThat(table.get(1)).isSameAs(promise);
+    }
+
+    @Test
+    public void testRemoveExpiredWithoutTimeout() {
+        final PendingRequestTable table = new PendingRequestTable(0);
+        table.put(1, newPromise(1));
+
+        final List<ResultLdapPromiseImpl<?, ?>> expiredRequests = new ArrayList<>();
+        assertThat(table.removeExpired(System.currentTimeMillis() + 1000000, expiredRequests)).isEqualTo(0);
+        assertThat(expiredRequests).isEmpty();
+    }
+
+    private ResultLdapPromiseImpl<?, ?> newPromise(final int messageID) {
+        return newResultLdapPromise(messageID, Requests.newDeleteRequest("dc=test"), null, connection);
+    }
+}
@@ -23,6 +23,7 @@
  *
  *      Copyright 2012-2013 ForgeRock AS
  *      Portions Copyright 2014-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 package com.forgerock.opendj.ldap.tools;
 
@@ -32,6 +33,7 @@ import static com.forgerock.opendj.ldap.tools.ToolsMessages.*;
 import static com.forgerock.opendj.cli.Utils.filterExitCode;
 import static org.forgerock.util.Utils.closeSilently;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -46,12 +48,14 @@ import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldif.LDIF;
 import org.forgerock.opendj.ldif.LDIFChangeRecordWriter;
 import org.forgerock.opendj.ldif.LDIFEntryReader;
+import org.forgerock.util.Options;
 
 import com.forgerock.opendj.cli.ArgumentException;
 import com.forgerock.opendj.cli.ArgumentParser;
 import com.forgerock.opendj.cli.BooleanArgument;
 import com.forgerock.opendj.cli.CommonArguments;
 import com.forgerock.opendj.cli.ConsoleApplication;
+import com.forgerock.opendj.cli.IntegerArgument;
 import com.forgerock.opendj.cli.StringArgument;
 
 /**
@@ -85,6 +89,9 @@ public final class LDIFDiff extends ConsoleApplication {
 
         final BooleanArgument showUsage;
         final StringArgument outputFilename;
+        final IntegerArgument sortMemoryLimit;
+        final IntegerArgument sortThreads;
+        final StringArgument sortTemporaryDirectory;
         try {
             outputFilename =
                     new StringArgument("outputFilename", OPTION_SHORT_OUTPUT_LDIF_FILENAME,
@@ -94,6 +101,27 @@ public final class LDIFDiff extends ConsoleApplication {
                                     .get(INFO_OUTPUT_LDIF_FILE_PLACEHOLDER.get()));
             argParser.addArgument(outputFilename);
 
+            sortMemoryLimit =
+                    new IntegerArgument("sortMemoryLimit", null, "sortMemoryLimit", false, false, true,
+                            INFO_SORT_MEMORY_LIMIT_PLACEHOLDER.get(), 128, null, true, 1, false, 0,
+                            INFO_LDIFDIFF_DESCRIPTION_SORT_MEMORY_LIMIT.get());
+            sortMemoryLimit.setPropertyName("sortMemoryLimit");
+            argParser.addArgument(sortMemoryLimit);
+
+            sortThreads =
+                    new IntegerArgument("sortThreads", null, "sortThreads", false, false, true,
+                            INFO_SORT_THREADS_PLACEHOLDER.get(), 1, null, true, 1, false, 0,
+                            INFO_LDIF_DESCRIPTION_SORT_THREADS.get());
+            sortThreads.setPropertyName("sortThreads");
+            argParser.addArgument(sortThreads);
+
+            sortTemporaryDirectory =
+                    new StringArgument("sortTemporaryDirectory", null, "sortTemporaryDirectory", false,
+                            false, true, INFO_PATH_PLACEHOLDER.get(), null, null,
+                            INFO_LDIF_DESCRIPTION_SORT_TEMPORARY_DIRECTORY.get());
+            sortTemporaryDirectory.setPropertyName("sortTemporaryDirectory");
+            argParser.addArgument(sortTemporaryDirectory);
+
             showUsage = CommonArguments.getShowUsage();
             argParser.addArgument(showUsage);
             argParser.setUsageArgument(showUsage, getOutputStream());
@@ -104,6 +132,7 @@ public final class LDIFDiff extends ConsoleApplication {
         }
 
         // Parse the command-line arguments provided to this program.
+        Options sortOptions = null;
         try {
             argParser.parseArguments(args);
 
@@ -111,6 +140,16 @@ public final class LDIFDiff extends ConsoleApplication {
             if (argParser.usageOrVersionDisplayed()) {
                 return ResultCode.SUCCESS.intValue();
             }
+
+            // Sort using temporary files if any of the sort arguments are provided.
+            if (sortMemoryLimit.isPresent() || sortThreads.isPresent() || sortTemporaryDirectory.isPresent()) {
+                sortOptions = Options.defaultOptions()
+                        .set(LDIF.SORT_MAX_MEMORY_IN_BYTES, sortMemoryLimit.getIntValue() * 1024L * 1024L)
+                        .set(LDIF.SORT_PARALLELISM, sortThreads.getIntValue());
+                if (sortTemporaryDirectory.isPresent()) {
+                    sortOptions.set(LDIF.SORT_TEMPORARY_DIRECTORY, new File(sortTemporaryDirectory.getValue()));
+                }
+            }
         } catch (final ArgumentException ae) {
             argParser.displayMessageAndUsageReference(getErrStream(), ERR_ERROR_PARSING_ARGS.get(ae.getMessage()));
             return ResultCode.CLIENT_SIDE_PARAM_ERROR.intValue();
@@ -189,7 +228,11 @@ public final class LDIFDiff extends ConsoleApplication {
             sourceReader = new LDIFEntryReader(sourceInputStream);
             targetReader = new LDIFEntryReader(targetInputStream);
             outputWriter = new LDIFChangeRecordWriter(outputStream);
-            LDIF.copyTo(LDIF.diff(sourceReader, targetReader), outputWriter);
+            if (sortOptions != null) {
+                LDIF.copyTo(LDIF.diff(sourceReader, targetReader, sortOptions), outputWriter);
+            } else {
+                LDIF.copyTo(LDIF.diff(sourceReader, targetReader), outputWriter);
+            }
         } catch (final IOException e) {
             if (e instanceof LocalizableException) {
                 errPrintln(ERR_LDIFDIFF_DIFF_FAILED.get(((LocalizableException) e).getMessageObject()));
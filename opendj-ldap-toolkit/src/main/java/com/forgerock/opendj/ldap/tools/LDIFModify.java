@@ -22,6 +22,7 @@
  *
  *
  *      Copyright 2012-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 package com.forgerock.opendj.ldap.tools;
 
@@ -31,6 +32,7 @@ import static com.forgerock.opendj.ldap.tools.ToolsMessages.*;
 import static com.forgerock.opendj.cli.Utils.filterExitCode;
 import static org.forgerock.util.Utils.closeSilently;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -53,12 +55,14 @@ import org.forgerock.opendj.ldif.LDIFChangeRecordReader;
 import org.forgerock.opendj.ldif.LDIFEntryReader;
 import org.forgerock.opendj.ldif.LDIFEntryWriter;
 import org.forgerock.opendj.ldif.RejectedChangeRecordListener;
+import org.forgerock.util.Options;
 
 import com.forgerock.opendj.cli.ArgumentException;
 import com.forgerock.opendj.cli.ArgumentParser;
 import com.forgerock.opendj.cli.BooleanArgument;
 import com.forgerock.opendj.cli.CommonArguments;
 import com.forgerock.opendj.cli.ConsoleApplication;
+import com.forgerock.opendj.cli.IntegerArgument;
 import com.forgerock.opendj.cli.StringArgument;
 
 /**
@@ -92,6 +96,9 @@ public final class LDIFModify extends ConsoleApplication {
         final BooleanArgument continueOnError;
         final BooleanArgument showUsage;
         final StringArgument outputFilename;
+        final IntegerArgument sortMemoryLimit;
+        final IntegerArgument sortThreads;
+        final StringArgument sortTemporaryDirectory;
         try {
             outputFilename =
                     new StringArgument("outputFilename", OPTION_SHORT_OUTPUT_LDIF_FILENAME,
@@ -101,6 +108,27 @@ public final class LDIFModify extends ConsoleApplication {
                                     .get(INFO_OUTPUT_LDIF_FILE_PLACEHOLDER.get()));
             argParser.addArgument(outputFilename);
 
+            sortMemoryLimit =
+                    new IntegerArgument("sortMemoryLimit", null, "sortMemoryLimit", false, false, true,
+                            INFO_SORT_MEMORY_LIMIT_PLACEHOLDER.get(), 128, null, true, 1, false, 0,
+                            INFO_LDIFMODIFY_DESCRIPTION_SORT_MEMORY_LIMIT.get());
+            sortMemoryLimit.setPropertyName("sortMemoryLimit");
+            argParser.addArgument(sortMemoryLimit);
+
+            sortThreads =
+                    new IntegerArgument("sortThreads", null, "sortThreads", false, false, true,
+                            INFO_SORT_THREADS_PLACEHOLDER.get(), 1, null, true, 1, false, 0,
+                            INFO_LDIF_DESCRIPTION_SORT_THREADS.get());
+            sortThreads.setPropertyName("sortThreads");
+            argParser.addArgument(sortThreads);
+
+            sortTemporaryDirectory =
+                    new StringArgument("sortTemporaryDirectory", null, "sortTemporaryDirectory", false,
+                            false, true, INFO_PATH_PLACEHOLDER.get(), null, null,
+                            INFO_LDIF_DESCRIPTION_SORT_TEMPORARY_DIRECTORY.get());
+            sortTemporaryDirectory.setPropertyName("sortTemporaryDirectory");
+            argParser.addArgument(sortTemporaryDirectory);
+
             continueOnError = CommonArguments.getContinueOnError();
             argParser.addArgument(continueOnError);
 
@@ -114,6 +142,7 @@ public final class LDIFModify extends ConsoleApplication {
         }
 
         // Parse the command-line arguments provided to this program.
+        Options sortOptions = null;
         try {
             argParser.parseArguments(args);
 
@@ -122,6 +151,16 @@ public final class LDIFModify extends ConsoleApplication {
             if (argParser.usageOrVersionDisplayed()) {
                 return ResultCode.SUCCESS.intValue();
             }
+
+            // Sort using temporary files if any of the sort arguments are provided.
+            if (sortMemoryLimit.isPresent() || sortThreads.isPresent() || sortTemporaryDirectory.isPresent()) {
+                sortOptions = Options.defaultOptions()
+                        .set(LDIF.SORT_MAX_MEMORY_IN_BYTES, sortMemoryLimit.getIntValue() * 1024L * 1024L)
+                        .set(LDIF.SORT_PARALLELISM, sortThreads.getIntValue());
+                if (sortTemporaryDirectory.isPresent()) {
+                    sortOptions.set(LDIF.SORT_TEMPORARY_DIRECTORY, new File(sortTemporaryDirectory.getValue()));
+                }
+            }
         } catch (final ArgumentException ae) {
             argParser.displayMessageAndUsageReference(getErrStream(), ERR_ERROR_PARSING_ARGS.get(ae.getMessage()));
             return ResultCode.CLIENT_SIDE_PARAM_ERROR.intValue();
@@ -279,7 +318,11 @@ public final class LDIFModify extends ConsoleApplication {
                 }
             };
 
-            LDIF.copyTo(LDIF.patch(sourceReader, changesReader, listener), outputWriter);
+            if (sortOptions != null) {
+                LDIF.copyTo(LDIF.patch(sourceReader, changesReader, listener, sortOptions), outputWriter);
+            } else {
+                LDIF.copyTo(LDIF.patch(sourceReader, changesReader, listener), outputWriter);
+            }
         } catch (final IOException e) {
             if (e instanceof LocalizableException) {
                 errPrintln(ERR_LDIFMODIFY_PATCH_FAILED.get(((LocalizableException) e)
@@ -23,6 +23,7 @@
  *
  *      Copyright 2010 Sun Microsystems, Inc.
  *      Portions Copyright 2011-2015 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 package com.forgerock.opendj.ldap.tools;
 
@@ -34,18 +35,14 @@ import static org.forgerock.util.Utils.*;
 
 import static com.forgerock.opendj.ldap.tools.ToolsMessages.*;
 
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -55,9 +52,12 @@ import org.forgerock.opendj.ldap.ConnectionEventListener;
 import org.forgerock.opendj.ldap.ConnectionFactory;
 import org.forgerock.opendj.ldap.LdapException;
 import org.forgerock.opendj.ldap.LdapResultHandler;
+import org.forgerock.opendj.ldap.SearchResultHandler;
 import org.forgerock.opendj.ldap.requests.BindRequest;
 import org.forgerock.opendj.ldap.responses.ExtendedResult;
 import org.forgerock.opendj.ldap.responses.Result;
+import org.forgerock.opendj.ldap.responses.SearchResultEntry;
+import org.forgerock.opendj.ldap.responses.SearchResultReference;
 import org.forgerock.util.promise.Promise;
 
 import com.forgerock.opendj.cli.ArgumentException;
@@ -65,173 +65,14 @@ import com.forgerock.opendj.cli.ArgumentParser;
 import com.forgerock.opendj.cli.BooleanArgument;
 import com.forgerock.opendj.cli.ConsoleApplication;
 import com.forgerock.opendj.cli.IntegerArgument;
+import com.forgerock.opendj.cli.MultiChoiceArgument;
 import com.forgerock.opendj.cli.MultiColumnPrinter;
 import com.forgerock.opendj.cli.StringArgument;
+import com.forgerock.opendj.ldap.tools.ResponseTimeHistogram.ExportFormat;
 import com.forgerock.opendj.util.StaticUtils;
 
 /** Benchmark application framework. */
 abstract class PerformanceRunner implements ConnectionEventListener {
-    static final class ResponseTimeBuckets {
-        private static final long NS_1_US = NANOSECONDS.convert(1, MICROSECONDS);
-        private static final long NS_100_US = NANOSECONDS.convert(100, MICROSECONDS);
-        private static final long NS_1_MS = NANOSECONDS.convert(1, MILLISECONDS);
-        private static final long NS_10_MS = NANOSECONDS.convert(10, MILLISECONDS);
-        private static final long NS_100_MS = NANOSECONDS.convert(100, MILLISECONDS);
-        private static final long NS_1_S = NANOSECONDS.convert(1, SECONDS);
-        private static final long NS_5_S = NANOSECONDS.convert(5, SECONDS);
-
-        private static final int NB_INDEX = 2120;
-        private static final int RANGE_100_MICROSECONDS_START_INDEX = 1000;
-        private static final int RANGE_1_MILLISECOND_START_INDEX = 1090;
-        private static final int RANGE_100_MILLISECONDS_START_INDEX = 2080;
-
-        /**
-         * Array of response time buckets.
-         *
-         * <pre>
-         * index    0 ->  999: 1000 buckets for    0ms -    1ms  interval with       1 µs increments
-         * index 1000 -> 1089:   90 buckets for    1ms -   10ms  interval with     100 µs increments
-         * index 1090 -> 2079:  990 buckets for   10ms - 1000ms  interval with    1000 µs increments
-         * index 2080 -> 2119:   40 buckets for 1000ms - 5000ms  interval with 100 000 µs increments
-         * </pre>
-         */
-        private final AtomicLong[] index2Frequency = new AtomicLong[NB_INDEX];
-
-        /**
-         * Store the lower bounds (in microseconds) of the eTime buckets.
-         */
-        private final long[] index2Etime = new long[NB_INDEX];
-
-        /**
-         * Sorted map used for storing response times from 5s+ with 500 millisecond increments.
-         *
-         * Keys (Long in microseconds) of this map must respect this pattern: n * 500 000 + 5 000 000,
-         * where n is a natural integer.
-         */
-        private final ConcurrentSkipListMap<Long, AtomicLong> bigEtimes = new ConcurrentSkipListMap<>();
-
-        /**
-         * Initialize both index2Frequency and index2Etime arrays.
-         */
-        private ResponseTimeBuckets() {
-            // Helpful variables to compute index2Etime values.
-            long rangeWidthMicroSecs;
-            long rangeStart = 0;
-            long initialTimeMicroSecs = 0;
-
-            for (int i = 0; i < NB_INDEX; i++) {
-                index2Frequency[i] = new AtomicLong();
-                if (i < RANGE_100_MICROSECONDS_START_INDEX) {
-                    // 0ms-1ms in 1 us increments
-                    rangeWidthMicroSecs = 1;
-                } else if (i < RANGE_1_MILLISECOND_START_INDEX) {
-                    // 1ms-10ms in 100 us increments
-                    rangeWidthMicroSecs = 100;
-                    rangeStart = RANGE_100_MICROSECONDS_START_INDEX;
-                    initialTimeMicroSecs = MICROSECONDS.convert(1, MILLISECONDS);
-                } else if (i < RANGE_100_MILLISECONDS_START_INDEX) {
-                    // 10ms-1000ms in 1000 us increments
-                    rangeWidthMicroSecs = MICROSECONDS.convert(1, MILLISECONDS);
-                    rangeStart = RANGE_1_MILLISECOND_START_INDEX;
-                    initialTimeMicroSecs = MICROSECONDS.convert(10, MILLISECONDS);
-                } else {
-                    // 1000ms-5000ms with 100 000 us increments
-                    rangeWidthMicroSecs = MICROSECONDS.convert(100, MILLISECONDS);
-                    rangeStart = RANGE_100_MILLISECONDS_START_INDEX;
-                    initialTimeMicroSecs = MICROSECONDS.convert(1, SECONDS);
-                }
-                index2Etime[i] = (i - rangeStart) * rangeWidthMicroSecs + initialTimeMicroSecs;
-            }
-        }
-
-        /**
-         * Compute the closest response time values for each percentile given in
-         * parameter. Percentiles array has to be sorted from lower to higher
-         * percentiles.
-         *
-         * @param percentiles
-         *            array of {@code double}
-         *
-         * @param nbData
-         *            number of response times recorded.
-         *
-         * @return array of response times in microseconds corresponding to
-         *         percentiles.
-         */
-        List<Long> getPercentile(double[] percentiles, long nbData) {
-            List<Long> responseTimes = new ArrayList<>();
-            Queue<Long> nbDataThresholds = new LinkedList<>();
-            long nbDataSum = nbData;
-
-            for (int i = percentiles.length - 1; i >= 0; i--) {
-                nbDataThresholds.add((long) (percentiles[i] * nbData) / 100);
-            }
-
-            Iterator<Entry<Long, AtomicLong>> iter = bigEtimes.descendingMap().entrySet().iterator();
-            while (iter.hasNext() && !nbDataThresholds.isEmpty()) {
-                Entry<Long, AtomicLong> currentETime = iter.next();
-                nbDataSum -= currentETime.getValue().get();
-                computePercentiles(nbDataThresholds, responseTimes, nbDataSum, currentETime.getKey());
-            }
-
-            int stdTimeIndex = NB_INDEX - 1;
-            while (stdTimeIndex >= 0 && !nbDataThresholds.isEmpty()) {
-                long currentETime = index2Etime[stdTimeIndex];
-                nbDataSum -= index2Frequency[stdTimeIndex].get();
-                computePercentiles(nbDataThresholds, responseTimes, nbDataSum, currentETime);
-                stdTimeIndex--;
-            }
-
-            return responseTimes;
-        }
-
-        private void computePercentiles(Queue<Long> currentDataThreshold, List<Long> responseTimes, long currentSum,
-                long currentETime) {
-            while (currentDataThreshold.peek() != null && currentDataThreshold.peek() >= currentSum) {
-                responseTimes.add(currentETime);
-                currentDataThreshold.poll();
-            }
-        }
-
-        void addTimeToInterval(long responseTimeNanoSecs) {
-            if (responseTimeNanoSecs >= NS_5_S) {
-                long matchingKey = responseTimeNanoSecs / NS_100_MS;
-                matchingKey -= matchingKey % 5;
-                matchingKey = matchingKey * MICROSECONDS.convert(100, MILLISECONDS);
-                // We now have a key corresponding to pattern 5 000 000 + n * 500 000 µs
-                AtomicLong existingKey = bigEtimes.putIfAbsent(matchingKey, new AtomicLong(1));
-                if (existingKey != null) {
-                    existingKey.getAndIncrement();
-                }
-                return;
-            }
-
-            final int startRangeIndex;
-            final long rangeWidthNanoSecs;
-            if (responseTimeNanoSecs < NS_1_MS) {
-                rangeWidthNanoSecs = NS_1_US;
-                startRangeIndex = 0;
-            } else if (responseTimeNanoSecs < NS_10_MS) {
-                rangeWidthNanoSecs = NS_100_US;
-                startRangeIndex = RANGE_100_MICROSECONDS_START_INDEX - 10;
-            } else if (responseTimeNanoSecs < NS_1_S) {
-                rangeWidthNanoSecs = NS_1_MS;
-                startRangeIndex = RANGE_1_MILLISECOND_START_INDEX - 10;
-            } else {
-                rangeWidthNanoSecs = NS_100_MS;
-                startRangeIndex = RANGE_100_MILLISECONDS_START_INDEX - 10;
-            }
-            final int intervalIndex = ((int) (responseTimeNanoSecs / rangeWidthNanoSecs)) + startRangeIndex;
-            index2Frequency[intervalIndex].getAndIncrement();
-        }
-    }
-
-    /** To allow tests. */
-    static ResponseTimeBuckets getResponseTimeBuckets() {
-        return new ResponseTimeBuckets();
-    }
-
-
     /** Statistics thread base implementation. */
     class StatsThread extends Thread {
         protected long totalResultCount;
@@ -253,6 +94,8 @@ abstract class PerformanceRunner implements ConnectionEventListener {
         private final double[] percentiles;
         private final List<GarbageCollectorMXBean> gcBeans;
         private final boolean isScriptFriendly = app.isScriptFriendly();
+        /** Response times recorded since the end of the warm up, only accessed by this thread. */
+        private final ResponseTimeHistogram responseTimes = new ResponseTimeHistogram();
         private MultiColumnPrinter printer;
 
         public StatsThread(final String... additionalColumns) {
@@ -399,9 +242,11 @@ abstract class PerformanceRunner implements ConnectionEventListener {
                 printableStats[3] = getDivisionResult(totalWaitTimeMs, totalResultCount, 3);
 
                 int i = 4;
-                final List<Long> computedPercentiles = eTimesBuckets.getPercentile(percentiles, totalOperationCount);
-                for (int j = computedPercentiles.size() - 1; j >= 0; j--) {
-                    printableStats[i++] = getDivisionResult(computedPercentiles.get(j) , 1000.0, 2);
+                if (responseTimes.getTotalCount() > 0) {
+                    for (final double percentile : percentiles) {
+                        final long responseTimeMicroSecs = responseTimes.getValueAtPercentile(percentile);
+                        printableStats[i++] = getDivisionResult(responseTimeMicroSecs, 1000.0, 2);
+                    }
                 }
                 i = 4 + percentiles.length;
                 printableStats[i++] = intervalFailedCount == 0
@@ -428,6 +273,7 @@ abstract class PerformanceRunner implements ConnectionEventListener {
             intervalSuccessCount = successRecentCount.getAndSet(0);
             intervalFailedCount = failedRecentCount.getAndSet(0);
             intervalWaitTimeNs = waitRecentTimeNs.getAndSet(0);
+            responseTimeRecorder.addIntervalCountsTo(responseTimes);
 
             totalOperationCount += intervalOperationCount;
             totalResultCount += intervalSuccessCount + intervalFailedCount;
@@ -480,6 +326,68 @@ abstract class PerformanceRunner implements ConnectionEventListener {
             successRecentCount.set(0);
             failedRecentCount.set(0);
             waitRecentTimeNs.set(0);
+            responseTimeRecorder.addIntervalCountsTo(responseTimes);
+            responseTimes.reset();
+        }
+
+        /** Writes the response times of the whole run to the histogram file, if one was requested. */
+        void exportResponseTimes() {
+            if (!histogramFileArgument.isPresent()) {
+                return;
+            }
+
+            final String histogramFile = histogramFileArgument.getValue();
+            responseTimeRecorder.addIntervalCountsTo(responseTimes);
+            try (PrintStream out = new PrintStream(new FileOutputStream(histogramFile), false, "UTF-8")) {
+                responseTimes.export(out, histogramFormat);
+                if (out.checkError()) {
+                    throw new IOException("write failed");
+                }
+            } catch (final IOException e) {
+                app.errPrintln(LocalizableMessage.raw("Unable to write the response time histogram to "
+                        + histogramFile + ": " + e.getMessage()));
+            }
+        }
+    }
+
+    /** Statistics thread which also displays the throughput and mean response time of each operation. */
+    class OperationStatsThread extends StatsThread {
+        private final ResponseTimeHistogram.Recorder[] operationRecorders;
+        private final ResponseTimeHistogram[] operationResponseTimes;
+        private final String[] extraColumns;
+
+        OperationStatsThread(final List<String> operationNames,
+                final ResponseTimeHistogram.Recorder[] operationRecorders) {
+            super(getOperationColumns(operationNames));
+            this.operationRecorders = operationRecorders;
+            this.operationResponseTimes = new ResponseTimeHistogram[operationRecorders.length];
+            for (int i = 0; i < operationResponseTimes.length; i++) {
+                operationResponseTimes[i] = new ResponseTimeHistogram();
+            }
+            this.extraColumns = new String[2 * operationRecorders.length];
+        }
+
+        @Override
+        void resetStats() {
+            super.resetStats();
+            for (int i = 0; i < operationResponseTimes.length; i++) {
+                operationRecorders[i].addIntervalCountsTo(operationResponseTimes[i]);
+                operationResponseTimes[i].reset();
+            }
+        }
+
+        @Override
+        String[] getAdditionalColumns() {
+            for (int i = 0; i < operationResponseTimes.length; i++) {
+                final ResponseTimeHistogram responseTimes = operationResponseTimes[i];
+                operationRecorders[i].addIntervalCountsTo(responseTimes);
+                final long count = responseTimes.getTotalCount();
+                extraColumns[2 * i] = getDivisionResult(count, intervalDurationSec, 1, "-");
+                extraColumns[2 * i + 1] =
+                        count > 0 ? getDivisionResult(Math.round(responseTimes.getMean()), 1000.0, 3, "-") : "-";
+                responseTimes.reset();
+            }
+            return extraColumns;
         }
     }
 
@@ -508,15 +416,23 @@ abstract class PerformanceRunner implements ConnectionEventListener {
 
     /**
      * Statistics update result handler implementation.
+     * <p>
+     * Response time percentiles are computed from the time at which the
+     * request should have been sent according to the target throughput, so
+     * that requests delayed by a slow server are not omitted from them.
      *
      * @param <S>
      *            The type of expected result.
      */
     class UpdateStatsResultHandler<S extends Result> implements LdapResultHandler<S> {
         protected final long currentTime;
+        private final long intendedStartTime;
 
         UpdateStatsResultHandler(final long currentTime) {
             this.currentTime = currentTime;
+            final Thread thread = Thread.currentThread();
+            this.intendedStartTime = thread instanceof WorkerThread
+                    ? Math.min(((WorkerThread) thread).intendedStartTimeNs, currentTime) : currentTime;
         }
 
         @Override
@@ -534,19 +450,57 @@ abstract class PerformanceRunner implements ConnectionEventListener {
 
         private void updateStats() {
             if (!isWarmingUp) {
-                final long eTime = System.nanoTime() - currentTime;
-                waitRecentTimeNs.getAndAdd(eTime);
-                eTimesBuckets.addTimeToInterval(eTime);
+                final long endTime = System.nanoTime();
+                waitRecentTimeNs.getAndAdd(endTime - currentTime);
+                responseTimeRecorder.recordValue(NANOSECONDS.toMicros(endTime - intendedStartTime));
             }
         }
     }
 
+    /** Updates the global statistics and the response times of one of the operations of an operation mix. */
+    class OperationStatsHandler extends UpdateStatsResultHandler<Result> implements SearchResultHandler {
+        private final ResponseTimeHistogram.Recorder operationRecorder;
+
+        OperationStatsHandler(final long currentTime, final ResponseTimeHistogram.Recorder operationRecorder) {
+            super(currentTime);
+            this.operationRecorder = operationRecorder;
+        }
+
+        @Override
+        public void handleException(final LdapException exception) {
+            super.handleException(exception);
+            updateOperationStats();
+        }
+
+        @Override
+        public void handleResult(final Result result) {
+            super.handleResult(result);
+            updateOperationStats();
+        }
+
+        @Override
+        public boolean handleEntry(final SearchResultEntry entry) {
+            return true;
+        }
+
+        @Override
+        public boolean handleReference(final SearchResultReference reference) {
+            return true;
+        }
+
+        private void updateOperationStats() {
+            operationRecorder.recordValue(NANOSECONDS.toMicros(System.nanoTime() - currentTime));
+        }
+    }
+
     /** Worker thread base implementation. */
     abstract class WorkerThread extends Thread {
         private int count;
         private final Connection connection;
         private final ConnectionFactory connectionFactory;
         boolean localStopRequested;
+        /** Time at which the current operation should have started according to the target throughput. */
+        private long intendedStartTimeNs;
 
         WorkerThread(final Connection connection, final ConnectionFactory connectionFactory) {
             super("Worker Thread");
@@ -561,11 +515,19 @@ abstract class PerformanceRunner implements ConnectionEventListener {
         public void run() {
             Promise<?, LdapException> promise;
             Connection connection;
-            final double targetTimeMs = 1000.0 / (targetThroughput / (double) (numThreads * numConnections));
-            double sleepTimeMs = 0;
+            intendedStartTimeNs = System.nanoTime() - getTargetTimeNs();
 
             while (!stopRequested && !localStopRequested
                     && (maxIterations <= 0 || count < maxIterations)) {
+                try {
+                    intendedStartTimeNs = waitForNextOperation(intendedStartTimeNs);
+                } catch (final InterruptedException e) {
+                    continue;
+                }
+                if (localStopRequested) {
+                    break;
+                }
+
                 if (this.connection == null) {
                     try {
                         connection = connectionFactory.getConnectionAsync().getOrThrow();
@@ -621,36 +583,65 @@ abstract class PerformanceRunner implements ConnectionEventListener {
                         }
                     }
                 }
-                if (targetThroughput > 0) {
-                    try {
-                        if (sleepTimeMs > 1) {
-                            sleep((long) Math.floor(sleepTimeMs));
-                        }
-                    } catch (final InterruptedException e) {
-                        continue;
-                    }
-
-                    sleepTimeMs += targetTimeMs - NANOSECONDS.toMillis(System.nanoTime() - startTimeNs);
-                    final long oneMinuteMs = MINUTES.toMillis(1);
-                    if (sleepTimeMs + oneMinuteMs < 0) {
-                        // If we fall behind by 60 seconds, just forget about catching up
-                        sleepTimeMs = -oneMinuteMs;
-                    }
-                }
             }
         }
 
         void incrementIterationCount() {
             count++;
         }
+
+        /**
+         * Waits until the next operation should start and returns the time at
+         * which it should have started. By default operations are spread
+         * evenly according to the target throughput, or sent as soon as
+         * possible when the throughput is unlimited. Implementations may set
+         * {@link #localStopRequested} when there are no more operations to
+         * perform.
+         *
+         * @param previousStartTimeNs
+         *            The time at which the previous operation should have
+         *            started.
+         * @return The time at which the next operation should start.
+         * @throws InterruptedException
+         *             If the thread was interrupted while waiting.
+         */
+        long waitForNextOperation(final long previousStartTimeNs) throws InterruptedException {
+            return targetThroughput > 0 ? waitForNextStartTime(previousStartTimeNs) : System.nanoTime();
+        }
+
+        /**
+         * Waits until the next operation should start according to the target
+         * throughput. The target throughput is read again after each sleep so
+         * that changes are applied without waiting for a whole period.
+         */
+        private long waitForNextStartTime(final long previousStartTimeNs) throws InterruptedException {
+            while (true) {
+                final long nextStartTimeNs = previousStartTimeNs + getTargetTimeNs();
+                final long sleepTimeMs = NANOSECONDS.toMillis(nextStartTimeNs - System.nanoTime());
+                if (sleepTimeMs <= 1 || stopRequested) {
+                    final long oneMinuteAgoNs = System.nanoTime() - MINUTES.toNanos(1);
+                    // If we fall behind by 60 seconds, just forget about catching up
+                    return Math.max(nextStartTimeNs, oneMinuteAgoNs);
+                }
+                sleep(Math.min(sleepTimeMs, MAX_SLEEP_TIME_MS));
+            }
+        }
+
+        /** Returns the time between two operations of this thread, or 0 when the throughput is unlimited. */
+        private long getTargetTimeNs() {
+            final int throughput = targetThroughput;
+            return throughput > 0 ? SECONDS.toNanos(1) * numThreads * numConnections / throughput : 0;
+        }
     }
 
     private static final String[] EMPTY_STRINGS = new String[0];
+    /** Maximum time a worker thread sleeps before checking the target throughput again. */
+    static final long MAX_SLEEP_TIME_MS = 100;
     private final AtomicInteger operationRecentCount = new AtomicInteger();
     protected final AtomicInteger successRecentCount = new AtomicInteger();
     protected final AtomicInteger failedRecentCount = new AtomicInteger();
     private final AtomicLong waitRecentTimeNs = new AtomicLong();
-    private final ResponseTimeBuckets eTimesBuckets = new ResponseTimeBuckets();
+    private final ResponseTimeHistogram.Recorder responseTimeRecorder = new ResponseTimeHistogram.Recorder();
 
 
     private final ConsoleApplication app;
@@ -676,7 +667,7 @@ abstract class PerformanceRunner implements ConnectionEventListener {
     int numConnections;
     volatile boolean stopRequested;
     private volatile boolean isWarmingUp;
-    private int targetThroughput;
+    private volatile int targetThroughput;
     private int maxIterations;
     /** Warm-up duration time in ms. **/
     private long warmUpDuration;
@@ -684,8 +675,10 @@ abstract class PerformanceRunner implements ConnectionEventListener {
     private long maxDurationTime;
     private boolean isAsync;
     private boolean noRebind;
+    private final boolean supportsSynchronousRequests;
     private BindRequest bindRequest;
     private int statsInterval;
+    private ExportFormat histogramFormat;
     private final IntegerArgument numThreadsArgument;
     private final IntegerArgument maxDurationArgument;
     private final IntegerArgument statsIntervalArgument;
@@ -695,6 +688,8 @@ abstract class PerformanceRunner implements ConnectionEventListener {
     private final BooleanArgument keepConnectionsOpen;
     private final BooleanArgument noRebindArgument;
     private final BooleanArgument asyncArgument;
+    private final StringArgument histogramFileArgument;
+    private final MultiChoiceArgument<ExportFormat> histogramFormatArgument;
     private final StringArgument arguments;
     protected final IntegerArgument maxIterationsArgument;
     protected final IntegerArgument warmUpArgument;
@@ -765,6 +760,22 @@ abstract class PerformanceRunner implements ConnectionEventListener {
         percentilesArgument.setMultiValued(true);
         argParser.addArgument(percentilesArgument);
 
+        histogramFileArgument =
+                new StringArgument("histogramFile", null, "histogramFile", false, false, true,
+                        LocalizableMessage.raw("{histogramFile}"), null, null,
+                        LocalizableMessage.raw("Write the response time histogram of the whole run "
+                                + "to the specified file"));
+        histogramFileArgument.setPropertyName("histogramFile");
+        argParser.addArgument(histogramFileArgument);
+
+        histogramFormatArgument =
+                new MultiChoiceArgument<>("histogramFormat", null, "histogramFormat", false, true,
+                        LocalizableMessage.raw("{hdr|csv|json}"), Arrays.asList(ExportFormat.values()), false,
+                        LocalizableMessage.raw("Format of the response time histogram file"));
+        histogramFormatArgument.setDefaultValue(ExportFormat.HDR.toString());
+        histogramFormatArgument.setPropertyName("histogramFormat");
+        argParser.addArgument(histogramFormatArgument);
+
         keepConnectionsOpen =
                 new BooleanArgument("keepConnectionsOpen", 'f', "keepConnectionsOpen",
                         LocalizableMessage.raw("Keep connections open"));
@@ -775,7 +786,7 @@ abstract class PerformanceRunner implements ConnectionEventListener {
                 new BooleanArgument("noRebind", 'F', "noRebind", LocalizableMessage
                         .raw("Keep connections open and do not rebind"));
         noRebindArgument.setPropertyName("noRebind");
-        if (options.supportsRebind()) {
+        if (options.supportsRebind() && options.supportsSynchronousRequests()) {
             argParser.addArgument(noRebindArgument);
         }
 
@@ -784,9 +795,10 @@ abstract class PerformanceRunner implements ConnectionEventListener {
                         .raw("Use asynchronous mode and do not "
                                 + "wait for results before sending the next request"));
         asyncArgument.setPropertyName("asynchronous");
-        if (options.supportsAsynchronousRequests()) {
+        if (options.supportsAsynchronousRequests() && options.supportsSynchronousRequests()) {
             argParser.addArgument(asyncArgument);
         }
+        supportsSynchronousRequests = options.supportsSynchronousRequests();
 
         arguments =
                 new StringArgument(
@@ -843,15 +855,16 @@ abstract class PerformanceRunner implements ConnectionEventListener {
         statsInterval = statsIntervalArgument.getIntValue() * 1000;
         targetThroughput = targetThroughputArgument.getIntValue();
 
-        isAsync = asyncArgument.isPresent();
-        noRebind = noRebindArgument.isPresent();
+        isAsync = asyncArgument.isPresent() || !supportsSynchronousRequests;
+        noRebind = noRebindArgument.isPresent() || !supportsSynchronousRequests;
+        histogramFormat = histogramFormatArgument.getTypedValue();
 
-        if (!noRebindArgument.isPresent() && this.numThreads > 1) {
+        if (!noRebind && this.numThreads > 1) {
             throw new ArgumentException(ERR_TOOL_ARG_MUST_BE_USED_WHEN_ARG_CONDITION.get(
                 "--" + noRebindArgument.getLongIdentifier(), "--" + numThreadsArgument.getLongIdentifier(), "> 1"));
         }
 
-        if (!noRebindArgument.isPresent() && asyncArgument.isPresent()) {
+        if (!noRebind && isAsync) {
             throw new ArgumentException(ERR_TOOL_ARG_NEEDED_WHEN_USING_ARG.get(
                 "--" + noRebindArgument.getLongIdentifier(), asyncArgument.getLongIdentifier()));
         }
@@ -886,7 +899,7 @@ abstract class PerformanceRunner implements ConnectionEventListener {
         try {
             isWarmingUp = warmUpDuration > 0;
             for (int i = 0; i < numConnections; i++) {
-                if (keepConnectionsOpen.isPresent() || noRebindArgument.isPresent()) {
+                if (keepConnectionsOpen.isPresent() || noRebind) {
                     connection = connectionFactory.getConnectionAsync().getOrThrow();
                     connection.addConnectionEventListener(this);
                     connections.add(connection);
@@ -917,6 +930,7 @@ abstract class PerformanceRunner implements ConnectionEventListener {
             joinAllWorkerThreads();
             stopRequested = true;
             statsThread.join();
+            statsThread.exportResponseTimes();
         } catch (final InterruptedException e) {
             stopRequested = true;
         } catch (final LdapException e) {
@@ -930,6 +944,26 @@ abstract class PerformanceRunner implements ConnectionEventListener {
         return 0;
     }
 
+    /**
+     * Returns the current target throughput, 0 meaning unlimited.
+     *
+     * @return The current target throughput in operations per second.
+     */
+    final int getTargetThroughput() {
+        return targetThroughput;
+    }
+
+    /**
+     * Changes the target throughput while the tool is running.
+     *
+     * @param targetThroughput
+     *            The new target throughput in operations per second, 0 meaning
+     *            unlimited.
+     */
+    final void setTargetThroughput(final int targetThroughput) {
+        this.targetThroughput = targetThroughput;
+    }
+
     void setBindRequest(final BindRequest request) {
         this.bindRequest = request;
     }
@@ -943,4 +977,13 @@ abstract class PerformanceRunner implements ConnectionEventListener {
             t.join();
         }
     }
+
+    private static String[] getOperationColumns(final List<String> operationNames) {
+        final List<String> columns = new ArrayList<>();
+        for (final String name : operationNames) {
+            columns.add(name + "/sec");
+            columns.add(name + " ms");
+        }
+        return columns.toArray(new String[columns.size()]);
+    }
 }
@@ -22,6 +22,7 @@
  *
  *
  *      Portions Copyright 2014-2015 ForgeRock AS
+ *      Portions Copyright 2026 Wren Security.
  */
 
 package com.forgerock.opendj.ldap.tools;
@@ -38,6 +39,7 @@ class PerformanceRunnerOptions {
 
     private boolean supportsRebind = true;
     private boolean supportAsynchronousRequests = true;
+    private boolean supportsSynchronousRequests = true;
     private boolean supportsMultipleThreadsPerConnection = true;
     private boolean supportsGeneratorArgument = true;
 
@@ -62,6 +64,19 @@ class PerformanceRunnerOptions {
         this.supportAsynchronousRequests = supportAsynchronousRequests;
     }
 
+    boolean supportsSynchronousRequests() {
+        return supportsSynchronousRequests;
+    }
+
+    /**
+     * Indicates whether requests may be sent synchronously. Tools which do not
+     * support synchronous requests always keep their connections open without
+     * rebinding and send requests without waiting for previous results.
+     */
+    void setSupportsSynchronousRequests(boolean supportsSynchronousRequests) {
+        this.supportsSynchronousRequests = supportsSynchronousRequests;
+    }
+
     boolean supportsMultipleThreadsPerConnection() {
         return supportsMultipleThreadsPerConnection;
     }
@@ -0,0 +1,278 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package com.forgerock.opendj.ldap.tools;
+
+import static java.util.Locale.ENGLISH;
+
+import static com.forgerock.opendj.ldap.tools.ToolsMessages.*;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.forgerock.opendj.ldap.ModificationType;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.ldap.requests.AddRequest;
+import org.forgerock.opendj.ldap.requests.ModifyRequest;
+import org.forgerock.opendj.ldap.requests.Request;
+import org.forgerock.opendj.ldap.requests.Requests;
+
+import com.forgerock.opendj.cli.ArgumentException;
+
+/**
+ * A reader of operation logs recorded from the traffic of a directory server.
+ * <p>
+ * An operation log contains one operation per line, made of tab separated
+ * fields: the time in milliseconds at which the operation was received, an
+ * identifier of the client session which sent it, the operation, its DN and
+ * the operation specific fields. Empty lines and lines starting with
+ * {@code #} are ignored. For example:
+ *
+ * <pre>
+ * # time  session  operation  dn  fields...
+ * 0       conn-1   bind       uid=user.0,ou=people,dc=example,dc=com  password
+ * 1.5     conn-1   search     ou=people,dc=example,dc=com  sub  (uid=user.1)  cn,mail
+ * 3       conn-2   modify     uid=user.2,ou=people,dc=example,dc=com  replace:description:new
+ * 4.25    conn-1   unbind
+ * </pre>
+ *
+ * The operation specific fields are:
+ * <ul>
+ * <li>bind: the password</li>
+ * <li>unbind: none, the DN may be omitted</li>
+ * <li>search: the scope (base, one, sub or subordinates), the filter and
+ * optionally the comma separated requested attributes</li>
+ * <li>compare: the assertion (attribute:value)</li>
+ * <li>modify: one or more modifications (add, delete, replace or increment
+ * followed by :attribute and optionally :value)</li>
+ * <li>add: one or more attribute values (attribute:value)</li>
+ * <li>delete: none</li>
+ * </ul>
+ */
+final class ReplayLog implements Closeable {
+    /** The types of operations which can be replayed. */
+    enum OperationType {
+        BIND(2, 2), UNBIND(0, 1), SEARCH(3, 4), COMPARE(2, 2), MODIFY(2, Integer.MAX_VALUE),
+        ADD(2, Integer.MAX_VALUE), DELETE(1, 1);
+
+        /** Minimum number of fields following the operation, including the DN. */
+        private final int minFields;
+        /** Maximum number of fields following the operation, including the DN. */
+        private final int maxFields;
+
+        private OperationType(final int minFields, final int maxFields) {
+            this.minFields = minFields;
+            this.maxFields = maxFields;
+        }
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(ENGLISH);
+        }
+    }
+
+    /** An operation of the log. */
+    static final class Record {
+        private final long timeUs;
+        private final String session;
+        private final OperationType type;
+        private final Request request;
+
+        private Record(final long timeUs, final String session, final OperationType type, final Request request) {
+            this.timeUs = timeUs;
+            this.session = session;
+            this.type = type;
+            this.request = request;
+        }
+
+        /** Returns the time at which the operation was received, in microseconds. */
+        long getTimeUs() {
+            return timeUs;
+        }
+
+        /** Returns the identifier of the client session which sent the operation. */
+        String getSession() {
+            return session;
+        }
+
+        OperationType getType() {
+            return type;
+        }
+
+        /** Returns the request to replay, {@code null} for unbinds. */
+        Request getRequest() {
+            return request;
+        }
+    }
+
+    private final BufferedReader reader;
+    private int lineNumber;
+
+    /**
+     * Creates a new operation log reader.
+     *
+     * @param reader
+     *            The reader from which the operation log is read.
+     */
+    ReplayLog(final BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the next operation of the log.
+     *
+     * @return The next operation of the log, or {@code null} if the end of
+     *         the log has been reached.
+     * @throws IOException
+     *             If an error occurs while reading the operation log.
+     * @throws ArgumentException
+     *             If the next operation of the log is invalid.
+     */
+    Record next() throws IOException, ArgumentException {
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNumber++;
+            if (!line.trim().isEmpty() && !line.startsWith("#")) {
+                return parseRecord(line, lineNumber);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Parses one line of an operation log.
+     *
+     * @param line
+     *            The line to parse, which must not be empty or a comment.
+     * @param lineNumber
+     *            The number of the line, for error messages.
+     * @return The operation of the line.
+     * @throws ArgumentException
+     *             If the line is not a valid operation.
+     */
+    static Record parseRecord(final String line, final int lineNumber) throws ArgumentException {
+        final String[] fields = line.split("\t", -1);
+        if (fields.length < 3 || fields[1].trim().isEmpty()) {
+            throw new ArgumentException(ERR_REPLAY_LOG_INVALID_LINE.get(lineNumber));
+        }
+
+        final String time = fields[0].trim();
+        double timeMs;
+        try {
+            timeMs = Double.parseDouble(time);
+        } catch (final NumberFormatException e) {
+            timeMs = -1;
+        }
+        if (!(timeMs >= 0) || Double.isInfinite(timeMs)) {
+            throw new ArgumentException(ERR_REPLAY_LOG_INVALID_TIME.get(time, lineNumber));
+        }
+
+        final String operation = fields[2].trim();
+        OperationType type = null;
+        for (final OperationType t : OperationType.values()) {
+            if (t.toString().equalsIgnoreCase(operation)) {
+                type = t;
+            }
+        }
+        if (type == null) {
+            throw new ArgumentException(ERR_REPLAY_LOG_UNKNOWN_OPERATION.get(
+                    operation, lineNumber, Arrays.toString(OperationType.values())));
+        }
+
+        final String[] operationFields = Arrays.copyOfRange(fields, 3, fields.length);
+        if (operationFields.length < type.minFields || operationFields.length > type.maxFields) {
+            throw new ArgumentException(ERR_REPLAY_LOG_WRONG_FIELD_COUNT.get(type.toString(), lineNumber));
+        }
+        try {
+            return new Record(Math.round(timeMs * 1000), fields[1].trim(), type, newRequest(type, operationFields));
+        } catch (final IllegalArgumentException e) {
+            throw new ArgumentException(ERR_REPLAY_LOG_INVALID_OPERATION.get(
+                    type.toString(), lineNumber, e.getMessage()));
+        }
+    }
+
+    private static Request newRequest(final OperationType type, final String[] fields) {
+        switch (type) {
+        case BIND:
+            return Requests.newSimpleBindRequest(fields[0], fields[1].toCharArray());
+        case UNBIND:
+            return null;
+        case SEARCH:
+            final SearchScope scope = SearchScope.valueOf(fields[1].trim().toLowerCase(ENGLISH));
+            if (scope == null) {
+                throw new IllegalArgumentException("\"" + fields[1] + "\" is not a search scope");
+            }
+            final String[] attributes = fields.length > 3 ? fields[3].trim().split("\\s*,\\s*") : new String[0];
+            return Requests.newSearchRequest(fields[0], scope, fields[2],
+                    attributes.length == 1 && attributes[0].isEmpty() ? new String[0] : attributes);
+        case COMPARE:
+            final String[] assertion = split(fields[1]);
+            return Requests.newCompareRequest(fields[0], assertion[0], assertion[1]);
+        case MODIFY:
+            final ModifyRequest modifyRequest = Requests.newModifyRequest(fields[0]);
+            for (int i = 1; i < fields.length; i++) {
+                final String[] modification = fields[i].split(":", 3);
+                final ModificationType modificationType = getModificationType(modification[0]);
+                if (modificationType == null || modification.length < 2) {
+                    throw new IllegalArgumentException("\"" + fields[i] + "\" is not a modification");
+                }
+                final Object[] values = modification.length > 2 ? new Object[] { modification[2] } : new Object[0];
+                modifyRequest.addModification(modificationType, modification[1], values);
+            }
+            return modifyRequest;
+        case ADD:
+            final AddRequest addRequest = Requests.newAddRequest(fields[0]);
+            for (int i = 1; i < fields.length; i++) {
+                final String[] attributeValue = split(fields[i]);
+                addRequest.addAttribute(attributeValue[0], attributeValue[1]);
+            }
+            return addRequest;
+        default:
+            return Requests.newDeleteRequest(fields[0]);
+        }
+    }
+
+    private static ModificationType getModificationType(final String name) {
+        for (final ModificationType type : ModificationType.values()) {
+            if (type.toString().equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static String[] split(final String attributeValue) {
+        final String[] split = attributeValue.split(":", 2);
+        if (split.length < 2 || split[0].isEmpty()) {
+            throw new IllegalArgumentException("\"" + attributeValue + "\" is not an attribute:value pair");
+        }
+        return split;
+    }
+}
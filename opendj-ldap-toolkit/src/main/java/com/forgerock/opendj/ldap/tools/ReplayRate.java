@@ -0,0 +1,545 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package com.forgerock.opendj.ldap.tools;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import static org.forgerock.util.Utils.closeSilently;
+
+import static com.forgerock.opendj.cli.Utils.*;
+import static com.forgerock.opendj.ldap.tools.ToolsMessages.*;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.ldap.Connection;
+import org.forgerock.opendj.ldap.ConnectionFactory;
+import org.forgerock.opendj.ldap.LdapException;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.ldap.SearchResultHandler;
+import org.forgerock.opendj.ldap.requests.AddRequest;
+import org.forgerock.opendj.ldap.requests.BindRequest;
+import org.forgerock.opendj.ldap.requests.CompareRequest;
+import org.forgerock.opendj.ldap.requests.DeleteRequest;
+import org.forgerock.opendj.ldap.requests.ModifyRequest;
+import org.forgerock.opendj.ldap.requests.Request;
+import org.forgerock.opendj.ldap.requests.SearchRequest;
+import org.forgerock.opendj.ldap.responses.Result;
+import org.forgerock.util.AsyncFunction;
+import org.forgerock.util.Function;
+import org.forgerock.util.promise.Promise;
+import org.forgerock.util.promise.ResultHandler;
+
+import com.forgerock.opendj.cli.ArgumentException;
+import com.forgerock.opendj.cli.ArgumentParser;
+import com.forgerock.opendj.cli.BooleanArgument;
+import com.forgerock.opendj.cli.CommonArguments;
+import com.forgerock.opendj.cli.ConnectionFactoryProvider;
+import com.forgerock.opendj.cli.ConsoleApplication;
+import com.forgerock.opendj.cli.StringArgument;
+import com.forgerock.opendj.ldap.tools.ReplayLog.OperationType;
+import com.forgerock.opendj.ldap.tools.ReplayLog.Record;
+
+/**
+ * A load generation tool that can be used to load a Directory Server by
+ * replaying the operations of an operation log.
+ * <p>
+ * Operations are sent at the time recorded in the log, optionally scaled by
+ * a speed factor, without waiting for previous results. Each client session
+ * of the log is replayed on its own connection so that binds only change the
+ * identity used by the operations of their session.
+ */
+public final class ReplayRate extends ConsoleApplication {
+    /**
+     * A client session of the operation log, replayed on its own connection.
+     * Operations are sent without waiting for previous results, except binds
+     * which wait for all the operations of the session to complete, and
+     * operations following a bind, which wait for the bind to complete.
+     */
+    static final class Session {
+        /** Widens the type of bind and compare results so that all operations can be sent the same way. */
+        private static final Function<Result, Result, LdapException> TO_RESULT =
+                new Function<Result, Result, LdapException>() {
+                    @Override
+                    public Result apply(final Result result) {
+                        return result;
+                    }
+                };
+
+        /** The connection of the session, available once the last bind of the session has completed. */
+        private Promise<Connection, LdapException> connection;
+        /** Completes once all the operations sent so far on the session have completed. */
+        private Promise<?, LdapException> allOperations;
+
+        Session(final Promise<Connection, LdapException> connection) {
+            this.connection = connection;
+            this.allOperations = connection;
+        }
+
+        /**
+         * Sends an operation of this session.
+         *
+         * @param type
+         *            The type of the operation.
+         * @param request
+         *            The request of the operation.
+         * @param searchHandler
+         *            The handler of search result entries and references.
+         * @return A promise completed with the result of the operation.
+         */
+        Promise<Result, LdapException> send(final OperationType type, final Request request,
+                final SearchResultHandler searchHandler) {
+            /*
+             * A bind fails while other operations are in progress on its
+             * connection, so it waits for all the operations of the session.
+             */
+            final Promise<Connection, LdapException> sessionConnection =
+                    type == OperationType.BIND ? whenIdle() : connection;
+            final Promise<Result, LdapException> promise = sessionConnection.thenAsync(
+                    new AsyncFunction<Connection, Result, LdapException>() {
+                        @Override
+                        public Promise<Result, LdapException> apply(final Connection connection) {
+                            return send(connection, type, request, searchHandler);
+                        }
+                    });
+
+            if (type == OperationType.BIND) {
+                // Following operations of the session must use the identity resulting from the bind.
+                final AsyncFunction<Object, Connection, LdapException> afterBind =
+                        new AsyncFunction<Object, Connection, LdapException>() {
+                            @Override
+                            public Promise<Connection, LdapException> apply(final Object value) {
+                                return sessionConnection;
+                            }
+                        };
+                connection = promise.thenAsync(afterBind, afterBind);
+            }
+            addOperation(promise);
+            return promise;
+        }
+
+        /** Returns a promise completed once all the operations of this session have completed. */
+        Promise<?, LdapException> getAllOperations() {
+            return allOperations;
+        }
+
+        /** Closes the connection of this session once all its operations have completed. */
+        void close() {
+            final Promise<Connection, LdapException> sessionConnection = connection;
+            allOperations.thenAlways(new Runnable() {
+                @Override
+                public void run() {
+                    sessionConnection.thenOnResult(new ResultHandler<Connection>() {
+                        @Override
+                        public void handleResult(final Connection connection) {
+                            connection.close();
+                        }
+                    });
+                }
+            });
+        }
+
+        /** Registers an operation sent on this session, whatever its outcome. */
+        private void addOperation(final Promise<Result, LdapException> operation) {
+            final AsyncFunction<Object, Result, LdapException> thenOperation =
+                    new AsyncFunction<Object, Result, LdapException>() {
+                        @Override
+                        public Promise<Result, LdapException> apply(final Object value) {
+                            return operation;
+                        }
+                    };
+            allOperations = allOperations.thenAsync(thenOperation, thenOperation);
+        }
+
+        /** Returns the connection of this session once all the operations sent so far have completed. */
+        private Promise<Connection, LdapException> whenIdle() {
+            final Promise<Connection, LdapException> sessionConnection = connection;
+            final AsyncFunction<Object, Connection, LdapException> thenConnection =
+                    new AsyncFunction<Object, Connection, LdapException>() {
+                        @Override
+                        public Promise<Connection, LdapException> apply(final Object value) {
+                            return sessionConnection;
+                        }
+                    };
+            return allOperations.thenAsync(thenConnection, thenConnection);
+        }
+
+        private static Promise<Result, LdapException> send(final Connection connection, final OperationType type,
+                final Request request, final SearchResultHandler searchHandler) {
+            switch (type) {
+            case BIND:
+                return connection.bindAsync((BindRequest) request).then(TO_RESULT);
+            case SEARCH:
+                return connection.searchAsync((SearchRequest) request, searchHandler);
+            case COMPARE:
+                return connection.compareAsync((CompareRequest) request).then(TO_RESULT);
+            case MODIFY:
+                return connection.modifyAsync((ModifyRequest) request);
+            case ADD:
+                return connection.addAsync((AddRequest) request);
+            default:
+                return connection.deleteAsync((DeleteRequest) request);
+            }
+        }
+    }
+
+    private static final class ReplayPerformanceRunner extends PerformanceRunner {
+        /** Reads the operation log and dispatches its operations to the worker threads. */
+        private final class ReaderThread extends Thread {
+            private ReaderThread() {
+                super("Log Reader Thread");
+                setDaemon(true);
+            }
+
+            @Override
+            public void run() {
+                try {
+                    for (Record record = log.next(); record != null && !stopRequested; record = log.next()) {
+                        // All the operations of a session are replayed in order by the same worker thread.
+                        final int index = (record.getSession().hashCode() & Integer.MAX_VALUE) % queues.size();
+                        final BlockingQueue<Record> queue = queues.get(index);
+                        while (!queue.offer(record, MAX_SLEEP_TIME_MS, MILLISECONDS)) {
+                            if (stopRequested) {
+                                return;
+                            }
+                        }
+                    }
+                } catch (final IOException e) {
+                    app.errPrintln(ERR_REPLAYRATE_CANNOT_READ_LOG.get(logFile, e.getMessage()));
+                    stopRequested = true;
+                } catch (final ArgumentException e) {
+                    app.errPrintln(e.getMessageObject());
+                    stopRequested = true;
+                } catch (final InterruptedException e) {
+                    stopRequested = true;
+                } finally {
+                    endOfLog = true;
+                }
+            }
+        }
+
+        /**
+         * Replays the sessions assigned to this worker thread, each on its own
+         * connection. The connection shared by the worker thread is not used.
+         */
+        private final class ReplayWorkerThread extends WorkerThread {
+            private final ConnectionFactory connectionFactory;
+            private final BlockingQueue<Record> queue;
+            private final Map<String, Session> sessions = new HashMap<>();
+            private Record record;
+
+            private ReplayWorkerThread(final Connection connection, final ConnectionFactory connectionFactory,
+                    final BlockingQueue<Record> queue) {
+                super(connection, connectionFactory);
+                this.connectionFactory = connectionFactory;
+                this.queue = queue;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    super.run();
+                } finally {
+                    for (final Session session : sessions.values()) {
+                        if (!stopRequested) {
+                            try {
+                                session.getAllOperations().getOrThrowUninterruptibly();
+                            } catch (final LdapException e) {
+                                // Ignore. Handled by result handler
+                            }
+                        }
+                        session.close();
+                    }
+                }
+            }
+
+            @Override
+            long waitForNextOperation(final long previousStartTimeNs) throws InterruptedException {
+                while (true) {
+                    record = queue.poll(MAX_SLEEP_TIME_MS, MILLISECONDS);
+                    if (record == null) {
+                        if (stopRequested || (endOfLog && queue.isEmpty())) {
+                            localStopRequested = true;
+                            return System.nanoTime();
+                        }
+                    } else if (record.getType() == OperationType.UNBIND) {
+                        final Session session = sessions.remove(record.getSession());
+                        if (session != null) {
+                            session.close();
+                        }
+                    } else {
+                        break;
+                    }
+                }
+
+                final long startTimeNs = getStartTimeNs(record.getTimeUs());
+                long sleepTimeMs = NANOSECONDS.toMillis(startTimeNs - System.nanoTime());
+                while (sleepTimeMs > 1 && !stopRequested) {
+                    sleep(Math.min(sleepTimeMs, MAX_SLEEP_TIME_MS));
+                    sleepTimeMs = NANOSECONDS.toMillis(startTimeNs - System.nanoTime());
+                }
+                return Math.min(startTimeNs, System.nanoTime());
+            }
+
+            @Override
+            public Promise<?, LdapException> performOperation(final Connection connection,
+                    final DataSource[] dataSources, final long startTime) {
+                Session session = sessions.get(record.getSession());
+                if (session == null) {
+                    session = new Session(connectionFactory.getConnectionAsync());
+                    sessions.put(record.getSession(), session);
+                }
+
+                final OperationType type = record.getType();
+                final OperationStatsHandler handler =
+                        new OperationStatsHandler(startTime, operationRecorders.get(type));
+                final Promise<Result, LdapException> promise = session.send(type, record.getRequest(), handler);
+                promise.thenOnResult(handler).thenOnException(handler);
+                incrementIterationCount();
+                return promise;
+            }
+        }
+
+        /** Maximum number of operations read in advance for each worker thread. */
+        private static final int QUEUE_CAPACITY = 1000;
+
+        private final ConsoleApplication app;
+        private final List<BlockingQueue<Record>> queues = new ArrayList<>();
+        private final Map<OperationType, ResponseTimeHistogram.Recorder> operationRecorders =
+                new EnumMap<>(OperationType.class);
+        /** The time at which the first operation of the log is replayed. */
+        private final AtomicLong replayStartTimeNs = new AtomicLong();
+        private String logFile;
+        private ReplayLog log;
+        private long firstTimeUs;
+        private double speedFactor;
+        private int workerCount;
+        private volatile boolean endOfLog;
+
+        private ReplayPerformanceRunner(final PerformanceRunnerOptions options) throws ArgumentException {
+            super(options);
+            this.app = options.getConsoleApplication();
+        }
+
+        /**
+         * Checks the whole operation log before opening it for the replay, so
+         * that invalid operations are reported before starting.
+         */
+        private void openLog(final String logFile) throws IOException, ArgumentException {
+            this.logFile = logFile;
+            firstTimeUs = Long.MAX_VALUE;
+            try (ReplayLog checkedLog = new ReplayLog(new BufferedReader(new FileReader(logFile)))) {
+                for (Record record = checkedLog.next(); record != null; record = checkedLog.next()) {
+                    firstTimeUs = Math.min(firstTimeUs, record.getTimeUs());
+                    if (record.getType() != OperationType.UNBIND && !operationRecorders.containsKey(record.getType())) {
+                        operationRecorders.put(record.getType(), new ResponseTimeHistogram.Recorder());
+                    }
+                }
+            }
+            if (firstTimeUs == Long.MAX_VALUE) {
+                throw new ArgumentException(ERR_REPLAY_LOG_EMPTY.get());
+            }
+
+            for (int i = 0; i < numConnections; i++) {
+                queues.add(new ArrayBlockingQueue<Record>(QUEUE_CAPACITY));
+            }
+            log = new ReplayLog(new BufferedReader(new FileReader(logFile)));
+        }
+
+        /** Returns the time at which the operation received at the provided time must be replayed. */
+        private long getStartTimeNs(final long timeUs) {
+            if (speedFactor == 0) {
+                return System.nanoTime();
+            }
+            replayStartTimeNs.compareAndSet(0, System.nanoTime());
+            return replayStartTimeNs.get() + (long) (MICROSECONDS.toNanos(timeUs - firstTimeUs) / speedFactor);
+        }
+
+        @Override
+        WorkerThread newWorkerThread(final Connection connection, final ConnectionFactory connectionFactory) {
+            return new ReplayWorkerThread(connection, connectionFactory, queues.get(workerCount++));
+        }
+
+        @Override
+        StatsThread newStatsThread() {
+            final List<String> names = new ArrayList<>();
+            for (final OperationType type : operationRecorders.keySet()) {
+                names.add(type.toString());
+            }
+            return new OperationStatsThread(names, operationRecorders.values().toArray(
+                    new ResponseTimeHistogram.Recorder[operationRecorders.size()]));
+        }
+    }
+
+    /**
+     * The main method for ReplayRate tool.
+     *
+     * @param args
+     *            The command-line arguments provided to this program.
+     */
+    public static void main(final String[] args) {
+        final int retCode = new ReplayRate().run(args);
+        System.exit(filterExitCode(retCode));
+    }
+
+    private BooleanArgument verbose;
+    private BooleanArgument scriptFriendly;
+
+    private ReplayRate() {
+        // Nothing to do.
+    }
+
+    @Override
+    public boolean isInteractive() {
+        return false;
+    }
+
+    @Override
+    public boolean isScriptFriendly() {
+        return scriptFriendly.isPresent();
+    }
+
+    @Override
+    public boolean isVerbose() {
+        return verbose.isPresent();
+    }
+
+    private int run(final String[] args) {
+        // Creates the command-line argument parser for use with this program
+        final LocalizableMessage toolDescription = INFO_REPLAYRATE_TOOL_DESCRIPTION.get();
+        final ArgumentParser argParser =
+                new ArgumentParser(ReplayRate.class.getName(), toolDescription, false, true, 1, 1, "{log-file}");
+        argParser.setVersionHandler(new SdkVersionHandler());
+        argParser.setShortToolDescription(REF_SHORT_DESC_REPLAYRATE.get());
+        argParser.setDocToolDescriptionSupplement(SUPPLEMENT_DESCRIPTION_RATE_TOOLS.get());
+
+        ConnectionFactoryProvider connectionFactoryProvider;
+        ConnectionFactory connectionFactory;
+        ReplayPerformanceRunner runner;
+
+        BooleanArgument showUsage;
+        StringArgument propertiesFileArgument;
+        BooleanArgument noPropertiesFileArgument;
+        StringArgument speedFactorArgument;
+        try {
+            Utils.setDefaultPerfToolProperties();
+            final PerformanceRunnerOptions options = new PerformanceRunnerOptions(argParser, this);
+            options.setSupportsSynchronousRequests(false);
+            options.setSupportsMultipleThreadsPerConnection(false);
+            options.setSupportsGeneratorArgument(false);
+
+            connectionFactoryProvider = new ConnectionFactoryProvider(argParser, this);
+            runner = new ReplayPerformanceRunner(options);
+
+            propertiesFileArgument = CommonArguments.getPropertiesFile();
+            argParser.addArgument(propertiesFileArgument);
+            argParser.setFilePropertiesArgument(propertiesFileArgument);
+
+            noPropertiesFileArgument = CommonArguments.getNoPropertiesFile();
+            argParser.addArgument(noPropertiesFileArgument);
+            argParser.setNoPropertiesFileArgument(noPropertiesFileArgument);
+
+            speedFactorArgument =
+                    new StringArgument("speedFactor", null, "speedFactor", false, false, true,
+                            INFO_SPEED_FACTOR_PLACEHOLDER.get(), "1", null,
+                            INFO_REPLAYRATE_DESCRIPTION_SPEED_FACTOR.get());
+            speedFactorArgument.setPropertyName("speedFactor");
+            argParser.addArgument(speedFactorArgument);
+
+            verbose = CommonArguments.getVerbose();
+            argParser.addArgument(verbose);
+
+            showUsage = CommonArguments.getShowUsage();
+            argParser.addArgument(showUsage);
+            argParser.setUsageArgument(showUsage, getOutputStream());
+
+            scriptFriendly =
+                    new BooleanArgument("scriptFriendly", 'S', "scriptFriendly",
+                            INFO_DESCRIPTION_SCRIPT_FRIENDLY.get());
+            scriptFriendly.setPropertyName("scriptFriendly");
+            argParser.addArgument(scriptFriendly);
+        } catch (final ArgumentException ae) {
+            final LocalizableMessage message = ERR_CANNOT_INITIALIZE_ARGS.get(ae.getMessage());
+            errPrintln(message);
+            return ResultCode.CLIENT_SIDE_PARAM_ERROR.intValue();
+        }
+
+        // Parse the command-line arguments provided to this program.
+        try {
+            argParser.parseArguments(args);
+
+            /* If we should just display usage or version information, then print it and exit. */
+            if (argParser.usageOrVersionDisplayed()) {
+                return 0;
+            }
+
+            connectionFactory = connectionFactoryProvider.getAuthenticatedConnectionFactory();
+            runner.setBindRequest(connectionFactoryProvider.getBindRequest());
+            runner.validate();
+
+            if (runner.getTargetThroughput() > 0) {
+                throw new ArgumentException(ERR_REPLAYRATE_TARGET_THROUGHPUT.get("--targetThroughput"));
+            }
+            runner.speedFactor = parseSpeedFactor(speedFactorArgument.getValue());
+            runner.openLog(argParser.getTrailingArguments().get(0));
+        } catch (final ArgumentException ae) {
+            argParser.displayMessageAndUsageReference(getErrStream(), ERR_ERROR_PARSING_ARGS.get(ae.getMessage()));
+            return ResultCode.CLIENT_SIDE_PARAM_ERROR.intValue();
+        } catch (final IOException e) {
+            errPrintln(ERR_REPLAYRATE_CANNOT_READ_LOG.get(argParser.getTrailingArguments().get(0), e.getMessage()));
+            return ResultCode.CLIENT_SIDE_PARAM_ERROR.intValue();
+        }
+
+        try {
+            runner.new ReaderThread().start();
+            return runner.run(connectionFactory);
+        } finally {
+            closeSilently(runner.log);
+        }
+    }
+
+    /** Parses the speed factor, which must be a positive number or 0 for replaying as fast as possible. */
+    static double parseSpeedFactor(final String speedFactor) throws ArgumentException {
+        try {
+            final double value = Double.parseDouble(speedFactor);
+            if (value >= 0 && !Double.isInfinite(value)) {
+                return value;
+            }
+        } catch (final NumberFormatException e) {
+            // Handled below.
+        }
+        throw new ArgumentException(ERR_REPLAYRATE_INVALID_SPEED_FACTOR.get(speedFactor));
+    }
+}
@@ -0,0 +1,404 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package com.forgerock.opendj.ldap.tools;
+
+import static java.util.Locale.ENGLISH;
+import static java.util.concurrent.TimeUnit.HOURS;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A high dynamic range histogram of response times expressed in microseconds.
+ * <p>
+ * Each power of two range of values is split into the same number of linear
+ * sub-buckets, so that any response time from one microsecond up to one hour
+ * is recorded with three significant decimal digits of precision using a
+ * fixed number of counters.
+ * <p>
+ * Histograms are not thread safe. Response times are recorded using a
+ * {@link Recorder} and periodically merged into a histogram by a single thread.
+ */
+final class ResponseTimeHistogram {
+    /** Supported formats for exporting the whole histogram. */
+    enum ExportFormat {
+        /** Percentile distribution using the HdrHistogram text format. */
+        HDR,
+        /** Comma separated list of all non empty buckets. */
+        CSV,
+        /** JSON object containing summary statistics and all non empty buckets. */
+        JSON;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(ENGLISH);
+        }
+    }
+
+    /**
+     * Records response times from any number of threads without contention.
+     * <p>
+     * Each recording thread updates its own set of counters, which are
+     * harvested by the statistics thread when it calls
+     * {@link #addIntervalCountsTo(ResponseTimeHistogram)}.
+     */
+    static final class Recorder {
+        private final List<ThreadCounts> allThreadCounts = new CopyOnWriteArrayList<>();
+        private final ThreadLocal<ThreadCounts> threadCounts = new ThreadLocal<ThreadCounts>() {
+            @Override
+            protected ThreadCounts initialValue() {
+                final ThreadCounts counts = new ThreadCounts();
+                allThreadCounts.add(counts);
+                return counts;
+            }
+        };
+
+        /**
+         * Records a response time.
+         *
+         * @param responseTimeMicroSecs
+         *            The response time in microseconds.
+         */
+        void recordValue(final long responseTimeMicroSecs) {
+            threadCounts.get().recordValue(responseTimeMicroSecs);
+        }
+
+        /**
+         * Adds the response times recorded since the previous call to the
+         * provided histogram. This method must always be called by the same
+         * thread.
+         *
+         * @param histogram
+         *            The histogram to which recent response times are added.
+         */
+        void addIntervalCountsTo(final ResponseTimeHistogram histogram) {
+            for (final ThreadCounts counts : allThreadCounts) {
+                counts.addIntervalCountsTo(histogram);
+            }
+        }
+    }
+
+    /** The counters of a single recording thread. */
+    private static final class ThreadCounts {
+        /** Only updated by the recording thread, so that lazy sets are enough. */
+        private final AtomicLongArray counts = new AtomicLongArray(COUNTS_LENGTH);
+        /** Only accessed by the harvesting thread. */
+        private final long[] harvestedCounts = new long[COUNTS_LENGTH];
+
+        private void recordValue(final long value) {
+            final int index = countsIndex(value);
+            counts.lazySet(index, counts.get(index) + 1);
+        }
+
+        private void addIntervalCountsTo(final ResponseTimeHistogram histogram) {
+            for (int i = 0; i < COUNTS_LENGTH; i++) {
+                final long count = counts.get(i);
+                if (count != harvestedCounts[i]) {
+                    histogram.addCount(i, count - harvestedCounts[i]);
+                    harvestedCounts[i] = count;
+                }
+            }
+        }
+    }
+
+    /** Response times above this value, in microseconds, are recorded as this value. */
+    static final long HIGHEST_TRACKABLE_VALUE = HOURS.toMicros(1);
+
+    /** 2048 sub-buckets is the smallest power of two providing three significant digits. */
+    private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = 10;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+    private static final long SUB_BUCKET_MASK = (SUB_BUCKET_HALF_COUNT << 1) - 1;
+    private static final int LEADING_ZERO_COUNT_BASE = Long.SIZE - SUB_BUCKET_HALF_COUNT_MAGNITUDE - 1;
+    private static final int COUNTS_LENGTH = countsIndex(HIGHEST_TRACKABLE_VALUE) + 1;
+
+    /** Percentiles included in the JSON export. */
+    private static final double[] EXPORTED_PERCENTILES = { 50.0, 90.0, 99.0, 99.9, 99.99, 99.999, 100.0 };
+    /** Number of reported percentiles each time the distance to 100% halves in the HDR export. */
+    private static final int PERCENTILE_TICKS_PER_HALF_DISTANCE = 5;
+
+    private final long[] counts = new long[COUNTS_LENGTH];
+    private long totalCount;
+
+    /**
+     * Returns the index of the counter of the provided value.
+     *
+     * @param value
+     *            The value, in microseconds.
+     * @return The index of the counter of the provided value.
+     */
+    static int countsIndex(final long value) {
+        final long trackedValue = Math.min(Math.max(value, 0), HIGHEST_TRACKABLE_VALUE);
+        final int bucketIndex = LEADING_ZERO_COUNT_BASE - Long.numberOfLeadingZeros(trackedValue | SUB_BUCKET_MASK);
+        final int subBucketIndex = (int) (trackedValue >>> bucketIndex);
+        return ((bucketIndex + 1) << SUB_BUCKET_HALF_COUNT_MAGNITUDE) + subBucketIndex - SUB_BUCKET_HALF_COUNT;
+    }
+
+    /**
+     * Returns the lowest value counted by the provided counter.
+     *
+     * @param index
+     *            The index of the counter.
+     * @return The lowest value counted by the provided counter.
+     */
+    static long lowestEquivalentValue(final int index) {
+        int bucketIndex = (index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+        int subBucketIndex = (index & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+        if (bucketIndex < 0) {
+            subBucketIndex -= SUB_BUCKET_HALF_COUNT;
+            bucketIndex = 0;
+        }
+        return ((long) subBucketIndex) << bucketIndex;
+    }
+
+    /**
+     * Returns the highest value counted by the provided counter.
+     *
+     * @param index
+     *            The index of the counter.
+     * @return The highest value counted by the provided counter.
+     */
+    static long highestEquivalentValue(final int index) {
+        return lowestEquivalentValue(index + 1) - 1;
+    }
+
+    /**
+     * Records a response time.
+     *
+     * @param responseTimeMicroSecs
+     *            The response time in microseconds.
+     */
+    void recordValue(final long responseTimeMicroSecs) {
+        addCount(countsIndex(responseTimeMicroSecs), 1);
+    }
+
+    /**
+     * Adds all the response times recorded in the provided histogram to this
+     * histogram.
+     *
+     * @param other
+     *            The histogram to be added.
+     */
+    void add(final ResponseTimeHistogram other) {
+        for (int i = 0; i < COUNTS_LENGTH; i++) {
+            if (other.counts[i] != 0) {
+                addCount(i, other.counts[i]);
+            }
+        }
+    }
+
+    /** Removes all recorded response times. */
+    void reset() {
+        for (int i = 0; i < COUNTS_LENGTH; i++) {
+            counts[i] = 0;
+        }
+        totalCount = 0;
+    }
+
+    /**
+     * Returns the number of recorded response times.
+     *
+     * @return The number of recorded response times.
+     */
+    long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the response time below which the provided percentage of the
+     * recorded response times fall.
+     *
+     * @param percentile
+     *            The percentile, between 0 and 100.
+     * @return The response time in microseconds, or 0 if no response times
+     *         have been recorded.
+     */
+    long getValueAtPercentile(final double percentile) {
+        return totalCount == 0 ? 0 : highestEquivalentValue(indexAtPercentile(percentile));
+    }
+
+    /**
+     * Returns the highest recorded response time.
+     *
+     * @return The highest recorded response time in microseconds, or 0 if no
+     *         response times have been recorded.
+     */
+    long getMaxValue() {
+        for (int i = COUNTS_LENGTH - 1; i >= 0; i--) {
+            if (counts[i] != 0) {
+                return highestEquivalentValue(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the mean of the recorded response times.
+     *
+     * @return The mean of the recorded response times in microseconds, or 0
+     *         if no response times have been recorded.
+     */
+    double getMean() {
+        if (totalCount == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < COUNTS_LENGTH; i++) {
+            if (counts[i] != 0) {
+                sum += medianEquivalentValue(i) * counts[i];
+            }
+        }
+        return sum / totalCount;
+    }
+
+    /**
+     * Writes the whole histogram using the provided format. Response times are
+     * written in milliseconds.
+     *
+     * @param out
+     *            The stream to which the histogram is written.
+     * @param format
+     *            The format to use.
+     */
+    void export(final PrintStream out, final ExportFormat format) {
+        switch (format) {
+        case CSV:
+            exportCsv(out);
+            break;
+        case JSON:
+            exportJson(out);
+            break;
+        default:
+            exportHdr(out);
+            break;
+        }
+    }
+
+    private void exportHdr(final PrintStream out) {
+        out.format(ENGLISH, "%12s %14s %10s %14s%n%n", "Value", "Percentile", "TotalCount", "1/(1-Percentile)");
+        double percentile = 0;
+        while (totalCount > 0) {
+            final int index = indexAtPercentile(percentile);
+            final long cumulativeCount = cumulativeCount(index);
+            final double value = toMillis(highestEquivalentValue(index));
+            if (cumulativeCount >= totalCount) {
+                out.format(ENGLISH, "%12.3f %1.12f %10d%n", value, 1.0, cumulativeCount);
+                break;
+            }
+            final double fraction = percentile / 100.0;
+            out.format(ENGLISH, "%12.3f %1.12f %10d %14.2f%n", value, fraction, cumulativeCount, 1 / (1 - fraction));
+
+            final double halvings = Math.floor(Math.log(100.0 / (100.0 - percentile)) / Math.log(2));
+            percentile += 100.0 / (PERCENTILE_TICKS_PER_HALF_DISTANCE * Math.pow(2, halvings + 1));
+        }
+
+        double variance = 0;
+        final double mean = getMean();
+        for (int i = 0; i < COUNTS_LENGTH; i++) {
+            if (counts[i] != 0) {
+                final double deviation = medianEquivalentValue(i) - mean;
+                variance += deviation * deviation * counts[i];
+            }
+        }
+        final double standardDeviation = totalCount == 0 ? 0 : Math.sqrt(variance / totalCount);
+        out.format(ENGLISH, "#[Mean    = %12.3f, StdDeviation   = %12.3f]%n",
+                toMillis(mean), toMillis(standardDeviation));
+        out.format(ENGLISH, "#[Max     = %12.3f, Total count    = %12d]%n", toMillis(getMaxValue()), totalCount);
+        out.format(ENGLISH, "#[Buckets = %12d, SubBuckets     = %12d]%n",
+                (COUNTS_LENGTH >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) + 1, SUB_BUCKET_HALF_COUNT << 1);
+    }
+
+    private void exportCsv(final PrintStream out) {
+        out.println("Lowest value (milliseconds),Highest value (milliseconds),Count,Cumulative percentile");
+        long cumulativeCount = 0;
+        for (int i = 0; i < COUNTS_LENGTH; i++) {
+            if (counts[i] != 0) {
+                cumulativeCount += counts[i];
+                out.format(ENGLISH, "%.3f,%.3f,%d,%.6f%n", toMillis(lowestEquivalentValue(i)),
+                        toMillis(highestEquivalentValue(i)), counts[i], cumulativeCount * 100.0 / totalCount);
+            }
+        }
+    }
+
+    private void exportJson(final PrintStream out) {
+        out.println("{");
+        out.format(ENGLISH, "  \"unit\": \"milliseconds\",%n");
+        out.format(ENGLISH, "  \"totalCount\": %d,%n", totalCount);
+        out.format(ENGLISH, "  \"mean\": %.3f,%n", toMillis(getMean()));
+        out.format(ENGLISH, "  \"max\": %.3f,%n", toMillis(getMaxValue()));
+        out.println("  \"percentiles\": {");
+        for (int i = 0; i < EXPORTED_PERCENTILES.length; i++) {
+            out.format(ENGLISH, "    \"%s\": %.3f%s%n", EXPORTED_PERCENTILES[i],
+                    toMillis(getValueAtPercentile(EXPORTED_PERCENTILES[i])),
+                    i < EXPORTED_PERCENTILES.length - 1 ? "," : "");
+        }
+        out.println("  },");
+        out.print("  \"buckets\": [");
+        String separator = "";
+        for (int i = 0; i < COUNTS_LENGTH; i++) {
+            if (counts[i] != 0) {
+                out.format(ENGLISH, "%s%n    { \"from\": %.3f, \"to\": %.3f, \"count\": %d }", separator,
+                        toMillis(lowestEquivalentValue(i)), toMillis(highestEquivalentValue(i)), counts[i]);
+                separator = ",";
+            }
+        }
+        out.format(ENGLISH, "%n  ]%n}%n");
+    }
+
+    private void addCount(final int index, final long count) {
+        counts[index] += count;
+        totalCount += count;
+    }
+
+    private int indexAtPercentile(final double percentile) {
+        final double fraction = Math.min(Math.max(percentile, 0.0), 100.0) / 100.0;
+        final long countAtPercentile = Math.max(1, (long) (fraction * totalCount + 0.5));
+        long cumulativeCount = 0;
+        for (int i = 0; i < COUNTS_LENGTH; i++) {
+            cumulativeCount += counts[i];
+            if (cumulativeCount >= countAtPercentile) {
+                return i;
+            }
+        }
+        return COUNTS_LENGTH - 1;
+    }
+
+    private long cumulativeCount(final int index) {
+        long cumulativeCount = 0;
+        for (int i = 0; i <= index; i++) {
+            cumulativeCount += counts[i];
+        }
+        return cumulativeCount;
+    }
+
+    private static double medianEquivalentValue(final int index) {
+        return (lowestEquivalentValue(index) + highestEquivalentValue(index)) / 2.0;
+    }
+
+    private static double toMillis(final double microSecs) {
+        return microSecs / 1000.0;
+    }
+}
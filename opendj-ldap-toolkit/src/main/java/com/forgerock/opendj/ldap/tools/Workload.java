@@ -0,0 +1,367 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package com.forgerock.opendj.ldap.tools;
+
+import static java.util.Locale.ENGLISH;
+
+import static com.forgerock.opendj.ldap.tools.ToolsMessages.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.forgerock.opendj.ldap.ModificationType;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.ldap.requests.AddRequest;
+import org.forgerock.opendj.ldap.requests.ModifyRequest;
+import org.forgerock.opendj.ldap.requests.Request;
+import org.forgerock.opendj.ldap.requests.Requests;
+
+import com.forgerock.opendj.cli.ArgumentException;
+
+/**
+ * A weighted mix of operation templates read from a workload definition file.
+ * <p>
+ * A workload definition contains one block of {@code key: value} lines per
+ * operation template, blocks being separated by empty lines. Lines starting
+ * with {@code #} are comments. For example:
+ *
+ * <pre>
+ * # 70% of the operations are searches
+ * operation: search
+ * weight: 70
+ * dn: ou=people,dc=example,dc=com
+ * scope: sub
+ * filter: (uid=user.%1$s)
+ * attributes: cn, mail
+ *
+ * operation: modify
+ * weight: 30
+ * dn: uid=user.%1$s,ou=people,dc=example,dc=com
+ * replace: description:%2$s
+ * </pre>
+ *
+ * Values are format strings evaluated with the data generated for each
+ * operation. All operations accept the {@code name} (which defaults to the
+ * operation), {@code weight} (which defaults to 1) and {@code dn} keys. The
+ * other supported keys are:
+ * <ul>
+ * <li>search: {@code scope} (base, one, sub or subordinates), {@code filter}
+ * and {@code attributes} (comma separated)</li>
+ * <li>compare: {@code assertion} (attribute:value)</li>
+ * <li>bind: {@code password}</li>
+ * <li>modify: {@code replace} (attribute:value, may be repeated)</li>
+ * <li>add: {@code attribute} (attribute:value, may be repeated)</li>
+ * <li>delete: none</li>
+ * </ul>
+ */
+final class Workload {
+    /** The types of operations which can be part of a workload. */
+    enum OperationType {
+        SEARCH("filter"), COMPARE("assertion"), BIND("password"), MODIFY("replace"), ADD("attribute"), DELETE;
+
+        private final List<String> requiredKeys;
+
+        private OperationType(final String... requiredKeys) {
+            this.requiredKeys = Arrays.asList(requiredKeys);
+        }
+
+        private boolean supportsKey(final String key) {
+            return COMMON_KEYS.contains(key) || requiredKeys.contains(key)
+                    || (this == SEARCH && ("scope".equals(key) || "attributes".equals(key)));
+        }
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(ENGLISH);
+        }
+    }
+
+    /** A template from which the requests of one operation of the workload are generated. */
+    static final class OperationTemplate {
+        private final String name;
+        private final OperationType type;
+        private final int weight;
+        private final Map<String, List<String>> values;
+        private final SearchScope scope;
+        private final String[] attributes;
+
+        private OperationTemplate(final String name, final OperationType type, final int weight,
+                final Map<String, List<String>> values, final SearchScope scope, final String[] attributes) {
+            this.name = name;
+            this.type = type;
+            this.weight = weight;
+            this.values = values;
+            this.scope = scope;
+            this.attributes = attributes;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        OperationType getType() {
+            return type;
+        }
+
+        int getWeight() {
+            return weight;
+        }
+
+        /**
+         * Returns a new request generated from this template.
+         *
+         * @param data
+         *            The data used for evaluating format strings, may be
+         *            {@code null}.
+         * @return A new request generated from this template.
+         */
+        Request newRequest(final Object[] data) {
+            final String dn = format("dn", data);
+            switch (type) {
+            case SEARCH:
+                return Requests.newSearchRequest(dn, scope, format("filter", data), attributes);
+            case COMPARE:
+                final String[] assertion = split(format("assertion", data));
+                return Requests.newCompareRequest(dn, assertion[0], assertion[1]);
+            case BIND:
+                return Requests.newSimpleBindRequest(dn, format("password", data).toCharArray());
+            case MODIFY:
+                final ModifyRequest modifyRequest = Requests.newModifyRequest(dn);
+                for (final String modification : values.get("replace")) {
+                    final String[] attributeValue = split(String.format(modification, data));
+                    modifyRequest.addModification(ModificationType.REPLACE, attributeValue[0], attributeValue[1]);
+                }
+                return modifyRequest;
+            case ADD:
+                final AddRequest addRequest = Requests.newAddRequest(dn);
+                for (final String attribute : values.get("attribute")) {
+                    final String[] attributeValue = split(String.format(attribute, data));
+                    addRequest.addAttribute(attributeValue[0], attributeValue[1]);
+                }
+                return addRequest;
+            default:
+                return Requests.newDeleteRequest(dn);
+            }
+        }
+
+        private String format(final String key, final Object[] data) {
+            return String.format(values.get(key).get(0), data);
+        }
+
+        private static String[] split(final String attributeValue) {
+            final int colonPos = attributeValue.indexOf(':');
+            if (colonPos <= 0) {
+                throw new IllegalArgumentException("\"" + attributeValue + "\" is not an attribute:value pair");
+            }
+            return new String[] { attributeValue.substring(0, colonPos), attributeValue.substring(colonPos + 1) };
+        }
+    }
+
+    private static final List<String> COMMON_KEYS = Arrays.asList("operation", "name", "weight", "dn");
+    private static final List<String> REPEATABLE_KEYS = Arrays.asList("replace", "attribute");
+
+    private final List<OperationTemplate> operations;
+    private final int[] cumulativeWeights;
+
+    private Workload(final List<OperationTemplate> operations) {
+        this.operations = Collections.unmodifiableList(operations);
+        this.cumulativeWeights = new int[operations.size()];
+        int totalWeight = 0;
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            totalWeight += operations.get(i).getWeight();
+            cumulativeWeights[i] = totalWeight;
+        }
+    }
+
+    /**
+     * Reads a workload definition.
+     *
+     * @param reader
+     *            The reader from which the workload definition is read.
+     * @return The workload.
+     * @throws IOException
+     *             If an error occurs while reading the workload definition.
+     * @throws ArgumentException
+     *             If the workload definition is invalid.
+     */
+    static Workload read(final BufferedReader reader) throws IOException, ArgumentException {
+        final List<OperationTemplate> operations = new ArrayList<>();
+        final Set<String> names = new HashSet<>();
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        int lineNumber = 0;
+        for (String line = reader.readLine(); ; line = reader.readLine()) {
+            if (line != null) {
+                lineNumber++;
+            }
+            if (line == null || line.trim().isEmpty()) {
+                if (!values.isEmpty()) {
+                    final OperationTemplate operation = newOperationTemplate(values, lineNumber);
+                    if (!names.add(operation.getName())) {
+                        throw new ArgumentException(ERR_WORKLOAD_DUPLICATE_NAME.get(operation.getName()));
+                    }
+                    operations.add(operation);
+                    values = new LinkedHashMap<>();
+                }
+                if (line == null) {
+                    break;
+                }
+                continue;
+            }
+            if (line.startsWith("#")) {
+                continue;
+            }
+
+            final int colonPos = line.indexOf(':');
+            if (colonPos <= 0) {
+                throw new ArgumentException(ERR_WORKLOAD_INVALID_LINE.get(lineNumber));
+            }
+            final String key = line.substring(0, colonPos).trim().toLowerCase(ENGLISH);
+            List<String> keyValues = values.get(key);
+            if (keyValues == null) {
+                keyValues = new ArrayList<>();
+                values.put(key, keyValues);
+            }
+            keyValues.add(line.substring(colonPos + 1).trim());
+        }
+
+        if (operations.isEmpty()) {
+            throw new ArgumentException(ERR_WORKLOAD_EMPTY.get());
+        }
+        return new Workload(operations);
+    }
+
+    private static OperationTemplate newOperationTemplate(final Map<String, List<String>> values,
+            final int lineNumber) throws ArgumentException {
+        for (final Map.Entry<String, List<String>> entry : values.entrySet()) {
+            if (entry.getValue().size() > 1 && !REPEATABLE_KEYS.contains(entry.getKey())) {
+                throw new ArgumentException(ERR_WORKLOAD_MULTIPLE_VALUES.get(entry.getKey(), lineNumber));
+            }
+        }
+
+        final String operation = getValue(values, "operation", null);
+        if (operation == null) {
+            throw new ArgumentException(ERR_WORKLOAD_MISSING_OPERATION.get(lineNumber));
+        }
+        OperationType type = null;
+        for (final OperationType t : OperationType.values()) {
+            if (t.toString().equalsIgnoreCase(operation)) {
+                type = t;
+            }
+        }
+        if (type == null) {
+            throw new ArgumentException(ERR_WORKLOAD_UNKNOWN_OPERATION.get(
+                    operation, lineNumber, Arrays.toString(OperationType.values())));
+        }
+
+        for (final String key : values.keySet()) {
+            if (!type.supportsKey(key)) {
+                throw new ArgumentException(ERR_WORKLOAD_UNKNOWN_KEY.get(key, type.toString(), lineNumber));
+            }
+        }
+        final List<String> requiredKeys = new ArrayList<>(type.requiredKeys);
+        requiredKeys.add("dn");
+        for (final String key : requiredKeys) {
+            if (!values.containsKey(key)) {
+                throw new ArgumentException(ERR_WORKLOAD_MISSING_KEY.get(type.toString(), lineNumber, key));
+            }
+        }
+
+        final String weight = getValue(values, "weight", "1");
+        int weightValue;
+        try {
+            weightValue = Integer.parseInt(weight);
+        } catch (final NumberFormatException e) {
+            weightValue = 0;
+        }
+        if (weightValue <= 0) {
+            throw new ArgumentException(ERR_WORKLOAD_INVALID_WEIGHT.get(weight, lineNumber));
+        }
+
+        final String scope = getValue(values, "scope", SearchScope.WHOLE_SUBTREE.toString());
+        final SearchScope scopeValue = SearchScope.valueOf(scope.toLowerCase(ENGLISH));
+        if (scopeValue == null) {
+            throw new ArgumentException(ERR_WORKLOAD_INVALID_SCOPE.get(scope, lineNumber));
+        }
+
+        final List<String> attributes = new ArrayList<>();
+        final String attributesValue = getValue(values, "attributes", "");
+        for (final String attribute : attributesValue.split(",")) {
+            if (!attribute.trim().isEmpty()) {
+                attributes.add(attribute.trim());
+            }
+        }
+
+        final String name = getValue(values, "name", type.toString());
+        return new OperationTemplate(name, type, weightValue, values, scopeValue,
+                attributes.toArray(new String[attributes.size()]));
+    }
+
+    private static String getValue(final Map<String, List<String>> values, final String key,
+            final String defaultValue) {
+        final List<String> keyValues = values.get(key);
+        return keyValues != null ? keyValues.get(0) : defaultValue;
+    }
+
+    /**
+     * Returns the operation templates of this workload, in the order of the
+     * workload definition.
+     *
+     * @return The operation templates of this workload.
+     */
+    List<OperationTemplate> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Returns the sum of the weights of all the operation templates.
+     *
+     * @return The sum of the weights of all the operation templates.
+     */
+    int getTotalWeight() {
+        return cumulativeWeights[cumulativeWeights.length - 1];
+    }
+
+    /**
+     * Returns the index of the operation template selected by the provided
+     * random number.
+     *
+     * @param random
+     *            A random number between 0 (inclusive) and the total weight
+     *            (exclusive).
+     * @return The index of the selected operation template.
+     */
+    int selectOperation(final int random) {
+        final int index = Arrays.binarySearch(cumulativeWeights, random + 1);
+        return index >= 0 ? index : -index - 1;
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package com.forgerock.opendj.ldap.tools;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import static org.forgerock.util.Utils.closeSilently;
+
+import static com.forgerock.opendj.cli.Utils.*;
+import static com.forgerock.opendj.ldap.tools.ToolsMessages.*;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.ldap.Connection;
+import org.forgerock.opendj.ldap.ConnectionFactory;
+import org.forgerock.opendj.ldap.ConnectionPool;
+import org.forgerock.opendj.ldap.Connections;
+import org.forgerock.opendj.ldap.LdapException;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.ldap.requests.AddRequest;
+import org.forgerock.opendj.ldap.requests.BindRequest;
+import org.forgerock.opendj.ldap.requests.CompareRequest;
+import org.forgerock.opendj.ldap.requests.DeleteRequest;
+import org.forgerock.opendj.ldap.requests.ModifyRequest;
+import org.forgerock.opendj.ldap.requests.Request;
+import org.forgerock.opendj.ldap.requests.SearchRequest;
+import org.forgerock.opendj.ldap.responses.BindResult;
+import org.forgerock.util.AsyncFunction;
+import org.forgerock.util.promise.Promise;
+
+import com.forgerock.opendj.cli.ArgumentException;
+import com.forgerock.opendj.cli.ArgumentParser;
+import com.forgerock.opendj.cli.BooleanArgument;
+import com.forgerock.opendj.cli.CommonArguments;
+import com.forgerock.opendj.cli.ConnectionFactoryProvider;
+import com.forgerock.opendj.cli.ConsoleApplication;
+import com.forgerock.opendj.cli.StringArgument;
+import com.forgerock.opendj.ldap.tools.Workload.OperationTemplate;
+import com.forgerock.opendj.ldap.tools.Workload.OperationType;
+
+/**
+ * A load generation tool that can be used to load a Directory Server with a
+ * weighted mix of operations read from a workload definition file.
+ * <p>
+ * Operations are sent at the target throughput without waiting for previous
+ * results, so that the arrival rate does not depend on the response times of
+ * the server. The target throughput may be increased or decreased in stages.
+ */
+public final class WorkloadRate extends ConsoleApplication {
+    /** A linear change of the target throughput over a period of time. */
+    static final class Stage {
+        private final long durationMs;
+        private final int targetThroughput;
+
+        private Stage(final long durationMs, final int targetThroughput) {
+            this.durationMs = durationMs;
+            this.targetThroughput = targetThroughput;
+        }
+
+        /**
+         * Parses a stage specified as {@code duration:throughput}, where the
+         * duration is in seconds.
+         */
+        static Stage valueOf(final String stage) throws ArgumentException {
+            final int colonPos = stage.indexOf(':');
+            try {
+                final long durationSec = Long.parseLong(stage.substring(0, colonPos).trim());
+                final int targetThroughput = Integer.parseInt(stage.substring(colonPos + 1).trim());
+                if (durationSec >= 0 && targetThroughput > 0) {
+                    return new Stage(SECONDS.toMillis(durationSec), targetThroughput);
+                }
+            } catch (final NumberFormatException | StringIndexOutOfBoundsException e) {
+                // Handled below.
+            }
+            throw new ArgumentException(ERR_WORKLOADRATE_INVALID_STAGE.get(stage));
+        }
+
+        /** Returns the target throughput after the provided time since the beginning of this stage. */
+        int getTargetThroughput(final int initialThroughput, final long elapsedTimeMs) {
+            if (elapsedTimeMs >= durationMs) {
+                return targetThroughput;
+            }
+            final long throughput =
+                    initialThroughput + (targetThroughput - initialThroughput) * elapsedTimeMs / durationMs;
+            return (int) Math.max(throughput, 1);
+        }
+    }
+
+    private static final class WorkloadPerformanceRunner extends PerformanceRunner {
+        /** Changes the target throughput while going through the stages. */
+        private final class RampUpThread extends Thread {
+            private RampUpThread() {
+                super("Ramp Up Thread");
+                setDaemon(true);
+            }
+
+            @Override
+            public void run() {
+                int initialThroughput = getTargetThroughput();
+                for (final Stage stage : stages) {
+                    final long stageStartTimeMs = System.currentTimeMillis();
+                    long elapsedTimeMs = 0;
+                    while (!stopRequested && elapsedTimeMs < stage.durationMs) {
+                        setTargetThroughput(stage.getTargetThroughput(initialThroughput, elapsedTimeMs));
+                        try {
+                            sleep(RAMP_UP_INTERVAL_MS);
+                        } catch (final InterruptedException e) {
+                            return;
+                        }
+                        elapsedTimeMs = System.currentTimeMillis() - stageStartTimeMs;
+                    }
+                    setTargetThroughput(stage.targetThroughput);
+                    initialThroughput = stage.targetThroughput;
+                }
+            }
+        }
+
+        private final class WorkloadWorkerThread extends WorkerThread {
+            private Object[] data;
+
+            private WorkloadWorkerThread(final Connection connection, final ConnectionFactory connectionFactory) {
+                super(connection, connectionFactory);
+            }
+
+            @Override
+            public Promise<?, LdapException> performOperation(final Connection connection,
+                    final DataSource[] dataSources, final long startTime) {
+                if (dataSources != null) {
+                    data = DataSource.generateData(dataSources, data);
+                }
+                final int index = workload.selectOperation(ThreadLocalRandom.current().nextInt(totalWeight));
+                final OperationTemplate operation = workload.getOperations().get(index);
+                final Request request = operation.newRequest(data);
+                final OperationStatsHandler handler = new OperationStatsHandler(startTime, operationRecorders[index]);
+
+                incrementIterationCount();
+                switch (operation.getType()) {
+                case SEARCH:
+                    return connection.searchAsync((SearchRequest) request, handler)
+                                     .thenOnResult(handler).thenOnException(handler);
+                case COMPARE:
+                    return connection.compareAsync((CompareRequest) request)
+                                     .thenOnResult(handler).thenOnException(handler);
+                case BIND:
+                    return bind((BindRequest) request).thenOnResult(handler).thenOnException(handler);
+                case MODIFY:
+                    return connection.modifyAsync((ModifyRequest) request)
+                                     .thenOnResult(handler).thenOnException(handler);
+                case ADD:
+                    return connection.addAsync((AddRequest) request).thenOnResult(handler).thenOnException(handler);
+                default:
+                    return connection.deleteAsync((DeleteRequest) request)
+                                     .thenOnResult(handler).thenOnException(handler);
+                }
+            }
+
+            /** Binds do not change the identity used by the other operations since they use dedicated connections. */
+            private Promise<BindResult, LdapException> bind(final BindRequest request) {
+                return bindConnectionPool.getConnectionAsync().thenAsync(
+                        new AsyncFunction<Connection, BindResult, LdapException>() {
+                            @Override
+                            public Promise<BindResult, LdapException> apply(final Connection connection) {
+                                return connection.bindAsync(request).thenAlways(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        connection.close();
+                                    }
+                                });
+                            }
+                        });
+            }
+        }
+
+        /** Interval between two updates of the target throughput during a stage. */
+        private static final long RAMP_UP_INTERVAL_MS = 100;
+
+        private Workload workload;
+        private int totalWeight;
+        private ResponseTimeHistogram.Recorder[] operationRecorders;
+        private List<Stage> stages;
+        private ConnectionPool bindConnectionPool;
+
+        private WorkloadPerformanceRunner(final PerformanceRunnerOptions options) throws ArgumentException {
+            super(options);
+        }
+
+        private void setWorkload(final Workload workload) {
+            this.workload = workload;
+            this.totalWeight = workload.getTotalWeight();
+            this.operationRecorders = new ResponseTimeHistogram.Recorder[workload.getOperations().size()];
+            for (int i = 0; i < operationRecorders.length; i++) {
+                operationRecorders[i] = new ResponseTimeHistogram.Recorder();
+            }
+        }
+
+        @Override
+        WorkerThread newWorkerThread(final Connection connection, final ConnectionFactory connectionFactory) {
+            return new WorkloadWorkerThread(connection, connectionFactory);
+        }
+
+        @Override
+        StatsThread newStatsThread() {
+            final List<String> names = new ArrayList<>();
+            for (final OperationTemplate operation : workload.getOperations()) {
+                names.add(operation.getName());
+            }
+            return new OperationStatsThread(names, operationRecorders);
+        }
+    }
+
+    /**
+     * The main method for WorkloadRate tool.
+     *
+     * @param args
+     *            The command-line arguments provided to this program.
+     */
+    public static void main(final String[] args) {
+        final int retCode = new WorkloadRate().run(args);
+        System.exit(filterExitCode(retCode));
+    }
+
+    private BooleanArgument verbose;
+    private BooleanArgument scriptFriendly;
+
+    private WorkloadRate() {
+        // Nothing to do.
+    }
+
+    @Override
+    public boolean isInteractive() {
+        return false;
+    }
+
+    @Override
+    public boolean isScriptFriendly() {
+        return scriptFriendly.isPresent();
+    }
+
+    @Override
+    public boolean isVerbose() {
+        return verbose.isPresent();
+    }
+
+    private int run(final String[] args) {
+        // Creates the command-line argument parser for use with this program
+        final LocalizableMessage toolDescription = INFO_WORKLOADRATE_TOOL_DESCRIPTION.get();
+        final ArgumentParser argParser =
+                new ArgumentParser(WorkloadRate.class.getName(), toolDescription, false, true, 1, 1,
+                        "{workload-file}");
+        argParser.setVersionHandler(new SdkVersionHandler());
+        argParser.setShortToolDescription(REF_SHORT_DESC_WORKLOADRATE.get());
+        argParser.setDocToolDescriptionSupplement(SUPPLEMENT_DESCRIPTION_RATE_TOOLS.get());
+
+        ConnectionFactoryProvider connectionFactoryProvider;
+        ConnectionFactory connectionFactory;
+        WorkloadPerformanceRunner runner;
+
+        BooleanArgument showUsage;
+        StringArgument propertiesFileArgument;
+        BooleanArgument noPropertiesFileArgument;
+        StringArgument stageArgument;
+        try {
+            Utils.setDefaultPerfToolProperties();
+            final PerformanceRunnerOptions options = new PerformanceRunnerOptions(argParser, this);
+            options.setSupportsSynchronousRequests(false);
+
+            connectionFactoryProvider = new ConnectionFactoryProvider(argParser, this);
+            runner = new WorkloadPerformanceRunner(options);
+
+            propertiesFileArgument = CommonArguments.getPropertiesFile();
+            argParser.addArgument(propertiesFileArgument);
+            argParser.setFilePropertiesArgument(propertiesFileArgument);
+
+            noPropertiesFileArgument = CommonArguments.getNoPropertiesFile();
+            argParser.addArgument(noPropertiesFileArgument);
+            argParser.setNoPropertiesFileArgument(noPropertiesFileArgument);
+
+            stageArgument =
+                    new StringArgument("stage", null, "stage", false, true, true,
+                            INFO_STAGE_PLACEHOLDER.get(), null, null, INFO_WORKLOADRATE_DESCRIPTION_STAGE.get());
+            stageArgument.setPropertyName("stage");
+            argParser.addArgument(stageArgument);
+
+            verbose = CommonArguments.getVerbose();
+            argParser.addArgument(verbose);
+
+            showUsage = CommonArguments.getShowUsage();
+            argParser.addArgument(showUsage);
+            argParser.setUsageArgument(showUsage, getOutputStream());
+
+            scriptFriendly =
+                    new BooleanArgument("scriptFriendly", 'S', "scriptFriendly",
+                            INFO_DESCRIPTION_SCRIPT_FRIENDLY.get());
+            scriptFriendly.setPropertyName("scriptFriendly");
+            argParser.addArgument(scriptFriendly);
+        } catch (final ArgumentException ae) {
+            final LocalizableMessage message = ERR_CANNOT_INITIALIZE_ARGS.get(ae.getMessage());
+            errPrintln(message);
+            return ResultCode.CLIENT_SIDE_PARAM_ERROR.intValue();
+        }
+
+        // Parse the command-line arguments provided to this program.
+        try {
+            argParser.parseArguments(args);
+
+            /* If we should just display usage or version information, then print it and exit. */
+            if (argParser.usageOrVersionDisplayed()) {
+                return 0;
+            }
+
+            connectionFactory = connectionFactoryProvider.getAuthenticatedConnectionFactory();
+            runner.setBindRequest(connectionFactoryProvider.getBindRequest());
+            runner.validate();
+
+            runner.stages = new ArrayList<>();
+            for (final String stage : stageArgument.getValues()) {
+                runner.stages.add(Stage.valueOf(stage));
+            }
+            if (!runner.stages.isEmpty()) {
+                runner.setTargetThroughput(Math.max(runner.getTargetThroughput(), 1));
+            } else if (runner.getTargetThroughput() <= 0) {
+                throw new ArgumentException(ERR_WORKLOADRATE_NO_TARGET_THROUGHPUT.get(
+                        "--targetThroughput", "--" + stageArgument.getLongIdentifier()));
+            }
+
+            final String workloadFile = argParser.getTrailingArguments().get(0);
+            try (BufferedReader reader = new BufferedReader(new FileReader(workloadFile))) {
+                runner.setWorkload(Workload.read(reader));
+            }
+
+            for (final OperationTemplate operation : runner.workload.getOperations()) {
+                if (operation.getType() == OperationType.BIND && runner.bindConnectionPool == null) {
+                    runner.bindConnectionPool = Connections.newFixedConnectionPool(
+                            connectionFactoryProvider.getUnauthenticatedConnectionFactory(), runner.numConnections);
+                }
+            }
+        } catch (final ArgumentException ae) {
+            argParser.displayMessageAndUsageReference(getErrStream(), ERR_ERROR_PARSING_ARGS.get(ae.getMessage()));
+            return ResultCode.CLIENT_SIDE_PARAM_ERROR.intValue();
+        } catch (final IOException e) {
+            errPrintln(ERR_WORKLOADRATE_CANNOT_READ_WORKLOAD.get(argParser.getTrailingArguments().get(0),
+                    e.getMessage()));
+            return ResultCode.CLIENT_SIDE_PARAM_ERROR.intValue();
+        }
+
+        try {
+            /* Try it out to make sure the format strings and data sources match. */
+            final Object[] data = DataSource.generateData(runner.getDataSources(), null);
+            for (final OperationTemplate operation : runner.workload.getOperations()) {
+                try {
+                    operation.newRequest(data);
+                } catch (final Exception e) {
+                    errPrintln(ERR_WORKLOADRATE_INVALID_OPERATION.get(operation.getName(), e.getMessage()));
+                    return ResultCode.CLIENT_SIDE_PARAM_ERROR.intValue();
+                }
+            }
+
+            if (!runner.stages.isEmpty()) {
+                runner.new RampUpThread().start();
+            }
+            return runner.run(connectionFactory);
+        } finally {
+            closeSilently(runner.bindConnectionPool);
+        }
+    }
+}
@@ -22,29 +22,118 @@
  *
  *
  *      Copyright 2014 ForgeRock AS.
+ *      Portions Copyright 2026 Wren Security.
  */
 package com.forgerock.opendj.ldap.tools;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.testng.annotations.Test;
 
-import com.forgerock.opendj.ldap.tools.PerformanceRunner.ResponseTimeBuckets;
+import com.forgerock.opendj.ldap.tools.ResponseTimeHistogram.ExportFormat;
+import com.forgerock.opendj.ldap.tools.ResponseTimeHistogram.Recorder;
 
 import static org.fest.assertions.Assertions.*;
 
+@SuppressWarnings("javadoc")
 public class PerformanceRunnerStatsTestCase extends ToolsTestCase {
     @Test
-    public void testResponseTimeBuckets() throws Exception {
-        ResponseTimeBuckets rtb = PerformanceRunner.getResponseTimeBuckets();
+    public void testResponseTimePercentiles() throws Exception {
+        final ResponseTimeHistogram histogram = new ResponseTimeHistogram();
         for (long etime = 100L; etime <= 6000000L; etime += 10L) {
-            rtb.addTimeToInterval(etime * 1000L);
+            histogram.recordValue(etime);
+        }
+        final long count = histogram.getTotalCount();
+        assertThat(count).isEqualTo(599991L);
+
+        for (final double percentile : new double[] { 0.0025, 0.05, 1.0, 10.0, 50.0, 99.9, 99.999, 100.0 }) {
+            final long rank = Math.max(1, Math.round(percentile * count / 100.0));
+            final long expected = 100L + 10L * (rank - 1);
+            final long computed = histogram.getValueAtPercentile(percentile);
+            assertThat(computed).isGreaterThanOrEqualTo(expected);
+            assertThat(computed).isLessThanOrEqualTo(expected + expected / 1000);
+        }
+        assertThat(histogram.getMaxValue()).isEqualTo(histogram.getValueAtPercentile(100.0));
+    }
+
+    @Test
+    public void testResponseTimeHistogramPrecision() throws Exception {
+        for (long value = 0; value < ResponseTimeHistogram.HIGHEST_TRACKABLE_VALUE; value = value * 3 / 2 + 7) {
+            final int index = ResponseTimeHistogram.countsIndex(value);
+            assertThat(ResponseTimeHistogram.lowestEquivalentValue(index)).isLessThanOrEqualTo(value);
+            assertThat(ResponseTimeHistogram.highestEquivalentValue(index)).isGreaterThanOrEqualTo(value);
+            assertThat(ResponseTimeHistogram.highestEquivalentValue(index)
+                    - ResponseTimeHistogram.lowestEquivalentValue(index)).isLessThanOrEqualTo(value / 1000);
+        }
+        assertThat(ResponseTimeHistogram.countsIndex(Long.MAX_VALUE))
+            .isEqualTo(ResponseTimeHistogram.countsIndex(ResponseTimeHistogram.HIGHEST_TRACKABLE_VALUE));
+        assertThat(ResponseTimeHistogram.countsIndex(-1)).isEqualTo(0);
+    }
+
+    @Test
+    public void testRecorderMergesThreadCounts() throws Exception {
+        final Recorder recorder = new Recorder();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final long value = (i + 1) * 1000L;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        recorder.recordValue(value);
+                    }
+                }
+            });
+        }
+        for (final Thread thread : threads) {
+            thread.start();
         }
-        double[] percentiles = new double[] { 0.0025, 0.0050, 0.0075, 0.05, 0.075, 0.1, 1.0, 2.0, 5.5, 10.0, 30.0,
-            50.0, 80.0, 99.9, 99.99, 99.999 };
-        long[] expectedResult = new long[] { 240L, 390L, 540L, 3000L, 4500L, 6000L, 60000L, 120000L, 330000L,
-            600000L, 1800000L, 3000000L, 4800000L, 5500000L, 5500000L, 5500000L };
-        int count = expectedResult.length;
-        for (Long computedPercentile : rtb.getPercentile(percentiles, 599991)) {
-            assertThat(computedPercentile).isEqualTo(expectedResult[--count]);
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        final ResponseTimeHistogram histogram = new ResponseTimeHistogram();
+        recorder.addIntervalCountsTo(histogram);
+        assertThat(histogram.getTotalCount()).isEqualTo(40000L);
+        assertThat(histogram.getValueAtPercentile(25.0)).isEqualTo(1000L);
+        assertThat(histogram.getMaxValue()).isEqualTo(4001L);
+
+        // Only new response times are added by subsequent calls.
+        recorder.addIntervalCountsTo(histogram);
+        assertThat(histogram.getTotalCount()).isEqualTo(40000L);
+        recorder.recordValue(10L);
+        recorder.addIntervalCountsTo(histogram);
+        assertThat(histogram.getTotalCount()).isEqualTo(40001L);
+        assertThat(histogram.getValueAtPercentile(0.0)).isEqualTo(10L);
+    }
+
+    @Test
+    public void testResponseTimeHistogramExport() throws Exception {
+        final ResponseTimeHistogram histogram = new ResponseTimeHistogram();
+        histogram.recordValue(500L);
+        histogram.recordValue(500L);
+        histogram.recordValue(12000L);
+
+        final String csv = export(histogram, ExportFormat.CSV);
+        assertThat(csv.split(System.getProperty("line.separator"))).hasSize(3);
+        assertThat(csv).contains("0.500,0.500,2,66.666667");
+
+        final String json = export(histogram, ExportFormat.JSON);
+        assertThat(json).contains("\"totalCount\": 3,").contains("\"100.0\": 12.007");
+
+        final String hdr = export(histogram, ExportFormat.HDR);
+        assertThat(hdr).contains("0.500 0.000000000000          2").contains("#[Max     =       12.007");
+    }
+
+    private static String export(final ResponseTimeHistogram histogram, final ExportFormat format)
+            throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(bytes, false, "UTF-8")) {
+            histogram.export(out, format);
         }
+        return bytes.toString("UTF-8");
     }
 }
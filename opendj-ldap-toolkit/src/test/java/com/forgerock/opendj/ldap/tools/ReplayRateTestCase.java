@@ -0,0 +1,237 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package com.forgerock.opendj.ldap.tools;
+
+import static org.fest.assertions.Assertions.*;
+import static org.forgerock.opendj.ldap.TestCaseUtils.findFreeSocketAddress;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.forgerock.opendj.ldap.Connections;
+import org.forgerock.opendj.ldap.LDAPConnectionFactory;
+import org.forgerock.opendj.ldap.LDAPListener;
+import org.forgerock.opendj.ldap.LdapException;
+import org.forgerock.opendj.ldap.MemoryBackend;
+import org.forgerock.opendj.ldap.ModificationType;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.ldap.SearchResultHandler;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.ldap.requests.AddRequest;
+import org.forgerock.opendj.ldap.requests.CompareRequest;
+import org.forgerock.opendj.ldap.requests.DeleteRequest;
+import org.forgerock.opendj.ldap.requests.ModifyRequest;
+import org.forgerock.opendj.ldap.requests.SearchRequest;
+import org.forgerock.opendj.ldap.requests.SimpleBindRequest;
+import org.forgerock.opendj.ldap.responses.Result;
+import org.forgerock.opendj.ldap.responses.SearchResultEntry;
+import org.forgerock.opendj.ldap.responses.SearchResultReference;
+import org.forgerock.opendj.ldif.LDIFEntryReader;
+import org.forgerock.util.promise.Promise;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.forgerock.opendj.cli.ArgumentException;
+import com.forgerock.opendj.ldap.tools.ReplayLog.OperationType;
+import com.forgerock.opendj.ldap.tools.ReplayLog.Record;
+
+@SuppressWarnings("javadoc")
+public class ReplayRateTestCase extends ToolsTestCase {
+    private static final String LOG = "# time\tsession\toperation\tdn\tfields\n"
+            + "0\tconn-1\tbind\tuid=user.0,ou=people,dc=example,dc=com\tpassword\n"
+            + "1.5\tconn-1\tsearch\tou=people,dc=example,dc=com\tone\t(uid=user.1)\tcn, mail\n"
+            + "\n"
+            + "2\tconn-2\tsearch\tdc=example,dc=com\tbase\t(objectClass=*)\n"
+            + "3\tconn-2\tmodify\tuid=user.2,ou=people,dc=example,dc=com\treplace:description:a:b\tdelete:sn\n"
+            + "4\tconn-3\tadd\tuid=new,ou=people,dc=example,dc=com\tobjectClass:person\tcn:new\tsn:new\n"
+            + "5.001\tconn-3\tcompare\tuid=new,ou=people,dc=example,dc=com\tcn:new\n"
+            + "6\tconn-3\tdelete\tuid=new,ou=people,dc=example,dc=com\n"
+            + "7\tconn-1\tunbind\n";
+
+    @Test
+    public void testReadLog() throws Exception {
+        final List<Record> records = read(LOG);
+        assertThat(records).hasSize(8);
+
+        final Record bind = records.get(0);
+        assertThat(bind.getTimeUs()).isEqualTo(0);
+        assertThat(bind.getSession()).isEqualTo("conn-1");
+        assertThat(bind.getType()).isEqualTo(OperationType.BIND);
+        final SimpleBindRequest bindRequest = (SimpleBindRequest) bind.getRequest();
+        assertThat(bindRequest.getName()).isEqualTo("uid=user.0,ou=people,dc=example,dc=com");
+        assertThat(new String(bindRequest.getPassword(), "UTF-8")).isEqualTo("password");
+
+        final Record search = records.get(1);
+        assertThat(search.getTimeUs()).isEqualTo(1500);
+        final SearchRequest searchRequest = (SearchRequest) search.getRequest();
+        assertThat(searchRequest.getScope()).isEqualTo(SearchScope.SINGLE_LEVEL);
+        assertThat(searchRequest.getFilter().toString()).isEqualTo("(uid=user.1)");
+        assertThat(searchRequest.getAttributes()).containsExactly("cn", "mail");
+        assertThat(((SearchRequest) records.get(2).getRequest()).getAttributes()).isEmpty();
+
+        final ModifyRequest modifyRequest = (ModifyRequest) records.get(3).getRequest();
+        assertThat(modifyRequest.getModifications()).hasSize(2);
+        assertThat(modifyRequest.getModifications().get(0).getModificationType())
+                .isEqualTo(ModificationType.REPLACE);
+        assertThat(modifyRequest.getModifications().get(0).getAttribute().firstValueAsString()).isEqualTo("a:b");
+        assertThat(modifyRequest.getModifications().get(1).getModificationType()).isEqualTo(ModificationType.DELETE);
+        assertThat(modifyRequest.getModifications().get(1).getAttribute()).isEmpty();
+
+        final AddRequest addRequest = (AddRequest) records.get(4).getRequest();
+        assertThat(addRequest.getAttributeCount()).isEqualTo(3);
+
+        final Record compare = records.get(5);
+        assertThat(compare.getTimeUs()).isEqualTo(5001);
+        final CompareRequest compareRequest = (CompareRequest) compare.getRequest();
+        assertThat(compareRequest.getAttributeDescription().toString()).isEqualTo("cn");
+        assertThat(compareRequest.getAssertionValueAsString()).isEqualTo("new");
+
+        assertThat(((DeleteRequest) records.get(6).getRequest()).getName().toString())
+                .isEqualTo("uid=new,ou=people,dc=example,dc=com");
+
+        final Record unbind = records.get(7);
+        assertThat(unbind.getType()).isEqualTo(OperationType.UNBIND);
+        assertThat(unbind.getRequest()).isNull();
+    }
+
+    @DataProvider
+    public Object[][] invalidLines() {
+        return new Object[][] {
+            { "0\tconn-1" },
+            { "0\t\tdelete\tdc=example,dc=com" },
+            { "-1\tconn-1\tdelete\tdc=example,dc=com" },
+            { "now\tconn-1\tdelete\tdc=example,dc=com" },
+            { "0\tconn-1\trename\tdc=example,dc=com" },
+            { "0\tconn-1\tdelete" },
+            { "0\tconn-1\tdelete\tdc=example,dc=com\textra" },
+            { "0\tconn-1\tbind\tdc=example,dc=com" },
+            { "0\tconn-1\tsearch\tdc=example,dc=com\teverything\t(cn=*)" },
+            { "0\tconn-1\tsearch\tdc=example,dc=com\tsub\tnot a filter" },
+            { "0\tconn-1\tcompare\tdc=example,dc=com\tno assertion" },
+            { "0\tconn-1\tmodify\tdc=example,dc=com\tremove:cn" },
+            { "0\tconn-1\tadd\tnot a dn\tcn:value" },
+        };
+    }
+
+    @Test(dataProvider = "invalidLines", expectedExceptions = ArgumentException.class)
+    public void testParseInvalidLine(final String line) throws Exception {
+        ReplayLog.parseRecord(line, 1);
+    }
+
+    @Test
+    public void testSpeedFactor() throws Exception {
+        assertThat(ReplayRate.parseSpeedFactor("1")).isEqualTo(1.0);
+        assertThat(ReplayRate.parseSpeedFactor("0.5")).isEqualTo(0.5);
+        assertThat(ReplayRate.parseSpeedFactor("0")).isEqualTo(0.0);
+    }
+
+    @DataProvider
+    public Object[][] invalidSpeedFactors() {
+        return new Object[][] { { "" }, { "-1" }, { "fast" }, { "Infinity" }, { "NaN" } };
+    }
+
+    @Test(dataProvider = "invalidSpeedFactors", expectedExceptions = ArgumentException.class)
+    public void testInvalidSpeedFactor(final String speedFactor) throws Exception {
+        ReplayRate.parseSpeedFactor(speedFactor);
+    }
+
+    /**
+     * Replays a session whose bind is received while a search is in progress:
+     * the bind must wait for the search to complete, and the following search
+     * must wait for the bind.
+     */
+    @Test(timeOut = 10000)
+    public void testReplaySessionWithBindBetweenSearches() throws Exception {
+        final MemoryBackend backend = new MemoryBackend(new LDIFEntryReader(
+                "dn: dc=example,dc=com",
+                "objectClass: top",
+                "objectClass: domain",
+                "dc: example",
+                "",
+                "dn: uid=user.0,dc=example,dc=com",
+                "objectClass: top",
+                "objectClass: extensibleObject",
+                "uid: user.0",
+                "userPassword: password"));
+        final InetSocketAddress address = findFreeSocketAddress();
+        final LDAPListener listener = new LDAPListener(address, Connections.newServerConnectionFactory(backend));
+        final LDAPConnectionFactory factory = new LDAPConnectionFactory(address.getHostName(), address.getPort());
+        final List<Record> records = read("0\tconn-1\tsearch\tdc=example,dc=com\tsub\t(objectClass=*)\n"
+                + "1\tconn-1\tbind\tuid=user.0,dc=example,dc=com\tpassword\n"
+                + "2\tconn-1\tsearch\tdc=example,dc=com\tsub\t(uid=user.0)\n");
+
+        // Keep the first search in progress until all the operations of the session have been sent.
+        final CountDownLatch operationsSent = new CountDownLatch(1);
+        final SearchResultHandler handler = new SearchResultHandler() {
+            @Override
+            public boolean handleEntry(final SearchResultEntry entry) {
+                try {
+                    operationsSent.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+
+            @Override
+            public boolean handleReference(final SearchResultReference reference) {
+                return true;
+            }
+        };
+
+        try {
+            final ReplayRate.Session session = new ReplayRate.Session(factory.getConnectionAsync());
+            final List<Promise<Result, LdapException>> promises = new ArrayList<>();
+            for (final Record record : records) {
+                promises.add(session.send(record.getType(), record.getRequest(), handler));
+            }
+            operationsSent.countDown();
+
+            for (final Promise<Result, LdapException> promise : promises) {
+                assertThat(promise.getOrThrow().getResultCode()).isEqualTo(ResultCode.SUCCESS);
+            }
+            session.close();
+            session.getAllOperations().getOrThrow();
+        } finally {
+            operationsSent.countDown();
+            factory.close();
+            listener.close();
+        }
+    }
+
+    private static List<Record> read(final String log) throws Exception {
+        final List<Record> records = new ArrayList<>();
+        try (ReplayLog replayLog = new ReplayLog(new BufferedReader(new StringReader(log)))) {
+            for (Record record = replayLog.next(); record != null; record = replayLog.next()) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License, Version 1.0 only
+ * (the "License").  You may not use this file except in compliance
+ * with the License.
+ *
+ * You can obtain a copy of the license at legal-notices/CDDLv1_0.txt
+ * or http://forgerock.org/license/CDDLv1.0.html.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at legal-notices/CDDLv1_0.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information:
+ *      Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ *
+ *      Copyright 2026 Wren Security.
+ */
+package com.forgerock.opendj.ldap.tools;
+
+import static org.fest.assertions.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+
+import org.forgerock.opendj.ldap.ModificationType;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.forgerock.opendj.ldap.requests.AddRequest;
+import org.forgerock.opendj.ldap.requests.CompareRequest;
+import org.forgerock.opendj.ldap.requests.DeleteRequest;
+import org.forgerock.opendj.ldap.requests.ModifyRequest;
+import org.forgerock.opendj.ldap.requests.SearchRequest;
+import org.forgerock.opendj.ldap.requests.SimpleBindRequest;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.forgerock.opendj.cli.ArgumentException;
+import com.forgerock.opendj.ldap.tools.Workload.OperationTemplate;
+import com.forgerock.opendj.ldap.tools.Workload.OperationType;
+import com.forgerock.opendj.ldap.tools.WorkloadRate.Stage;
+
+@SuppressWarnings("javadoc")
+public class WorkloadRateTestCase extends ToolsTestCase {
+    private static final String WORKLOAD = "# Mixed workload\n"
+            + "operation: search\n"
+            + "weight: 70\n"
+            + "dn: ou=people,dc=example,dc=com\n"
+            + "scope: one\n"
+            + "filter: (uid=user.%1$s)\n"
+            + "attributes: cn, mail\n"
+            + "\n"
+            + "operation: bind\n"
+            + "weight: 20\n"
+            + "dn: uid=user.%1$s,ou=people,dc=example,dc=com\n"
+            + "password: password\n"
+            + "\n\n"
+            + "operation: modify\n"
+            + "weight: 8\n"
+            + "dn: uid=user.%1$s,ou=people,dc=example,dc=com\n"
+            + "replace: description:%2$s\n"
+            + "replace: sn:%2$s\n"
+            + "\n"
+            + "operation: add\n"
+            + "weight: 2\n"
+            + "dn: uid=new.%1$s,ou=people,dc=example,dc=com\n"
+            + "attribute: objectClass:person\n"
+            + "attribute: cn:%2$s\n"
+            + "attribute: sn:%2$s\n"
+            + "\n"
+            + "name: cleanup\n"
+            + "operation: delete\n"
+            + "dn: uid=new.%1$s,ou=people,dc=example,dc=com\n"
+            + "\n"
+            + "operation: compare\n"
+            + "dn: uid=user.%1$s,ou=people,dc=example,dc=com\n"
+            + "assertion: description:%2$s";
+
+    @Test
+    public void testReadWorkload() throws Exception {
+        final Workload workload = read(WORKLOAD);
+        assertThat(workload.getOperations()).hasSize(6);
+        assertThat(workload.getTotalWeight()).isEqualTo(102);
+
+        final OperationTemplate cleanup = workload.getOperations().get(4);
+        assertThat(cleanup.getName()).isEqualTo("cleanup");
+        assertThat(cleanup.getType()).isEqualTo(OperationType.DELETE);
+        assertThat(cleanup.getWeight()).isEqualTo(1);
+    }
+
+    @Test
+    public void testNewRequests() throws Exception {
+        final Workload workload = read(WORKLOAD);
+        final Object[] data = { 42, "value" };
+
+        final SearchRequest search = (SearchRequest) workload.getOperations().get(0).newRequest(data);
+        assertThat(search.getName().toString()).isEqualTo("ou=people,dc=example,dc=com");
+        assertThat(search.getScope()).isEqualTo(SearchScope.SINGLE_LEVEL);
+        assertThat(search.getFilter().toString()).isEqualTo("(uid=user.42)");
+        assertThat(search.getAttributes()).containsExactly("cn", "mail");
+
+        final SimpleBindRequest bind = (SimpleBindRequest) workload.getOperations().get(1).newRequest(data);
+        assertThat(bind.getName()).isEqualTo("uid=user.42,ou=people,dc=example,dc=com");
+        assertThat(new String(bind.getPassword(), "UTF-8")).isEqualTo("password");
+
+        final ModifyRequest modify = (ModifyRequest) workload.getOperations().get(2).newRequest(data);
+        assertThat(modify.getModifications()).hasSize(2);
+        assertThat(modify.getModifications().get(0).getModificationType()).isEqualTo(ModificationType.REPLACE);
+        assertThat(modify.getModifications().get(1).getAttribute().firstValueAsString()).isEqualTo("value");
+
+        final AddRequest add = (AddRequest) workload.getOperations().get(3).newRequest(data);
+        assertThat(add.getName().toString()).isEqualTo("uid=new.42,ou=people,dc=example,dc=com");
+        assertThat(add.getAttributeCount()).isEqualTo(3);
+
+        final DeleteRequest delete = (DeleteRequest) workload.getOperations().get(4).newRequest(data);
+        assertThat(delete.getName().toString()).isEqualTo("uid=new.42,ou=people,dc=example,dc=com");
+
+        final CompareRequest compare = (CompareRequest) workload.getOperations().get(5).newRequest(data);
+        assertThat(compare.getAttributeDescription().toString()).isEqualTo("description");
+        assertThat(compare.getAssertionValueAsString()).isEqualTo("value");
+    }
+
+    @Test
+    public void testSelectOperation() throws Exception {
+        final Workload workload = read(WORKLOAD);
+        final int[] selected = new int[workload.getOperations().size()];
+        for (int random = 0; random < workload.getTotalWeight(); random++) {
+            selected[workload.selectOperation(random)]++;
+        }
+        assertThat(selected).isEqualTo(new int[] { 70, 20, 8, 2, 1, 1 });
+    }
+
+    @DataProvider
+    public Object[][] invalidWorkloads() {
+        return new Object[][] {
+            { "" },
+            { "# Only comments\n\n" },
+            { "operation: search\ndn: dc=example,dc=com\n" },
+            { "operation: rename\ndn: dc=example,dc=com\n" },
+            { "operation: delete\n" },
+            { "operation: delete\ndn: dc=example,dc=com\nfilter: (objectClass=*)\n" },
+            { "operation: delete\ndn: dc=example,dc=com\nweight: 0\n" },
+            { "operation: delete\ndn: dc=example,dc=com\nweight: heavy\n" },
+            { "operation: delete\ndn: dc=example,dc=com\ndn: dc=example,dc=org\n" },
+            { "operation: search\ndn: dc=example,dc=com\nfilter: (cn=*)\nscope: everything\n" },
+            { "operation: delete\ndn: dc=example,dc=com\nnot a key value pair\n" },
+            { "dn: dc=example,dc=com\n" },
+            { "operation: delete\ndn: dc=example,dc=com\n\noperation: delete\ndn: dc=example,dc=org\n" },
+        };
+    }
+
+    @Test(dataProvider = "invalidWorkloads", expectedExceptions = ArgumentException.class)
+    public void testReadInvalidWorkload(final String workload) throws Exception {
+        read(workload);
+    }
+
+    @Test
+    public void testStages() throws Exception {
+        final Stage stage = Stage.valueOf("60:1000");
+        assertThat(stage.getTargetThroughput(100, 0)).isEqualTo(100);
+        assertThat(stage.getTargetThroughput(100, 30000)).isEqualTo(550);
+        assertThat(stage.getTargetThroughput(100, 60000)).isEqualTo(1000);
+        assertThat(stage.getTargetThroughput(100, 90000)).isEqualTo(1000);
+        assertThat(Stage.valueOf("10:1").getTargetThroughput(0, 0)).isEqualTo(1);
+        assertThat(Stage.valueOf("0:500").getTargetThroughput(100, 0)).isEqualTo(500);
+    }
+
+    @DataProvider
+    public Object[][] invalidStages() {
+        return new Object[][] { { "60" }, { "60:" }, { ":1000" }, { "-1:1000" }, { "60:0" }, { "a:b" } };
+    }
+
+    @Test(dataProvider = "invalidStages", expectedExceptions = ArgumentException.class)
+    public void testInvalidStage(final String stage) throws Exception {
+        Stage.valueOf(stage);
+    }
+
+    private static Workload read(final String workload) throws Exception {
+        return Workload.read(new BufferedReader(new StringReader(workload)));
+    }
+}